@@ -1,22 +1,62 @@
+import geometry.PolygonBoolean;
+import geometry.Simplifier;
+import logging.Logger;
 import models.*;
 import models.Point;
 import models.Polygon;
+import rasterizers.CheckpointedRenderer;
 import rasterizers.FloodFiller;
 import rasterizers.LineCanvasRasterizer;
 import rasterizers.PolygonRasterizer;
 import rasters.*;
+import storage.Autosaver;
+import storage.RasterExporter;
+import tools.BrushTool;
+import tools.EraserTool;
+import tools.FillTool;
+import tools.LineTool;
+import tools.PolygonTool;
+import tools.SelectTool;
+import tools.ShapeTool;
+import tools.Tool;
+import tools.ToolContext;
+import javax.imageio.ImageIO;
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
 import java.io.Serial;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 public class App {
     // constants for window dimensions
+    private static final Logger LOG = Logger.get("app");
     private static final int DEFAULT_WIDTH = 800;
     private static final int DEFAULT_HEIGHT = 600;
     private static final int V_KEY = KeyEvent.VK_V;
     private static final int B_KEY = KeyEvent.VK_B;
+    private static final String RESIZE_COMMAND = "RESIZE:";
+    private static final double SHAPE_TOLERANCE = 1.5;
+    private static final int LAYER_OPACITY_STEP = 51;
+    private static final Path AUTOSAVE_FILE = Path.of(System.getProperty("autosave.file",
+            System.getProperty("user.home") + "/.draw-draw-draw/autosave.journal"));
+    private static final String TRACE_FILE = System.getProperty("trace.record");
+    private static final String CANVAS_SIZE = System.getProperty("canvas.size");
+    private static final String RASTER_BACKEND = System.getProperty("raster.backend");
+    private static final boolean CDS_TRAINING = Boolean.getBoolean("cds.training");
+    private static final int MENU_BUILD_DELAY_MILLIS = 300;
+    private static final String[] TRAINING_TOOLS = {"TOOL_LINE", "TOOL_POLYGON", "TOOL_RECTANGLE", "TOOL_TRIANGLE",
+            "TOOL_CIRCLE", "TOOL_BRUSH", "TOOL_INK", "TOOL_ERASER", "TOOL_FILL", "TOOL_OBJECT_ERASER",
+            "TOOL_SPLIT_ERASER", "TOOL_SELECT"};
 
 
     // main ui components
@@ -25,9 +65,20 @@ public class App {
     private final Toolbar toolbar;
 
     // raster components for double buffering
+    private final RasterBackend rasterBackend;
     private final Raster baseRaster;
     private final Raster previewRaster;
     private final DoubleBufferedRaster raster;
+    private final Viewport viewport;
+
+    // document layers composited into the base raster, each replayed from its own operations
+    private final LayerStack layerStack;
+    private final List<CheckpointedRenderer> layerRenderers = new ArrayList<>();
+    private int committedModCount = -1;
+
+    // smallest canvas size, the canvas grows with the panel beyond it
+    private final int documentWidth;
+    private final int documentHeight;
 
     // drawing tools and state
     private LineCanvasRasterizer rasterizer = null;
@@ -35,73 +86,131 @@ public class App {
     private final FloodFiller floodFiller;
     private LineCanvas canvas;
     private final ArrayList<Polygon> polygons = new ArrayList<>();
+    private final DisplayList displayList = new DisplayList();
+    private final PolygonBoolean polygonBoolean = new PolygonBoolean();
+    private final Simplifier simplifier = new Simplifier();
+    private final SelectionTracker selectionTracker = new SelectionTracker();
+    private final Autosaver autosaver = new Autosaver(AUTOSAVE_FILE);
+    private InputRecorder recorder;
 
     // input handlers
     private MouseAdapter mouseAdapter;
     private KeyAdapter keyAdapter;
 
-    // current drawing state
-    private Point point;
-    private Polygon polygon;
-    private Point shapeStartPoint;
-    private Point lastBrushPoint;
-    private final SelectionTracker selectionTracker = new SelectionTracker();
-
-    // mode flags for different tools
-    private boolean isSelecting = false;
+    // view panning with the middle button
+    private boolean panning = false;
+    private int panLastX;
+    private int panLastY;
+
+    // grid of recorded shapes for hit testing, rebuilt when the document changes
+    private final SpatialIndex<DrawOp> shapeIndex = new SpatialIndex<>(64);
+    private int shapeIndexModCount = -1;
+
+    // tools with their own scratch state, every mouse event goes to the active one
+    private final ToolContext toolContext = new AppToolContext();
+    private final Rectangle repaintBounds = new Rectangle();
+    private LineTool lineTool;
+    private PolygonTool polygonTool;
+    private FillTool fillTool;
+    private ShapeTool rectangleTool;
+    private ShapeTool triangleTool;
+    private ShapeTool circleTool;
+    private BrushTool brushTool;
+    private BrushTool inkTool;
+    private BrushTool eraserTool;
+    private EraserTool objectEraserTool;
+    private EraserTool splitEraserTool;
+    private SelectTool selectTool;
+    private Tool tool;
+
+    // held keys
     private boolean shiftMode = false;
-    private boolean polygonMode = false;
-    private boolean fillMode = false;
-    private boolean rectangleMode = false;
-    private boolean triangleMode = false;
-    private boolean circleMode = false;
-    private boolean brushMode = false;
-    private boolean eraserMode = false;
 
+    // time of the mouse event passed to the active tool
+    private long eventTime;
     private LineStyle currentLineStyle = LineStyle.SOLID;
 
-    // default background color
-    private Color backgroundColor = new Color(0xaaaaaa);
+    // default background color as argb
+    private int backgroundColor = 0xffaaaaaa;
+
+    // tile image of pattern fills, null until one is chosen
+    private String patternPath;
 
     // main entry point
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> new App(DEFAULT_WIDTH, DEFAULT_HEIGHT).start());
+        int width = DEFAULT_WIDTH;
+        int height = DEFAULT_HEIGHT;
+        if (CANVAS_SIZE != null) {
+            try {
+                String[] size = CANVAS_SIZE.split("x");
+                width = Integer.parseInt(size[0]);
+                height = Integer.parseInt(size[1]);
+            } catch (RuntimeException e) {
+                LOG.warn("Ignoring canvas size {}, expected WIDTHxHEIGHT", CANVAS_SIZE);
+            }
+        }
+        int documentWidth = width;
+        int documentHeight = height;
+        boolean headless = CDS_TRAINING && GraphicsEnvironment.isHeadless();
+
+        // the backend benchmark and reading the journal need no Swing, they run while the toolkit loads
+        CompletableFuture<RasterBackend> backend = CompletableFuture.supplyAsync(() -> selectBackend(headless));
+        CompletableFuture<DisplayList> journal = CDS_TRAINING ? null : CompletableFuture.supplyAsync(App::readJournal);
+        SwingUtilities.invokeLater(() -> {
+            App app = new App(documentWidth, documentHeight, headless, backend, journal);
+            app.start();
+            if (CDS_TRAINING) SwingUtilities.invokeLater(app::train);
+        });
     }
 
     // initialize application with given dimensions
     public App(int width, int height) {
-        KeyboardFocusManager.getCurrentKeyboardFocusManager().addKeyEventDispatcher(e -> {
-            if (e.getID() == KeyEvent.KEY_PRESSED) {
-                switch (e.getKeyCode()) {
-                    case KeyEvent.VK_SHIFT -> shiftMode = true;
-                    case KeyEvent.VK_V -> currentLineStyle = LineStyle.DOTTED;
-                    case KeyEvent.VK_B -> currentLineStyle = LineStyle.DASHED;
-                }
-            } else if (e.getID() == KeyEvent.KEY_RELEASED) {
-                switch (e.getKeyCode()) {
-                    case KeyEvent.VK_SHIFT -> shiftMode = false;
-                    case KeyEvent.VK_V, KeyEvent.VK_B -> currentLineStyle = LineStyle.SOLID;
-                }
-            }
-            return false;
-        });
+        this(width, height, false, CompletableFuture.completedFuture(selectBackend(false)),
+                CompletableFuture.completedFuture(readJournal()));
+    }
+
+    // initialize application, a headless instance has no window, autosave or recording and is driven by replay
+    App(int width, int height, boolean headless) {
+        this(width, height, headless, CompletableFuture.completedFuture(selectBackend(headless)), null);
+    }
+
+    // initialize application with backend and saved document prepared elsewhere
+    // without a journal the session starts empty and is neither saved nor recorded
+    private App(int width, int height, boolean headless, CompletableFuture<RasterBackend> backend,
+                CompletableFuture<DisplayList> journal) {
+        if (!headless) {
+            KeyboardFocusManager.getCurrentKeyboardFocusManager().addKeyEventDispatcher(this::dispatchKey);
+        }
 
         // setup main window
-        frame = new JFrame();
-        frame.setLayout(new BorderLayout());
-        frame.setTitle("Draw-draw-draw");
-        frame.setResizable(true);
-        frame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
+        frame = headless ? null : new JFrame();
+        if (frame != null) {
+            frame.setLayout(new BorderLayout());
+            frame.setTitle("Draw-draw-draw");
+            frame.setResizable(true);
+            frame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
+        }
 
         // initialize toolbar with menu handlers
         toolbar = new Toolbar(this::handleMenuAction);
-        frame.setJMenuBar(toolbar.getMenuBar());
-        toolbar.setSettingsChangeListener(e -> rasterizer.setLineWidth(toolbar.getLineWidth()));
+        if (frame != null) frame.setJMenuBar(toolbar.getMenuBar());
+        toolbar.setSettingsChangeListener(e -> {
+            record(e);
+            rasterizer.setLineWidth(toolbar.getLineWidth());
+        });
 
         // setup raster buffers
-        baseRaster = new RasterBufferedImage(width, height);
-        previewRaster = new RasterBufferedImage(width, height);
+        documentWidth = width;
+        documentHeight = height;
+        rasterBackend = backend.join();
+        baseRaster = rasterBackend.create(width, height);
+        previewRaster = rasterBackend.create(width, height);
         raster = new DoubleBufferedRaster(baseRaster, previewRaster);
+        viewport = new Viewport(raster);
+        layerStack = new LayerStack(rasterBackend.create(width, height), "Layer 1",
+                rasterBackend.create(width, height));
+        layerStack.setClearColor(backgroundColor);
+        layerRenderers.add(new CheckpointedRenderer(0));
 
         // create drawing panel
         panel = new JPanel() {
@@ -115,186 +224,667 @@ public class App {
             }
         };
         panel.setPreferredSize(new Dimension(width, height));
-        frame.add(panel, BorderLayout.CENTER);
+        panel.setSize(width, height);
+        panel.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                record(new ActionEvent(panel, ActionEvent.ACTION_PERFORMED,
+                        RESIZE_COMMAND + panel.getWidth() + "x" + panel.getHeight()));
+                resizeCanvas(panel.getWidth(), panel.getHeight());
+            }
+        });
+        // moving the window to a screen with another scale changes the backing store size
+        panel.addPropertyChangeListener("graphicsConfiguration",
+                e -> resizeCanvas(panel.getWidth(), panel.getHeight()));
 
         // initialize drawing tools
         rasterizer = new LineCanvasRasterizer(raster);
         polygonRasterizer = new PolygonRasterizer(raster, rasterizer);
         canvas = new LineCanvas(new ArrayList<>(), new ArrayList<>());
-        polygon = new Polygon();
         floodFiller = new FloodFiller(raster);
+        createTools();
 
-        // setup input handlers and show window
+        // setup input handlers
         createInputAdapters();
+        if (headless) {
+            // replays run menu commands right away, build the items now so they are not timed as input
+            toolbar.buildMenus();
+            return;
+        }
+
+        // continue where the previous session ended and keep saving in the background
+        if (journal != null) {
+            recoverDocument(journal.join());
+            autosaver.attach(displayList);
+            startRecording(width, height);
+            frame.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e) {
+                    autosaver.close();
+                    if (recorder != null) recorder.close();
+                }
+            });
+        }
+
+        // show window, menu items are built once the first frame is up unless a menu is opened sooner
+        frame.add(panel, BorderLayout.CENTER);
         frame.pack();
         frame.setVisible(true);
+        Timer menuBuilder = new Timer(MENU_BUILD_DELAY_MILLIS, e -> toolbar.buildMenus());
+        menuBuilder.setRepeats(false);
+        menuBuilder.start();
+    }
+
+    // pick canvas backend, headless replays keep the default so their results compare across machines
+    private static RasterBackend selectBackend(boolean headless) {
+        return RasterBackends.select(RASTER_BACKEND != null ? RASTER_BACKEND
+                : headless ? RasterBackends.DEFAULT : RasterBackends.AUTO);
+    }
+
+    // read document saved by autosave before the last exit or crash, empty when there is none
+    private static DisplayList readJournal() {
+        try {
+            return Autosaver.recover(AUTOSAVE_FILE);
+        } catch (IOException e) {
+            LOG.warn("Could not recover autosave: {}", e.getMessage());
+            return new DisplayList();
+        }
+    }
+
+    // record input to trace file when started with -Dtrace.record=file
+    private void startRecording(int width, int height) {
+        if (TRACE_FILE == null) return;
+        try {
+            recorder = new InputRecorder(Path.of(TRACE_FILE), width, height);
+        } catch (IOException e) {
+            LOG.warn("Could not start input recording: {}", e.getMessage());
+        }
+    }
+
+    // append event to input trace when recording
+    private void record(AWTEvent e) {
+        if (recorder != null) recorder.record(e);
+    }
+
+    // feed recorded event through the same handlers as live input
+    void replay(AWTEvent e) {
+        if (e instanceof MouseWheelEvent) {
+            mouseAdapter.mouseWheelMoved((MouseWheelEvent) e);
+        } else if (e instanceof MouseEvent) {
+            switch (e.getID()) {
+                case MouseEvent.MOUSE_PRESSED -> mouseAdapter.mousePressed((MouseEvent) e);
+                case MouseEvent.MOUSE_RELEASED -> mouseAdapter.mouseReleased((MouseEvent) e);
+                case MouseEvent.MOUSE_DRAGGED -> mouseAdapter.mouseDragged((MouseEvent) e);
+            }
+        } else if (e instanceof KeyEvent) {
+            dispatchKey((KeyEvent) e);
+        } else if (e instanceof ActionEvent) {
+            String command = ((ActionEvent) e).getActionCommand();
+            if (command.startsWith(RESIZE_COMMAND)) {
+                String[] size = command.substring(RESIZE_COMMAND.length()).split("x");
+                panel.setSize(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+                resizeCanvas(panel.getWidth(), panel.getHeight());
+            } else {
+                toolbar.perform(command);
+            }
+        }
+    }
+
+    // fit canvas to the panel in device pixels, it never gets smaller than the document size
+    private void resizeCanvas(int panelWidth, int panelHeight) {
+        double scale = getDeviceScale();
+        viewport.setDeviceScale(scale);
+        int width = Math.max(documentWidth, (int) Math.ceil(panelWidth * scale));
+        int height = Math.max(documentHeight, (int) Math.ceil(panelHeight * scale));
+        int oldWidth = raster.getWidth();
+        int oldHeight = raster.getHeight();
+        if (width == oldWidth && height == oldHeight) return;
+
+        LOG.debug("Canvas resized to {}x{}", width, height);
+        raster.resize(width, height);
+        layerStack.resize(width, height);
+
+        // pixels that stayed inside are kept, only uncovered strips are replayed
+        boolean complete = true;
+        if (width > oldWidth) {
+            complete = renderUncovered(new Rectangle(oldWidth, 0, width - oldWidth, height));
+        }
+        if (complete && height > oldHeight) {
+            complete = renderUncovered(new Rectangle(0, oldHeight, Math.min(oldWidth, width), height - oldHeight));
+        }
+        if (complete) {
+            panel.repaint();
+        } else {
+            commitAllChanges();
+        }
+    }
+
+    // replay document into uncovered region of every shown layer and both rasters, false if it needs a full redraw
+    private boolean renderUncovered(Rectangle region) {
+        List<Layer> layers = layerStack.getLayers();
+        for (int i = 0; i < layers.size(); i++) {
+            Layer layer = layers.get(i);
+            if (layer.isSkipped()) continue;
+            if (!layerRenderers.get(i).renderRegion(displayList, layer.getRaster(), region)) return false;
+        }
+        layerStack.invalidate(region);
+        baseRaster.copyRect(layerStack.flatten(), region.x, region.y, region.width, region.height);
+        previewRaster.copyRect(baseRaster, region.x, region.y, region.width, region.height);
+        return true;
+    }
+
+    // get device pixels per screen unit of the screen showing the panel
+    private double getDeviceScale() {
+        GraphicsConfiguration configuration = panel.getGraphicsConfiguration();
+        return configuration != null ? configuration.getDefaultTransform().getScaleX() : 1;
+    }
+
+    // get visible raster, used to inspect replay results
+    Raster getRaster() {
+        return raster;
+    }
+
+    // track modifier keys for line style and precise drawing, other keys pass through
+    private boolean dispatchKey(KeyEvent e) {
+        if (e.getID() == KeyEvent.KEY_PRESSED) {
+            record(e);
+            switch (e.getKeyCode()) {
+                case KeyEvent.VK_SHIFT -> shiftMode = true;
+                case KeyEvent.VK_V -> currentLineStyle = LineStyle.DOTTED;
+                case KeyEvent.VK_B -> currentLineStyle = LineStyle.DASHED;
+            }
+        } else if (e.getID() == KeyEvent.KEY_RELEASED) {
+            record(e);
+            switch (e.getKeyCode()) {
+                case KeyEvent.VK_SHIFT -> shiftMode = false;
+                case KeyEvent.VK_V, KeyEvent.VK_B -> currentLineStyle = LineStyle.SOLID;
+            }
+        }
+        return false;
     }
 
     // start application with cleared canvas
     public void start() {
         clear(backgroundColor);
+        if (displayList.size() > 0) {
+            commitAllChanges();
+        }
         panel.repaint();
     }
 
-    // clear canvas with specified color
-    public void clear(Color color) {
-        raster.setClearColor(color.getRGB());
+    // restore document read from the autosave journal, with as many layers as its operations use
+    private void recoverDocument(DisplayList recovered) {
+        for (DrawOp op : recovered.getOps()) {
+            int layer = recovered.getLayer(op);
+            while (layerStack.getLayers().size() <= layer) createLayer();
+            displayList.add(op, layer);
+            registerShape(op);
+        }
+    }
+
+    // draw with every tool and run the common commands once so that -XX:ArchiveClassesAtExit
+    // stores the classes a session loads, then exit to write the archive
+    private void train() {
+        toolbar.buildMenus();
+        toolbar.perform("FILL_SHAPES");
+        toolbar.perform("FILL_LINEAR");
+        int width = Math.min(panel.getWidth(), documentWidth);
+        int height = Math.min(panel.getHeight(), documentHeight);
+        for (int i = 0; i < TRAINING_TOOLS.length; i++) {
+            toolbar.perform(TRAINING_TOOLS[i]);
+            int y = height * (i + 1) / (TRAINING_TOOLS.length + 2);
+            replayStroke(width / 4, y, width * 3 / 4, y + height / 8);
+        }
+        for (String command : new String[]{"SELECT_ALL", "SCALE_UP", "ROTATE", "SIMPLIFY", "UNDO",
+                "ZOOM_IN", "ZOOM_OUT", "ZOOM_RESET", "FILL_SOLID", "CLEAR"}) {
+            toolbar.perform(command);
+        }
+        if (frame != null) frame.getRootPane().paintImmediately(0, 0, frame.getWidth(), frame.getHeight());
+        LOG.info("Class data training finished");
+        Logger.flush();
+        System.exit(0);
+    }
+
+    // feed left button drag between two points through the mouse handlers
+    private void replayStroke(int x1, int y1, int x2, int y2) {
+        long when = System.currentTimeMillis();
+        int steps = 8;
+        replay(new MouseEvent(panel, MouseEvent.MOUSE_PRESSED, when, InputEvent.BUTTON1_DOWN_MASK, x1, y1, 1, false,
+                MouseEvent.BUTTON1));
+        for (int i = 1; i <= steps; i++) {
+            replay(new MouseEvent(panel, MouseEvent.MOUSE_DRAGGED, when + i * 16L, InputEvent.BUTTON1_DOWN_MASK,
+                    x1 + (x2 - x1) * i / steps, y1 + (y2 - y1) * i / steps, 0, false, MouseEvent.NOBUTTON));
+        }
+        replay(new MouseEvent(panel, MouseEvent.MOUSE_RELEASED, when + (steps + 1) * 16L, 0, x2, y2, 1, false,
+                MouseEvent.BUTTON1));
+    }
+
+    // clear canvas with specified argb color
+    public void clear(int color) {
+        raster.setClearColor(color);
         raster.clear();
+        // the bottom layer is cleared to the same color, so its checkpoints are stale
+        layerStack.setClearColor(color);
+        layerRenderers.get(0).invalidateAll();
     }
 
     // render current raster to graphics context
     public void present(Graphics graphics) {
-        raster.repaint(graphics);
-        if (isSelecting) {
-            graphics.setColor(Color.RED);
-            graphics.drawString("Selection Tool Active", 10, 20);
-        }
+        viewport.paint(graphics);
+        tool.paintOverlay(graphics);
     }
 
     // handle menu actions from toolbar
     private void handleMenuAction(ActionEvent e) {
+        record(e);
         switch (e.getActionCommand()) {
             case "NEW": handleNew(); break;
             case "CLEAR": handleClear(); break;
             case "EXIT": handleExit(); break;
-            case "TOOL_LINE": handleToolLine(); break;
-            case "TOOL_POLYGON": handleToolPolygon(); break;
-            case "TOOL_FILL": handleToolFill(); break;
-            case "TOOL_ERASER": handleToolEraser(); break;
+            case "TOOL_LINE": setTool(lineTool); break;
+            case "TOOL_POLYGON": setTool(polygonTool); break;
+            case "TOOL_FILL": setTool(fillTool); break;
+            case "TOOL_ERASER": setTool(eraserTool); break;
+            case "TOOL_OBJECT_ERASER": setTool(objectEraserTool); break;
+            case "TOOL_SPLIT_ERASER": setTool(splitEraserTool); break;
             case "UNDO": handleUndo(); break;
             case "OPEN": handleOpen(); break;
             case "SAVE": handleSave(); break;
-            case "TOOL_RECTANGLE": handleToolRectangle(); break;
-            case "TOOL_TRIANGLE": handleToolTriangle(); break;
-            case "TOOL_CIRCLE": handleToolCircle(); break;
-            case "TOOL_SELECT": handleToolSelect(); break;
-            case "TOOL_BRUSH": handleToolBrush(); break;
-            default: handleColorSelection(e); break;
+            case "TOOL_RECTANGLE": setTool(rectangleTool); break;
+            case "TOOL_TRIANGLE": setTool(triangleTool); break;
+            case "TOOL_CIRCLE": setTool(circleTool); break;
+            case "TOOL_SELECT": setTool(selectTool); break;
+            case "TOOL_BRUSH": setTool(brushTool); break;
+            case "TOOL_INK": setTool(inkTool); break;
+            case "FILL_PATTERN": handlePatternChoice(); break;
+            case "ZOOM_IN": handleZoom(2); break;
+            case "ZOOM_OUT": handleZoom(0.5); break;
+            case "ZOOM_RESET": handleZoomReset(); break;
+            case "SELECT_ALL": handleSelectAll(); break;
+            case "SCALE_UP": handleScaleSelection(1.25); break;
+            case "SCALE_DOWN": handleScaleSelection(0.8); break;
+            case "ROTATE": handleRotateSelection(Math.toRadians(15)); break;
+            case "SIMPLIFY": handleSimplifySelection(); break;
+            case "BOOL_UNION": handleBooleanOperation(PolygonBoolean.Operation.UNION); break;
+            case "BOOL_INTERSECTION": handleBooleanOperation(PolygonBoolean.Operation.INTERSECTION); break;
+            case "BOOL_DIFFERENCE": handleBooleanOperation(PolygonBoolean.Operation.DIFFERENCE); break;
+            case "LAYER_ADD": handleAddLayer(); break;
+            case "LAYER_ABOVE": selectLayer(layerStack.getActiveIndex() + 1); break;
+            case "LAYER_BELOW": selectLayer(layerStack.getActiveIndex() - 1); break;
+            case "LAYER_VISIBILITY": handleLayerVisibility(); break;
+            case "LAYER_OPACITY_UP": handleLayerOpacity(LAYER_OPACITY_STEP); break;
+            case "LAYER_OPACITY_DOWN": handleLayerOpacity(-LAYER_OPACITY_STEP); break;
+            default:
+                if (e.getActionCommand().startsWith(Toolbar.BLEND_COMMAND)) {
+                    handleBlendMode(e.getActionCommand().substring(Toolbar.BLEND_COMMAND.length()));
+                } else {
+                    handleColorSelection(e);
+                }
+                break;
         }
     }
 
     // reset canvas to initial state
     private void handleNew() {
-        raster.clear();
         canvas = new LineCanvas(new ArrayList<>(), new ArrayList<>());
-        polygon = new Polygon();
-        panel.repaint();
+        clearDocument();
     }
 
     // clear current drawing
     private void handleClear() {
+        canvas.clear();
+        clearDocument();
+    }
+
+    // drop all recorded operations and shapes
+    private void clearDocument() {
+        displayList.clear();
+        polygons.clear();
+        polygonTool.reset();
+        selectionTracker.clearSelection();
         raster.clear();
         panel.repaint();
     }
 
     // exit application
     private void handleExit() {
+        autosaver.close();
+        if (recorder != null) recorder.close();
         System.exit(0);
     }
 
-    // activate line drawing mode
-    private void handleToolLine() {
-        resetModes();
-        toolbar.setActiveTool("LINE");
+    // undo last document edit, e.g. a drawn shape, an erase or a boolean operation
+    private void handleUndo() {
+        DisplayList.Edit edit = displayList.undo();
+        if (edit == null) return;
+
+        for (DrawOp op : edit.getAdded()) forgetShape(op);
+        for (DrawOp op : edit.getRemoved()) registerShape(op);
+        selectionTracker.clearSelection();
+        commitAllChanges();
     }
 
-    // activate polygon drawing mode
-    private void handleToolPolygon() {
-        resetModes();
-        polygonMode = true;
-        polygon = new Polygon();
-        toolbar.setActiveTool("POLYGON");
+    // make lines and polygons of an operation entering the document selectable
+    private void registerShape(DrawOp op) {
+        if (op instanceof LineOp) {
+            canvas.add(((LineOp) op).getLine());
+        } else if (op instanceof PolygonOp) {
+            polygons.add(((PolygonOp) op).getPolygon());
+        }
     }
 
-    // activate fill tool mode
-    private void handleToolFill() {
-        resetModes();
-        fillMode = true;
-        toolbar.setActiveTool("FILL");
+    // keep selectable shapes in sync with an operation that left the document
+    private void forgetShape(DrawOp op) {
+        if (op instanceof LineOp) {
+            canvas.getLines().remove(((LineOp) op).getLine());
+        } else if (op instanceof PolygonOp) {
+            Polygon removed = ((PolygonOp) op).getPolygon();
+            polygons.remove(removed);
+            polygonTool.discard(removed);
+        }
     }
 
-    // activate eraser tool mode
-    private void handleToolEraser() {
-        resetModes();
-        eraserMode = true;
-        toolbar.setActiveTool("ERASER");
+    // replace recorded shape with pieces at its place, e.g. when a vector eraser cuts it
+    private void replaceShape(DrawOp op, List<DrawOp> pieces) {
+        boolean indexed = shapeIndexModCount == displayList.getModCount();
+        if (!displayList.replace(op, pieces)) return;
+
+        if (op instanceof LineOp && selectionTracker.isSelected(((LineOp) op).getLine())
+                || op instanceof PolygonOp && selectionTracker.isSelected(((PolygonOp) op).getPolygon())) {
+            selectionTracker.clearSelection();
+        }
+        forgetShape(op);
+        for (DrawOp piece : pieces) registerShape(piece);
+
+        // an eraser replaces shapes one by one, so patch the index instead of rebuilding it every time
+        if (indexed) {
+            shapeIndex.remove(op);
+            for (DrawOp piece : pieces) shapeIndex.insert(piece, piece.getBounds());
+            shapeIndexModCount = displayList.getModCount();
+        }
     }
 
-    // undo last drawing action
-    private void handleUndo() {
-        if (!canvas.getLines().isEmpty()) {
-            canvas.getLines().remove(canvas.getLines().size() - 1);
-            raster.clear();
-            rasterizer.rasterizeCanvas(canvas);
-            panel.repaint();
+    // choose tile image for pattern fills, without one the fill kind goes back to solid
+    private void handlePatternChoice() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Images", ImageIO.getReaderFileSuffixes()));
+        if (chooser.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION) {
+            patternPath = chooser.getSelectedFile().getAbsolutePath();
+        } else if (patternPath == null) {
+            toolbar.perform("FILL_SOLID");
         }
     }
 
-    // placeholder for open functionality
+    // import image file fitted into the canvas, decoding it lazily by region
     private void handleOpen() {
-        JOptionPane.showMessageDialog(panel, "No, thanks.");
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Images", ImageIO.getReaderFileSuffixes()));
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) return;
+
+        String path = chooser.getSelectedFile().getAbsolutePath();
+        int canvasWidth = baseRaster.getWidth();
+        int canvasHeight = baseRaster.getHeight();
+        new SwingWorker<ImageOp, Void>() {
+            @Override
+            protected ImageOp doInBackground() throws IOException {
+                TiledImage image = TiledImage.open(path);
+                double fit = Math.min(1, Math.min(canvasWidth / (double) image.getWidth(),
+                        canvasHeight / (double) image.getHeight()));
+                ImageOp op = new ImageOp(path, 0, 0,
+                        (int) Math.round(image.getWidth() * fit), (int) Math.round(image.getHeight() * fit));
+
+                // decode the subsampled tiles of the first frame off the event thread
+                int subsampling = image.chooseSubsampling(op.getWidth(), op.getHeight());
+                image.ensureTiles(subsampling, new Rectangle(0, 0,
+                        image.getLevelWidth(subsampling), image.getLevelHeight(subsampling)));
+                return op;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    displayList.add(get());
+                    commitAllChanges();
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(panel, "Cannot open image: " + cause.getMessage());
+                }
+            }
+        }.execute();
     }
 
-    // placeholder for save functionality
+    // export canvas to png, raw or lz4 file in background with progress
     private void handleSave() {
-        JOptionPane.showMessageDialog(panel, "Deleting System32...");
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("PNG, raw or LZ4 raster", "png", "raw", "lz4"));
+        if (chooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) return;
+
+        Path file = chooser.getSelectedFile().toPath();
+        if (!file.getFileName().toString().contains(".")) {
+            file = file.resolveSibling(file.getFileName() + ".png");
+        }
+        Path target = file;
+
+        // snapshot on the event thread so drawing can continue during export
+        RasterBufferedImage snapshot = new RasterBufferedImage(baseRaster.getWidth(), baseRaster.getHeight());
+        snapshot.copyFrom(baseRaster);
+
+        ProgressMonitor monitor = new ProgressMonitor(frame, "Saving " + target.getFileName(), null, 0, 100);
+        SwingWorker<Void, Void> worker = new SwingWorker<>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                new RasterExporter().export(snapshot, target, RasterExporter.formatFor(target),
+                        (done, total) -> setProgress(done * 100 / total));
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                try {
+                    get();
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(panel, "Cannot save image: " + cause.getMessage());
+                }
+            }
+        };
+        worker.addPropertyChangeListener(event -> {
+            if ("progress".equals(event.getPropertyName())) monitor.setProgress((Integer) event.getNewValue());
+        });
+        worker.execute();
+    }
+
+    // zoom around panel center
+    private void handleZoom(double factor) {
+        viewport.zoomAt(factor, panel.getWidth() / 2, panel.getHeight() / 2);
+        panel.repaint();
+    }
+
+    // return to 1:1 view
+    private void handleZoomReset() {
+        viewport.reset();
+        panel.repaint();
     }
 
-    // activate rectangle drawing mode
-    private void handleToolRectangle() {
-        resetModes();
-        rectangleMode = true;
-        toolbar.setActiveTool("RECTANGLE");
+    // select every line and polygon of the active layer
+    private void handleSelectAll() {
+        if (tool != selectTool) setTool(selectTool);
+        selectionTracker.clearSelection();
+        Set<Object> shapes = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (DrawOp op : displayList.getOps(displayList.getActiveLayer())) {
+            if (op instanceof PolygonOp) shapes.add(((PolygonOp) op).getPolygon());
+            if (op instanceof LineOp) shapes.add(((LineOp) op).getLine());
+        }
+        for (Polygon polygon : polygons) {
+            if (shapes.contains(polygon)) selectionTracker.addPolygon(polygon);
+        }
+        for (Line line : canvas.getLines()) {
+            if (shapes.contains(line)) selectionTracker.addLine(line);
+        }
+        panel.repaint();
     }
 
-    // activate triangle drawing mode
-    private void handleToolTriangle() {
-        resetModes();
-        triangleMode = true;
-        toolbar.setActiveTool("TRIANGLE");
+    // scale selection around its center
+    private void handleScaleSelection(double factor) {
+        if (!selectionTracker.hasSelection()) return;
+        selectionTracker.scaleSelection(factor);
+        selectTool.markSelectionChanged();
+        commitAllChanges();
     }
 
-    // activate circle drawing mode
-    private void handleToolCircle() {
-        resetModes();
-        circleMode = true;
-        toolbar.setActiveTool("CIRCLE");
+    // rotate selection around its center
+    private void handleRotateSelection(double radians) {
+        if (!selectionTracker.hasSelection()) return;
+        selectionTracker.rotateSelection(radians);
+        selectTool.markSelectionChanged();
+        commitAllChanges();
     }
 
-    // activate selection tool mode
-    private void handleToolSelect() {
-        resetModes();
-        isSelecting = true;
-        toolbar.setActiveTool("SELECT");
+    // reduce vertices of selected polygons in place
+    private void handleSimplifySelection() {
+        List<Polygon> selected = selectionTracker.getSelectedPolygons();
+        if (selected.isEmpty()) return;
+
+        for (Polygon polygon : selected) {
+            List<Point> points = polygon.getPoints();
+            List<Point> simplified = simplifier.simplify(polygon, SHAPE_TOLERANCE).getPoints();
+            points.clear();
+            points.addAll(simplified);
+            polygon.markChanged();
+        }
+        selectTool.markSelectionChanged();
+        commitAllChanges();
+    }
+
+    // combine selected polygons, the first selected one is the subject
+    private void handleBooleanOperation(PolygonBoolean.Operation operation) {
+        List<Polygon> selected = selectionTracker.getSelectedPolygons();
+        if (selected.size() < 2) {
+            JOptionPane.showMessageDialog(panel, "Select at least two polygons.");
+            return;
+        }
+
+        // the first selected polygon gives the result its outline and fill
+        List<DrawOp> operands = displayList.findOps(Collections.emptyList(), selected);
+        PolygonOp style = null;
+        for (DrawOp op : operands) {
+            if (((PolygonOp) op).getPolygon() == selected.get(0)) style = (PolygonOp) op;
+        }
+        if (style == null) return;
+        List<Polygon> result = List.of(selected.get(0));
+        for (int i = 1; i < selected.size(); i++) {
+            result = polygonBoolean.compute(result, List.of(selected.get(i)), operation);
+        }
+
+        // replace the operands with the resulting contours, undone as one edit
+        displayList.beginEdit();
+        displayList.removeAll(operands);
+        for (DrawOp op : operands) forgetShape(op);
+        selectionTracker.clearSelection();
+        for (Polygon contour : result) {
+            polygons.add(contour);
+            displayList.add(new PolygonOp(contour, style.getColor(), style.getStyle(), style.getWidth(),
+                    style.getFill()));
+            selectionTracker.addPolygon(contour);
+        }
+        displayList.endEdit();
+        commitAllChanges();
     }
 
-    // activate brush tool mode
-    private void handleToolBrush() {
-        resetModes();
-        brushMode = true;
-        toolbar.setActiveTool("BRUSH");
+    // put a new transparent layer on top of the others and draw into it
+    private void handleAddLayer() {
+        selectLayer(createLayer());
+    }
+
+    // add layer on top of the stack with a renderer of its own, returns its index
+    private int createLayer() {
+        int index = layerStack.getLayers().size();
+        layerStack.addLayer("Layer " + (index + 1));
+        layerRenderers.add(new CheckpointedRenderer(index));
+        return index;
+    }
+
+    // make layer receive new operations, tools only pick and erase shapes of this layer
+    private void selectLayer(int index) {
+        if (index < 0 || index >= layerStack.getLayers().size()) return;
+        layerStack.setActiveIndex(index);
+        displayList.setActiveLayer(index);
+        selectionTracker.clearSelection();
+        shapeIndexModCount = -1;
+        LOG.info("Drawing into {}", layerStack.getActiveLayer().getName());
+        commitAllChanges();
+    }
+
+    // show or hide active layer
+    private void handleLayerVisibility() {
+        Layer layer = layerStack.getActiveLayer();
+        layer.setVisible(!layer.isVisible());
+        commitAllChanges();
+    }
+
+    // change opacity of active layer by given step
+    private void handleLayerOpacity(int step) {
+        Layer layer = layerStack.getActiveLayer();
+        layer.setOpacity(layer.getOpacity() + step);
+        commitAllChanges();
+    }
+
+    // set blend mode of active layer by name
+    private void handleBlendMode(String name) {
+        layerStack.getActiveLayer().setBlendMode(BlendMode.valueOf(name));
+        commitAllChanges();
+    }
+
+    // render document without given operations into target, only layers holding some of them are replayed
+    private void renderExcluding(Raster target, Collection<? extends DrawOp> excluded) {
+        List<Layer> layers = layerStack.getLayers();
+        for (int i = 0; i < layers.size(); i++) {
+            Layer layer = layers.get(i);
+            boolean holding = false;
+            for (DrawOp op : excluded) holding |= displayList.getLayer(op) == i;
+            if (layer.isSkipped() || !holding) continue;
+
+            // the layer shows the document without them until the next commit replays it again
+            Raster pixels = layer.getRaster();
+            layerRenderers.get(i).renderExcluding(displayList, pixels, excluded);
+            layer.invalidate(new Rectangle(0, 0, pixels.getWidth(), pixels.getHeight()));
+        }
+        target.copyFrom(layerStack.flatten());
     }
 
     // handle color selection from toolbar
     private void handleColorSelection(ActionEvent e) {
         if (e.getActionCommand().startsWith("COLOR_")) {
-            System.out.println("Selected color: " + toolbar.getSelectedColor());
+            LOG.debug("Selected color: {}", toolbar.getSelectedColor());
         }
     }
 
-    // reset all tool modes to default state
-    private void resetModes() {
+    // create one instance of each tool, the line tool starts active
+    private void createTools() {
+        lineTool = new LineTool(toolContext);
+        polygonTool = new PolygonTool(toolContext);
+        fillTool = new FillTool(toolContext);
+        rectangleTool = new ShapeTool(toolContext, ShapeTool.Shape.RECTANGLE);
+        triangleTool = new ShapeTool(toolContext, ShapeTool.Shape.TRIANGLE);
+        circleTool = new ShapeTool(toolContext, ShapeTool.Shape.CIRCLE);
+        brushTool = new BrushTool(toolContext, BrushTool.Mode.BRUSH);
+        inkTool = new BrushTool(toolContext, BrushTool.Mode.INK);
+        eraserTool = new BrushTool(toolContext, BrushTool.Mode.ERASER);
+        objectEraserTool = new EraserTool(toolContext, EraserTool.Mode.OBJECT);
+        splitEraserTool = new EraserTool(toolContext, EraserTool.Mode.SPLIT);
+        selectTool = new SelectTool(toolContext);
+        tool = lineTool;
+    }
+
+    // finish current tool and activate another one
+    private void setTool(Tool next) {
+        tool.deactivate();
         raster.endPreview();
-        polygonMode = false;
-        fillMode = false;
-        rectangleMode = false;
-        triangleMode = false;
-        circleMode = false;
-        brushMode = false;
-        eraserMode = false;
-        isSelecting = false;
-        selectionTracker.clearSelection();
-        lastBrushPoint = null;
+        tool = next;
+        tool.activate();
+        toolbar.setActiveTool(tool.getName());
+        panel.repaint();
     }
 
     // create mouse input handlers
@@ -303,321 +893,322 @@ public class App {
 
         panel.addMouseMotionListener(mouseAdapter);
         panel.addMouseListener(mouseAdapter);
+        panel.addMouseWheelListener(mouseAdapter);
         panel.addKeyListener(keyAdapter);
         panel.requestFocus();
         panel.requestFocusInWindow();
     }
 
-    // setup mouse event handlers
+    // setup mouse event handlers, each event goes to the active tool in raster coordinates
     private void createMouseAdapter() {
         mouseAdapter = new MouseAdapter() {
             @Override
             public void mousePressed(MouseEvent e) {
-                if (isSelecting) handleSelectPress(e);
-                else if (fillMode) handleFillPress(e);
-                else if (polygonMode) handlePolygonPress(e);
-                else if (brushMode || eraserMode) handleBrushPress(e);
-                else handleDefaultPress(e);
+                record(e);
+                if (SwingUtilities.isMiddleMouseButton(e)) {
+                    handlePanPress(e);
+                    return;
+                }
+                eventTime = e.getWhen();
+                tool.pressed(viewport.toRasterX(e.getX()), viewport.toRasterY(e.getY()));
+                compositeDrawnShapes();
             }
 
             @Override
             public void mouseReleased(MouseEvent e) {
-                if (selectionTracker.hasSelection()) handleSelectRelease();
-                else if (brushMode || eraserMode) handleBrushRelease();
-                else if (rectangleMode || triangleMode || circleMode) handleShapeRelease(e);
-                else if (!polygonMode) handleLineRelease(e);
+                record(e);
+                if (SwingUtilities.isMiddleMouseButton(e)) {
+                    panning = false;
+                    return;
+                }
+                eventTime = e.getWhen();
+                tool.released(viewport.toRasterX(e.getX()), viewport.toRasterY(e.getY()));
+                compositeDrawnShapes();
             }
 
             @Override
             public void mouseDragged(MouseEvent e) {
-                if (selectionTracker.hasSelection()) handleSelectDrag(e);
-                else if (brushMode || eraserMode) handleBrushDrag(e);
-                else if (rectangleMode || triangleMode || circleMode) handleShapeDrag(e);
-                else if (!polygonMode) handleLineDrag(e);
+                record(e);
+                if (panning) {
+                    handlePanDrag(e);
+                    return;
+                }
+                eventTime = e.getWhen();
+                tool.dragged(viewport.toRasterX(e.getX()), viewport.toRasterY(e.getY()));
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                record(e);
+                handleWheel(e);
             }
         };
     }
 
-    // handle selection tool press
-    private void handleSelectPress(MouseEvent e) {
-        if (!shiftMode) {
-            selectionTracker.clearSelection();
-        }
-        boolean found = trySelectShape(e.getX(), e.getY());
-        if (found) {
-            raster.startPreview();
-            redrawBaseToPreview();
-            selectionTracker.startDrag(e.getX(), e.getY());
-        }
+    // start panning with middle button
+    private void handlePanPress(MouseEvent e) {
+        panning = true;
+        panLastX = e.getX();
+        panLastY = e.getY();
     }
 
-    // handle fill tool press
-    private void handleFillPress(MouseEvent e) {
-        floodFiller.floodFill(e.getX(), e.getY(), toolbar.getSelectedColor());
+    // move view with middle button drag
+    private void handlePanDrag(MouseEvent e) {
+        viewport.pan(e.getX() - panLastX, e.getY() - panLastY);
+        panLastX = e.getX();
+        panLastY = e.getY();
         panel.repaint();
     }
 
-    // handle polygon tool press
-    private void handlePolygonPress(MouseEvent e) {
-        point = new Point(e.getX(), e.getY());
-        polygon.addPoint(point);
-        if (polygon.getPoints().size() >= 3) {
-            raster.startPreview();
-            previewRaster.copyFrom(baseRaster);
-            polygonRasterizer.rasterize(polygon, toolbar.getSelectedColor(), currentLineStyle, toolbar.getLineWidth());
-            panel.repaint();
+    // ctrl+wheel zooms at cursor, wheel scrolls, shift+wheel scrolls horizontally
+    private void handleWheel(MouseWheelEvent e) {
+        double rotation = e.getPreciseWheelRotation();
+        if (e.isControlDown()) {
+            viewport.zoomAt(Math.pow(1.25, -rotation), e.getX(), e.getY());
+        } else if (e.isShiftDown()) {
+            viewport.pan(-rotation * 40, 0);
+        } else {
+            viewport.pan(0, -rotation * 40);
         }
-    }
-
-    // handle brush/eraser press
-    private void handleBrushPress(MouseEvent e) {
-        lastBrushPoint = new Point(e.getX(), e.getY());
-        raster.startPreview();
-        previewRaster.copyFrom(baseRaster);
-        Color color = eraserMode ? backgroundColor : toolbar.getSelectedColor();
-        raster.setPixel(e.getX(), e.getY(), color.getRGB());
         panel.repaint();
     }
 
-    // handle default tool press
-    private void handleDefaultPress(MouseEvent e) {
-        point = new Point(e.getX(), e.getY());
-        shapeStartPoint = point;
-        raster.startPreview();
-        previewRaster.copyFrom(baseRaster);
-    }
+    // find topmost recorded shape at given coordinates, polygons before lines
+    private DrawOp findShapeAt(int x, int y) {
+        List<DrawOp> candidates = getShapeIndex().query(new Rectangle(x - 5, y - 5, 11, 11));
+        Point target = new Point(x, y);
 
-    // handle selection tool release
-    private void handleSelectRelease() {
-        commitSelectionChanges();
+        // check polygons from newest to oldest
+        for (int i = candidates.size() - 1; i >= 0; i--) {
+            DrawOp op = candidates.get(i);
+            if (op instanceof PolygonOp && polygonRasterizer.isPointInsidePolygon(((PolygonOp) op).getPolygon(), target)) {
+                return op;
+            }
+        }
+
+        // check lines from newest to oldest
+        for (int i = candidates.size() - 1; i >= 0; i--) {
+            DrawOp op = candidates.get(i);
+            if (op instanceof LineOp && isPointNearLine(x, y, ((LineOp) op).getLine())) {
+                return op;
+            }
+        }
+
+        return null;
     }
 
-    // handle brush/eraser release
-    private void handleBrushRelease() {
-        raster.endPreview();
-        panel.repaint();
+    // get index of operations of the active layer with bounds, rebuilt lazily after document changes
+    private SpatialIndex<DrawOp> getShapeIndex() {
+        if (shapeIndexModCount != displayList.getModCount()) {
+            shapeIndex.clear();
+            for (DrawOp op : displayList.getOps(displayList.getActiveLayer())) {
+                shapeIndex.insert(op, op.getBounds());
+            }
+            shapeIndexModCount = displayList.getModCount();
+        }
+        return shapeIndex;
     }
 
-    // handle shape tool release
-    private void handleShapeRelease(MouseEvent e) {
-        Point endPoint = alignPoint(new Point(e.getX(), e.getY()));
-        Polygon shape = createCurrentShape(shapeStartPoint, endPoint);
+    // check if point is near line
+    private boolean isPointNearLine(int x, int y, Line line) {
+        Point p1 = line.getPoint1();
+        Point p2 = line.getPoint2();
 
-        if (shape != null) {
-            polygons.add(shape);
-            polygonRasterizer.rasterize(shape, toolbar.getSelectedColor(), currentLineStyle, toolbar.getLineWidth());
-        }
+        double lineLength = p1.distanceTo(p2);
+        if (lineLength == 0) return p1.distanceTo(new Point(x, y)) < 5;
 
-        raster.endPreview();
-        panel.repaint();
-    }
+        double t = ((x - p1.getX()) * (p2.getX() - p1.getX()) +
+                (y - p1.getY()) * (p2.getY() - p1.getY())) / (lineLength * lineLength);
 
-    // handle line tool release
-    private void handleLineRelease(MouseEvent e) {
-        Point point2 = alignPoint(new Point(e.getX(), e.getY()));
-        Line line = new Line(point, point2, toolbar.getSelectedColor(), currentLineStyle);
-        canvas.add(line);
+        t = Math.max(0, Math.min(1, t));
 
-        raster.endPreview();
-        rasterizer.rasterizeCanvas(canvas);
-        panel.repaint();
-    }
+        double projX = p1.getX() + t * (p2.getX() - p1.getX());
+        double projY = p1.getY() + t * (p2.getY() - p1.getY());
 
-    // handle selection tool drag
-    private void handleSelectDrag(MouseEvent e) {
-        selectionTracker.updateDrag(e.getX(), e.getY());
-        raster.clear();
-        redrawEverything();
+        return new Point(x, y).distanceTo(new Point((int)projX, (int)projY)) < 5;
     }
 
-    // handle brush/eraser drag
-    private void handleBrushDrag(MouseEvent e) {
-        Point currentPoint = new Point(e.getX(), e.getY());
-        if (lastBrushPoint != null) {
-            Color color = eraserMode ? backgroundColor : toolbar.getSelectedColor();
-            Line line = new Line(lastBrushPoint, currentPoint, color, LineStyle.SOLID);
-            rasterizer.setLineWidth(toolbar.getLineWidth());
-            rasterizer.rasterizeLine(line);
-            panel.repaint();
-        }
-        lastBrushPoint = currentPoint;
+    // tools draw finished shapes straight over the base raster, which matches the composite only while they
+    // go to the top shown layer drawn as is, fills read back pixels and also need it to be the only shown one
+    private void compositeDrawnShapes() {
+        if (displayList.getModCount() == committedModCount) return;
+        List<DrawOp> ops = displayList.getOps();
+        boolean fill = !ops.isEmpty() && ops.get(ops.size() - 1) instanceof FillOp;
+        if (!layerStack.isActiveOnTop() || fill && layerStack.getShownCount() > 1) commitAllChanges();
     }
 
-    // handle shape tool drag
-    private void handleShapeDrag(MouseEvent e) {
-        Point endPoint = alignPoint(new Point(e.getX(), e.getY()));
-        raster.startPreview();
-        previewRaster.copyFrom(baseRaster);
-
-        Polygon shape = createCurrentShape(shapeStartPoint, endPoint);
-        if (shape != null) {
-            polygonRasterizer.rasterize(shape, toolbar.getSelectedColor(), currentLineStyle, toolbar.getLineWidth());
+    // commit all changes to base raster
+    private void commitAllChanges() {
+        // replay changed layers from their nearest checkpoints so brush strokes and fills survive the redraw,
+        // hidden layers are brought up to date once they are shown again
+        List<Layer> layers = layerStack.getLayers();
+        for (int i = 0; i < layers.size(); i++) {
+            Layer layer = layers.get(i);
+            if (layer.isSkipped() || !layerRenderers.get(i).update(displayList, layer.getRaster())) continue;
+
+            // a layer redrawn without document changes, e.g. after a resize or a drag, is composited in full
+            Rectangle changed = displayList.takeChangedBounds(i);
+            layer.invalidate(changed != null ? changed
+                    : new Rectangle(0, 0, layer.getRaster().getWidth(), layer.getRaster().getHeight()));
         }
+        Raster flattened = layerStack.flatten();
+        baseRaster.copyFrom(flattened);
+        previewRaster.copyFrom(flattened);
+        committedModCount = displayList.getModCount();
+        selectionTracker.resetChangeFlag();
         panel.repaint();
     }
 
-    // handle line tool drag
-    private void handleLineDrag(MouseEvent e) {
-        Point point2 = alignPoint(new Point(e.getX(), e.getY()));
-        if (point != null && point2 != null) {
-            Line line = new Line(point, point2, toolbar.getSelectedColor(), currentLineStyle);
+    // gives tools access to the document, rasters and settings
+    private class AppToolContext implements ToolContext {
+        @Override
+        public DoubleBufferedRaster getRaster() {
+            return raster;
+        }
 
-            raster.startPreview();
-            previewRaster.copyFrom(baseRaster);
-            rasterizer.rasterizeCanvas(canvas);
+        @Override
+        public Raster getBaseRaster() {
+            return baseRaster;
+        }
 
-            rasterizer.setLineWidth(toolbar.getLineWidth());
-            rasterizer.rasterizeLine(line);
+        @Override
+        public Raster getPreviewRaster() {
+            return previewRaster;
+        }
 
-            panel.repaint();
+        @Override
+        public Raster createRaster(int width, int height) {
+            return rasterBackend.create(width, height);
         }
-    }
 
-    // create shape based on current mode
-    private Polygon createCurrentShape(Point start, Point end) {
-        if (rectangleMode) return createRectangle(start, end);
-        if (triangleMode) return createTriangle(start, end);
-        if (circleMode) return createCircle(start, end);
-        return null;
-    }
+        @Override
+        public LineCanvasRasterizer getLineRasterizer() {
+            return rasterizer;
+        }
 
-    // create rectangle polygon
-    private Polygon createRectangle(Point start, Point end) {
-        Polygon rectangle = new Polygon();
-        rectangle.addPoint(new Point(start.getX(), start.getY()));
-        rectangle.addPoint(new Point(end.getX(), start.getY()));
-        rectangle.addPoint(new Point(end.getX(), end.getY()));
-        rectangle.addPoint(new Point(start.getX(), end.getY()));
-        return rectangle;
-    }
+        @Override
+        public PolygonRasterizer getPolygonRasterizer() {
+            return polygonRasterizer;
+        }
 
-    // create triangle polygon
-    private Polygon createTriangle(Point start, Point end) {
-        Polygon triangle = new Polygon();
-        int width = end.getX() - start.getX();
-        triangle.addPoint(new Point(start.getX() + width/2, start.getY()));
-        triangle.addPoint(new Point(end.getX(), end.getY()));
-        triangle.addPoint(new Point(start.getX(), end.getY()));
-        return triangle;
-    }
+        @Override
+        public FloodFiller getFloodFiller() {
+            return floodFiller;
+        }
 
-    // create circle polygon
-    private Polygon createCircle(Point center, Point edge) {
-        Polygon circle = new Polygon();
-        int radius = (int) Math.sqrt(Math.pow(edge.getX() - center.getX(), 2) +
-                Math.pow(edge.getY() - center.getY(), 2));
-        int points = 36;
+        @Override
+        public void renderExcluding(Raster target, Collection<? extends DrawOp> excluded) {
+            App.this.renderExcluding(target, excluded);
+        }
 
-        for (int i = 0; i < points; i++) {
-            double angle = 2 * Math.PI * i / points;
-            int x = (int) (center.getX() + radius * Math.cos(angle));
-            int y = (int) (center.getY() + radius * Math.sin(angle));
-            circle.addPoint(new Point(x, y));
+        @Override
+        public DisplayList getDisplayList() {
+            return displayList;
         }
-        return circle;
-    }
 
-    // align point for straight lines when shift is pressed
-    private Point alignPoint(Point target) {
-        if (!shiftMode) return target;
+        @Override
+        public LineCanvas getCanvas() {
+            return canvas;
+        }
 
-        int dx = target.getX() - point.getX();
-        int dy = target.getY() - point.getY();
+        @Override
+        public List<Polygon> getPolygons() {
+            return polygons;
+        }
 
-        if (Math.abs(dx) > Math.abs(dy)) {
-            return new Point(target.getX(), point.getY());
-        } else if (Math.abs(dy) > Math.abs(dx)) {
-            return new Point(point.getX(), target.getY());
-        } else {
-            int d = Math.min(Math.abs(dx), Math.abs(dy));
-            return new Point(point.getX() + (dx < 0 ? -d : d), point.getY() + (dy < 0 ? -d : d));
+        @Override
+        public SelectionTracker getSelectionTracker() {
+            return selectionTracker;
         }
-    }
 
-    // try to select shape at given coordinates
-    private boolean trySelectShape(int x, int y) {
-        // check polygons from newest to oldest
-        for (int i = polygons.size() - 1; i >= 0; i--) {
-            Polygon polygon = polygons.get(i);
-            if (polygonRasterizer.isPointInsidePolygon(polygon, new Point(x, y))) {
-                selectionTracker.selectPolygon(polygon);
-                return true;
-            }
+        @Override
+        public int getColor() {
+            return toolbar.getSelectedArgb();
         }
 
-        // check lines from newest to oldest
-        for (int i = canvas.getLines().size() - 1; i >= 0; i--) {
-            Line line = canvas.getLines().get(i);
-            if (isPointNearLine(x, y, line)) {
-                selectionTracker.selectLine(line);
-                return true;
-            }
+        @Override
+        public int getBackgroundColor() {
+            return backgroundColor;
         }
 
-        return false;
-    }
+        @Override
+        public FillPaint getFillPaint() {
+            int color = getColor();
+            return switch (toolbar.getFillKind()) {
+                case SOLID -> new FillPaint(color);
+                case PATTERN -> patternPath != null ? new FillPaint(patternPath, 0, 0) : new FillPaint(color);
+                // gradients fade into the background color at the same opacity
+                case LINEAR, RADIAL -> new FillPaint(toolbar.getFillKind(), color,
+                        color & 0xff000000 | backgroundColor & 0xffffff, 0, 0, 0, 0, toolbar.isDithered());
+            };
+        }
 
-    // check if point is near line
-    private boolean isPointNearLine(int x, int y, Line line) {
-        Point p1 = line.getPoint1();
-        Point p2 = line.getPoint2();
+        @Override
+        public boolean isFillingShapes() {
+            return toolbar.isFillingShapes();
+        }
 
-        double lineLength = p1.distanceTo(p2);
-        if (lineLength == 0) return p1.distanceTo(new Point(x, y)) < 5;
+        @Override
+        public int getLineWidth() {
+            return toolbar.getLineWidth();
+        }
 
-        double t = ((x - p1.getX()) * (p2.getX() - p1.getX()) +
-                (y - p1.getY()) * (p2.getY() - p1.getY())) / (lineLength * lineLength);
+        @Override
+        public LineStyle getLineStyle() {
+            return currentLineStyle;
+        }
 
-        t = Math.max(0, Math.min(1, t));
+        @Override
+        public boolean isShiftDown() {
+            return shiftMode;
+        }
 
-        double projX = p1.getX() + t * (p2.getX() - p1.getX());
-        double projY = p1.getY() + t * (p2.getY() - p1.getY());
+        @Override
+        public long getEventTime() {
+            return eventTime;
+        }
 
-        return new Point(x, y).distanceTo(new Point((int)projX, (int)projY)) < 5;
-    }
+        @Override
+        public DrawOp findShapeAt(int x, int y) {
+            return App.this.findShapeAt(x, y);
+        }
 
-    // redraw all elements on canvas
-    private void redrawEverything() {
-        if (isSelecting && selectionTracker.hasSelection()) {
-            raster.startPreview();
-            redrawBaseToPreview();
+        @Override
+        public List<DrawOp> findShapesInside(Rectangle region) {
+            List<DrawOp> inside = getShapeIndex().queryContained(region);
+            inside.removeIf(op -> !(op instanceof LineOp || op instanceof PolygonOp));
+            return inside;
+        }
 
-            for (Line line : selectionTracker.getSelectedLines()) {
-                rasterizer.rasterizeLine(line);
-            }
-            for (Polygon polygon : selectionTracker.getSelectedPolygons()) {
-                polygonRasterizer.rasterize(polygon, toolbar.getSelectedColor(), currentLineStyle, toolbar.getLineWidth());
-            }
-        } else {
-            commitAllChanges();
+        @Override
+        public List<DrawOp> findShapesTouching(Rectangle region) {
+            return getShapeIndex().query(region);
         }
-        panel.repaint();
-    }
 
-    // copy base raster to preview
-    private void redrawBaseToPreview() {
-        previewRaster.clear();
-        previewRaster.copyFrom(baseRaster);
-    }
+        @Override
+        public void replaceShape(DrawOp op, List<DrawOp> pieces) {
+            App.this.replaceShape(op, pieces);
+        }
 
-    // commit all changes to base raster
-    private void commitAllChanges() {
-        baseRaster.clear();
-        previewRaster.clear();
+        @Override
+        public Rectangle toScreen(Rectangle region) {
+            return viewport.toScreen(region);
+        }
 
-        rasterizer.rasterizeCanvas(canvas);
-        for (Polygon polygon : polygons) {
-            polygonRasterizer.rasterize(polygon, toolbar.getSelectedColor(), currentLineStyle, toolbar.getLineWidth());
+        @Override
+        public void repaint() {
+            panel.repaint();
         }
 
-        previewRaster.copyFrom(baseRaster);
-        selectionTracker.resetChangeFlag();
-        panel.repaint();
-    }
+        @Override
+        public void repaint(int x, int y, int width, int height) {
+            Rectangle screen = viewport.toScreen(x, y, width, height, repaintBounds);
+            panel.repaint(screen.x - 2, screen.y - 2, screen.width + 4, screen.height + 4);
+        }
 
-    // commit selection changes to base raster
-    private void commitSelectionChanges() {
-        raster.endPreview();
-        redrawEverything();
+        @Override
+        public void commitAllChanges() {
+            App.this.commitAllChanges();
+        }
     }
-}
\ No newline at end of file
+}
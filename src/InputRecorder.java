@@ -0,0 +1,91 @@
+import logging.Logger;
+
+import java.awt.AWTEvent;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class InputRecorder {
+    private static final Logger LOG = Logger.get("recorder");
+
+    private DataOutputStream out;
+    private long lastWhen;
+
+    // start trace file for canvas of given size
+    public InputRecorder(Path file, int width, int height) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+        lastWhen = System.currentTimeMillis();
+        out.writeInt(InputTrace.MAGIC);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeLong(lastWhen);
+    }
+
+    // append mouse, key or menu event, recording stops quietly after the first write error
+    public void record(AWTEvent e) {
+        if (out == null) return;
+        try {
+            if (e instanceof MouseWheelEvent) {
+                MouseWheelEvent wheel = (MouseWheelEvent) e;
+                writeHeader(InputTrace.WHEEL, wheel.getWhen());
+                InputTrace.writeSignedVarInt(out, wheel.getX());
+                InputTrace.writeSignedVarInt(out, wheel.getY());
+                InputTrace.writeVarInt(out, wheel.getModifiersEx());
+                out.writeByte(wheel.getScrollType());
+                InputTrace.writeVarInt(out, wheel.getScrollAmount());
+                InputTrace.writeSignedVarInt(out, wheel.getWheelRotation());
+                out.writeDouble(wheel.getPreciseWheelRotation());
+            } else if (e instanceof MouseEvent) {
+                MouseEvent mouse = (MouseEvent) e;
+                writeHeader(InputTrace.MOUSE, mouse.getWhen());
+                out.writeByte(mouse.getID() - MouseEvent.MOUSE_FIRST);
+                InputTrace.writeSignedVarInt(out, mouse.getX());
+                InputTrace.writeSignedVarInt(out, mouse.getY());
+                InputTrace.writeVarInt(out, mouse.getModifiersEx());
+                out.writeByte(mouse.getButton());
+                out.writeByte(Math.min(255, mouse.getClickCount()));
+            } else if (e instanceof KeyEvent) {
+                KeyEvent key = (KeyEvent) e;
+                writeHeader(InputTrace.KEY, key.getWhen());
+                out.writeByte(key.getID() - KeyEvent.KEY_FIRST);
+                InputTrace.writeVarInt(out, key.getKeyCode());
+                InputTrace.writeVarInt(out, key.getModifiersEx());
+                InputTrace.writeVarInt(out, key.getKeyChar());
+            } else if (e instanceof ActionEvent) {
+                ActionEvent action = (ActionEvent) e;
+                writeHeader(InputTrace.ACTION, action.getWhen());
+                out.writeUTF(action.getActionCommand());
+            }
+        } catch (IOException ex) {
+            LOG.warn("Input recording stopped: {}", ex.getMessage());
+            close();
+        }
+    }
+
+    // finish trace file
+    public void close() {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            LOG.warn("Input recording failed: {}", e.getMessage());
+        }
+        out = null;
+    }
+
+    // write record kind and time since previous record, events without a timestamp use the clock
+    private void writeHeader(int kind, long when) throws IOException {
+        if (when <= 0) when = System.currentTimeMillis();
+        out.writeByte(kind);
+        InputTrace.writeVarInt(out, (int) Math.max(0, Math.min(Integer.MAX_VALUE, when - lastWhen)));
+        lastWhen = Math.max(lastWhen, when);
+    }
+}
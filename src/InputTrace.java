@@ -0,0 +1,143 @@
+import java.awt.AWTEvent;
+import java.awt.Component;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class InputTrace {
+    // record kinds, each followed by the time since the previous record
+    static final int MOUSE = 1;
+    static final int WHEEL = 2;
+    static final int KEY = 3;
+    static final int ACTION = 4;
+
+    static final int MAGIC = 0x44445431;
+
+    private final int width;
+    private final int height;
+    private final List<AWTEvent> events;
+
+    // create trace of events recorded on canvas of given size
+    private InputTrace(int width, int height, List<AWTEvent> events) {
+        this.width = width;
+        this.height = height;
+        this.events = events;
+    }
+
+    // get width of canvas the trace was recorded on
+    public int getWidth() {
+        return width;
+    }
+
+    // get height of canvas the trace was recorded on
+    public int getHeight() {
+        return height;
+    }
+
+    // get recorded events in order, with their original timestamps
+    public List<AWTEvent> getEvents() {
+        return events;
+    }
+
+    // read trace and rebuild events as if they came from source, a torn tail ends reading quietly
+    public static InputTrace read(Path file, Component source) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not an input trace: " + file);
+            int width = in.readInt();
+            int height = in.readInt();
+            long when = in.readLong();
+
+            List<AWTEvent> events = new ArrayList<>();
+            while (true) {
+                int kind = in.read();
+                if (kind < 0) break;
+                try {
+                    when += readVarInt(in);
+                    events.add(readEvent(in, kind, when, source));
+                } catch (EOFException e) {
+                    break;
+                }
+            }
+            return new InputTrace(width, height, events);
+        }
+    }
+
+    // read payload of one record
+    private static AWTEvent readEvent(DataInput in, int kind, long when, Component source) throws IOException {
+        switch (kind) {
+            case MOUSE: {
+                int id = MouseEvent.MOUSE_FIRST + in.readUnsignedByte();
+                int x = readSignedVarInt(in);
+                int y = readSignedVarInt(in);
+                int modifiers = readVarInt(in);
+                int button = in.readUnsignedByte();
+                int clickCount = in.readUnsignedByte();
+                return new MouseEvent(source, id, when, modifiers, x, y, clickCount, false, button);
+            }
+            case WHEEL: {
+                int x = readSignedVarInt(in);
+                int y = readSignedVarInt(in);
+                int modifiers = readVarInt(in);
+                int scrollType = in.readUnsignedByte();
+                int scrollAmount = readVarInt(in);
+                int rotation = readSignedVarInt(in);
+                double preciseRotation = in.readDouble();
+                return new MouseWheelEvent(source, MouseEvent.MOUSE_WHEEL, when, modifiers, x, y, x, y, 0, false,
+                        scrollType, scrollAmount, rotation, preciseRotation);
+            }
+            case KEY: {
+                int id = KeyEvent.KEY_FIRST + in.readUnsignedByte();
+                int keyCode = readVarInt(in);
+                int modifiers = readVarInt(in);
+                char keyChar = (char) readVarInt(in);
+                return new KeyEvent(source, id, when, modifiers, keyCode, keyChar);
+            }
+            case ACTION:
+                return new ActionEvent(source, ActionEvent.ACTION_PERFORMED, in.readUTF(), when, 0);
+            default:
+                throw new IOException("Unknown trace record " + kind);
+        }
+    }
+
+    // write unsigned value in 7 bit groups, small values take one byte
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    // write signed value zigzag encoded so small negative values stay short
+    static void writeSignedVarInt(DataOutput out, int value) throws IOException {
+        writeVarInt(out, (value << 1) ^ (value >> 31));
+    }
+
+    // read unsigned value in 7 bit groups
+    static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed trace varint");
+    }
+
+    // read zigzag encoded signed value
+    static int readSignedVarInt(DataInput in) throws IOException {
+        int value = readVarInt(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
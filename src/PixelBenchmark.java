@@ -0,0 +1,150 @@
+import rasters.Raster;
+import rasters.RasterBackend;
+import rasters.RasterBackends;
+import rasters.RasterBufferedImage;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+public class PixelBenchmark {
+    private static final int SIZE = 512;
+    private static final int ROUNDS = 15;
+    private static final String[] KERNELS = {"fill", "blend", "row copy", "sprite", "scan"};
+
+    // sink for read pixels so the jit cannot drop the reads
+    private static volatile int sink;
+
+    // compare bulk pixel kernels of each backend with the per pixel defaults of the Raster interface
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : ROUNDS;
+        System.out.printf("%-14s %-10s %12s %12s %8s%n", "backend", "kernel", "bulk us", "per pixel us", "speedup");
+        for (String name : RasterBackends.getNames()) {
+            RasterBackend backend = RasterBackends.select(name);
+            if (!backend.isAvailable()) continue;
+            Raster bulk = backend.create(SIZE, SIZE);
+            Raster perPixel = new PerPixelRaster(backend.create(SIZE, SIZE));
+            Raster sprite = new RasterBufferedImage(SIZE / 2, SIZE / 2, BufferedImage.TYPE_INT_ARGB);
+            for (int y = 0; y < sprite.getHeight(); y++) {
+                for (int x = 0; x < sprite.getWidth(); x++) {
+                    sprite.setPixel(x, y, (x + y) % 3 == 0 ? 0 : 0x80ff0000 + x);
+                }
+            }
+
+            // rounds interleave both paths so jit warm up does not favour one, the best round is kept
+            long[] bulkBest = new long[KERNELS.length];
+            long[] perPixelBest = new long[KERNELS.length];
+            Arrays.fill(bulkBest, Long.MAX_VALUE);
+            Arrays.fill(perPixelBest, Long.MAX_VALUE);
+            for (int round = 0; round < rounds; round++) {
+                for (int kernel = 0; kernel < KERNELS.length; kernel++) {
+                    bulkBest[kernel] = Math.min(bulkBest[kernel], run(kernel, bulk, sprite));
+                    perPixelBest[kernel] = Math.min(perPixelBest[kernel], run(kernel, perPixel, sprite));
+                }
+            }
+            for (int kernel = 0; kernel < KERNELS.length; kernel++) {
+                System.out.printf("%-14s %-10s %12.1f %12.1f %7.1fx%n", name, KERNELS[kernel],
+                        bulkBest[kernel] / 1000.0, perPixelBest[kernel] / 1000.0,
+                        perPixelBest[kernel] / (double) bulkBest[kernel]);
+            }
+        }
+    }
+
+    // run one kernel over the whole raster and return its time in ns
+    private static long run(int kernel, Raster raster, Raster sprite) {
+        int[] row = new int[SIZE];
+        int found = 0;
+        if (kernel == 4) {
+            for (int y = 0; y < SIZE; y++) raster.fillSpan(0, y, SIZE, 0xffffffff);
+        }
+        long start = System.nanoTime();
+        switch (kernel) {
+            case 0 -> {
+                for (int y = 0; y < SIZE; y++) raster.fillSpan(0, y, SIZE, 0xff204080 + y);
+            }
+            case 1 -> {
+                for (int y = 0; y < SIZE; y++) raster.blendSpan(0, y, SIZE, 0x80ff8000);
+            }
+            case 2 -> {
+                for (int y = 0; y < SIZE; y++) {
+                    raster.getRow(0, y, SIZE, row, 0);
+                    raster.setRow(0, SIZE - 1 - y, SIZE, row, 0);
+                }
+            }
+            case 3 -> {
+                for (int i = 0; i < 4; i++) raster.drawSprite(sprite, i * SIZE / 4, i * SIZE / 4);
+            }
+            default -> {
+                for (int y = 0; y < SIZE; y++) found += raster.findSpanEnd(0, y, 0xffffffff);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        sink = found + row[0];
+        return elapsed;
+    }
+
+    // raster implementing only the abstract methods, so every span operation runs the per pixel defaults
+    private static class PerPixelRaster implements Raster {
+        private final Raster target;
+
+        PerPixelRaster(Raster target) {
+            this.target = target;
+        }
+
+        @Override
+        public void clear() {
+            target.clear();
+        }
+
+        @Override
+        public void setClearColor(int color) {
+            target.setClearColor(color);
+        }
+
+        @Override
+        public int getWidth() {
+            return target.getWidth();
+        }
+
+        @Override
+        public int getHeight() {
+            return target.getHeight();
+        }
+
+        @Override
+        public int getPixel(int x, int y) {
+            return target.getPixel(x, y);
+        }
+
+        @Override
+        public void copyFrom(Raster source) {
+            target.copyFrom(source);
+        }
+
+        @Override
+        public void setPixel(int x, int y, int color) {
+            target.setPixel(x, y, color);
+        }
+
+        @Override
+        public Graphics getGraphics() {
+            return target.getGraphics();
+        }
+
+        @Override
+        public void repaint(Graphics graphics) {
+            target.repaint(graphics);
+        }
+
+        @Override
+        public BufferedImage getImg() {
+            return target.getImg();
+        }
+
+        @Override
+        public void resize(int width, int height) {
+            target.resize(width, height);
+        }
+    }
+}
@@ -1,10 +1,32 @@
+import logging.Logger;
+import models.FillPaint;
 import models.LineStyle;
+import rasters.BlendMode;
 import javax.swing.*;
+import javax.swing.event.MenuEvent;
+import javax.swing.event.MenuListener;
 import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.awt.event.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public class Toolbar {
+    private static final Logger LOG = Logger.get("toolbar");
+
+    // command sent when the line width slider moves, followed by the new width
+    public static final String LINE_WIDTH_COMMAND = "LINE_WIDTH:";
+
+    // command sent when the opacity slider moves, followed by the new opacity in percent
+    public static final String OPACITY_COMMAND = "OPACITY:";
+
+    // command setting the blend mode of the active layer, followed by the mode name
+    public static final String BLEND_COMMAND = "LAYER_BLEND:";
+
     // main menu bar component
     private final JMenuBar menuBar;
 
@@ -16,16 +38,35 @@ public class Toolbar {
     private final JCheckBoxMenuItem triangleItem = new JCheckBoxMenuItem("Triangle Tool");
     private final JCheckBoxMenuItem circleItem = new JCheckBoxMenuItem("Circle Tool");
     private final JCheckBoxMenuItem brushItem = new JCheckBoxMenuItem("Brush Tool");
+    private final JCheckBoxMenuItem inkItem = new JCheckBoxMenuItem("Ink Brush Tool");
     private final JCheckBoxMenuItem eraserItem = new JCheckBoxMenuItem("Eraser Tool");
+    private final JCheckBoxMenuItem objectEraserItem = new JCheckBoxMenuItem("Object Eraser Tool");
+    private final JCheckBoxMenuItem splitEraserItem = new JCheckBoxMenuItem("Split Eraser Tool");
     private final JCheckBoxMenuItem selectItem = new JCheckBoxMenuItem("Selection Tool");
 
-    // drawing settings components
-    private final JSlider widthSlider;
-    private final JComboBox<String> styleComboBox;
+    // fill paint menu items, kinds are exclusive and the last two are toggles
+    private final JCheckBoxMenuItem solidFillItem = new JCheckBoxMenuItem("Solid Fill", true);
+    private final JCheckBoxMenuItem linearFillItem = new JCheckBoxMenuItem("Linear Gradient");
+    private final JCheckBoxMenuItem radialFillItem = new JCheckBoxMenuItem("Radial Gradient");
+    private final JCheckBoxMenuItem patternFillItem = new JCheckBoxMenuItem("Pattern...");
+    private final JCheckBoxMenuItem ditherItem = new JCheckBoxMenuItem("Dither Gradients", true);
+    private final JCheckBoxMenuItem fillShapesItem = new JCheckBoxMenuItem("Fill Shapes");
+    private final Set<AbstractButton> toggles = new HashSet<>();
+
+    // drawing settings components, created with the settings menu
+    private JSlider widthSlider;
+    private JSlider opacitySlider;
+
+    // menu items by action command, for running commands without a click
+    private final Map<String, AbstractButton> items = new HashMap<>();
+
+    // menus whose items are not built yet, filled when first opened or by buildMenus
+    private final Map<JMenu, Consumer<JMenu>> pendingMenus = new LinkedHashMap<>();
 
     // current drawing settings
     private Color selectedColor = Color.WHITE;
     private int lineWidth = 1;
+    private int opacity = 100;
     private ActionListener settingsChangeListener;
 
     // available color palette
@@ -38,46 +79,84 @@ public class Toolbar {
             Color.MAGENTA
     };
 
-    // initialize toolbar with action listener
+    // initialize toolbar with action listener, only the menu titles exist until a menu is opened
     public Toolbar(ActionListener actionListener) {
         menuBar = new JMenuBar();
+        addMenu("File", menu -> buildFileMenu(menu, actionListener));
+        addMenu("Edit", menu -> buildEditMenu(menu, actionListener));
+        addMenu("Tools", menu -> buildToolsMenu(menu, actionListener));
+        addMenu("View", menu -> buildViewMenu(menu, actionListener));
+        addMenu("Layers", menu -> buildLayersMenu(menu, actionListener));
+        addMenu("Colors", menu -> buildColorMenu(menu, actionListener));
+        addMenu("Fill", menu -> buildFillMenu(menu, actionListener));
+        addMenu("Settings", this::buildSettingsMenu);
+    }
 
-        // setup settings components
-        widthSlider = new JSlider(1, 20, lineWidth);
-        styleComboBox = new JComboBox<>(new String[]{"Solid", "Dotted", "Dashed"});
-
-        // build all menu sections
-        buildFileMenu(actionListener);
-        buildEditMenu(actionListener);
-        buildToolsMenu(actionListener);
-        buildColorMenu();
-        buildSettingsMenu();
+    // add menu title to the bar, its items are built by builder on first use
+    private void addMenu(String title, Consumer<JMenu> builder) {
+        JMenu menu = new JMenu(title);
+        pendingMenus.put(menu, builder);
+        // selection is notified before the popup shows, so the items are there when it opens
+        menu.addMenuListener(new MenuListener() {
+            @Override
+            public void menuSelected(MenuEvent e) {
+                buildMenu(menu);
+            }
+
+            @Override
+            public void menuDeselected(MenuEvent e) {
+            }
+
+            @Override
+            public void menuCanceled(MenuEvent e) {
+            }
+        });
+        menuBar.add(menu);
+    }
+
+    // build items of menu if not done yet
+    private void buildMenu(JMenu menu) {
+        Consumer<JMenu> builder = pendingMenus.remove(menu);
+        if (builder == null) return;
+        builder.accept(menu);
+        LOG.debug("Built menu {}", menu.getText());
+    }
+
+    // build items of all menus not opened yet, e.g. when the event thread is idle after the first frame
+    public void buildMenus() {
+        for (JMenu menu : new ArrayList<>(pendingMenus.keySet())) {
+            buildMenu(menu);
+        }
     }
 
     // build file menu with basic operations
-    private void buildFileMenu(ActionListener actionListener) {
-        JMenu fileMenu = new JMenu("File");
+    private void buildFileMenu(JMenu fileMenu, ActionListener actionListener) {
         addMenuItem(fileMenu, "New", "NEW", actionListener);
         addMenuItem(fileMenu, "Open", "OPEN", actionListener);
         addMenuItem(fileMenu, "Save", "SAVE", actionListener);
         fileMenu.addSeparator();
         addMenuItem(fileMenu, "Exit", "EXIT", actionListener);
-        menuBar.add(fileMenu);
     }
 
     // build edit menu with undo/clear
-    private void buildEditMenu(ActionListener actionListener) {
-        JMenu editMenu = new JMenu("Edit");
+    private void buildEditMenu(JMenu editMenu, ActionListener actionListener) {
         addMenuItem(editMenu, "Undo", "UNDO", actionListener);
         editMenu.addSeparator();
+        addMenuItem(editMenu, "Select All", "SELECT_ALL", actionListener);
+        addMenuItem(editMenu, "Scale Up", "SCALE_UP", actionListener);
+        addMenuItem(editMenu, "Scale Down", "SCALE_DOWN", actionListener);
+        addMenuItem(editMenu, "Rotate 15 Degrees", "ROTATE", actionListener);
+        addMenuItem(editMenu, "Simplify Selection", "SIMPLIFY", actionListener);
+        editMenu.addSeparator();
+        addMenuItem(editMenu, "Union Polygons", "BOOL_UNION", actionListener);
+        addMenuItem(editMenu, "Intersect Polygons", "BOOL_INTERSECTION", actionListener);
+        addMenuItem(editMenu, "Subtract Polygons", "BOOL_DIFFERENCE", actionListener);
+        editMenu.addSeparator();
         addMenuItem(editMenu, "Clear Canvas", "CLEAR", actionListener);
-        menuBar.add(editMenu);
     }
 
     // build tools menu with all drawing tools
-    private void buildToolsMenu(ActionListener actionListener) {
-        JMenu toolsMenu = new JMenu("Tools");
-
+    private void buildToolsMenu(JMenu toolsMenu, ActionListener actionListener) {
         // configure tool items
         lineItem.setActionCommand("TOOL_LINE");
         polygonItem.setActionCommand("TOOL_POLYGON");
@@ -86,10 +165,17 @@ public class Toolbar {
         triangleItem.setActionCommand("TOOL_TRIANGLE");
         circleItem.setActionCommand("TOOL_CIRCLE");
         brushItem.setActionCommand("TOOL_BRUSH");
+        inkItem.setActionCommand("TOOL_INK");
         eraserItem.setActionCommand("TOOL_ERASER");
+        objectEraserItem.setActionCommand("TOOL_OBJECT_ERASER");
+        splitEraserItem.setActionCommand("TOOL_SPLIT_ERASER");
         selectItem.setActionCommand("TOOL_SELECT");
 
         // add action listeners
+        for (JCheckBoxMenuItem item : new JCheckBoxMenuItem[]{lineItem, polygonItem, fillItem, rectangleItem,
+                triangleItem, circleItem, brushItem, inkItem, eraserItem, objectEraserItem, splitEraserItem, selectItem}) {
+            items.put(item.getActionCommand(), item);
+        }
         lineItem.addActionListener(actionListener);
         polygonItem.addActionListener(actionListener);
         fillItem.addActionListener(actionListener);
@@ -97,7 +183,10 @@ public class Toolbar {
         triangleItem.addActionListener(actionListener);
         circleItem.addActionListener(actionListener);
         brushItem.addActionListener(actionListener);
+        inkItem.addActionListener(actionListener);
         eraserItem.addActionListener(actionListener);
+        objectEraserItem.addActionListener(actionListener);
+        splitEraserItem.addActionListener(actionListener);
         selectItem.addActionListener(actionListener);
 
         // group tools as radio buttons
@@ -109,7 +198,10 @@ public class Toolbar {
         toolsGroup.add(triangleItem);
         toolsGroup.add(circleItem);
         toolsGroup.add(brushItem);
+        toolsGroup.add(inkItem);
         toolsGroup.add(eraserItem);
+        toolsGroup.add(objectEraserItem);
+        toolsGroup.add(splitEraserItem);
         toolsGroup.add(selectItem);
 
         // add tools to menu
@@ -120,15 +212,38 @@ public class Toolbar {
         toolsMenu.add(triangleItem);
         toolsMenu.add(circleItem);
         toolsMenu.add(brushItem);
+        toolsMenu.add(inkItem);
         toolsMenu.add(eraserItem);
+        toolsMenu.add(objectEraserItem);
+        toolsMenu.add(splitEraserItem);
         toolsMenu.add(selectItem);
+    }
 
-        menuBar.add(toolsMenu);
+    // build view menu with zoom controls
+    private void buildViewMenu(JMenu viewMenu, ActionListener actionListener) {
+        addMenuItem(viewMenu, "Zoom In", "ZOOM_IN", actionListener);
+        addMenuItem(viewMenu, "Zoom Out", "ZOOM_OUT", actionListener);
+        addMenuItem(viewMenu, "Actual Size", "ZOOM_RESET", actionListener);
+    }
+
+    // build layers menu acting on the active layer
+    private void buildLayersMenu(JMenu layersMenu, ActionListener actionListener) {
+        addMenuItem(layersMenu, "New Layer", "LAYER_ADD", actionListener);
+        addMenuItem(layersMenu, "Select Layer Above", "LAYER_ABOVE", actionListener);
+        addMenuItem(layersMenu, "Select Layer Below", "LAYER_BELOW", actionListener);
+        layersMenu.addSeparator();
+        addMenuItem(layersMenu, "Show/Hide Layer", "LAYER_VISIBILITY", actionListener);
+        addMenuItem(layersMenu, "More Opaque", "LAYER_OPACITY_UP", actionListener);
+        addMenuItem(layersMenu, "More Transparent", "LAYER_OPACITY_DOWN", actionListener);
+        layersMenu.addSeparator();
+        for (BlendMode mode : BlendMode.values()) {
+            String name = mode.name().charAt(0) + mode.name().substring(1).toLowerCase();
+            addMenuItem(layersMenu, "Blend " + name, BLEND_COMMAND + mode.name(), actionListener);
+        }
     }
 
     // build color selection menu
-    private void buildColorMenu() {
-        JMenu colorMenu = new JMenu("Colors");
+    private void buildColorMenu(JMenu colorMenu, ActionListener actionListener) {
         for (int i = 0; i < colorPalette.length; i++) {
             Color color = colorPalette[i];
             JMenuItem colorItem = new JMenuItem("Color " + (i + 1));
@@ -137,58 +252,115 @@ public class Toolbar {
                 selectedColor = color;
                 updateColorSelection();
             });
-            colorItem.setIcon(createColorIcon(color));
+            colorItem.addActionListener(actionListener);
+            items.put(colorItem.getActionCommand(), colorItem);
+            colorItem.setIcon(new ColorIcon(color));
             colorMenu.add(colorItem);
         }
-        menuBar.add(colorMenu);
     }
 
-    // build settings menu with line options
-    private void buildSettingsMenu() {
-        JMenu settingsMenu = new JMenu("Settings");
+    // build fill menu choosing the paint of fills and shape interiors
+    private void buildFillMenu(JMenu fillMenu, ActionListener actionListener) {
+        ButtonGroup kindGroup = new ButtonGroup();
+        addFillItem(fillMenu, solidFillItem, "FILL_SOLID", actionListener, kindGroup);
+        addFillItem(fillMenu, linearFillItem, "FILL_LINEAR", actionListener, kindGroup);
+        addFillItem(fillMenu, radialFillItem, "FILL_RADIAL", actionListener, kindGroup);
+        addFillItem(fillMenu, patternFillItem, "FILL_PATTERN", actionListener, kindGroup);
+        fillMenu.addSeparator();
+        addFillItem(fillMenu, ditherItem, "FILL_DITHER", actionListener, null);
+        addFillItem(fillMenu, fillShapesItem, "FILL_SHAPES", actionListener, null);
+    }
 
+    // helper to add fill menu item, items without a group toggle on each use
+    private void addFillItem(JMenu menu, JCheckBoxMenuItem item, String actionCommand, ActionListener listener,
+                             ButtonGroup group) {
+        item.setActionCommand(actionCommand);
+        item.addActionListener(listener);
+        items.put(actionCommand, item);
+        if (group != null) {
+            group.add(item);
+        } else {
+            toggles.add(item);
+        }
+        menu.add(item);
+    }
+
+    // build settings menu with line options
+    private void buildSettingsMenu(JMenu settingsMenu) {
         // line width slider panel
         JPanel widthPanel = new JPanel();
         widthPanel.setLayout(new BoxLayout(widthPanel, BoxLayout.Y_AXIS));
         widthPanel.add(new JLabel("Line Width:"));
 
+        widthSlider = new JSlider(1, 20, lineWidth);
         widthSlider.setMajorTickSpacing(5);
         widthSlider.setMinorTickSpacing(1);
         widthSlider.setPaintTicks(true);
         widthSlider.setPaintLabels(true);
-        widthSlider.addChangeListener(e -> fireSettingsChanged());
+        widthSlider.addChangeListener(e -> fireLineWidthChanged());
         widthPanel.add(widthSlider);
 
-        // line style combo box panel
+        // opacity slider panel, drawing color alpha in percent
+        widthPanel.add(new JLabel("Opacity %:"));
+        opacitySlider = new JSlider(1, 100, opacity);
+        opacitySlider.setMajorTickSpacing(25);
+        opacitySlider.setPaintTicks(true);
+        opacitySlider.setPaintLabels(true);
+        opacitySlider.addChangeListener(e -> fireOpacityChanged());
+        widthPanel.add(opacitySlider);
+
         settingsMenu.add(widthPanel);
-        menuBar.add(settingsMenu);
     }
 
-    // create color icon for menu items
-    private Icon createColorIcon(Color color) {
-        int width = 16;
-        int height = 16;
-        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g2 = image.createGraphics();
-        g2.setColor(color);
-        g2.fillRect(0, 0, width, height);
-        g2.setColor(Color.BLACK);
-        g2.drawRect(0, 0, width-1, height-1);
-        g2.dispose();
-        return new ImageIcon(image);
+    // color swatch for menu items, painted straight into the menu instead of an image
+    private static class ColorIcon implements Icon {
+        private static final int SIZE = 16;
+        private final Color color;
+
+        ColorIcon(Color color) {
+            this.color = color;
+        }
+
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            g.setColor(color);
+            g.fillRect(x, y, SIZE, SIZE);
+            g.setColor(Color.BLACK);
+            g.drawRect(x, y, SIZE - 1, SIZE - 1);
+        }
+
+        @Override
+        public int getIconWidth() {
+            return SIZE;
+        }
+
+        @Override
+        public int getIconHeight() {
+            return SIZE;
+        }
     }
 
     // handle color selection change
     private void updateColorSelection() {
-        System.out.println("Selected color: " + selectedColor);
+        LOG.debug("Selected color: {}", selectedColor);
     }
 
-    // notify listeners when settings change
-    private void fireSettingsChanged() {
+    // notify listeners when line width changes
+    private void fireLineWidthChanged() {
         lineWidth = widthSlider.getValue();
+        fireSettingsChanged(LINE_WIDTH_COMMAND + lineWidth);
+    }
+
+    // notify listeners when opacity changes
+    private void fireOpacityChanged() {
+        opacity = opacitySlider.getValue();
+        fireSettingsChanged(OPACITY_COMMAND + opacity);
+    }
+
+    // notify listeners when settings change
+    private void fireSettingsChanged(String command) {
         if (settingsChangeListener != null) {
-            settingsChangeListener.actionPerformed(
-                    new ActionEvent(this, ActionEvent.ACTION_PERFORMED, "SETTINGS_CHANGED"));
+            settingsChangeListener.actionPerformed(new ActionEvent(this, ActionEvent.ACTION_PERFORMED, command));
         }
     }
 
@@ -197,9 +369,35 @@ public class Toolbar {
         JMenuItem item = new JMenuItem(text);
         item.setActionCommand(actionCommand);
         item.addActionListener(listener);
+        items.put(actionCommand, item);
         menu.add(item);
     }
 
+    // run command as if its menu item was chosen or a slider moved, used to replay input
+    public void perform(String command) {
+        buildMenus();
+        if (command.startsWith(LINE_WIDTH_COMMAND)) {
+            widthSlider.setValue(Integer.parseInt(command.substring(LINE_WIDTH_COMMAND.length())));
+            return;
+        }
+        if (command.startsWith(OPACITY_COMMAND)) {
+            opacitySlider.setValue(Integer.parseInt(command.substring(OPACITY_COMMAND.length())));
+            return;
+        }
+        AbstractButton item = items.get(command);
+        if (item == null) return;
+        if (toggles.contains(item)) {
+            item.setSelected(!item.isSelected());
+        } else if (item instanceof JCheckBoxMenuItem) {
+            item.setSelected(true);
+        }
+        // listeners come last added first, the same order a real click notifies them in
+        ActionEvent e = new ActionEvent(item, ActionEvent.ACTION_PERFORMED, command);
+        for (ActionListener listener : item.getActionListeners()) {
+            listener.actionPerformed(e);
+        }
+    }
+
     // get the menu bar component
     public JMenuBar getMenuBar() {
         return menuBar;
@@ -210,6 +408,35 @@ public class Toolbar {
         return selectedColor;
     }
 
+    // get selected color with alpha from the opacity slider as argb
+    public int getSelectedArgb() {
+        int alpha = (opacity * 255 + 50) / 100;
+        return (alpha << 24) | (selectedColor.getRGB() & 0xffffff);
+    }
+
+    // get current opacity in percent
+    public int getOpacity() {
+        return opacity;
+    }
+
+    // get chosen fill paint kind
+    public FillPaint.Kind getFillKind() {
+        if (linearFillItem.isSelected()) return FillPaint.Kind.LINEAR;
+        if (radialFillItem.isSelected()) return FillPaint.Kind.RADIAL;
+        if (patternFillItem.isSelected()) return FillPaint.Kind.PATTERN;
+        return FillPaint.Kind.SOLID;
+    }
+
+    // check if gradients are dithered
+    public boolean isDithered() {
+        return ditherItem.isSelected();
+    }
+
+    // check if closed shapes get an interior fill
+    public boolean isFillingShapes() {
+        return fillShapesItem.isSelected();
+    }
+
     // get current line width
     public int getLineWidth() {
         return lineWidth;
@@ -230,6 +457,10 @@ public class Toolbar {
         triangleItem.setSelected(false);
         circleItem.setSelected(false);
         brushItem.setSelected(false);
+        inkItem.setSelected(false);
+        eraserItem.setSelected(false);
+        objectEraserItem.setSelected(false);
+        splitEraserItem.setSelected(false);
 
         switch (tool) {
             case "SELECT":
@@ -256,6 +487,18 @@ public class Toolbar {
             case "BRUSH":
                 brushItem.setSelected(true);
                 break;
+            case "INK":
+                inkItem.setSelected(true);
+                break;
+            case "ERASER":
+                eraserItem.setSelected(true);
+                break;
+            case "OBJECT_ERASER":
+                objectEraserItem.setSelected(true);
+                break;
+            case "SPLIT_ERASER":
+                splitEraserItem.setSelected(true);
+                break;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,185 @@
+import rasters.Raster;
+
+import javax.swing.*;
+import java.awt.AWTEvent;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+public class TraceReplayer {
+    // commands that open dialogs or end the process are skipped when replaying
+    private static final Set<String> INTERACTIVE_COMMANDS = Set.of("OPEN", "SAVE", "EXIT", "FILL_PATTERN");
+
+    private final Map<String, long[]> latencies = new LinkedHashMap<>();
+    private final Map<String, Integer> counts = new LinkedHashMap<>();
+    private final Map<String, Long> allocated = new LinkedHashMap<>();
+    // heap allocated by the replaying thread, null when the JVM cannot measure it
+    private final com.sun.management.ThreadMXBean allocations = allocationBean();
+    private long pixelsTouched;
+    private int skipped;
+    private long imageHash;
+
+    // replay trace given as first argument headlessly, optionally several times to warm up
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: java TraceReplayer <trace> [runs]");
+            System.exit(2);
+        }
+        System.setProperty("java.awt.headless", "true");
+        Path file = Path.of(args[0]);
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+        TraceReplayer[] results = new TraceReplayer[runs];
+        for (int run = 0; run < runs; run++) {
+            TraceReplayer replayer = new TraceReplayer();
+            SwingUtilities.invokeAndWait(() -> replayer.replay(file));
+            results[run] = replayer;
+        }
+
+        // the last run is reported, earlier ones only warm up the JIT
+        TraceReplayer last = results[runs - 1];
+        last.report(System.out);
+        for (TraceReplayer result : results) {
+            if (result.imageHash != last.imageHash) {
+                System.out.println("Replay is not deterministic, image hash differs between runs");
+                System.exit(1);
+            }
+        }
+    }
+
+    // run every event of trace against fresh headless app and collect timings
+    private void replay(Path file) {
+        try {
+            InputTrace trace = InputTrace.read(file, new JPanel());
+            App app = new App(trace.getWidth(), trace.getHeight(), true);
+            app.start();
+            Raster raster = app.getRaster();
+            raster.takeDirtyRegion();
+
+            for (AWTEvent event : trace.getEvents()) {
+                if (event instanceof ActionEvent
+                        && INTERACTIVE_COMMANDS.contains(((ActionEvent) event).getActionCommand())) {
+                    skipped++;
+                    continue;
+                }
+                long bytesBefore = allocatedBytes();
+                long start = System.nanoTime();
+                app.replay(event);
+                long elapsed = System.nanoTime() - start;
+                long bytes = allocatedBytes() - bytesBefore;
+                String kind = kindOf(event);
+                add(kind, elapsed);
+                allocated.merge(kind, bytes, Long::sum);
+
+                Rectangle dirty = raster.takeDirtyRegion();
+                if (dirty != null) pixelsTouched += (long) dirty.width * dirty.height;
+            }
+            imageHash = hash(raster);
+        } catch (Exception e) {
+            throw new RuntimeException("Replay of " + file + " failed", e);
+        }
+    }
+
+    // print event count and latency percentiles per event kind
+    private void report(PrintStream out) {
+        out.printf("%-10s %8s %10s %10s %10s %10s %12s%n", "event", "count", "p50 us", "p95 us", "p99 us", "max us",
+                "alloc B/ev");
+        long[] all = new long[0];
+        long allocatedTotal = 0;
+        for (Map.Entry<String, long[]> entry : latencies.entrySet()) {
+            int count = counts.get(entry.getKey());
+            long[] sorted = Arrays.copyOf(entry.getValue(), count);
+            Arrays.sort(sorted);
+            long bytes = allocated.get(entry.getKey());
+            allocatedTotal += bytes;
+            printRow(out, entry.getKey(), sorted, bytes);
+
+            all = Arrays.copyOf(all, all.length + count);
+            System.arraycopy(sorted, 0, all, all.length - count, count);
+        }
+        Arrays.sort(all);
+        printRow(out, "all", all, allocatedTotal);
+        out.println("skipped interactive commands: " + skipped);
+        out.println("pixels touched: " + pixelsTouched);
+        out.printf("image hash: %016x%n", imageHash);
+    }
+
+    // print one percentile row with mean allocation per event, n/a when it cannot be measured
+    private void printRow(PrintStream out, String kind, long[] sorted, long bytes) {
+        if (sorted.length == 0) return;
+        String perEvent = allocations != null ? Long.toString(bytes / sorted.length) : "n/a";
+        out.printf("%-10s %8d %10.1f %10.1f %10.1f %10.1f %12s%n", kind, sorted.length,
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                sorted[sorted.length - 1] / 1000.0, perEvent);
+    }
+
+    // get bean counting allocations per thread, if this JVM provides and enables it
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) return null;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+
+    // bytes allocated so far by the current thread, 0 when not measurable
+    private long allocatedBytes() {
+        return allocations != null ? allocations.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    // nearest rank percentile in microseconds
+    private static double percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, rank)] / 1000.0;
+    }
+
+    // append latency sample of event kind
+    private void add(String kind, long nanos) {
+        long[] samples = latencies.computeIfAbsent(kind, k -> new long[64]);
+        int count = counts.getOrDefault(kind, 0);
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+            latencies.put(kind, samples);
+        }
+        samples[count] = nanos;
+        counts.put(kind, count + 1);
+    }
+
+    // name event kind for the report
+    private static String kindOf(AWTEvent event) {
+        if (event instanceof MouseWheelEvent) return "wheel";
+        if (event instanceof MouseEvent) {
+            switch (event.getID()) {
+                case MouseEvent.MOUSE_PRESSED: return "press";
+                case MouseEvent.MOUSE_RELEASED: return "release";
+                case MouseEvent.MOUSE_DRAGGED: return "drag";
+                default: return "mouse";
+            }
+        }
+        if (event instanceof KeyEvent) return "key";
+        return "action";
+    }
+
+    // FNV-1a hash of all pixels, read a row at a time
+    private static long hash(Raster raster) {
+        long hash = 0xcbf29ce484222325L;
+        int[] row = new int[raster.getWidth()];
+        for (int y = 0; y < raster.getHeight(); y++) {
+            raster.getRow(0, y, row.length, row, 0);
+            for (int pixel : row) {
+                hash = (hash ^ pixel) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+}
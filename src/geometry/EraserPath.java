@@ -0,0 +1,395 @@
+package geometry;
+
+import models.Point;
+import models.Polygon;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+public class EraserPath {
+    // kept pieces shorter than this in pixels are dropped, they would only draw stray dots
+    private static final double MIN_PIECE_LENGTH = 1;
+    // edges of each half circle closing a capsule polygon
+    private static final int CAP_SIDES = 8;
+
+    // eraser centre line packed as x,y pairs, every segment sweeps a capsule of the radius
+    private int[] coords = new int[32];
+    private int pointCount;
+    private double radius;
+    private int minX, minY, maxX, maxY;
+
+    // intervals of one shape segment covered by the eraser, pairs of from,to
+    private double[] erased = new double[16];
+    private int erasedCount;
+
+    // kept parameter ranges of the last clipped polyline, parameter i + t lies on segment i at fraction t
+    private double[] kept = new double[16];
+    private int keptCount;
+
+    // covered parameter interval found by coverInterval and the part covered by the capsule body
+    private double coverFrom;
+    private double coverTo;
+    private double bodyFrom;
+    private double bodyTo;
+
+    // start new eraser path with given radius in pixels
+    public void reset(double radius) {
+        this.radius = Math.max(0, radius);
+        pointCount = 0;
+        minX = Integer.MAX_VALUE;
+        minY = Integer.MAX_VALUE;
+        maxX = Integer.MIN_VALUE;
+        maxY = Integer.MIN_VALUE;
+    }
+
+    // append point to eraser centre line
+    public void addPoint(int x, int y) {
+        if (pointCount * 2 + 2 > coords.length) {
+            int[] grown = new int[coords.length * 2];
+            System.arraycopy(coords, 0, grown, 0, pointCount * 2);
+            coords = grown;
+        }
+        coords[pointCount * 2] = x;
+        coords[pointCount * 2 + 1] = y;
+        pointCount++;
+
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+    }
+
+    // get number of points on the centre line
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    // get eraser radius
+    public double getRadius() {
+        return radius;
+    }
+
+    // get x of centre line point i
+    public int getX(int i) {
+        return coords[i * 2];
+    }
+
+    // get y of centre line point i
+    public int getY(int i) {
+        return coords[i * 2 + 1];
+    }
+
+    // get area swept by every segment as a capsule polygon, a single point sweeps a disc
+    public List<Polygon> getCapsules() {
+        List<Polygon> capsules = new ArrayList<>();
+        for (int k = 0; k < Math.max(1, pointCount - 1) && pointCount > 0; k++) {
+            int next = Math.min(k + 1, pointCount - 1);
+            double ax = coords[k * 2], ay = coords[k * 2 + 1];
+            double bx = coords[next * 2], by = coords[next * 2 + 1];
+            double angle = ax == bx && ay == by ? 0 : Math.atan2(by - ay, bx - ax);
+
+            // half circle around the end point, then around the start point on the opposite side
+            Polygon capsule = new Polygon();
+            addCap(capsule, bx, by, angle - Math.PI / 2);
+            addCap(capsule, ax, ay, angle + Math.PI / 2);
+            capsules.add(capsule);
+        }
+        return capsules;
+    }
+
+    // append half circle of the radius around centre starting at given angle, rounded outwards
+    private void addCap(Polygon capsule, double cx, double cy, double start) {
+        for (int i = 0; i <= CAP_SIDES; i++) {
+            double angle = start + Math.PI * i / CAP_SIDES;
+            double x = cx + radius * Math.cos(angle);
+            double y = cy + radius * Math.sin(angle);
+            capsule.addPoint(new Point((int) (x < cx ? Math.floor(x) : Math.ceil(x)),
+                    (int) (y < cy ? Math.floor(y) : Math.ceil(y))));
+        }
+    }
+
+    // get bounds of pixels the eraser swept
+    public Rectangle getBounds() {
+        if (pointCount == 0) return new Rectangle();
+
+        int pad = (int) Math.ceil(radius);
+        return new Rectangle(minX - pad, minY - pad, maxX - minX + 2 * pad + 1, maxY - minY + 2 * pad + 1);
+    }
+
+    // check if eraser touches polyline, segments are drawn with the larger width of their end points
+    public boolean hits(int[] points, int count, boolean closed, int[] widths, int width) {
+        int segments = segmentCount(count, closed);
+        for (int i = 0; i < Math.max(1, segments); i++) {
+            int j = segments == 0 ? i : (i + 1) % count;
+            if (coverSegment(points, i, j, halfWidth(widths, width, i, j), true)) return true;
+        }
+        return false;
+    }
+
+    // cut away parts of polyline the eraser covers, false when it misses the polyline
+    // the remaining pieces are read with getPieceCount and getPiece
+    public boolean clip(int[] points, int count, boolean closed, int[] widths, int width) {
+        keptCount = 0;
+        if (count == 0) return false;
+
+        int segments = segmentCount(count, closed);
+        if (segments == 0) {
+            // a single dot is either erased whole or left alone
+            return coverSegment(points, 0, 0, halfWidth(widths, width, 0, 0), true);
+        }
+
+        boolean touched = false;
+        for (int i = 0; i < segments; i++) {
+            int j = (i + 1) % count;
+            if (!coverSegment(points, i, j, halfWidth(widths, width, i, j), false)) {
+                appendKept(i, i + 1);
+                continue;
+            }
+            touched = true;
+            sortErased();
+
+            // keep gaps between merged covered intervals
+            double from = 0;
+            for (int k = 0; k < erasedCount; k++) {
+                double start = erased[k * 2];
+                double end = erased[k * 2 + 1];
+                if (start > from) appendKept(i + from, i + start);
+                from = Math.max(from, end);
+            }
+            if (from < 1) appendKept(i + from, i + 1);
+        }
+        if (!touched) return false;
+
+        // a closed outline cut somewhere continues across its first point
+        if (segments == count && keptCount >= 2 && kept[0] == 0 && kept[keptCount * 2 - 1] == segments) {
+            kept[keptCount * 2 - 1] = segments + kept[1];
+            System.arraycopy(kept, 2, kept, 0, (keptCount - 1) * 2);
+            keptCount--;
+        }
+        dropShortPieces(points, count);
+        return true;
+    }
+
+    // get number of pieces kept by the last clip
+    public int getPieceCount() {
+        return keptCount;
+    }
+
+    // get kept piece of the clipped polyline as x,y,width triples, cut ends are interpolated
+    public int[] getPiece(int index, int[] points, int count, int[] widths, int width) {
+        double from = kept[index * 2];
+        double to = kept[index * 2 + 1];
+        int first = (int) Math.floor(from) + 1;
+        int last = (int) Math.ceil(to) - 1;
+
+        int[] piece = new int[(last - first + 3) * 3];
+        int size = appendPoint(piece, 0, points, count, widths, width, from);
+        for (int i = first; i <= last; i++) {
+            int vertex = i % count;
+            size = appendVertex(piece, size, points[vertex * 2], points[vertex * 2 + 1],
+                    widths != null ? widths[vertex] : width);
+        }
+        size = appendPoint(piece, size, points, count, widths, width, to);
+
+        int[] trimmed = new int[size];
+        System.arraycopy(piece, 0, trimmed, 0, size);
+        return trimmed;
+    }
+
+    // number of segments of a polyline, closed outlines need at least three points
+    private static int segmentCount(int count, boolean closed) {
+        if (count < 2) return 0;
+        return closed && count > 2 ? count : count - 1;
+    }
+
+    // half of the width a segment is drawn with
+    private static double halfWidth(int[] widths, int width, int i, int j) {
+        if (widths == null) return width / 2;
+        return Math.max(widths[i], widths[j]) / 2;
+    }
+
+    // collect intervals of segment i-j covered by the eraser, or stop at the first one
+    private boolean coverSegment(int[] points, int i, int j, double halfWidth, boolean firstOnly) {
+        erasedCount = 0;
+        double px = points[i * 2];
+        double py = points[i * 2 + 1];
+        double dx = points[j * 2] - px;
+        double dy = points[j * 2 + 1] - py;
+        double reach = radius + halfWidth;
+
+        // skip eraser segments whose capsule misses the segment bounds
+        double segMinX = Math.min(px, px + dx) - reach, segMaxX = Math.max(px, px + dx) + reach;
+        double segMinY = Math.min(py, py + dy) - reach, segMaxY = Math.max(py, py + dy) + reach;
+
+        int eraserSegments = Math.max(1, pointCount - 1);
+        for (int k = 0; k < eraserSegments && pointCount > 0; k++) {
+            int next = Math.min(k + 1, pointCount - 1);
+            double ax = coords[k * 2], ay = coords[k * 2 + 1];
+            double bx = coords[next * 2], by = coords[next * 2 + 1];
+            if (Math.max(ax, bx) < segMinX || Math.min(ax, bx) > segMaxX
+                    || Math.max(ay, by) < segMinY || Math.min(ay, by) > segMaxY) {
+                continue;
+            }
+            if (!coverInterval(px, py, dx, dy, ax, ay, bx, by, reach)) continue;
+            if (firstOnly) return true;
+            addErased(coverFrom, coverTo);
+        }
+        return erasedCount > 0;
+    }
+
+    // find parameters in [0,1] of segment p + t*d within distance r of segment a-b
+    // the distance is convex in t, so the covered set is one interval: the hull of the end caps and the body
+    private boolean coverInterval(double px, double py, double dx, double dy,
+                                  double ax, double ay, double bx, double by, double r) {
+        double from = Double.POSITIVE_INFINITY;
+        double to = Double.NEGATIVE_INFINITY;
+
+        // both end caps of the capsule
+        for (int cap = 0; cap < 2; cap++) {
+            double cx = cap == 0 ? ax : bx;
+            double cy = cap == 0 ? ay : by;
+            double ox = px - cx, oy = py - cy;
+            double a = dx * dx + dy * dy;
+            double b = 2 * (dx * ox + dy * oy);
+            double c = ox * ox + oy * oy - r * r;
+            if (a == 0) {
+                if (c <= 0) {
+                    from = Double.NEGATIVE_INFINITY;
+                    to = Double.POSITIVE_INFINITY;
+                }
+                continue;
+            }
+            double discriminant = b * b - 4 * a * c;
+            if (discriminant < 0) continue;
+            double root = Math.sqrt(discriminant);
+            from = Math.min(from, (-b - root) / (2 * a));
+            to = Math.max(to, (-b + root) / (2 * a));
+        }
+
+        // body between the caps, projection onto the axis within it and distance from the axis within r
+        double ex = bx - ax, ey = by - ay;
+        double length = Math.hypot(ex, ey);
+        if (length > 0) {
+            double ox = px - ax, oy = py - ay;
+            bodyFrom = Double.NEGATIVE_INFINITY;
+            bodyTo = Double.POSITIVE_INFINITY;
+            if (narrowBody((ox * ex + oy * ey) / length, (dx * ex + dy * ey) / length, 0, length)
+                    && narrowBody((ox * ey - oy * ex) / length, (dx * ey - dy * ex) / length, -r, r)) {
+                from = Math.min(from, bodyFrom);
+                to = Math.max(to, bodyTo);
+            }
+        }
+
+        coverFrom = Math.max(0, from);
+        coverTo = Math.min(1, to);
+        return coverFrom <= coverTo;
+    }
+
+    // narrow body interval to where min <= value + t*slope <= max, false when it becomes empty
+    private boolean narrowBody(double value, double slope, double min, double max) {
+        if (slope == 0) {
+            return value >= min && value <= max && bodyFrom <= bodyTo;
+        }
+        double t1 = (min - value) / slope;
+        double t2 = (max - value) / slope;
+        bodyFrom = Math.max(bodyFrom, Math.min(t1, t2));
+        bodyTo = Math.min(bodyTo, Math.max(t1, t2));
+        return bodyFrom <= bodyTo;
+    }
+
+    // store covered interval of the current segment
+    private void addErased(double from, double to) {
+        if (erasedCount * 2 + 2 > erased.length) {
+            double[] grown = new double[erased.length * 2];
+            System.arraycopy(erased, 0, grown, 0, erasedCount * 2);
+            erased = grown;
+        }
+        erased[erasedCount * 2] = from;
+        erased[erasedCount * 2 + 1] = to;
+        erasedCount++;
+    }
+
+    // sort covered intervals by start, there are only a few per segment
+    private void sortErased() {
+        for (int i = 1; i < erasedCount; i++) {
+            double from = erased[i * 2];
+            double to = erased[i * 2 + 1];
+            int j = i - 1;
+            while (j >= 0 && erased[j * 2] > from) {
+                erased[(j + 1) * 2] = erased[j * 2];
+                erased[(j + 1) * 2 + 1] = erased[j * 2 + 1];
+                j--;
+            }
+            erased[(j + 1) * 2] = from;
+            erased[(j + 1) * 2 + 1] = to;
+        }
+    }
+
+    // store kept range, joining it with the previous one when they meet at a vertex
+    private void appendKept(double from, double to) {
+        if (keptCount > 0 && kept[keptCount * 2 - 1] == from) {
+            kept[keptCount * 2 - 1] = to;
+            return;
+        }
+        if (keptCount * 2 + 2 > kept.length) {
+            double[] grown = new double[kept.length * 2];
+            System.arraycopy(kept, 0, grown, 0, keptCount * 2);
+            kept = grown;
+        }
+        kept[keptCount * 2] = from;
+        kept[keptCount * 2 + 1] = to;
+        keptCount++;
+    }
+
+    // remove kept ranges too short to draw anything but a dot
+    private void dropShortPieces(int[] points, int count) {
+        int size = 0;
+        for (int i = 0; i < keptCount; i++) {
+            double from = kept[i * 2];
+            double to = kept[i * 2 + 1];
+            if (rangeLength(points, count, from, to) < MIN_PIECE_LENGTH) continue;
+            kept[size * 2] = from;
+            kept[size * 2 + 1] = to;
+            size++;
+        }
+        keptCount = size;
+    }
+
+    // length in pixels of a parameter range along the polyline
+    private static double rangeLength(int[] points, int count, double from, double to) {
+        double length = 0;
+        int segment = (int) Math.floor(from);
+        while (segment < to) {
+            double start = Math.max(from, segment) - segment;
+            double end = Math.min(to, segment + 1) - segment;
+            int i = segment % count;
+            int j = (segment + 1) % count;
+            length += (end - start) * Math.hypot(points[j * 2] - points[i * 2], points[j * 2 + 1] - points[i * 2 + 1]);
+            segment++;
+        }
+        return length;
+    }
+
+    // append point at parameter, interpolating position and width along its segment
+    private static int appendPoint(int[] piece, int size, int[] points, int count, int[] widths, int width,
+                                   double parameter) {
+        int segment = (int) Math.floor(parameter);
+        double t = parameter - segment;
+        int i = segment % count;
+        int j = (segment + 1) % count;
+        double x = points[i * 2] + t * (points[j * 2] - points[i * 2]);
+        double y = points[i * 2 + 1] + t * (points[j * 2 + 1] - points[i * 2 + 1]);
+        double w = widths == null ? width : widths[i] + t * (widths[j] - widths[i]);
+        return appendVertex(piece, size, (int) Math.round(x), (int) Math.round(y), (int) Math.round(w));
+    }
+
+    // append point unless it repeats the previous one
+    private static int appendVertex(int[] piece, int size, int x, int y, int width) {
+        if (size >= 3 && piece[size - 3] == x && piece[size - 2] == y) return size;
+        piece[size] = x;
+        piece[size + 1] = y;
+        piece[size + 2] = width;
+        return size + 3;
+    }
+}
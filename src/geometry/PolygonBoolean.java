@@ -0,0 +1,478 @@
+package geometry;
+
+import models.Point;
+import models.Polygon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+public class PolygonBoolean {
+
+    // supported set operations
+    public enum Operation {
+        UNION, INTERSECTION, DIFFERENCE, XOR
+    }
+
+    private int nextSequence;
+
+    // get area covered by either polygon
+    public List<Polygon> union(Polygon subject, Polygon clipping) {
+        return compute(List.of(subject), List.of(clipping), Operation.UNION);
+    }
+
+    // get area covered by both polygons
+    public List<Polygon> intersection(Polygon subject, Polygon clipping) {
+        return compute(List.of(subject), List.of(clipping), Operation.INTERSECTION);
+    }
+
+    // get area of subject not covered by clipping polygon
+    public List<Polygon> difference(Polygon subject, Polygon clipping) {
+        return compute(List.of(subject), List.of(clipping), Operation.DIFFERENCE);
+    }
+
+    // get area covered by exactly one polygon
+    public List<Polygon> xor(Polygon subject, Polygon clipping) {
+        return compute(List.of(subject), List.of(clipping), Operation.XOR);
+    }
+
+    // merge contours read with even-odd rule into one ring covering the same area, e.g. an outline with holes
+    // every further contour is entered from the first point of the first one and left along the same bridge,
+    // so both bridge edges cancel out under the even-odd rule
+    public Polygon join(List<Polygon> contours) {
+        Polygon ring = new Polygon();
+        if (contours.isEmpty()) return ring;
+
+        Point anchor = contours.get(0).getPoints().get(0);
+        for (int i = 0; i < contours.size(); i++) {
+            List<Point> points = contours.get(i).getPoints();
+            if (i > 0) ring.addPoint(new Point(anchor.getX(), anchor.getY()));
+            for (Point p : points) {
+                ring.addPoint(new Point(p.getX(), p.getY()));
+            }
+            if (i > 0) ring.addPoint(new Point(points.get(0).getX(), points.get(0).getY()));
+        }
+        return ring;
+    }
+
+    // combine two sets of contours with Martinez-Rueda sweep line, contours are read with even-odd rule
+    public List<Polygon> compute(List<Polygon> subject, List<Polygon> clipping, Operation operation) {
+        nextSequence = 0;
+        PriorityQueue<SweepEvent> queue = new PriorityQueue<>(PolygonBoolean::compareEvents);
+        double[] subjectBox = {Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        double[] clippingBox = {Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+
+        int contourId = 0;
+        for (Polygon contour : subject) {
+            addContour(queue, contour, true, contourId++, subjectBox);
+        }
+        for (Polygon contour : clipping) {
+            addContour(queue, contour, false, contourId++, clippingBox);
+        }
+
+        // disjoint inputs need no sweep
+        if (subjectBox[0] > clippingBox[2] || clippingBox[0] > subjectBox[2]
+                || subjectBox[1] > clippingBox[3] || clippingBox[1] > subjectBox[3]) {
+            return trivialResult(subject, clipping, operation);
+        }
+
+        List<SweepEvent> sortedEvents = subdivide(queue, operation, subjectBox, clippingBox);
+        return connectEdges(sortedEvents);
+    }
+
+    // result when bounding boxes do not overlap
+    private List<Polygon> trivialResult(List<Polygon> subject, List<Polygon> clipping, Operation operation) {
+        List<Polygon> result = new ArrayList<>();
+        switch (operation) {
+            case INTERSECTION -> { }
+            case DIFFERENCE -> copyInto(result, subject);
+            default -> {
+                copyInto(result, subject);
+                copyInto(result, clipping);
+            }
+        }
+        return result;
+    }
+
+    // copy contours with fresh points
+    private void copyInto(List<Polygon> result, List<Polygon> contours) {
+        for (Polygon contour : contours) {
+            Polygon copy = new Polygon();
+            for (Point p : contour.getPoints()) {
+                copy.addPoint(new Point(p.getX(), p.getY()));
+            }
+            if (copy.getPoints().size() >= 3) result.add(copy);
+        }
+    }
+
+    // queue both endpoint events of every non-degenerate edge
+    private void addContour(PriorityQueue<SweepEvent> queue, Polygon contour, boolean isSubject, int contourId, double[] box) {
+        List<Point> points = contour.getPoints();
+        int size = points.size();
+        for (int i = 0; i < size; i++) {
+            Point a = points.get(i);
+            Point b = points.get((i + 1) % size);
+            if (a.getX() == b.getX() && a.getY() == b.getY()) continue;
+
+            SweepEvent e1 = new SweepEvent(a.getX(), a.getY(), false, null, isSubject, nextSequence++);
+            SweepEvent e2 = new SweepEvent(b.getX(), b.getY(), false, e1, isSubject, nextSequence++);
+            e1.otherEvent = e2;
+            e1.contourId = contourId;
+            e2.contourId = contourId;
+            if (compareEvents(e1, e2) > 0) {
+                e2.left = true;
+            } else {
+                e1.left = true;
+            }
+
+            box[0] = Math.min(box[0], a.getX());
+            box[1] = Math.min(box[1], a.getY());
+            box[2] = Math.max(box[2], a.getX());
+            box[3] = Math.max(box[3], a.getY());
+
+            queue.add(e1);
+            queue.add(e2);
+        }
+    }
+
+    // sweep from left to right, splitting edges at intersections and classifying them
+    private List<SweepEvent> subdivide(PriorityQueue<SweepEvent> queue, Operation operation,
+                                       double[] subjectBox, double[] clippingBox) {
+        TreeSet<SweepEvent> sweepLine = new TreeSet<>(PolygonBoolean::compareSegments);
+        List<SweepEvent> sortedEvents = new ArrayList<>();
+        double rightBound = Math.min(subjectBox[2], clippingBox[2]);
+
+        while (!queue.isEmpty()) {
+            SweepEvent event = queue.poll();
+
+            // nothing right of these bounds can change the result
+            if (operation == Operation.INTERSECTION && event.x > rightBound
+                    || operation == Operation.DIFFERENCE && event.x > subjectBox[2]) {
+                break;
+            }
+            sortedEvents.add(event);
+
+            if (event.left) {
+                sweepLine.add(event);
+                SweepEvent prev = sweepLine.lower(event);
+                SweepEvent next = sweepLine.higher(event);
+
+                computeFields(event, prev, operation);
+                if (next != null && possibleIntersection(event, next, queue) == 2) {
+                    computeFields(event, prev, operation);
+                    computeFields(next, event, operation);
+                }
+                if (prev != null && possibleIntersection(prev, event, queue) == 2) {
+                    computeFields(prev, sweepLine.lower(prev), operation);
+                    computeFields(event, prev, operation);
+                }
+            } else {
+                SweepEvent left = event.otherEvent;
+                if (sweepLine.contains(left)) {
+                    SweepEvent prev = sweepLine.lower(left);
+                    SweepEvent next = sweepLine.higher(left);
+                    sweepLine.remove(left);
+                    if (prev != null && next != null) {
+                        possibleIntersection(prev, next, queue);
+                    }
+                }
+            }
+        }
+        return sortedEvents;
+    }
+
+    // derive inside/outside flags of edge from the edge below it
+    private void computeFields(SweepEvent event, SweepEvent prev, Operation operation) {
+        if (prev == null) {
+            event.inOut = false;
+            event.otherInOut = true;
+        } else if (event.isSubject == prev.isSubject) {
+            event.inOut = !prev.inOut;
+            event.otherInOut = prev.otherInOut;
+        } else {
+            event.inOut = !prev.otherInOut;
+            event.otherInOut = prev.isVertical() ? !prev.inOut : prev.inOut;
+        }
+        event.inResult = inResult(event, operation);
+    }
+
+    // decide if edge bounds the result
+    private boolean inResult(SweepEvent event, Operation operation) {
+        return switch (event.type) {
+            case SweepEvent.NORMAL -> switch (operation) {
+                case INTERSECTION -> !event.otherInOut;
+                case UNION -> event.otherInOut;
+                case DIFFERENCE -> event.isSubject == event.otherInOut;
+                case XOR -> true;
+            };
+            case SweepEvent.SAME_TRANSITION -> operation == Operation.INTERSECTION || operation == Operation.UNION;
+            case SweepEvent.DIFFERENT_TRANSITION -> operation == Operation.DIFFERENCE;
+            default -> false;
+        };
+    }
+
+    // split neighbouring edges where they cross, returns 2 when edges overlap from the same left point
+    private int possibleIntersection(SweepEvent se1, SweepEvent se2, PriorityQueue<SweepEvent> queue) {
+        double[] inter = intersect(se1.x, se1.y, se1.otherEvent.x, se1.otherEvent.y,
+                se2.x, se2.y, se2.otherEvent.x, se2.otherEvent.y);
+        if (inter == null) return 0;
+
+        int count = inter.length / 2;
+        if (count == 1 && (se1.isAt(se2.x, se2.y) || se1.otherEvent.isAt(se2.otherEvent.x, se2.otherEvent.y))) {
+            return 0;
+        }
+        if (count == 2 && se1.isSubject == se2.isSubject) {
+            return 0;
+        }
+
+        if (count == 1) {
+            if (!se1.isAt(inter[0], inter[1]) && !se1.otherEvent.isAt(inter[0], inter[1])) {
+                divideSegment(se1, inter[0], inter[1], queue);
+            }
+            if (!se2.isAt(inter[0], inter[1]) && !se2.otherEvent.isAt(inter[0], inter[1])) {
+                divideSegment(se2, inter[0], inter[1], queue);
+            }
+            return 1;
+        }
+
+        // collinear overlap
+        List<SweepEvent> events = new ArrayList<>(4);
+        boolean leftCoincide = se1.isAt(se2.x, se2.y);
+        boolean rightCoincide = se1.otherEvent.isAt(se2.otherEvent.x, se2.otherEvent.y);
+        if (!leftCoincide) {
+            if (compareEvents(se1, se2) > 0) {
+                events.add(se2);
+                events.add(se1);
+            } else {
+                events.add(se1);
+                events.add(se2);
+            }
+        }
+        if (!rightCoincide) {
+            if (compareEvents(se1.otherEvent, se2.otherEvent) > 0) {
+                events.add(se2.otherEvent);
+                events.add(se1.otherEvent);
+            } else {
+                events.add(se1.otherEvent);
+                events.add(se2.otherEvent);
+            }
+        }
+
+        if (leftCoincide) {
+            // the shared part is counted once through se1
+            se2.type = SweepEvent.NON_CONTRIBUTING;
+            se1.type = se2.inOut == se1.inOut ? SweepEvent.SAME_TRANSITION : SweepEvent.DIFFERENT_TRANSITION;
+            if (!rightCoincide) {
+                divideSegment(events.get(1).otherEvent, events.get(0).x, events.get(0).y, queue);
+            }
+            return 2;
+        }
+        if (rightCoincide) {
+            divideSegment(events.get(0), events.get(1).x, events.get(1).y, queue);
+            return 3;
+        }
+        if (events.get(0) != events.get(3).otherEvent) {
+            // edges overlap partially
+            divideSegment(events.get(0), events.get(1).x, events.get(1).y, queue);
+            divideSegment(events.get(1), events.get(2).x, events.get(2).y, queue);
+            return 3;
+        }
+        // one edge includes the other
+        divideSegment(events.get(0), events.get(1).x, events.get(1).y, queue);
+        divideSegment(events.get(3).otherEvent, events.get(2).x, events.get(2).y, queue);
+        return 3;
+    }
+
+    // split edge at point into two edges
+    private void divideSegment(SweepEvent se, double px, double py, PriorityQueue<SweepEvent> queue) {
+        SweepEvent r = new SweepEvent(px, py, false, se, se.isSubject, nextSequence++);
+        SweepEvent l = new SweepEvent(px, py, true, se.otherEvent, se.isSubject, nextSequence++);
+        r.contourId = se.contourId;
+        l.contourId = se.contourId;
+
+        // rounding can flip the order of the new left event and the old right event
+        if (compareEvents(l, se.otherEvent) > 0) {
+            se.otherEvent.left = true;
+            l.left = false;
+        }
+        se.otherEvent.otherEvent = l;
+        se.otherEvent = r;
+        queue.add(l);
+        queue.add(r);
+    }
+
+    // intersect two segments, returns null, one point or the two ends of a collinear overlap
+    private static double[] intersect(double a1x, double a1y, double a2x, double a2y,
+                                      double b1x, double b1y, double b2x, double b2y) {
+        double vax = a2x - a1x, vay = a2y - a1y;
+        double vbx = b2x - b1x, vby = b2y - b1y;
+        double ex = b1x - a1x, ey = b1y - a1y;
+
+        double kross = vax * vby - vay * vbx;
+        if (kross != 0) {
+            double s = (ex * vby - ey * vbx) / kross;
+            if (s < 0 || s > 1) return null;
+            double t = (ex * vay - ey * vax) / kross;
+            if (t < 0 || t > 1) return null;
+            if (s == 0 || s == 1) return new double[]{a1x + s * vax, a1y + s * vay};
+            if (t == 0 || t == 1) return new double[]{b1x + t * vbx, b1y + t * vby};
+            return new double[]{a1x + s * vax, a1y + s * vay};
+        }
+
+        // parallel edges intersect only when collinear
+        if (ex * vay - ey * vax != 0) return null;
+
+        double lengthSquared = vax * vax + vay * vay;
+        double sa = (vax * ex + vay * ey) / lengthSquared;
+        double sb = sa + (vax * vbx + vay * vby) / lengthSquared;
+        double smin = Math.min(sa, sb);
+        double smax = Math.max(sa, sb);
+        if (smin > 1 || smax < 0) return null;
+
+        double from = Math.max(smin, 0);
+        if (smin == 1 || smax == 0) {
+            return new double[]{a1x + from * vax, a1y + from * vay};
+        }
+        double to = Math.min(smax, 1);
+        return new double[]{a1x + from * vax, a1y + from * vay, a1x + to * vax, a1y + to * vay};
+    }
+
+    // walk result edges into closed contours
+    private List<Polygon> connectEdges(List<SweepEvent> sortedEvents) {
+        List<SweepEvent> resultEvents = new ArrayList<>();
+        for (SweepEvent event : sortedEvents) {
+            if (event.left ? event.inResult : event.otherEvent.inResult) {
+                resultEvents.add(event);
+            }
+        }
+
+        // overlapping edges can leave the list slightly out of order
+        boolean sorted = false;
+        while (!sorted) {
+            sorted = true;
+            for (int i = 0; i < resultEvents.size() - 1; i++) {
+                if (compareEvents(resultEvents.get(i), resultEvents.get(i + 1)) > 0) {
+                    Collections.swap(resultEvents, i, i + 1);
+                    sorted = false;
+                }
+            }
+        }
+
+        int length = resultEvents.size();
+        for (int i = 0; i < length; i++) {
+            resultEvents.get(i).otherPos = i;
+        }
+        for (SweepEvent event : resultEvents) {
+            if (!event.left) {
+                int tmp = event.otherPos;
+                event.otherPos = event.otherEvent.otherPos;
+                event.otherEvent.otherPos = tmp;
+            }
+        }
+
+        boolean[] processed = new boolean[length];
+        List<Polygon> result = new ArrayList<>();
+        for (int i = 0; i < length; i++) {
+            if (processed[i]) continue;
+
+            List<Point> ring = new ArrayList<>();
+            int pos = i;
+            ring.add(toPoint(resultEvents.get(i)));
+            while (true) {
+                processed[pos] = true;
+                pos = resultEvents.get(pos).otherPos;
+                processed[pos] = true;
+                ring.add(toPoint(resultEvents.get(pos)));
+                pos = nextPos(pos, resultEvents, processed, i);
+                if (pos == i || pos < 0 || pos >= length || processed[pos]) break;
+            }
+
+            Polygon contour = toPolygon(ring);
+            if (contour != null) result.add(contour);
+        }
+        return result;
+    }
+
+    // find unprocessed event continuing the contour at the same point
+    private int nextPos(int pos, List<SweepEvent> resultEvents, boolean[] processed, int origPos) {
+        SweepEvent current = resultEvents.get(pos);
+        int newPos = pos + 1;
+        while (newPos < resultEvents.size() && resultEvents.get(newPos).isAt(current.x, current.y)) {
+            if (!processed[newPos]) return newPos;
+            newPos++;
+        }
+
+        newPos = pos - 1;
+        while (newPos > origPos && processed[newPos]) {
+            newPos--;
+        }
+        return newPos;
+    }
+
+    // round event position to raster coordinates
+    private static Point toPoint(SweepEvent event) {
+        return new Point((int) Math.round(event.x), (int) Math.round(event.y));
+    }
+
+    // drop closing and repeated points that rounding produced
+    private static Polygon toPolygon(List<Point> ring) {
+        Polygon polygon = new Polygon();
+        Point last = null;
+        int kept = 0;
+        for (Point p : ring) {
+            if (last != null && last.getX() == p.getX() && last.getY() == p.getY()) continue;
+            polygon.addPoint(p);
+            last = p;
+            kept++;
+        }
+        List<Point> points = polygon.getPoints();
+        if (kept > 1) {
+            Point first = points.get(0);
+            if (first.getX() == last.getX() && first.getY() == last.getY()) {
+                points.remove(points.size() - 1);
+                kept--;
+            }
+        }
+        return kept >= 3 ? polygon : null;
+    }
+
+    // order events left to right, bottom to top, right endpoints first
+    static int compareEvents(SweepEvent e1, SweepEvent e2) {
+        if (e1.x != e2.x) return e1.x > e2.x ? 1 : -1;
+        if (e1.y != e2.y) return e1.y > e2.y ? 1 : -1;
+        if (e1.left != e2.left) return e1.left ? 1 : -1;
+
+        // same point and side, the lower edge goes first
+        if (SweepEvent.signedArea(e1.x, e1.y, e1.otherEvent.x, e1.otherEvent.y, e2.otherEvent.x, e2.otherEvent.y) != 0) {
+            return e1.isBelow(e2.otherEvent.x, e2.otherEvent.y) ? -1 : 1;
+        }
+        if (e1.isSubject != e2.isSubject) return e1.isSubject ? -1 : 1;
+        return Integer.compare(e1.sequence, e2.sequence);
+    }
+
+    // order edges in the sweep line from bottom to top
+    static int compareSegments(SweepEvent le1, SweepEvent le2) {
+        if (le1 == le2) return 0;
+
+        if (SweepEvent.signedArea(le1.x, le1.y, le1.otherEvent.x, le1.otherEvent.y, le2.x, le2.y) != 0
+                || SweepEvent.signedArea(le1.x, le1.y, le1.otherEvent.x, le1.otherEvent.y, le2.otherEvent.x, le2.otherEvent.y) != 0) {
+            // edges are not collinear
+            if (le1.isAt(le2.x, le2.y)) return le1.isBelow(le2.otherEvent.x, le2.otherEvent.y) ? -1 : 1;
+            if (le1.x == le2.x) return le1.y < le2.y ? -1 : 1;
+            if (compareEvents(le1, le2) > 0) return le2.isAbove(le1.x, le1.y) ? -1 : 1;
+            return le1.isBelow(le2.x, le2.y) ? -1 : 1;
+        }
+
+        if (le1.isSubject != le2.isSubject) return le1.isSubject ? -1 : 1;
+        if (le1.isAt(le2.x, le2.y)) {
+            if (le1.otherEvent.isAt(le2.otherEvent.x, le2.otherEvent.y)) {
+                return Integer.compare(le1.sequence, le2.sequence);
+            }
+            if (le1.contourId != le2.contourId) return le1.contourId > le2.contourId ? 1 : -1;
+            return Integer.compare(le1.sequence, le2.sequence);
+        }
+        return compareEvents(le1, le2) > 0 ? 1 : -1;
+    }
+}
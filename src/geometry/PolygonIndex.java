@@ -0,0 +1,274 @@
+package geometry;
+
+import models.Point;
+import models.Polygon;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class PolygonIndex {
+    // polygons below this size are tested against all edges of one slab
+    private static final int MIN_EDGES_FOR_SLABS = 16;
+    // slab lists may hold at most this many entries per edge before fewer slabs are used
+    private static final int MAX_ENTRIES_PER_EDGE = 8;
+    // crossings this close to a whole pixel are snapped to it, exact crossings of integer edges are never
+    // closer to another whole pixel than 1 / edge height, so only rounding of clipped edges is absorbed
+    private static final double SNAP = 1e-9;
+
+    private int version;
+    private int minX, minY, maxX, maxY;
+
+    // edges packed as x1,y1,x2,y2 in original vertex order, fractional only for clipped polygons
+    private double[] edges = new double[0];
+    private int edgeCount;
+
+    // slab i covers rows slabTop[i] until slabTop[i + 1], its edges are slabEdges[slabStart[i]..slabStart[i + 1])
+    // arrays may be longer than needed, they are kept when the index is rebuilt
+    private int slabCount;
+    private int[] slabTop = new int[2];
+    private int[] slabStart = new int[2];
+    private int[] slabEdges = new int[0];
+
+    // scratch of slab building: sorted vertex rows and next free entry of each slab list
+    private int[] sortedRows = new int[0];
+    private int[] slabFill = new int[1];
+
+    // build index from current polygon geometry
+    public PolygonIndex(Polygon polygon) {
+        rebuild(polygon);
+    }
+
+    // refill index from current polygon geometry, reusing its arrays when they are large enough
+    public void rebuild(Polygon polygon) {
+        this.version = polygon.getVersion();
+        List<Point> points = polygon.getPoints();
+        int size = points.size();
+
+        if (edges.length < size * 4) edges = new double[size * 4];
+        for (int i = 0; i < size; i++) {
+            Point point = points.get(i);
+            edges[i * 4] = point.getX();
+            edges[i * 4 + 1] = point.getY();
+        }
+        linkEdges(size);
+    }
+
+    // refill index from vertices packed as x,y pairs, e.g. a polygon clipped to a window
+    public void rebuild(double[] coords, int count) {
+        this.version = -1;
+        if (edges.length < count * 4) edges = new double[count * 4];
+        for (int i = 0; i < count; i++) {
+            edges[i * 4] = coords[i * 2];
+            edges[i * 4 + 1] = coords[i * 2 + 1];
+        }
+        linkEdges(count);
+    }
+
+    // complete edges whose first vertex is stored, compute bounds and slabs
+    private void linkEdges(int size) {
+        edgeCount = size;
+        double x0 = Double.MAX_VALUE, y0 = Double.MAX_VALUE;
+        double x1 = -Double.MAX_VALUE, y1 = -Double.MAX_VALUE;
+        for (int i = 0, j = size - 1; i < size; j = i++) {
+            edges[i * 4 + 2] = edges[j * 4];
+            edges[i * 4 + 3] = edges[j * 4 + 1];
+            x0 = Math.min(x0, edges[i * 4]);
+            y0 = Math.min(y0, edges[i * 4 + 1]);
+            x1 = Math.max(x1, edges[i * 4]);
+            y1 = Math.max(y1, edges[i * 4 + 1]);
+        }
+        // whole pixel bounds enclosing all vertices
+        minX = (int) Math.floor(x0);
+        minY = (int) Math.floor(y0);
+        maxX = (int) Math.ceil(x1);
+        maxY = (int) Math.ceil(y1);
+
+        slabCount = 0;
+        if (size > 0) buildSlabs();
+    }
+
+    // check if index still matches polygon geometry
+    public boolean isValidFor(Polygon polygon) {
+        return version == polygon.getVersion();
+    }
+
+    // check if point lies inside, with the same even-odd ray casting rules as the plain test
+    public boolean contains(int x, int y) {
+        if (edgeCount == 0 || x < minX || x > maxX || y < minY || y > maxY) {
+            return false;
+        }
+
+        int slab = findSlab(y);
+        boolean inside = false;
+        for (int k = slabStart[slab], end = slabStart[slab + 1]; k < end; k++) {
+            int e = slabEdges[k] * 4;
+            double xi = edges[e], yi = edges[e + 1], xj = edges[e + 2], yj = edges[e + 3];
+
+            // point lies exactly on a vertex
+            if ((xi == x && yi == y) || (xj == x && yj == y)) {
+                return true;
+            }
+            if (((yi > y) != (yj > y)) && (x < (xj - xi) * (y - yi) / (yj - yi) + xi)) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    // test many points packed as x,y pairs, returns number of points inside
+    public int containsAll(int[] coords, int count, boolean[] result) {
+        int inside = 0;
+        for (int i = 0; i < count; i++) {
+            result[i] = contains(coords[i * 2], coords[i * 2 + 1]);
+            if (result[i]) inside++;
+        }
+        return inside;
+    }
+
+    // collect x positions where row y crosses edges, sorted, returns crossing count
+    public int getCrossings(int y, double[] out) {
+        if (edgeCount == 0 || y < minY || y > maxY) return 0;
+
+        int slab = findSlab(y);
+        int count = 0;
+        for (int k = slabStart[slab], end = slabStart[slab + 1]; k < end; k++) {
+            int e = slabEdges[k] * 4;
+            double xi = edges[e], yi = edges[e + 1], xj = edges[e + 2], yj = edges[e + 3];
+            if ((yi > y) != (yj > y)) {
+                double crossing = (xj - xi) * (y - yi) / (yj - yi) + xi;
+                double pixel = Math.rint(crossing);
+                out[count++] = Math.abs(crossing - pixel) < SNAP ? pixel : crossing;
+            }
+        }
+        Arrays.sort(out, 0, count);
+        return count;
+    }
+
+    // mark inside pixels of row y in mask starting at offset, pixels x in [0, width)
+    public void fillRow(int y, double[] crossings, byte[] mask, int offset, int width) {
+        int count = getCrossings(y, crossings);
+
+        // pixel x is inside when an odd number of crossings lies strictly right of it
+        for (int i = count - 1; i >= 1; i -= 2) {
+            int from = (int) Math.floor(crossings[i - 1]);
+            if (from < crossings[i - 1]) from++;
+            int to = (int) Math.ceil(crossings[i]) - 1;
+            from = Math.max(from, 0);
+            to = Math.min(to, width - 1);
+            if (from <= to) Arrays.fill(mask, offset + from, offset + to + 1, (byte) 1);
+        }
+
+        // vertices count as inside as well
+        if (y < minY || y > maxY) return;
+        int slab = findSlab(y);
+        for (int k = slabStart[slab], end = slabStart[slab + 1]; k < end; k++) {
+            int e = slabEdges[k] * 4;
+            int x = (int) edges[e];
+            if (edges[e + 1] == y && edges[e] == x && x >= 0 && x < width) {
+                mask[offset + x] = 1;
+            }
+        }
+    }
+
+    // get maximum number of crossings one row can have
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    // get x of vertex i
+    public double getVertexX(int i) {
+        return edges[i * 4];
+    }
+
+    // get y of vertex i
+    public double getVertexY(int i) {
+        return edges[i * 4 + 1];
+    }
+
+    // get bounds minimum x
+    public int getMinX() {
+        return minX;
+    }
+
+    // get bounds minimum y
+    public int getMinY() {
+        return minY;
+    }
+
+    // get bounds maximum x
+    public int getMaxX() {
+        return maxX;
+    }
+
+    // get bounds maximum y
+    public int getMaxY() {
+        return maxY;
+    }
+
+    // find slab containing row y with binary search
+    private int findSlab(int y) {
+        int index = Arrays.binarySearch(slabTop, 0, slabCount, y);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    // split rows at quantiles of vertex y coordinates and list edges per slab in flat arrays
+    private void buildSlabs() {
+        if (sortedRows.length < edgeCount) sortedRows = new int[edgeCount];
+        int[] ys = sortedRows;
+        for (int i = 0; i < edgeCount; i++) {
+            ys[i] = (int) Math.floor(edges[i * 4 + 1]);
+        }
+        Arrays.sort(ys, 0, edgeCount);
+        int distinct = 0;
+        for (int i = 0; i < edgeCount; i++) {
+            if (i == 0 || ys[i] != ys[i - 1]) ys[distinct++] = ys[i];
+        }
+
+        int slabs = edgeCount < MIN_EDGES_FOR_SLABS ? 1 : Math.max(1, Math.min(distinct, edgeCount / 2));
+        while (true) {
+            if (slabTop.length < slabs + 1) {
+                slabTop = new int[slabs + 1];
+                slabStart = new int[slabs + 1];
+                slabFill = new int[slabs];
+            }
+            for (int s = 0; s < slabs; s++) {
+                slabTop[s] = ys[(int) ((long) s * distinct / slabs)];
+            }
+            slabTop[slabs] = maxY + 1;
+
+            if (fillSlabs(slabs) || slabs == 1) return;
+            slabs = Math.max(1, slabs / 2);
+        }
+    }
+
+    // count then place edge indices per slab, false when lists grow too large
+    private boolean fillSlabs(int slabs) {
+        int[] starts = slabStart;
+        Arrays.fill(starts, 0, slabs + 1, 0);
+        long total = 0;
+        for (int i = 0; i < edgeCount; i++) {
+            int first = slabOf(slabTop, slabs, (int) Math.floor(Math.min(edges[i * 4 + 1], edges[i * 4 + 3])));
+            int last = slabOf(slabTop, slabs, (int) Math.floor(Math.max(edges[i * 4 + 1], edges[i * 4 + 3])));
+            for (int s = first; s <= last; s++) starts[s + 1]++;
+            total += last - first + 1;
+        }
+        if (slabs > 1 && total > (long) edgeCount * MAX_ENTRIES_PER_EDGE) return false;
+
+        for (int s = 0; s < slabs; s++) starts[s + 1] += starts[s];
+        System.arraycopy(starts, 0, slabFill, 0, slabs);
+        if (slabEdges.length < total) slabEdges = new int[(int) total];
+        for (int i = 0; i < edgeCount; i++) {
+            int first = slabOf(slabTop, slabs, (int) Math.floor(Math.min(edges[i * 4 + 1], edges[i * 4 + 3])));
+            int last = slabOf(slabTop, slabs, (int) Math.floor(Math.max(edges[i * 4 + 1], edges[i * 4 + 3])));
+            for (int s = first; s <= last; s++) slabEdges[slabFill[s]++] = i;
+        }
+        slabCount = slabs;
+        return true;
+    }
+
+    // find slab for row within given boundaries
+    private static int slabOf(int[] tops, int slabs, int y) {
+        int index = Arrays.binarySearch(tops, 0, slabs, y);
+        return index >= 0 ? index : -index - 2;
+    }
+}
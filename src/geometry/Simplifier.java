@@ -0,0 +1,299 @@
+package geometry;
+
+import models.Point;
+import models.Polygon;
+
+import java.util.List;
+
+public class Simplifier {
+    // reusable work arrays, grown on demand
+    private boolean[] keep = new boolean[0];
+    private int[] stack = new int[0];
+    private double[] areas = new double[0];
+    private int[] prev = new int[0];
+    private int[] next = new int[0];
+    private int[] heap = new int[0];
+    private int[] heapIndex = new int[0];
+    private int heapSize;
+
+    // simplify closed polygon with Ramer-Douglas-Peucker, tolerance in pixels
+    public Polygon simplify(Polygon polygon, double tolerance) {
+        int[] coords = toCoords(polygon.getPoints());
+        int count = coords.length / 2;
+        if (count <= 3) return toPolygon(coords, count);
+
+        // split the ring at the point farthest from the first one and simplify both halves
+        int split = farthestFrom(coords, count, 0);
+        ensureCapacity(count + 1);
+        int[] ring = new int[(count + 1) * 2];
+        System.arraycopy(coords, 0, ring, 0, count * 2);
+        ring[count * 2] = coords[0];
+        ring[count * 2 + 1] = coords[1];
+
+        clearKeep(count + 1);
+        markDouglasPeucker(ring, 0, split, tolerance * tolerance);
+        markDouglasPeucker(ring, split, count, tolerance * tolerance);
+        keep[count] = false;
+        return toPolygon(compact(ring, count), -1);
+    }
+
+    // simplify closed polygon with Visvalingam-Whyatt, dropping vertices whose triangle is smaller than minArea
+    public Polygon simplifyByArea(Polygon polygon, double minArea) {
+        int[] coords = toCoords(polygon.getPoints());
+        int count = coords.length / 2;
+        if (count <= 3) return toPolygon(coords, count);
+
+        markVisvalingam(coords, count, minArea, true);
+        return toPolygon(compact(coords, count), -1);
+    }
+
+    // simplify open polyline packed as x,y pairs with Ramer-Douglas-Peucker, returns packed result
+    public int[] simplify(int[] coords, int count, double tolerance) {
+        if (count <= 2) return copyOf(coords, count);
+
+        ensureCapacity(count);
+        clearKeep(count);
+        markDouglasPeucker(coords, 0, count - 1, tolerance * tolerance);
+        return compact(coords, count);
+    }
+
+    // simplify open polyline packed as x,y pairs with Visvalingam-Whyatt, returns packed result
+    public int[] simplifyByArea(int[] coords, int count, double minArea) {
+        if (count <= 2) return copyOf(coords, count);
+
+        markVisvalingam(coords, count, minArea, false);
+        return compact(coords, count);
+    }
+
+    // keep points farther than tolerance from the chord, with an explicit stack instead of recursion
+    private void markDouglasPeucker(int[] coords, int first, int last, double toleranceSquared) {
+        keep[first] = true;
+        keep[last] = true;
+
+        int top = 0;
+        stack[top++] = first;
+        stack[top++] = last;
+        while (top > 0) {
+            int to = stack[--top];
+            int from = stack[--top];
+
+            int ax = coords[from * 2], ay = coords[from * 2 + 1];
+            int bx = coords[to * 2], by = coords[to * 2 + 1];
+            double maxDistance = -1;
+            int index = -1;
+            for (int i = from + 1; i < to; i++) {
+                double distance = segmentDistanceSquared(coords[i * 2], coords[i * 2 + 1], ax, ay, bx, by);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    index = i;
+                }
+            }
+
+            if (index >= 0 && maxDistance > toleranceSquared) {
+                keep[index] = true;
+                stack[top++] = from;
+                stack[top++] = index;
+                stack[top++] = index;
+                stack[top++] = to;
+            }
+        }
+    }
+
+    // repeatedly remove the vertex with the smallest effective area until all exceed minArea
+    private void markVisvalingam(int[] coords, int count, double minArea, boolean closed) {
+        ensureCapacity(count);
+        heapSize = 0;
+        for (int i = 0; i < count; i++) {
+            keep[i] = true;
+            prev[i] = closed ? (i + count - 1) % count : i - 1;
+            next[i] = closed ? (i + 1) % count : (i + 1 < count ? i + 1 : -1);
+        }
+        for (int i = 0; i < count; i++) {
+            areas[i] = triangleArea(coords, i);
+            heapIndex[i] = -1;
+            if (prev[i] >= 0 && next[i] >= 0) heapPush(i);
+        }
+
+        int remaining = count;
+        int minimum = closed ? 3 : 2;
+        double lastArea = 0;
+        while (heapSize > 0 && remaining > minimum) {
+            int i = heap[0];
+            if (areas[i] >= minArea) break;
+            heapRemove(0);
+
+            // a removed vertex never makes its neighbours look less important than itself
+            lastArea = Math.max(lastArea, areas[i]);
+            keep[i] = false;
+            remaining--;
+
+            int p = prev[i];
+            int n = next[i];
+            next[p] = n;
+            prev[n] = p;
+            updateArea(coords, p, lastArea);
+            updateArea(coords, n, lastArea);
+        }
+    }
+
+    // recompute area of neighbour after removal and restore heap order
+    private void updateArea(int[] coords, int i, double floor) {
+        if (heapIndex[i] < 0) return;
+        areas[i] = Math.max(floor, triangleArea(coords, i));
+        siftUp(heapIndex[i]);
+        siftDown(heapIndex[i]);
+    }
+
+    // area of triangle formed by vertex and its current neighbours
+    private double triangleArea(int[] coords, int i) {
+        int p = prev[i];
+        int n = next[i];
+        if (p < 0 || n < 0) return Double.MAX_VALUE;
+
+        long ax = coords[p * 2], ay = coords[p * 2 + 1];
+        long bx = coords[i * 2], by = coords[i * 2 + 1];
+        long cx = coords[n * 2], cy = coords[n * 2 + 1];
+        return Math.abs((bx - ax) * (cy - ay) - (cx - ax) * (by - ay)) / 2.0;
+    }
+
+    // add vertex to min-heap
+    private void heapPush(int i) {
+        heap[heapSize] = i;
+        heapIndex[i] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    // remove heap entry at position
+    private void heapRemove(int position) {
+        int removed = heap[position];
+        heapIndex[removed] = -1;
+        heapSize--;
+        if (position == heapSize) return;
+
+        int moved = heap[heapSize];
+        heap[position] = moved;
+        heapIndex[moved] = position;
+        siftUp(position);
+        siftDown(heapIndex[moved]);
+    }
+
+    // move heap entry up while smaller than its parent
+    private void siftUp(int position) {
+        int item = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (areas[heap[parent]] <= areas[item]) break;
+            heap[position] = heap[parent];
+            heapIndex[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = item;
+        heapIndex[item] = position;
+    }
+
+    // move heap entry down while larger than a child
+    private void siftDown(int position) {
+        int item = heap[position];
+        while (true) {
+            int child = position * 2 + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && areas[heap[child + 1]] < areas[heap[child]]) child++;
+            if (areas[heap[child]] >= areas[item]) break;
+            heap[position] = heap[child];
+            heapIndex[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = item;
+        heapIndex[item] = position;
+    }
+
+    // squared distance from point to segment
+    private static double segmentDistanceSquared(int px, int py, int ax, int ay, int bx, int by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        double ex = px - (ax + t * dx);
+        double ey = py - (ay + t * dy);
+        return ex * ex + ey * ey;
+    }
+
+    // index of point farthest from given point
+    private static int farthestFrom(int[] coords, int count, int from) {
+        int index = from;
+        long best = -1;
+        for (int i = 0; i < count; i++) {
+            long dx = coords[i * 2] - coords[from * 2];
+            long dy = coords[i * 2 + 1] - coords[from * 2 + 1];
+            if (dx * dx + dy * dy > best) {
+                best = dx * dx + dy * dy;
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    // copy kept points into a packed array
+    private int[] compact(int[] coords, int count) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) kept++;
+        }
+        int[] result = new int[kept * 2];
+        int j = 0;
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) {
+                result[j++] = coords[i * 2];
+                result[j++] = coords[i * 2 + 1];
+            }
+        }
+        return result;
+    }
+
+    // reset keep flags
+    private void clearKeep(int count) {
+        for (int i = 0; i < count; i++) {
+            keep[i] = false;
+        }
+    }
+
+    // grow work arrays to hold count points
+    private void ensureCapacity(int count) {
+        if (keep.length >= count) return;
+        keep = new boolean[count];
+        stack = new int[count * 2 + 4];
+        areas = new double[count];
+        prev = new int[count];
+        next = new int[count];
+        heap = new int[count];
+        heapIndex = new int[count];
+    }
+
+    // pack point list as x,y pairs
+    private static int[] toCoords(List<Point> points) {
+        int[] coords = new int[points.size() * 2];
+        for (int i = 0; i < points.size(); i++) {
+            coords[i * 2] = points.get(i).getX();
+            coords[i * 2 + 1] = points.get(i).getY();
+        }
+        return coords;
+    }
+
+    // copy first count packed points
+    private static int[] copyOf(int[] coords, int count) {
+        int[] result = new int[count * 2];
+        System.arraycopy(coords, 0, result, 0, count * 2);
+        return result;
+    }
+
+    // build polygon with fresh points, count -1 means whole array
+    private static Polygon toPolygon(int[] coords, int count) {
+        int size = count < 0 ? coords.length / 2 : count;
+        Polygon polygon = new Polygon();
+        for (int i = 0; i < size; i++) {
+            polygon.addPoint(new Point(coords[i * 2], coords[i * 2 + 1]));
+        }
+        return polygon;
+    }
+}
@@ -0,0 +1,63 @@
+package geometry;
+
+class SweepEvent {
+    // edge types after overlapping edges are detected
+    static final int NORMAL = 0;
+    static final int NON_CONTRIBUTING = 1;
+    static final int SAME_TRANSITION = 2;
+    static final int DIFFERENT_TRANSITION = 3;
+
+    final double x;
+    final double y;
+    boolean left;
+    SweepEvent otherEvent;
+    final boolean isSubject;
+    final int sequence;
+    int contourId;
+    int type = NORMAL;
+
+    // inside/outside state of the own polygon and the other polygon just below the edge
+    boolean inOut;
+    boolean otherInOut;
+    boolean inResult;
+
+    // position of the paired event while connecting result edges
+    int otherPos;
+
+    // create endpoint event of an edge
+    SweepEvent(double x, double y, boolean left, SweepEvent otherEvent, boolean isSubject, int sequence) {
+        this.x = x;
+        this.y = y;
+        this.left = left;
+        this.otherEvent = otherEvent;
+        this.isSubject = isSubject;
+        this.sequence = sequence;
+    }
+
+    // check if point lies below the line through this edge
+    boolean isBelow(double px, double py) {
+        return left
+                ? signedArea(x, y, otherEvent.x, otherEvent.y, px, py) > 0
+                : signedArea(otherEvent.x, otherEvent.y, x, y, px, py) > 0;
+    }
+
+    // check if point lies above the line through this edge
+    boolean isAbove(double px, double py) {
+        return !isBelow(px, py);
+    }
+
+    // check if edge is vertical
+    boolean isVertical() {
+        return x == otherEvent.x;
+    }
+
+    // check if event lies at given point
+    boolean isAt(double px, double py) {
+        return x == px && y == py;
+    }
+
+    // twice the signed area of triangle, positive for counter-clockwise order
+    static double signedArea(double x0, double y0, double x1, double y1, double x2, double y2) {
+        return (x0 - x2) * (y1 - y2) - (x1 - x2) * (y0 - y2);
+    }
+}
@@ -0,0 +1,228 @@
+package logging;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class Logger {
+    // severity levels, a message is written when its level is at least the threshold
+    public enum Level {
+        TRACE, DEBUG, INFO, WARN, ERROR, OFF
+    }
+
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final Map<String, Logger> LOGGERS = new ConcurrentHashMap<>();
+    private static final BlockingQueue<Entry> QUEUE = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final AtomicLong DROPPED = new AtomicLong();
+    // entries accepted by the queue and not yet written, including a batch the writer has taken
+    private static final AtomicLong PENDING = new AtomicLong();
+    private static final Object WRITER_LOCK = new Object();
+    private static Thread writer;
+    private static PrintStream out;
+
+    // read once at startup with -Dlog.level, a plain int keeps disabled checks to one load and compare
+    private static volatile int threshold = parseLevel(System.getProperty("log.level", "INFO")).ordinal();
+
+    private final String name;
+
+    // message waiting for the writer thread, formatted only there
+    private static class Entry {
+        final long time;
+        final Level level;
+        final String thread;
+        final String logger;
+        final String format;
+        final Object[] args;
+        final Throwable error;
+
+        Entry(Level level, String logger, String format, Object[] args, Throwable error) {
+            this.time = System.currentTimeMillis();
+            this.level = level;
+            this.thread = Thread.currentThread().getName();
+            this.logger = logger;
+            this.format = format;
+            this.args = args;
+            this.error = error;
+        }
+    }
+
+    // create logger for named component
+    private Logger(String name) {
+        this.name = name;
+    }
+
+    // get shared logger for named component
+    public static Logger get(String name) {
+        return LOGGERS.computeIfAbsent(name, Logger::new);
+    }
+
+    // change threshold at runtime
+    public static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    // check if messages of level would be written, callers guard costly arguments with it
+    public boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    // log detailed trace with two int arguments, nothing is boxed unless enabled
+    public void trace(String format, int a, int b) {
+        if (Level.TRACE.ordinal() >= threshold) enqueue(Level.TRACE, format, new Object[]{a, b}, null);
+    }
+
+    // log detailed trace with three int arguments
+    public void trace(String format, int a, int b, int c) {
+        if (Level.TRACE.ordinal() >= threshold) enqueue(Level.TRACE, format, new Object[]{a, b, c}, null);
+    }
+
+    // log debug message with one int argument
+    public void debug(String format, int a) {
+        if (Level.DEBUG.ordinal() >= threshold) enqueue(Level.DEBUG, format, new Object[]{a}, null);
+    }
+
+    // log debug message with two int arguments
+    public void debug(String format, int a, int b) {
+        if (Level.DEBUG.ordinal() >= threshold) enqueue(Level.DEBUG, format, new Object[]{a, b}, null);
+    }
+
+    // log debug message with one argument
+    public void debug(String format, Object a) {
+        if (Level.DEBUG.ordinal() >= threshold) enqueue(Level.DEBUG, format, new Object[]{a}, null);
+    }
+
+    // log informational message
+    public void info(String format, Object... args) {
+        if (Level.INFO.ordinal() >= threshold) enqueue(Level.INFO, format, args, null);
+    }
+
+    // log recoverable problem
+    public void warn(String format, Object... args) {
+        if (Level.WARN.ordinal() >= threshold) enqueue(Level.WARN, format, args, null);
+    }
+
+    // log recoverable problem with its cause
+    public void warn(String message, Throwable error) {
+        if (Level.WARN.ordinal() >= threshold) enqueue(Level.WARN, message, null, error);
+    }
+
+    // log failure with its cause
+    public void error(String message, Throwable error) {
+        if (Level.ERROR.ordinal() >= threshold) enqueue(Level.ERROR, message, null, error);
+    }
+
+    // wait until queued messages are written, e.g. before exit
+    public static void flush() {
+        synchronized (WRITER_LOCK) {
+            if (writer == null) return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (PENDING.get() > 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        synchronized (WRITER_LOCK) {
+            out.flush();
+        }
+    }
+
+    // hand entry to the writer thread, dropping it when the queue is full so callers never block
+    private void enqueue(Level level, String format, Object[] args, Throwable error) {
+        ensureWriter();
+        PENDING.incrementAndGet();
+        if (!QUEUE.offer(new Entry(level, name, format, args, error))) {
+            PENDING.decrementAndGet();
+            DROPPED.incrementAndGet();
+        }
+    }
+
+    // start writer thread on first message, output goes to -Dlog.file or stderr
+    private static void ensureWriter() {
+        synchronized (WRITER_LOCK) {
+            if (writer != null) return;
+            out = openOutput(System.getProperty("log.file"));
+            writer = new Thread(Logger::drain, "log");
+            writer.setDaemon(true);
+            writer.setPriority(Thread.MIN_PRIORITY);
+            writer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(Logger::flush, "log-flush"));
+        }
+    }
+
+    // open log file for appending, falling back to stderr
+    private static PrintStream openOutput(String file) {
+        if (file == null) return System.err;
+        try {
+            return new PrintStream(new FileOutputStream(file, true), false);
+        } catch (IOException e) {
+            System.err.println("Cannot open log file " + file + ": " + e.getMessage());
+            return System.err;
+        }
+    }
+
+    // format and write entries in batches
+    private static void drain() {
+        SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
+        StringBuilder line = new StringBuilder(256);
+        List<Entry> batch = new ArrayList<>(256);
+        while (true) {
+            try {
+                batch.add(QUEUE.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            QUEUE.drainTo(batch, 255);
+
+            synchronized (WRITER_LOCK) {
+                long dropped = DROPPED.getAndSet(0);
+                if (dropped > 0) {
+                    out.println(timeFormat.format(new Date()) + " WARN  [log] logging - " + dropped
+                            + " messages dropped, queue full");
+                }
+                for (Entry entry : batch) {
+                    line.setLength(0);
+                    line.append(timeFormat.format(new Date(entry.time))).append(' ');
+                    line.append(String.format("%-5s", entry.level)).append(" [").append(entry.thread).append("] ");
+                    line.append(entry.logger).append(" - ");
+                    appendMessage(line, entry.format, entry.args);
+                    out.println(line);
+                    if (entry.error != null) entry.error.printStackTrace(out);
+                }
+                out.flush();
+            }
+            PENDING.addAndGet(-batch.size());
+            batch.clear();
+        }
+    }
+
+    // replace each {} in format with the next argument
+    private static void appendMessage(StringBuilder line, String format, Object[] args) {
+        int argument = 0;
+        int from = 0;
+        while (true) {
+            int at = format.indexOf("{}", from);
+            if (at < 0 || args == null || argument >= args.length) break;
+            line.append(format, from, at).append(args[argument++]);
+            from = at + 2;
+        }
+        line.append(format, from, format.length());
+    }
+
+    // parse level name, unknown names fall back to INFO
+    private static Level parseLevel(String value) {
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Level.INFO;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package models;
+
+public class DashPattern {
+    private final int[] runs;
+    private final int[] runEnds;
+    private final int period;
+
+    // create pattern from alternating on/off run lengths, starting with on
+    public DashPattern(int... runs) {
+        if (runs.length == 0 || runs.length % 2 != 0) {
+            throw new IllegalArgumentException("Dash pattern needs an even number of runs.");
+        }
+
+        this.runs = runs.clone();
+        this.runEnds = new int[runs.length];
+        int total = 0;
+        for (int i = 0; i < runs.length; i++) {
+            if (runs[i] <= 0) {
+                throw new IllegalArgumentException("Dash runs must be positive.");
+            }
+            total += runs[i];
+            runEnds[i] = total;
+        }
+        this.period = total;
+    }
+
+    // get length of one repetition of the pattern
+    public int getPeriod() {
+        return period;
+    }
+
+    // get copy of run lengths
+    public int[] getRuns() {
+        return runs.clone();
+    }
+
+    // get index of run covering given position along the stroke
+    public int runIndexAt(int position) {
+        int offset = Math.floorMod(position, period);
+        int index = 0;
+        while (runEnds[index] <= offset) {
+            index++;
+        }
+        return index;
+    }
+
+    // get first position after the run covering given position
+    public int runEndAt(int position) {
+        int offset = Math.floorMod(position, period);
+        return position - offset + runEnds[runIndexAt(offset)];
+    }
+
+    // check if run with given index draws pixels
+    public boolean isOn(int runIndex) {
+        return (runIndex & 1) == 0;
+    }
+
+    // reduce phase into a single period
+    public int normalize(int phase) {
+        return Math.floorMod(phase, period);
+    }
+}
@@ -0,0 +1,468 @@
+package models;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DisplayList {
+    private final List<DrawOp> ops = new ArrayList<>();
+    private final List<Listener> listeners = new ArrayList<>();
+    private int modCount;
+
+    // bounds standing for the whole canvas, used for changes whose pixels are not known
+    private static final Rectangle EVERYWHERE = new Rectangle(Integer.MIN_VALUE / 2, Integer.MIN_VALUE / 2,
+            Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    // layer of each recorded operation, removed ones keep theirs so undo puts them back on the same layer
+    private final Map<DrawOp, Integer> layers = new IdentityHashMap<>();
+    private int activeLayer;
+
+    // per layer: lowest index among its operations changed since the last takeLowestChange call,
+    // counter bumped on every change of its operations and bounds of the pixels those changes touched
+    private int[] lowestChanges = {Integer.MAX_VALUE};
+    private int[] layerModCounts = new int[1];
+    private Rectangle[] changedBounds = new Rectangle[1];
+
+    // operations of each layer in drawing order, rebuilt after document changes
+    private final List<List<DrawOp>> layerOps = new ArrayList<>();
+    private int layerOpsModCount = -1;
+
+    // finished edits, newest last, and the one being grouped between beginEdit and endEdit
+    private final List<Edit> history = new ArrayList<>();
+    private Edit openEdit;
+    private int editDepth;
+
+    // observer of document edits, e.g. for persistence
+    public interface Listener {
+        // operation was appended
+        void opAdded(DrawOp op);
+
+        // operation was removed
+        void opRemoved(DrawOp op);
+
+        // operation was edited in place, null when any operation may have changed
+        void opChanged(DrawOp op);
+
+        // all operations were removed
+        void cleared();
+    }
+
+    // one undoable document change, the operations added to and removed from the list in order
+    public static final class Edit {
+        private final List<Step> steps = new ArrayList<>();
+
+        // get operations the edit put into the document and did not take out again
+        public List<DrawOp> getAdded() {
+            return net(true);
+        }
+
+        // get operations the edit took out of the document that were there before it
+        public List<DrawOp> getRemoved() {
+            return net(false);
+        }
+
+        // collect operations whose last step is of given kind and whose first step matches it too
+        private List<DrawOp> net(boolean added) {
+            Map<DrawOp, Boolean> first = new IdentityHashMap<>();
+            Map<DrawOp, Boolean> last = new IdentityHashMap<>();
+            for (Step step : steps) {
+                first.putIfAbsent(step.op, step.added);
+                last.put(step.op, step.added);
+            }
+            List<DrawOp> found = new ArrayList<>();
+            for (Map.Entry<DrawOp, Boolean> entry : last.entrySet()) {
+                if (entry.getValue() == added && first.get(entry.getKey()) == added) found.add(entry.getKey());
+            }
+            return found;
+        }
+    }
+
+    // operation inserted at or removed from one index of the list
+    private static final class Step {
+        final DrawOp op;
+        final int index;
+        final boolean added;
+
+        Step(DrawOp op, int index, boolean added) {
+            this.op = op;
+            this.index = index;
+            this.added = added;
+        }
+    }
+
+    // register listener for document edits
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    // unregister listener
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // append operation at the top of the active layer
+    public void add(DrawOp op) {
+        add(op, activeLayer);
+    }
+
+    // append operation at the top of given layer, e.g. when a saved document is recovered
+    public void add(DrawOp op, int layer) {
+        ops.add(op);
+        layers.put(op, layer);
+        modCount++;
+        // appending keeps every earlier state of the layer valid, only the touched pixels change
+        ensureLayer(layer);
+        layerModCounts[layer]++;
+        changedBounds[layer] = union(changedBounds[layer], boundsOf(op));
+        record(op, ops.size() - 1, true);
+        for (Listener listener : listeners) listener.opAdded(op);
+    }
+
+    // remove operation, returns false if it was not recorded
+    public boolean remove(DrawOp op) {
+        int index = ops.indexOf(op);
+        if (index < 0) return false;
+
+        ops.remove(index);
+        noteChange(index, op, boundsOf(op));
+        record(op, index, false);
+        for (Listener listener : listeners) listener.opRemoved(op);
+        return true;
+    }
+
+    // replace operation with pieces drawn at its place in the order, returns false if it was not recorded
+    public boolean replace(DrawOp op, List<? extends DrawOp> pieces) {
+        int index = ops.indexOf(op);
+        if (index < 0) return false;
+
+        // pieces stay on the layer of the operation they replace
+        Integer layer = layers.get(op);
+        Rectangle bounds = boundsOf(op);
+        for (DrawOp piece : pieces) {
+            layers.put(piece, layer != null ? layer : 0);
+            bounds = union(bounds, boundsOf(piece));
+        }
+        ops.remove(index);
+        ops.addAll(index, pieces);
+        noteChange(index, op, bounds);
+        beginEdit();
+        record(op, index, false);
+        for (int i = 0; i < pieces.size(); i++) record(pieces.get(i), index + i, true);
+        endEdit();
+        for (Listener listener : listeners) {
+            listener.opRemoved(op);
+            for (DrawOp piece : pieces) listener.opAdded(piece);
+            // appended records would land above later operations, so the order has to be written again
+            if (!pieces.isEmpty() && index + pieces.size() < ops.size()) listener.opChanged(null);
+        }
+        return true;
+    }
+
+    // remove several operations in one pass over the list, returns the number removed
+    public int removeAll(Collection<? extends DrawOp> removed) {
+        if (removed.isEmpty()) return 0;
+
+        Map<DrawOp, Boolean> lookup = new IdentityHashMap<>();
+        for (DrawOp op : removed) lookup.put(op, Boolean.TRUE);
+        int kept = 0;
+        int[] layerIndexes = new int[lowestChanges.length];
+        List<DrawOp> gone = new ArrayList<>();
+        List<Integer> goneIndexes = new ArrayList<>();
+        for (int i = 0; i < ops.size(); i++) {
+            DrawOp op = ops.get(i);
+            int layer = getLayer(op);
+            if (lookup.containsKey(op)) {
+                noteLayerChange(layer, layerIndexes[layer], boundsOf(op));
+                gone.add(op);
+                goneIndexes.add(i);
+            } else {
+                ops.set(kept++, op);
+            }
+            layerIndexes[layer]++;
+        }
+        if (gone.isEmpty()) return 0;
+
+        ops.subList(kept, ops.size()).clear();
+        // removals are recorded from the highest index down, so every index is valid when it is undone
+        beginEdit();
+        for (int i = gone.size() - 1; i >= 0; i--) record(gone.get(i), goneIndexes.get(i), false);
+        endEdit();
+        for (Listener listener : listeners) {
+            for (DrawOp op : gone) listener.opRemoved(op);
+        }
+        return gone.size();
+    }
+
+    // remove and return newest operation, null if empty
+    public DrawOp removeLast() {
+        if (ops.isEmpty()) return null;
+        DrawOp op = ops.remove(ops.size() - 1);
+        noteChange(ops.size(), op, boundsOf(op));
+        record(op, ops.size(), false);
+        for (Listener listener : listeners) listener.opRemoved(op);
+        return op;
+    }
+
+    // remove all operations, the undo history is dropped with them
+    public void clear() {
+        ops.clear();
+        layers.clear();
+        history.clear();
+        openEdit = null;
+        noteChangeEverywhere();
+        for (Listener listener : listeners) listener.cleared();
+    }
+
+    // group following changes into one undoable edit until the matching endEdit, calls may nest
+    public void beginEdit() {
+        editDepth++;
+    }
+
+    // close edit opened by beginEdit, the outermost call stores it if anything changed
+    public void endEdit() {
+        if (editDepth == 0) return;
+        editDepth--;
+        if (editDepth == 0 && openEdit != null) {
+            history.add(openEdit);
+            openEdit = null;
+        }
+    }
+
+    // revert newest edit, returns it so callers can resync shapes, or null when there is nothing to undo
+    public Edit undo() {
+        if (editDepth > 0 || history.isEmpty()) return null;
+
+        Edit edit = history.remove(history.size() - 1);
+        for (int i = edit.steps.size() - 1; i >= 0; i--) {
+            Step step = edit.steps.get(i);
+            DrawOp op = step.op;
+            int index = step.index;
+            if (step.added) {
+                if (index >= ops.size() || ops.get(index) != op) index = ops.indexOf(op);
+                if (index < 0) continue;
+                ops.remove(index);
+                noteChange(index, op, boundsOf(op));
+                for (Listener listener : listeners) listener.opRemoved(op);
+            } else {
+                index = Math.min(index, ops.size());
+                ops.add(index, op);
+                noteChange(index, op, boundsOf(op));
+                for (Listener listener : listeners) {
+                    listener.opAdded(op);
+                    // records are appended, so one restored below later operations needs the order written again
+                    if (index < ops.size() - 1) listener.opChanged(null);
+                }
+            }
+        }
+        return edit;
+    }
+
+
+    // get operations in drawing order
+    public List<DrawOp> getOps() {
+        return Collections.unmodifiableList(ops);
+    }
+
+    // get operations of one layer in drawing order
+    public List<DrawOp> getOps(int layer) {
+        if (lowestChanges.length == 1) return layer == 0 ? getOps() : Collections.emptyList();
+        if (layerOpsModCount != modCount) {
+            layerOps.clear();
+            for (int i = 0; i < lowestChanges.length; i++) layerOps.add(new ArrayList<>());
+            for (DrawOp op : ops) layerOps.get(getLayer(op)).add(op);
+            layerOpsModCount = modCount;
+        }
+        return layer >= 0 && layer < layerOps.size()
+                ? Collections.unmodifiableList(layerOps.get(layer)) : Collections.emptyList();
+    }
+
+    // get layer operation is drawn on, 0 for operations that were never recorded
+    public int getLayer(DrawOp op) {
+        Integer layer = layers.get(op);
+        return layer != null ? layer : 0;
+    }
+
+    // get layer receiving appended operations
+    public int getActiveLayer() {
+        return activeLayer;
+    }
+
+    // make appended operations go to given layer
+    public void setActiveLayer(int layer) {
+        ensureLayer(layer);
+        activeLayer = layer;
+    }
+
+    // get number of operations
+    public int size() {
+        return ops.size();
+    }
+
+    // get counter bumped on every change
+    public int getModCount() {
+        return modCount;
+    }
+
+    // get counter bumped on every change of the operations of given layer
+    public int getModCount(int layer) {
+        return layer < layerModCounts.length ? layerModCounts[layer] : 0;
+    }
+
+    // note that some recorded operation was edited in place
+    public void markChanged() {
+        noteChangeEverywhere();
+        for (Listener listener : listeners) listener.opChanged(null);
+    }
+
+    // note that geometry of given operation was edited in place
+    public void markChanged(DrawOp op) {
+        int index = ops.indexOf(op);
+        // the pixels of the old geometry are not known any more
+        if (index >= 0) {
+            noteChange(index, op, EVERYWHERE);
+        } else {
+            noteChangeEverywhere();
+        }
+        for (Listener listener : listeners) listener.opChanged(index >= 0 ? op : null);
+    }
+
+    // note that geometry of several operations was edited in place, in one pass over the list
+    public void markChanged(Collection<? extends DrawOp> changed) {
+        if (changed.isEmpty()) return;
+
+        Map<DrawOp, Boolean> lookup = new IdentityHashMap<>();
+        for (DrawOp op : changed) lookup.put(op, Boolean.TRUE);
+        int[] layerIndexes = new int[lowestChanges.length];
+        boolean found = false;
+        for (DrawOp op : ops) {
+            int layer = getLayer(op);
+            if (lookup.containsKey(op)) {
+                noteLayerChange(layer, layerIndexes[layer], EVERYWHERE);
+                found = true;
+            }
+            layerIndexes[layer]++;
+        }
+        if (!found) noteChangeEverywhere();
+        for (Listener listener : listeners) {
+            for (DrawOp op : changed) listener.opChanged(op);
+        }
+    }
+
+    // get lowest changed index among the operations of given layer since previous call and reset tracking
+    public int takeLowestChange(int layer) {
+        ensureLayer(layer);
+        int index = lowestChanges[layer];
+        lowestChanges[layer] = Integer.MAX_VALUE;
+        return index;
+    }
+
+    // get bounds of pixels the changes of given layer touched since previous call, null when there were none
+    public Rectangle takeChangedBounds(int layer) {
+        ensureLayer(layer);
+        Rectangle bounds = changedBounds[layer];
+        changedBounds[layer] = null;
+        return bounds;
+    }
+
+    // add step to the open edit, outside of beginEdit and endEdit every step is an edit of its own
+    private void record(DrawOp op, int index, boolean added) {
+        if (openEdit == null) openEdit = new Edit();
+        openEdit.steps.add(new Step(op, index, added));
+        if (editDepth == 0) {
+            history.add(openEdit);
+            openEdit = null;
+        }
+    }
+
+    // note change of operation at given document index on the layer of that operation
+    private void noteChange(int index, DrawOp op, Rectangle bounds) {
+        int layer = getLayer(op);
+        int layerIndex = index;
+        if (lowestChanges.length > 1) {
+            layerIndex = 0;
+            for (int i = 0; i < index; i++) {
+                if (getLayer(ops.get(i)) == layer) layerIndex++;
+            }
+        }
+        noteLayerChange(layer, layerIndex, bounds);
+    }
+
+    // note that every layer may have changed from its first operation on
+    private void noteChangeEverywhere() {
+        for (int layer = 0; layer < lowestChanges.length; layer++) {
+            noteLayerChange(layer, 0, EVERYWHERE);
+        }
+    }
+
+    // bump counters and remember lowest changed index and touched pixels of one layer
+    private void noteLayerChange(int layer, int layerIndex, Rectangle bounds) {
+        ensureLayer(layer);
+        modCount++;
+        layerModCounts[layer]++;
+        lowestChanges[layer] = Math.min(lowestChanges[layer], layerIndex);
+        changedBounds[layer] = union(changedBounds[layer], bounds);
+    }
+
+    // grow per layer tracking to hold given layer
+    private void ensureLayer(int layer) {
+        if (layer < lowestChanges.length) return;
+        int count = layer + 1;
+        int previous = lowestChanges.length;
+        lowestChanges = Arrays.copyOf(lowestChanges, count);
+        Arrays.fill(lowestChanges, previous, count, Integer.MAX_VALUE);
+        layerModCounts = Arrays.copyOf(layerModCounts, count);
+        changedBounds = Arrays.copyOf(changedBounds, count);
+    }
+
+    // get pixels operation can touch, the whole canvas when it depends on all of it
+    private static Rectangle boundsOf(DrawOp op) {
+        Rectangle bounds = op.getBounds();
+        return bounds != null ? bounds : EVERYWHERE;
+    }
+
+    // union of possibly null bounds with other bounds
+    private static Rectangle union(Rectangle bounds, Rectangle other) {
+        return bounds == null ? new Rectangle(other) : bounds.union(other);
+    }
+
+    // find operation recording given line
+    public LineOp findLineOp(Line line) {
+        for (DrawOp op : ops) {
+            if (op instanceof LineOp && ((LineOp) op).getLine() == line) {
+                return (LineOp) op;
+            }
+        }
+        return null;
+    }
+
+    // find operation recording given polygon
+    public PolygonOp findPolygonOp(Polygon polygon) {
+        for (DrawOp op : ops) {
+            if (op instanceof PolygonOp && ((PolygonOp) op).getPolygon() == polygon) {
+                return (PolygonOp) op;
+            }
+        }
+        return null;
+    }
+
+    // find operations recording any of given lines and polygons, in drawing order
+    public List<DrawOp> findOps(Collection<Line> lines, Collection<Polygon> polygons) {
+        Map<Object, Boolean> lookup = new IdentityHashMap<>();
+        for (Line line : lines) lookup.put(line, Boolean.TRUE);
+        for (Polygon polygon : polygons) lookup.put(polygon, Boolean.TRUE);
+
+        List<DrawOp> found = new ArrayList<>();
+        for (DrawOp op : ops) {
+            if (op instanceof LineOp && lookup.containsKey(((LineOp) op).getLine())
+                    || op instanceof PolygonOp && lookup.containsKey(((PolygonOp) op).getPolygon())) {
+                found.add(op);
+            }
+        }
+        return found;
+    }
+}
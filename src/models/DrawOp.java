@@ -0,0 +1,10 @@
+package models;
+
+import java.awt.Rectangle;
+
+public interface DrawOp {
+
+    // get bounds of pixels the operation can touch, null if it depends on the whole canvas
+    Rectangle getBounds();
+
+}
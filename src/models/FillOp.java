@@ -0,0 +1,49 @@
+package models;
+
+import java.awt.Rectangle;
+
+public class FillOp implements DrawOp {
+    private final int x;
+    private final int y;
+    private final int color;
+    private final FillPaint paint;
+
+    // record flood fill by its seed and color
+    public FillOp(int x, int y, int color) {
+        this(x, y, color, null);
+    }
+
+    // record flood fill painted with gradient or pattern, null paint fills with the color
+    public FillOp(int x, int y, int color, FillPaint paint) {
+        this.x = x;
+        this.y = y;
+        this.color = color;
+        this.paint = paint;
+    }
+
+    // get seed x coordinate
+    public int getX() {
+        return x;
+    }
+
+    // get seed y coordinate
+    public int getY() {
+        return y;
+    }
+
+    // get fill color as argb
+    public int getColor() {
+        return color;
+    }
+
+    // get gradient or pattern, null for a flat color fill
+    public FillPaint getPaint() {
+        return paint;
+    }
+
+    // fill result depends on everything drawn before it
+    @Override
+    public Rectangle getBounds() {
+        return null;
+    }
+}
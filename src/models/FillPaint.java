@@ -0,0 +1,129 @@
+package models;
+
+import java.awt.Rectangle;
+
+public class FillPaint {
+    // how fill colors vary over the area
+    public enum Kind {
+        // one flat color
+        SOLID,
+        // colors change along the axis from the first to the second point
+        LINEAR,
+        // colors change with distance from the first point, the second point lies on the outer circle
+        RADIAL,
+        // tile image repeated from the first point
+        PATTERN
+    }
+
+    private final Kind kind;
+    private final int startColor;
+    private final int endColor;
+    private final int x1, y1, x2, y2;
+    private final boolean dithered;
+    private final String patternPath;
+
+    // create flat argb color paint
+    public FillPaint(int color) {
+        this(Kind.SOLID, color, color, 0, 0, 0, 0, false, null);
+    }
+
+    // create gradient between two argb colors along axis from (x1,y1) to (x2,y2)
+    public FillPaint(Kind kind, int startColor, int endColor, int x1, int y1, int x2, int y2, boolean dithered) {
+        this(kind, startColor, endColor, x1, y1, x2, y2, dithered, null);
+    }
+
+    // create pattern tiling image file from origin
+    public FillPaint(String patternPath, int originX, int originY) {
+        this(Kind.PATTERN, 0, 0, originX, originY, originX, originY, false, patternPath);
+    }
+
+    // create paint with every field given
+    private FillPaint(Kind kind, int startColor, int endColor, int x1, int y1, int x2, int y2, boolean dithered,
+                      String patternPath) {
+        this.kind = kind;
+        this.startColor = startColor;
+        this.endColor = endColor;
+        this.x1 = x1;
+        this.y1 = y1;
+        this.x2 = x2;
+        this.y2 = y2;
+        this.dithered = dithered;
+        this.patternPath = patternPath;
+    }
+
+    // get same paint with axis moved, pattern origin follows the first point
+    public FillPaint withAxis(int x1, int y1, int x2, int y2) {
+        return new FillPaint(kind, startColor, endColor, x1, y1, x2, y2, dithered, patternPath);
+    }
+
+    // get same paint laid over bounds: linear across the width, radial from the centre, pattern from the corner
+    public FillPaint fittedTo(Rectangle bounds) {
+        int[] axis = fitAxis(bounds, new int[4]);
+        return withAxis(axis[0], axis[1], axis[2], axis[3]);
+    }
+
+    // write axis of the paint laid over bounds into out as x1,y1,x2,y2 and return out
+    public int[] fitAxis(Rectangle bounds, int[] out) {
+        int centerX = bounds.x + bounds.width / 2;
+        int centerY = bounds.y + bounds.height / 2;
+        switch (kind) {
+            case LINEAR -> setAxis(out, bounds.x, centerY, bounds.x + bounds.width - 1, centerY);
+            case RADIAL -> setAxis(out, centerX, centerY, centerX + Math.max(bounds.width, bounds.height) / 2, centerY);
+            case SOLID, PATTERN -> setAxis(out, bounds.x, bounds.y, bounds.x, bounds.y);
+        }
+        return out;
+    }
+
+    // store axis end points into array
+    private static void setAxis(int[] out, int x1, int y1, int x2, int y2) {
+        out[0] = x1;
+        out[1] = y1;
+        out[2] = x2;
+        out[3] = y2;
+    }
+
+    // get paint kind
+    public Kind getKind() {
+        return kind;
+    }
+
+    // get argb color at the start of a gradient, or the solid color
+    public int getStartColor() {
+        return startColor;
+    }
+
+    // get argb color at the end of a gradient
+    public int getEndColor() {
+        return endColor;
+    }
+
+    // get x of the gradient start or pattern origin
+    public int getX1() {
+        return x1;
+    }
+
+    // get y of the gradient start or pattern origin
+    public int getY1() {
+        return y1;
+    }
+
+    // get x of the gradient end
+    public int getX2() {
+        return x2;
+    }
+
+    // get y of the gradient end
+    public int getY2() {
+        return y2;
+    }
+
+    // check if gradient colors are dithered to hide banding
+    public boolean isDithered() {
+        return dithered;
+    }
+
+    // get path of the pattern tile image, null for gradients
+    public String getPatternPath() {
+        return patternPath;
+    }
+}
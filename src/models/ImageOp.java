@@ -0,0 +1,51 @@
+package models;
+
+import java.awt.Rectangle;
+
+public class ImageOp implements DrawOp {
+    private final String path;
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+
+    // record image file placed into given rectangle, pixels are decoded only when drawn
+    public ImageOp(String path, int x, int y, int width, int height) {
+        this.path = path;
+        this.x = x;
+        this.y = y;
+        this.width = Math.max(1, width);
+        this.height = Math.max(1, height);
+    }
+
+    // get image file path
+    public String getPath() {
+        return path;
+    }
+
+    // get left edge
+    public int getX() {
+        return x;
+    }
+
+    // get top edge
+    public int getY() {
+        return y;
+    }
+
+    // get shown width
+    public int getWidth() {
+        return width;
+    }
+
+    // get shown height
+    public int getHeight() {
+        return height;
+    }
+
+    // get placement rectangle
+    @Override
+    public Rectangle getBounds() {
+        return new Rectangle(x, y, width, height);
+    }
+}
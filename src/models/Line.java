@@ -1,23 +1,28 @@
 package models;
 
-import java.awt.*;
-
 public class Line {
     private Point point1;
     private Point point2;
-    private Color color;
+    private int color;
     private LineStyle style;
+    private DashPattern dashPattern;
 
     // initialize line with points, color and style
-    public Line(Point point1, Point point2, Color color, LineStyle style) {
+    public Line(Point point1, Point point2, int color, LineStyle style) {
+        this(point1, point2, color, style, null);
+    }
+
+    // initialize line with custom dash pattern overriding the style pattern
+    public Line(Point point1, Point point2, int color, LineStyle style, DashPattern dashPattern) {
         this.point1 = point1;
         this.point2 = point2;
         this.color = color;
         this.style = style;
+        this.dashPattern = dashPattern;
     }
 
-    // get line color
-    public Color getColor() {
+    // get line color as argb
+    public int getColor() {
         return color;
     }
 
@@ -35,4 +40,10 @@ public class Line {
     public LineStyle getStyle() {
         return style;
     }
+
+    // get effective dash pattern, null for solid lines
+    public DashPattern getDashPattern() {
+        if (dashPattern != null) return dashPattern;
+        return style != null ? style.getPattern() : null;
+    }
 }
\ No newline at end of file
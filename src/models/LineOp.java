@@ -0,0 +1,37 @@
+package models;
+
+import java.awt.Rectangle;
+
+public class LineOp implements DrawOp {
+    private final Line line;
+    private final int width;
+
+    // record line drawn with given stroke width
+    public LineOp(Line line, int width) {
+        this.line = line;
+        this.width = Math.max(1, width);
+    }
+
+    // get recorded line
+    public Line getLine() {
+        return line;
+    }
+
+    // get stroke width
+    public int getWidth() {
+        return width;
+    }
+
+    // get line bounds grown by half the stroke width
+    @Override
+    public Rectangle getBounds() {
+        Point a = line.getPoint1();
+        Point b = line.getPoint2();
+        int half = width / 2;
+        int minX = Math.min(a.getX(), b.getX()) - half;
+        int minY = Math.min(a.getY(), b.getY()) - half;
+        int maxX = Math.max(a.getX(), b.getX()) + half;
+        int maxY = Math.max(a.getY(), b.getY()) + half;
+        return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+}
@@ -1,5 +1,18 @@
 package models;
 
 public enum LineStyle {
-    SOLID, DOTTED, DASHED
-}
\ No newline at end of file
+    SOLID(null),
+    DOTTED(new DashPattern(2, 2)),  // 2 on, 2 off
+    DASHED(new DashPattern(8, 4));  // 8 on, 4 off
+
+    private final DashPattern pattern;
+
+    LineStyle(DashPattern pattern) {
+        this.pattern = pattern;
+    }
+
+    // get dash pattern, null for solid lines
+    public DashPattern getPattern() {
+        return pattern;
+    }
+}
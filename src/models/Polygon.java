@@ -1,25 +1,42 @@
 package models;
 
+import logging.Logger;
+
 import java.util.ArrayList;
 import java.util.List;
 
 public class Polygon {
+    private static final Logger LOG = Logger.get("polygon");
+
     private List<Point> points;
 
+    // bumped whenever geometry changes so cached data can be rebuilt
+    private int version;
+
     // initialize empty polygon
     public Polygon() {
         this.points = new ArrayList<>();
     }
 
-    // add point to polygon and print status
+    // add point to polygon
     public void addPoint(Point point) {
         points.add(point);
-        System.out.printf("Added point: (%d, %d). Total points: %d%n", point.getX(), point.getY(), points.size());
+        version++;
+        LOG.trace("Added point ({}, {}), {} points", point.getX(), point.getY(), points.size());
     }
 
-    // get all points and print count
+    // get all points
     public List<Point> getPoints() {
-        System.out.printf("Retrieving points. Total points: %d%n", points.size());
         return points;
     }
-}
\ No newline at end of file
+
+    // note that points were moved or the list was edited directly
+    public void markChanged() {
+        version++;
+    }
+
+    // get geometry version
+    public int getVersion() {
+        return version;
+    }
+}
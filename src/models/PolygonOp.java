@@ -0,0 +1,69 @@
+package models;
+
+import java.awt.Rectangle;
+import java.util.List;
+
+public class PolygonOp implements DrawOp {
+    private final Polygon polygon;
+    private final int color;
+    private final LineStyle style;
+    private final int width;
+    private final FillPaint fill;
+
+    // record polygon outline with its color, style and stroke width
+    public PolygonOp(Polygon polygon, int color, LineStyle style, int width) {
+        this(polygon, color, style, width, null);
+    }
+
+    // record polygon filled below its outline, the fill is fitted to the polygon bounds when drawn
+    public PolygonOp(Polygon polygon, int color, LineStyle style, int width, FillPaint fill) {
+        this.polygon = polygon;
+        this.color = color;
+        this.style = style;
+        this.width = Math.max(1, width);
+        this.fill = fill;
+    }
+
+    // get recorded polygon
+    public Polygon getPolygon() {
+        return polygon;
+    }
+
+    // get outline color as argb
+    public int getColor() {
+        return color;
+    }
+
+    // get outline style
+    public LineStyle getStyle() {
+        return style;
+    }
+
+    // get stroke width
+    public int getWidth() {
+        return width;
+    }
+
+    // get interior paint, null for an outline only
+    public FillPaint getFill() {
+        return fill;
+    }
+
+    // get outline bounds grown by half the stroke width
+    @Override
+    public Rectangle getBounds() {
+        List<Point> points = polygon.getPoints();
+        if (points.isEmpty()) return new Rectangle();
+
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (Point p : points) {
+            minX = Math.min(minX, p.getX());
+            minY = Math.min(minY, p.getY());
+            maxX = Math.max(maxX, p.getX());
+            maxY = Math.max(maxY, p.getY());
+        }
+        int half = width / 2;
+        return new Rectangle(minX - half, minY - half, maxX - minX + 2 * half + 1, maxY - minY + 2 * half + 1);
+    }
+}
@@ -1,18 +1,32 @@
 package models;
 
+import java.awt.Rectangle;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class SelectionTracker {
-    private List<Line> selectedLines = new ArrayList<>();
-    private List<Polygon> selectedPolygons = new ArrayList<>();
-    private Point dragStart;
+    private final Set<Line> selectedLines = new LinkedHashSet<>();
+    private final Set<Polygon> selectedPolygons = new LinkedHashSet<>();
+    private int dragX;
+    private int dragY;
+    private int dragStartX;
+    private int dragStartY;
+    private boolean dragging = false;
     private Point resizePoint;
     private boolean isResizing = false;
     private int handleSize = 6;
     private int selectionTolerance = 8;
     private boolean hasUncommittedChanges = false;
 
+    // distinct selected points and their coordinates packed as x,y pairs when the transform began
+    private Point[] transformPoints = new Point[0];
+    private int[] transformOrigin = new int[0];
+    private int transformCount;
+
     // select a single line and clear other selections
     public void selectLine(Line line) {
         clearSelection();
@@ -25,13 +39,24 @@ public class SelectionTracker {
         selectedPolygons.add(polygon);
     }
 
+    // add line to current selection
+    public void addLine(Line line) {
+        selectedLines.add(line);
+    }
+
+    // add polygon to current selection
+    public void addPolygon(Polygon polygon) {
+        selectedPolygons.add(polygon);
+    }
+
     // clear all current selections and reset drag state
     public void clearSelection() {
         selectedLines.clear();
         selectedPolygons.clear();
-        dragStart = null;
+        dragging = false;
         resizePoint = null;
         isResizing = false;
+        transformCount = 0;
     }
 
     // check if any items are currently selected
@@ -39,6 +64,26 @@ public class SelectionTracker {
         return !selectedLines.isEmpty() || !selectedPolygons.isEmpty();
     }
 
+    // check if line is selected
+    public boolean isSelected(Line line) {
+        return selectedLines.contains(line);
+    }
+
+    // check if polygon is selected
+    public boolean isSelected(Polygon polygon) {
+        return selectedPolygons.contains(polygon);
+    }
+
+    // get number of selected items
+    public int getSelectionSize() {
+        return selectedLines.size() + selectedPolygons.size();
+    }
+
+    // check if current drag moves a single handle instead of the whole selection
+    public boolean isResizing() {
+        return isResizing;
+    }
+
     // reset the uncommitted changes flag
     public void resetChangeFlag() {
         hasUncommittedChanges = false;
@@ -46,72 +91,139 @@ public class SelectionTracker {
 
     // start dragging from given coordinates
     public void startDrag(int x, int y) {
-        dragStart = new Point(x, y);
+        dragging = true;
+        dragX = x;
+        dragY = y;
+        dragStartX = x;
+        dragStartY = y;
         resizePoint = findResizePoint(x, y);
         isResizing = (resizePoint != null);
+        if (!isResizing) {
+            beginTransform();
+        }
     }
 
     // update drag position and handle movement or resizing
     public void updateDrag(int x, int y) {
-        if (dragStart == null) return;
-
-        int dx = x - dragStart.getX();
-        int dy = y - dragStart.getY();
+        if (!dragging) return;
 
         if (isResizing) {
-            handleResize(dx, dy);
+            handleResize(x - dragX, y - dragY);
         } else {
-            handleMove(dx, dy);
+            // whole move is computed from the drag start, so no rounding builds up
+            applyTransform(1, 0, x - dragStartX, 0, 1, y - dragStartY);
         }
 
-        dragStart = new Point(x, y);
+        dragX = x;
+        dragY = y;
+        markPolygonsChanged();
         hasUncommittedChanges = true;
     }
 
-    // move all selected items by given delta
-    private void handleMove(int dx, int dy) {
+    // scale selection around its bounds center
+    public void scaleSelection(double factor) {
+        Rectangle bounds = getSelectionBounds();
+        if (bounds == null) return;
+
+        double cx = bounds.getCenterX();
+        double cy = bounds.getCenterY();
+        beginTransform();
+        applyTransform(factor, 0, cx - factor * cx, 0, factor, cy - factor * cy);
+        markPolygonsChanged();
+        hasUncommittedChanges = true;
+    }
+
+    // rotate selection around its bounds center
+    public void rotateSelection(double radians) {
+        Rectangle bounds = getSelectionBounds();
+        if (bounds == null) return;
+
+        double cos = Math.cos(radians);
+        double sin = Math.sin(radians);
+        double cx = bounds.getCenterX();
+        double cy = bounds.getCenterY();
+        beginTransform();
+        applyTransform(cos, -sin, cx - cos * cx + sin * cy, sin, cos, cy - sin * cx - cos * cy);
+        markPolygonsChanged();
+        hasUncommittedChanges = true;
+    }
+
+    // snapshot distinct selected points into packed arrays
+    private void beginTransform() {
+        Map<Point, Boolean> seen = new IdentityHashMap<>();
+        List<Point> points = new ArrayList<>();
         for (Line line : selectedLines) {
-            line.getPoint1().translate(dx, dy);
-            line.getPoint2().translate(dx, dy);
+            if (seen.put(line.getPoint1(), Boolean.TRUE) == null) points.add(line.getPoint1());
+            if (seen.put(line.getPoint2(), Boolean.TRUE) == null) points.add(line.getPoint2());
         }
-
         for (Polygon polygon : selectedPolygons) {
             for (Point p : polygon.getPoints()) {
-                p.translate(dx, dy);
+                if (seen.put(p, Boolean.TRUE) == null) points.add(p);
             }
         }
+
+        transformCount = points.size();
+        if (transformPoints.length < transformCount) {
+            transformPoints = new Point[transformCount];
+            transformOrigin = new int[transformCount * 2];
+        }
+        for (int i = 0; i < transformCount; i++) {
+            Point p = points.get(i);
+            transformPoints[i] = p;
+            transformOrigin[i * 2] = p.getX();
+            transformOrigin[i * 2 + 1] = p.getY();
+        }
+    }
+
+    // apply affine matrix to the packed origin coordinates in one pass
+    private void applyTransform(double m00, double m01, double m02, double m10, double m11, double m12) {
+        boolean translation = m00 == 1 && m01 == 0 && m10 == 0 && m11 == 1;
+        int dx = (int) m02;
+        int dy = (int) m12;
+
+        for (int i = 0; i < transformCount; i++) {
+            int x = transformOrigin[i * 2];
+            int y = transformOrigin[i * 2 + 1];
+            Point p = transformPoints[i];
+            if (translation) {
+                p.setX(x + dx);
+                p.setY(y + dy);
+            } else {
+                p.setX((int) Math.round(m00 * x + m01 * y + m02));
+                p.setY((int) Math.round(m10 * x + m11 * y + m12));
+            }
+        }
+    }
+
+    // invalidate cached data of selected polygons after their points moved
+    private void markPolygonsChanged() {
+        for (Polygon polygon : selectedPolygons) {
+            polygon.markChanged();
+        }
     }
 
     // resize selected items from the resize point
     private void handleResize(int dx, int dy) {
         if (resizePoint != null) {
             resizePoint.translate(dx, dy);
-
-            if (selectedLines.size() == 1 && selectedPolygons.isEmpty()) {
-                Line line = selectedLines.get(0);
-                if (resizePoint == line.getPoint1()) {
-                    // handle line point1 resize
-                } else if (resizePoint == line.getPoint2()) {
-                    // handle line point2 resize
-                }
-            }
         }
     }
 
     // find resize handle near given coordinates
     public Point findResizePoint(int x, int y) {
+        int limit = selectionTolerance * selectionTolerance;
         for (Line line : selectedLines) {
-            if (line.getPoint1().distanceTo(new Point(x, y)) < selectionTolerance) {
+            if (isWithin(line.getPoint1(), x, y, limit)) {
                 return line.getPoint1();
             }
-            if (line.getPoint2().distanceTo(new Point(x, y)) < selectionTolerance) {
+            if (isWithin(line.getPoint2(), x, y, limit)) {
                 return line.getPoint2();
             }
         }
 
         for (Polygon polygon : selectedPolygons) {
             for (Point p : polygon.getPoints()) {
-                if (p.distanceTo(new Point(x, y)) < selectionTolerance) {
+                if (isWithin(p, x, y, limit)) {
                     return p;
                 }
             }
@@ -120,6 +232,37 @@ public class SelectionTracker {
         return null;
     }
 
+    // compare squared distance without allocating
+    private static boolean isWithin(Point p, int x, int y, int limitSquared) {
+        int dx = p.getX() - x;
+        int dy = p.getY() - y;
+        return dx * dx + dy * dy < limitSquared;
+    }
+
+    // get bounds of all selected points, null without selection
+    public Rectangle getSelectionBounds() {
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (Line line : selectedLines) {
+            Point p1 = line.getPoint1();
+            Point p2 = line.getPoint2();
+            minX = Math.min(minX, Math.min(p1.getX(), p2.getX()));
+            minY = Math.min(minY, Math.min(p1.getY(), p2.getY()));
+            maxX = Math.max(maxX, Math.max(p1.getX(), p2.getX()));
+            maxY = Math.max(maxY, Math.max(p1.getY(), p2.getY()));
+        }
+        for (Polygon polygon : selectedPolygons) {
+            for (Point p : polygon.getPoints()) {
+                minX = Math.min(minX, p.getX());
+                minY = Math.min(minY, p.getY());
+                maxX = Math.max(maxX, p.getX());
+                maxY = Math.max(maxY, p.getY());
+            }
+        }
+        if (minX > maxX) return null;
+        return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+
     // get copy of selected lines list
     public List<Line> getSelectedLines() {
         return new ArrayList<>(selectedLines);
@@ -129,4 +272,4 @@ public class SelectionTracker {
     public List<Polygon> getSelectedPolygons() {
         return new ArrayList<>(selectedPolygons);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,153 @@
+package models;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SpatialIndex<T> {
+    // items covering more cells than this live in one list checked by every query
+    private static final int MAX_CELLS_PER_ITEM = 256;
+
+    private final int cellSize;
+    private final Map<Long, List<Entry<T>>> cells = new HashMap<>();
+    private final List<Entry<T>> oversized = new ArrayList<>();
+    private final Map<T, Entry<T>> entries = new IdentityHashMap<>();
+    private int nextSequence;
+    private int queryStamp;
+
+    // create uniform grid index with given cell size in pixels
+    public SpatialIndex(int cellSize) {
+        this.cellSize = Math.max(1, cellSize);
+    }
+
+    // add item with its bounds, replacing previous bounds of the same item
+    public void insert(T item, Rectangle bounds) {
+        remove(item);
+        if (bounds == null) return;
+
+        Entry<T> entry = new Entry<>(item, new Rectangle(bounds), nextSequence++);
+        entries.put(item, entry);
+        if (cellCount(entry.bounds) > MAX_CELLS_PER_ITEM) {
+            oversized.add(entry);
+            return;
+        }
+        forEachCell(entry.bounds, key -> cells.computeIfAbsent(key, k -> new ArrayList<>()).add(entry));
+    }
+
+    // remove item from index
+    public void remove(T item) {
+        Entry<T> entry = entries.remove(item);
+        if (entry == null) return;
+
+        if (!oversized.remove(entry)) {
+            forEachCell(entry.bounds, key -> {
+                List<Entry<T>> cell = cells.get(key);
+                if (cell != null) {
+                    cell.remove(entry);
+                    if (cell.isEmpty()) cells.remove(key);
+                }
+            });
+        }
+    }
+
+    // remove all items
+    public void clear() {
+        cells.clear();
+        oversized.clear();
+        entries.clear();
+    }
+
+    // get number of indexed items
+    public int size() {
+        return entries.size();
+    }
+
+    // find items whose bounds intersect region, in insertion order
+    public List<T> query(Rectangle region) {
+        return collect(region, false);
+    }
+
+    // find items whose bounds lie completely inside region, in insertion order
+    public List<T> queryContained(Rectangle region) {
+        return collect(region, true);
+    }
+
+    // gather matching entries from touched cells once each
+    private List<T> collect(Rectangle region, boolean contained) {
+        int stamp = ++queryStamp;
+        List<Entry<T>> found = new ArrayList<>();
+
+        for (Entry<T> entry : oversized) {
+            if (matches(entry, region, contained)) {
+                entry.stamp = stamp;
+                found.add(entry);
+            }
+        }
+        forEachCell(region, key -> {
+            List<Entry<T>> cell = cells.get(key);
+            if (cell == null) return;
+            for (Entry<T> entry : cell) {
+                if (entry.stamp != stamp && matches(entry, region, contained)) {
+                    entry.stamp = stamp;
+                    found.add(entry);
+                }
+            }
+        });
+
+        found.sort((a, b) -> Integer.compare(a.sequence, b.sequence));
+        List<T> items = new ArrayList<>(found.size());
+        for (Entry<T> entry : found) {
+            items.add(entry.item);
+        }
+        return items;
+    }
+
+    // test bounds against query region
+    private static boolean matches(Entry<?> entry, Rectangle region, boolean contained) {
+        return contained ? region.contains(entry.bounds) : region.intersects(entry.bounds);
+    }
+
+    // count grid cells covered by bounds
+    private long cellCount(Rectangle bounds) {
+        long columns = Math.floorDiv(bounds.x + bounds.width - 1, cellSize) - Math.floorDiv(bounds.x, cellSize) + 1;
+        long rows = Math.floorDiv(bounds.y + bounds.height - 1, cellSize) - Math.floorDiv(bounds.y, cellSize) + 1;
+        return columns * rows;
+    }
+
+    // visit keys of all cells covered by bounds
+    private void forEachCell(Rectangle bounds, CellVisitor visitor) {
+        if (bounds.isEmpty()) return;
+
+        int x0 = Math.floorDiv(bounds.x, cellSize);
+        int y0 = Math.floorDiv(bounds.y, cellSize);
+        int x1 = Math.floorDiv(bounds.x + bounds.width - 1, cellSize);
+        int y1 = Math.floorDiv(bounds.y + bounds.height - 1, cellSize);
+        for (int cy = y0; cy <= y1; cy++) {
+            for (int cx = x0; cx <= x1; cx++) {
+                visitor.visit(((long) cx << 32) | (cy & 0xffffffffL));
+            }
+        }
+    }
+
+    // callback for grid cell keys
+    private interface CellVisitor {
+        void visit(long key);
+    }
+
+    // indexed item with its bounds and insertion order
+    private static class Entry<T> {
+        final T item;
+        final Rectangle bounds;
+        final int sequence;
+        int stamp;
+
+        Entry(T item, Rectangle bounds, int sequence) {
+            this.item = item;
+            this.bounds = bounds;
+            this.sequence = sequence;
+        }
+    }
+}
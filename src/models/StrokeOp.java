@@ -0,0 +1,161 @@
+package models;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+public class StrokeOp implements DrawOp {
+    private final int color;
+    private final LineStyle style;
+    private final int width;
+
+    // stroke points packed as x,y pairs
+    private int[] coords = new int[32];
+    private int pointCount;
+
+    // width at each point for variable width strokes, null when every point uses the stroke width
+    private int[] widths;
+    private int maxWidth;
+    private int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+    private int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+
+    // start freehand stroke with given color, style and width
+    public StrokeOp(int color, LineStyle style, int width) {
+        this.color = color;
+        this.style = style;
+        this.width = Math.max(1, width);
+        this.maxWidth = this.width;
+    }
+
+    // append point to stroke
+    public void addPoint(int x, int y) {
+        if (widths != null) {
+            addPoint(x, y, width);
+            return;
+        }
+        append(x, y);
+    }
+
+    // append point drawn with its own width, making the stroke variable width
+    public void addPoint(int x, int y, int pointWidth) {
+        if (widths == null) {
+            widths = new int[coords.length / 2];
+            Arrays.fill(widths, 0, pointCount, width);
+        }
+        if (pointCount >= widths.length) {
+            int[] grown = new int[widths.length * 2];
+            System.arraycopy(widths, 0, grown, 0, pointCount);
+            widths = grown;
+        }
+        widths[pointCount] = Math.max(1, pointWidth);
+        maxWidth = Math.max(maxWidth, widths[pointCount]);
+        append(x, y);
+    }
+
+    // store coordinates and grow bounds
+    private void append(int x, int y) {
+        if (pointCount * 2 + 2 > coords.length) {
+            int[] grown = new int[coords.length * 2];
+            System.arraycopy(coords, 0, grown, 0, pointCount * 2);
+            coords = grown;
+        }
+        coords[pointCount * 2] = x;
+        coords[pointCount * 2 + 1] = y;
+        pointCount++;
+
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+    }
+
+    // replace all points with packed x,y pairs, e.g. after simplification
+    // points kept from the old stroke in order keep their width
+    public void setPoints(int[] packed, int count) {
+        int[] oldCoords = coords;
+        int[] oldWidths = widths;
+        int oldCount = pointCount;
+
+        coords = new int[Math.max(32, count * 2)];
+        widths = null;
+        pointCount = 0;
+        maxWidth = width;
+        minX = Integer.MAX_VALUE;
+        minY = Integer.MAX_VALUE;
+        maxX = Integer.MIN_VALUE;
+        maxY = Integer.MIN_VALUE;
+
+        int old = 0;
+        for (int i = 0; i < count; i++) {
+            int x = packed[i * 2];
+            int y = packed[i * 2 + 1];
+            if (oldWidths == null) {
+                append(x, y);
+                continue;
+            }
+            int match = old;
+            while (match < oldCount && (oldCoords[match * 2] != x || oldCoords[match * 2 + 1] != y)) {
+                match++;
+            }
+            if (match < oldCount) {
+                old = match + 1;
+            }
+            addPoint(x, y, oldWidths[Math.min(match, oldCount - 1)]);
+        }
+    }
+
+    // get copy of points packed as x,y pairs
+    public int[] getPoints() {
+        int[] packed = new int[pointCount * 2];
+        System.arraycopy(coords, 0, packed, 0, pointCount * 2);
+        return packed;
+    }
+
+    // get number of points
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    // get x coordinate of point
+    public int getX(int index) {
+        return coords[index * 2];
+    }
+
+    // get y coordinate of point
+    public int getY(int index) {
+        return coords[index * 2 + 1];
+    }
+
+    // get stroke color as argb
+    public int getColor() {
+        return color;
+    }
+
+    // get stroke style
+    public LineStyle getStyle() {
+        return style;
+    }
+
+    // get stroke width
+    public int getWidth() {
+        return width;
+    }
+
+    // get width at point
+    public int getWidth(int index) {
+        return widths != null ? widths[index] : width;
+    }
+
+    // check if points carry their own widths
+    public boolean isVariableWidth() {
+        return widths != null;
+    }
+
+    // get stroke bounds grown by half the widest point
+    @Override
+    public Rectangle getBounds() {
+        if (pointCount == 0) return new Rectangle();
+
+        int half = maxWidth / 2;
+        return new Rectangle(minX - half, minY - half, maxX - minX + 2 * half + 1, maxY - minY + 2 * half + 1);
+    }
+}
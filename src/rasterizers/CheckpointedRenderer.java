@@ -0,0 +1,230 @@
+package rasterizers;
+
+import models.DisplayList;
+import models.DrawOp;
+import rasters.Raster;
+import rasters.RasterSnapshot;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class CheckpointedRenderer {
+    private static final int MIN_INTERVAL = 8;
+    private static final int MAX_INTERVAL = 4096;
+    // replay work we accept after restoring the nearest checkpoint
+    private static final long TARGET_REPLAY_NANOS = 8_000_000L;
+    // snapshots above this heap size are spilled to temporary files, oldest first
+    private static final long MEMORY_BUDGET = 64L << 20;
+
+    private final DisplayListRenderer renderer = new DisplayListRenderer();
+    // document layer whose operations are replayed
+    private final int layer;
+
+    // snapshot of target content after the first n operations, keyed by n
+    private final TreeMap<Integer, RasterSnapshot> checkpoints = new TreeMap<>();
+    private DisplayList list;
+    private int width;
+    private int height;
+    private double scale;
+
+    // layer modification count the target was last brought up to date with, -1 after it was drawn differently
+    private Raster renderedTarget;
+    private int renderedModCount = -1;
+
+    // adaptive interval state
+    private int interval = 64;
+    private double nanosPerOp = 0;
+    private double nanosPerSnapshot = 0;
+
+    // create renderer replaying the bottom layer, which holds every operation of a single layer document
+    public CheckpointedRenderer() {
+        this(0);
+    }
+
+    // create renderer replaying the operations of given document layer
+    public CheckpointedRenderer(int layer) {
+        this.layer = layer;
+    }
+
+    // replay layer into target only if its operations changed since it was last rendered there, true if it did
+    public boolean update(DisplayList list, Raster target) {
+        if (list == this.list && target == renderedTarget && list.getModCount(layer) == renderedModCount
+                && target.getWidth() == width && target.getHeight() == height && scale == 1) {
+            return false;
+        }
+        render(list, target);
+        return true;
+    }
+
+    // replay layer into target at document resolution
+    public void render(DisplayList list, Raster target) {
+        render(list, target, 1);
+    }
+
+    // replay layer starting from the nearest valid checkpoint
+    public void render(DisplayList list, Raster target, double scale) {
+        prepare(list, target, scale);
+        List<DrawOp> ops = list.getOps(layer);
+        int size = ops.size();
+        int start = restoreNearest(target, size);
+        replay(ops, target, start, size);
+        renderedTarget = target;
+        renderedModCount = list.getModCount(layer);
+    }
+
+    // replay layer without given operations, restoring the checkpoint before the first of them
+    public void renderExcluding(DisplayList list, Raster target, Collection<? extends DrawOp> excluded) {
+        prepare(list, target, 1);
+        List<DrawOp> ops = list.getOps(layer);
+        int first = ops.size();
+        for (DrawOp op : excluded) {
+            int index = ops.indexOf(op);
+            if (index >= 0) first = Math.min(first, index);
+        }
+
+        int start = restoreNearest(target, first);
+        List<DrawOp> remaining = new ArrayList<>(ops.subList(start, ops.size()));
+        remaining.removeAll(new HashSet<>(excluded));
+        renderer.renderRange(remaining, 0, remaining.size(), target, 1);
+        renderedModCount = -1;
+    }
+
+    // replay layer into one region of the target, false when fills need the whole target replayed
+    public boolean renderRegion(DisplayList list, Raster target, Rectangle region) {
+        return renderer.renderRegion(list.getOps(layer), target, region);
+    }
+
+    // drop checkpoints invalidated by document edits or a different target
+    private void prepare(DisplayList list, Raster target, double scale) {
+        int lowestChange = list.takeLowestChange(layer);
+        if (list != this.list || target.getWidth() != width || target.getHeight() != height || scale != this.scale) {
+            invalidateAll();
+            this.list = list;
+            this.width = target.getWidth();
+            this.height = target.getHeight();
+            this.scale = scale;
+        } else {
+            // a checkpoint after n ops stays valid while all changes are at index n or later
+            dropAfter(lowestChange);
+        }
+    }
+
+    // get number of operations between checkpoints
+    public int getInterval() {
+        return interval;
+    }
+
+    // drop every checkpoint, for example when the clear color changes
+    public void invalidateAll() {
+        for (RasterSnapshot snapshot : checkpoints.values()) {
+            snapshot.dispose();
+        }
+        checkpoints.clear();
+        renderedModCount = -1;
+    }
+
+    // restore newest checkpoint not past given size, returns index to replay from
+    private int restoreNearest(Raster target, int size) {
+        Map.Entry<Integer, RasterSnapshot> entry = checkpoints.floorEntry(size);
+        while (entry != null) {
+            try {
+                entry.getValue().restoreInto(target);
+                return entry.getKey();
+            } catch (IOException e) {
+                // unreadable spill file, fall back to an older checkpoint
+                entry.getValue().dispose();
+                checkpoints.remove(entry.getKey());
+                entry = checkpoints.floorEntry(size);
+            }
+        }
+        target.clear();
+        return 0;
+    }
+
+    // replay operations [start, end), taking a checkpoint every interval operations
+    private void replay(List<DrawOp> ops, Raster target, int start, int end) {
+        Integer previous = checkpoints.floorKey(start);
+        int lastCheckpoint = previous != null ? previous : 0;
+        int position = start;
+
+        while (position < end) {
+            int next = Math.min(end, lastCheckpoint + interval);
+            long began = System.nanoTime();
+            renderer.renderRange(ops, position, next, target, scale);
+            recordReplay(next - position, System.nanoTime() - began);
+            position = next;
+
+            if (position - lastCheckpoint >= interval) {
+                takeCheckpoint(position, target);
+                lastCheckpoint = position;
+            }
+        }
+    }
+
+    // snapshot target after given number of operations
+    private void takeCheckpoint(int index, Raster target) {
+        long began = System.nanoTime();
+        checkpoints.put(index, new RasterSnapshot(target));
+        nanosPerSnapshot = average(nanosPerSnapshot, System.nanoTime() - began);
+        updateInterval();
+        enforceMemoryBudget();
+    }
+
+    // update average replay cost per operation
+    private void recordReplay(int opCount, long nanos) {
+        if (opCount <= 0) return;
+        nanosPerOp = average(nanosPerOp, (double) nanos / opCount);
+        updateInterval();
+    }
+
+    // pick interval so replay stays within budget but snapshots cost at most half of replay
+    private void updateInterval() {
+        if (nanosPerOp <= 0) return;
+
+        double byBudget = TARGET_REPLAY_NANOS / nanosPerOp;
+        double bySnapshotCost = 2 * nanosPerSnapshot / nanosPerOp;
+        long wanted = Math.round(Math.max(byBudget, bySnapshotCost));
+        interval = (int) Math.max(MIN_INTERVAL, Math.min(MAX_INTERVAL, wanted));
+    }
+
+    // spill oldest in-memory snapshots while over budget, the newest stays in memory
+    private void enforceMemoryBudget() {
+        long total = 0;
+        for (RasterSnapshot snapshot : checkpoints.values()) {
+            total += snapshot.getMemorySize();
+        }
+
+        for (RasterSnapshot snapshot : checkpoints.headMap(checkpoints.lastKey()).values()) {
+            if (total <= MEMORY_BUDGET) break;
+            long size = snapshot.getMemorySize();
+            try {
+                snapshot.spill();
+                total -= size;
+            } catch (IOException e) {
+                return;  // no disk space, keep it in memory
+            }
+        }
+    }
+
+    // drop checkpoints taken after given operation index
+    private void dropAfter(int index) {
+        if (index == Integer.MAX_VALUE) return;
+
+        Map<Integer, RasterSnapshot> stale = checkpoints.tailMap(index, false);
+        for (RasterSnapshot snapshot : stale.values()) {
+            snapshot.dispose();
+        }
+        stale.clear();
+    }
+
+    // exponential moving average, first sample taken as is
+    private static double average(double current, double sample) {
+        return current <= 0 ? sample : current * 0.8 + sample * 0.2;
+    }
+}
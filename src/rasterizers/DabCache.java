@@ -0,0 +1,42 @@
+package rasterizers;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public final class DabCache {
+    // radii above this are computed per call instead of cached
+    private static final int MAX_CACHED_RADIUS = 256;
+
+    // half span width per row of a filled disk, index radius then dy + radius
+    // atomic slots publish a table together with its contents to the parallel band renderers
+    private static final AtomicReferenceArray<int[]> HALF_WIDTHS = new AtomicReferenceArray<>(MAX_CACHED_RADIUS + 1);
+
+    private DabCache() {
+    }
+
+    // get half widths of the disk x*x + y*y <= r*r for rows -r..r, shared and not to be modified
+    public static int[] getHalfWidths(int radius) {
+        if (radius > MAX_CACHED_RADIUS) return computeHalfWidths(radius);
+
+        int[] halfWidths = HALF_WIDTHS.get(radius);
+        if (halfWidths == null) {
+            // racing threads build equal tables, the first one stored is kept by all
+            HALF_WIDTHS.compareAndSet(radius, null, computeHalfWidths(radius));
+            halfWidths = HALF_WIDTHS.get(radius);
+        }
+        return halfWidths;
+    }
+
+    // largest x with x*x <= r*r - dy*dy for each row
+    private static int[] computeHalfWidths(int radius) {
+        int[] halfWidths = new int[2 * radius + 1];
+        long squared = (long) radius * radius;
+        for (int dy = -radius; dy <= radius; dy++) {
+            long rest = squared - (long) dy * dy;
+            int x = (int) Math.sqrt(rest);
+            while ((long) x * x > rest) x--;
+            while ((long) (x + 1) * (x + 1) <= rest) x++;
+            halfWidths[dy + radius] = x;
+        }
+        return halfWidths;
+    }
+}
@@ -0,0 +1,329 @@
+package rasterizers;
+
+import geometry.PolygonIndex;
+import logging.Logger;
+import models.DashPattern;
+import models.DisplayList;
+import models.DrawOp;
+import models.FillOp;
+import models.ImageOp;
+import models.Line;
+import models.LineOp;
+import models.Point;
+import models.Polygon;
+import models.PolygonOp;
+import models.StrokeOp;
+import rasters.Raster;
+import rasters.TiledImage;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class DisplayListRenderer {
+    private static final Logger LOG = Logger.get("renderer");
+
+    // targets at least this large are rendered in parallel bands
+    private static final long PARALLEL_PIXELS = 1L << 20;
+    private static final int BAND_HEIGHT = 64;
+
+    // rasterizers of each band kept across renders into the same target, so their scratch buffers are reused
+    private Raster bandTarget;
+    private Rasterizer[] bandLines = new Rasterizer[0];
+    private SpanFiller[] bandSpans = new SpanFiller[0];
+
+    // replay whole document into target at document resolution
+    public void render(DisplayList list, Raster target) {
+        render(list, target, 1);
+    }
+
+    // clear target and replay whole document scaled by given factor
+    public void render(DisplayList list, Raster target, double scale) {
+        target.clear();
+        renderRange(list.getOps(), 0, list.size(), target, scale);
+    }
+
+    // replay document clipped to a region holding the clear color, e.g. a strip uncovered by a resize
+    // fills read pixels outside the region, so documents with fills return false and are left to a full render
+    public boolean renderRegion(List<DrawOp> ops, Raster target, Rectangle region) {
+        Rectangle[] bounds = new Rectangle[ops.size()];
+        for (int i = 0; i < bounds.length; i++) {
+            if (ops.get(i) instanceof FillOp) return false;
+            bounds[i] = ops.get(i).getBounds();
+        }
+        prepareBands(target, 1);
+        renderBand(ops, bounds, target, 1, 0, 0, region, 0);
+        return true;
+    }
+
+    // draw operations shifted by an offset, fills are skipped, used for offscreen sprites
+    public void renderTranslated(List<DrawOp> ops, Raster target, int offsetX, int offsetY) {
+        prepareBands(target, 1);
+        renderBand(ops, null, target, 1, offsetX, offsetY, null, 0);
+    }
+
+    // replay operations [from, to) over the current target content
+    public void renderRange(List<DrawOp> ops, int from, int to, Raster target, double scale) {
+        boolean parallel = (long) target.getWidth() * target.getHeight() >= PARALLEL_PIXELS;
+
+        // fills read back pixels, so they split the list into independent batches
+        int start = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to || ops.get(i) instanceof FillOp) {
+                renderBatch(ops.subList(start, i), target, scale, parallel);
+                if (i < to) {
+                    renderFill((FillOp) ops.get(i), target, scale);
+                }
+                start = i + 1;
+            }
+        }
+    }
+
+    // render batch of stroke operations, in horizontal bands when parallel
+    private void renderBatch(List<DrawOp> batch, Raster target, double scale, boolean parallel) {
+        if (batch.isEmpty()) return;
+        if (!parallel) {
+            prepareBands(target, 1);
+            renderBand(batch, null, target, scale, 0, 0, null, 0);
+            return;
+        }
+
+        // bands own disjoint rows, so each keeps the document order without locking
+        Rectangle[] bounds = new Rectangle[batch.size()];
+        Rectangle drawn = null;
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = scaleBounds(batch.get(i).getBounds(), scale);
+            Rectangle opBounds = bounds[i] != null ? bounds[i]
+                    : new Rectangle(0, 0, target.getWidth(), target.getHeight());
+            drawn = drawn == null ? new Rectangle(opBounds) : drawn.union(opBounds);
+        }
+        int bands = (target.getHeight() + BAND_HEIGHT - 1) / BAND_HEIGHT;
+        prepareBands(target, bands);
+
+        // dirty bounds of the target are not thread safe, so the batch is marked once after the bands join
+        target.setDirtyTracking(false);
+        try {
+            IntStream.range(0, bands).parallel().forEach(band -> {
+                Rectangle clip = new Rectangle(0, band * BAND_HEIGHT, target.getWidth(), BAND_HEIGHT);
+                renderBand(batch, bounds, target, scale, 0, 0, clip, band);
+            });
+        } finally {
+            target.setDirtyTracking(true);
+        }
+        target.markDirty(drawn);
+    }
+
+    // make rasterizers of bands [0, count) drawing into target available, before any band starts
+    private void prepareBands(Raster target, int count) {
+        if (target != bandTarget) {
+            bandTarget = target;
+            bandLines = new Rasterizer[count];
+            bandSpans = new SpanFiller[count];
+        } else if (bandLines.length < count) {
+            bandLines = Arrays.copyOf(bandLines, count);
+            bandSpans = Arrays.copyOf(bandSpans, count);
+        }
+        for (int i = 0; i < count; i++) {
+            if (bandLines[i] == null) {
+                bandLines[i] = Rasterizers.create(target);
+                bandSpans[i] = new SpanFiller(target);
+            }
+        }
+    }
+
+    // render operations of a batch clipped to one band, with the rasterizers of that band
+    private void renderBand(List<DrawOp> batch, Rectangle[] bounds, Raster target, double scale,
+                            int offsetX, int offsetY, Rectangle clip, int band) {
+        Rasterizer lines = bandLines[band];
+        lines.setClip(clip);
+        SpanFiller spans = bandSpans[band];
+        spans.setClip(clip);
+
+        for (int i = 0; i < batch.size(); i++) {
+            if (clip != null && bounds[i] != null && !bounds[i].intersects(clip)) {
+                continue;
+            }
+
+            DrawOp op = batch.get(i);
+            if (op instanceof LineOp) {
+                renderLine((LineOp) op, lines, scale, offsetX, offsetY);
+            } else if (op instanceof PolygonOp) {
+                renderPolygon((PolygonOp) op, lines, spans, scale, offsetX, offsetY);
+            } else if (op instanceof StrokeOp) {
+                renderStroke((StrokeOp) op, lines, scale, offsetX, offsetY);
+            } else if (op instanceof ImageOp) {
+                renderImage((ImageOp) op, target, scale, offsetX, offsetY, clip);
+            }
+        }
+    }
+
+    // draw recorded line
+    private void renderLine(LineOp op, Rasterizer lines, double scale, int offsetX, int offsetY) {
+        Line line = op.getLine();
+        lines.setLineWidth(scaleWidth(op.getWidth(), scale));
+        lines.rasterizeSegment(scale(line.getPoint1().getX(), scale) + offsetX,
+                scale(line.getPoint1().getY(), scale) + offsetY,
+                scale(line.getPoint2().getX(), scale) + offsetX,
+                scale(line.getPoint2().getY(), scale) + offsetY,
+                line.getColor(), scalePattern(line.getDashPattern(), scale), 0);
+    }
+
+    // draw recorded polygon interior and its outline as one closed polyline
+    private void renderPolygon(PolygonOp op, Rasterizer lines, SpanFiller spans, double scale,
+                               int offsetX, int offsetY) {
+        List<Point> points = op.getPolygon().getPoints();
+        if (points.size() < 2) return;
+
+        int[] coords = new int[points.size() * 2];
+        for (int i = 0; i < points.size(); i++) {
+            coords[i * 2] = scale(points.get(i).getX(), scale) + offsetX;
+            coords[i * 2 + 1] = scale(points.get(i).getY(), scale) + offsetY;
+        }
+        if (op.getFill() != null && points.size() >= 3) {
+            renderPolygonFill(op, coords, points.size(), spans);
+        }
+        lines.setLineWidth(scaleWidth(op.getWidth(), scale));
+        DashPattern pattern = op.getStyle() != null ? op.getStyle().getPattern() : null;
+        lines.rasterizePolyline(coords, points.size(), true, op.getColor(), scalePattern(pattern, scale));
+    }
+
+    // fill polygon interior with its paint laid over the drawn polygon bounds
+    private void renderPolygonFill(PolygonOp op, int[] coords, int count, SpanFiller spans) {
+        Polygon drawn = new Polygon();
+        for (int i = 0; i < count; i++) {
+            drawn.addPoint(new Point(coords[i * 2], coords[i * 2 + 1]));
+        }
+        PolygonIndex index = new PolygonIndex(drawn);
+        Rectangle bounds = new Rectangle(index.getMinX(), index.getMinY(),
+                index.getMaxX() - index.getMinX() + 1, index.getMaxY() - index.getMinY() + 1);
+        Shader shader = Shaders.create(op.getFill().fittedTo(bounds));
+        if (shader != null) {
+            spans.fillPolygon(index, shader);
+        }
+    }
+
+    // draw recorded freehand stroke as one open polyline
+    private void renderStroke(StrokeOp op, Rasterizer lines, double scale, int offsetX, int offsetY) {
+        int count = op.getPointCount();
+        if (count == 0) return;
+
+        int[] coords = new int[count * 2];
+        for (int i = 0; i < count; i++) {
+            coords[i * 2] = scale(op.getX(i), scale) + offsetX;
+            coords[i * 2 + 1] = scale(op.getY(i), scale) + offsetY;
+        }
+        if (op.isVariableWidth()) {
+            int[] widths = new int[count];
+            for (int i = 0; i < count; i++) {
+                widths[i] = scaleWidth(op.getWidth(i), scale);
+            }
+            new VariableWidthRasterizer(lines).rasterizePolyline(coords, widths, count, op.getColor());
+            return;
+        }
+        lines.setLineWidth(scaleWidth(op.getWidth(), scale));
+        DashPattern pattern = op.getStyle() != null ? op.getStyle().getPattern() : null;
+        lines.rasterizePolyline(coords, count, false, op.getColor(), scalePattern(pattern, scale));
+    }
+
+    // draw imported image, decoding only tiles under the visible part at the coarsest sufficient subsampling
+    private void renderImage(ImageOp op, Raster target, double scale, int offsetX, int offsetY, Rectangle clip) {
+        int destX = scale(op.getX(), scale) + offsetX;
+        int destY = scale(op.getY(), scale) + offsetY;
+        int destWidth = Math.max(1, scale(op.getWidth(), scale));
+        int destHeight = Math.max(1, scale(op.getHeight(), scale));
+
+        Rectangle visible = new Rectangle(destX, destY, destWidth, destHeight)
+                .intersection(new Rectangle(0, 0, target.getWidth(), target.getHeight()));
+        if (clip != null) visible = visible.intersection(clip);
+        if (visible.isEmpty()) return;
+
+        try {
+            TiledImage image = TiledImage.open(op.getPath());
+            int subsampling = image.chooseSubsampling(destWidth, destHeight);
+            int levelWidth = image.getLevelWidth(subsampling);
+            int levelHeight = image.getLevelHeight(subsampling);
+
+            // map shown pixel centers to decoded pixels once per column and row
+            int[] columns = new int[visible.width];
+            for (int i = 0; i < columns.length; i++) {
+                long source = (long) (2 * (visible.x + i - destX) + 1) * image.getWidth() / (2L * destWidth);
+                columns[i] = (int) Math.min(levelWidth - 1, source / subsampling);
+            }
+            int firstRow = levelRow(visible.y, destY, destHeight, image.getHeight(), subsampling, levelHeight);
+            int lastRow = levelRow(visible.y + visible.height - 1, destY, destHeight, image.getHeight(), subsampling, levelHeight);
+            image.ensureTiles(subsampling, new Rectangle(columns[0], firstRow,
+                    columns[columns.length - 1] - columns[0] + 1, lastRow - firstRow + 1));
+
+            int tileSize = TiledImage.TILE_SIZE;
+            for (int y = visible.y; y < visible.y + visible.height; y++) {
+                int row = levelRow(y, destY, destHeight, image.getHeight(), subsampling, levelHeight);
+                int[] tile = null;
+                int tileX = -1;
+                for (int i = 0; i < columns.length; i++) {
+                    int column = columns[i];
+                    if (column / tileSize != tileX) {
+                        tileX = column / tileSize;
+                        tile = image.getTile(subsampling, tileX, row / tileSize);
+                    }
+                    target.blendPixel(visible.x + i, y, tile[(row % tileSize) * tileSize + column % tileSize]);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Cannot draw image {}: {}", op.getPath(), e.getMessage());
+        }
+    }
+
+    // map shown row to row of image decoded with given subsampling
+    private static int levelRow(int y, int destY, int destHeight, int imageHeight, int subsampling, int levelHeight) {
+        long source = (long) (2 * (y - destY) + 1) * imageHeight / (2L * destHeight);
+        return (int) Math.min(levelHeight - 1, source / subsampling);
+    }
+
+    // repeat recorded flood fill at scaled seed
+    private void renderFill(FillOp op, Raster target, double scale) {
+        FloodFiller filler = new FloodFiller(target);
+        int x = scale(op.getX(), scale);
+        int y = scale(op.getY(), scale);
+        Shader shader = op.getPaint() != null ? Shaders.create(op.getPaint(), scale) : null;
+        if (shader != null) {
+            filler.floodFill(x, y, shader);
+        } else {
+            // a pattern that cannot be read falls back to the recorded color
+            filler.floodFill(x, y, op.getColor());
+        }
+    }
+
+    // scale document coordinate to target pixels
+    private static int scale(int value, double scale) {
+        return scale == 1 ? value : (int) Math.round(value * scale);
+    }
+
+    // scale stroke width keeping at least one pixel
+    private static int scaleWidth(int width, double scale) {
+        return Math.max(1, scale(width, scale));
+    }
+
+    // scale dash runs so patterns keep their look at any resolution
+    private static DashPattern scalePattern(DashPattern pattern, double scale) {
+        if (pattern == null || scale == 1) return pattern;
+
+        int[] runs = pattern.getRuns();
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = Math.max(1, scale(runs[i], scale));
+        }
+        return new DashPattern(runs);
+    }
+
+    // scale document bounds to target pixels with a one pixel margin
+    private static Rectangle scaleBounds(Rectangle bounds, double scale) {
+        if (bounds == null) return null;
+
+        int x0 = (int) Math.floor(bounds.x * scale) - 1;
+        int y0 = (int) Math.floor(bounds.y * scale) - 1;
+        int x1 = (int) Math.ceil((bounds.x + bounds.width) * scale) + 1;
+        int y1 = (int) Math.ceil((bounds.y + bounds.height) * scale) + 1;
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+    }
+}
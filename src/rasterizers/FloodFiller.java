@@ -1,52 +1,136 @@
 package rasterizers;
 
+import rasters.PixelOps;
 import rasters.Raster;
-import java.awt.Color;
-import java.util.LinkedList;
-import java.util.Queue;
-import models.Point;
 
 public class FloodFiller {
     private final Raster raster;
 
+    private final SpanFiller spanFiller;
+
+    // pending seeds packed as x,y pairs, reused between fills
+    private int[] seeds = new int[256];
+    private int seedCount;
+
+    // spans of the last found region packed as y,left,right triples and the color it had
+    private int[] spans = new int[384];
+    private int spanCount;
+    private int regionColor;
+
     // initialize with raster to modify
     public FloodFiller(Raster raster) {
         this.raster = raster;
+        this.spanFiller = new SpanFiller(raster);
     }
 
-    // fill connected area starting from (x,y) with new color
-    public void floodFill(int x, int y, Color newColor) {
+    // fill connected area starting from (x,y) with new argb color, translucent colors blend over the area
+    public void floodFill(int x, int y, int newColor) {
+        if (x < 0 || y < 0 || x >= raster.getWidth() || y >= raster.getHeight()) {
+            return;
+        }
+
         int targetColor = raster.getPixel(x, y);
-        int replacementColor = newColor.getRGB();
+        // the area has one color, so blending over it gives one replacement color as well
+        int replacementColor = newColor;
+        if (newColor >>> 24 != 255) {
+            replacementColor = PixelOps.unpremultiply(
+                    PixelOps.blendOver(PixelOps.premultiply(targetColor), PixelOps.premultiply(newColor)));
+        }
 
         // skip if already the target color
         if (targetColor == replacementColor) {
             return;
         }
 
-        Queue<Point> queue = new LinkedList<>();
-        queue.add(new Point(x, y));
+        fillRegion(x, y, targetColor, replacementColor, false);
+    }
+
+    // fill connected area starting from (x,y) with colors from shader
+    public void floodFill(int x, int y, Shader shader) {
+        if (findRegion(x, y)) {
+            shadeRegion(shader);
+        }
+    }
+
+    // find connected area of the color at (x,y) and cover it with a placeholder, false if (x,y) is outside
+    // the area can then be shaded repeatedly, e.g. while a gradient axis is dragged
+    public boolean findRegion(int x, int y) {
+        spanCount = 0;
+        if (x < 0 || y < 0 || x >= raster.getWidth() || y >= raster.getHeight()) {
+            return false;
+        }
+
+        // the placeholder differs in the lowest alpha and blue bits, so it never matches the area color
+        // whether the raster keeps alpha, premultiplies it or drops it
+        regionColor = raster.getPixel(x, y);
+        fillRegion(x, y, regionColor, regionColor ^ 0x01000001, true);
+        return true;
+    }
+
+    // paint area found by findRegion with colors from shader, translucent colors blend over its old color
+    public void shadeRegion(Shader shader) {
+        for (int i = 0; i < spanCount; i++) {
+            int y = spans[i * 3];
+            int left = spans[i * 3 + 1];
+            int right = spans[i * 3 + 2];
+            spanFiller.fillSpanOver(left, y, right - left, shader, regionColor);
+        }
+    }
+
+    // fill whole horizontal runs of target color and seed the rows above and below
+    private void fillRegion(int x, int y, int targetColor, int replacementColor, boolean record) {
+        seedCount = 0;
+        pushSeed(x, y);
+
+        while (seedCount > 0) {
+            seedCount--;
+            int sx = seeds[seedCount * 2];
+            int sy = seeds[seedCount * 2 + 1];
+
+            int left = raster.findSpanStart(sx, sy, targetColor);
+            int right = raster.findSpanEnd(sx, sy, targetColor);
+            if (left >= right) continue;
 
-        // process all connected pixels
-        while (!queue.isEmpty()) {
-            Point p = queue.remove();
-            int px = p.getX();
-            int py = p.getY();
+            raster.fillSpan(left, sy, right - left, replacementColor);
+            if (record) recordSpan(sy, left, right);
+            seedRow(left, right, sy - 1, targetColor);
+            seedRow(left, right, sy + 1, targetColor);
+        }
+    }
 
-            // skip if out of bounds
-            if (px < 0 || py < 0 || px >= raster.getWidth() || py >= raster.getHeight()) {
-                continue;
-            }
+    // remember filled span of the region, growing the buffer when needed
+    private void recordSpan(int y, int left, int right) {
+        if (spanCount * 3 + 3 > spans.length) {
+            int[] grown = new int[spans.length * 2];
+            System.arraycopy(spans, 0, grown, 0, spanCount * 3);
+            spans = grown;
+        }
+        spans[spanCount * 3] = y;
+        spans[spanCount * 3 + 1] = left;
+        spans[spanCount * 3 + 2] = right;
+        spanCount++;
+    }
 
-            // fill and add neighbors if matching target color
-            if (raster.getPixel(px, py) == targetColor) {
-                raster.setPixel(px, py, replacementColor);
+    // push one seed per run of target color inside [left, right) on given row
+    private void seedRow(int left, int right, int y, int targetColor) {
+        if (y < 0 || y >= raster.getHeight()) return;
+
+        int x = raster.findPixel(left, y, right, targetColor);
+        while (x < right) {
+            pushSeed(x, y);
+            x = raster.findPixel(raster.findSpanEnd(x, y, targetColor), y, right, targetColor);
+        }
+    }
 
-                queue.add(new Point(px + 1, py));
-                queue.add(new Point(px - 1, py));
-                queue.add(new Point(px, py + 1));
-                queue.add(new Point(px, py - 1));
-            }
+    // add seed, growing the buffer when needed
+    private void pushSeed(int x, int y) {
+        if (seedCount * 2 + 2 > seeds.length) {
+            int[] grown = new int[seeds.length * 2];
+            System.arraycopy(seeds, 0, grown, 0, seeds.length);
+            seeds = grown;
         }
+        seeds[seedCount * 2] = x;
+        seeds[seedCount * 2 + 1] = y;
+        seedCount++;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,83 @@
+package rasterizers;
+
+public abstract class GradientShader implements Shader {
+    // gradient positions are fixed point, 0 at the start color and MAX_POSITION at the end color
+    protected static final int POSITION_BITS = 16;
+    protected static final int MAX_POSITION = (1 << POSITION_BITS) - 1;
+
+    // colors precomputed along the gradient, positions pick an entry by their top bits
+    private static final int TABLE_BITS = 10;
+    private static final int TABLE_SIZE = 1 << TABLE_BITS;
+
+    // 4x4 ordered dither thresholds scaled to the 8 fraction bits of the channel table
+    private static final int[] BAYER = {
+            8, 136, 40, 168,
+            200, 72, 232, 104,
+            56, 184, 24, 152,
+            248, 120, 216, 88
+    };
+
+    private final int startColor;
+    private final int endColor;
+    private final int[] colors = new int[TABLE_SIZE];
+    // a, r, g, b of each entry with 8 fraction bits, only kept for dithered gradients
+    private final int[] channels;
+    private final boolean dithered;
+    private final boolean opaque;
+
+    // build color table between two argb colors
+    protected GradientShader(int startColor, int endColor, boolean dithered) {
+        this.startColor = startColor;
+        this.endColor = endColor;
+        this.dithered = dithered;
+        this.opaque = startColor >>> 24 == 255 && endColor >>> 24 == 255;
+        this.channels = dithered ? new int[TABLE_SIZE * 4] : null;
+
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            double t = i / (double) (TABLE_SIZE - 1);
+            int color = 0;
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                int from = startColor >>> shift & 0xff;
+                int to = endColor >>> shift & 0xff;
+                double value = from + (to - from) * t;
+                color |= (int) Math.round(value) << shift;
+                if (dithered) {
+                    channels[i * 4 + (24 - shift) / 8] = (int) Math.round(value * 256);
+                }
+            }
+            colors[i] = color;
+        }
+    }
+
+    // check if color table was built for given colors, the shader can then be reused with new geometry
+    public boolean hasColors(int startColor, int endColor, boolean dithered) {
+        return this.startColor == startColor && this.endColor == endColor && this.dithered == dithered;
+    }
+
+    @Override
+    public boolean isOpaque() {
+        return opaque;
+    }
+
+    // color at fixed point position for pixel (x,y), positions outside the gradient take its end colors
+    protected final int colorAt(long position, int x, int y) {
+        int index;
+        if (position <= 0) {
+            index = 0;
+        } else if (position >= MAX_POSITION) {
+            index = TABLE_SIZE - 1;
+        } else {
+            index = (int) position >> (POSITION_BITS - TABLE_BITS);
+        }
+        if (!dithered) return colors[index];
+
+        // channels keep their fraction, the threshold decides per pixel whether it rounds up
+        // 255 with fraction 0 plus the largest threshold still stays at 255
+        int threshold = BAYER[(y & 3) << 2 | (x & 3)];
+        int c = index * 4;
+        return (channels[c] + threshold) >> 8 << 24
+                | (channels[c + 1] + threshold) >> 8 << 16
+                | (channels[c + 2] + threshold) >> 8 << 8
+                | (channels[c + 3] + threshold) >> 8;
+    }
+}
@@ -1,19 +1,30 @@
 package rasterizers;
 
+import models.DashPattern;
 import models.Line;
 import models.LineCanvas;
+import models.Point;
 import rasters.Raster;
 
+import java.awt.Rectangle;
 import java.util.ArrayList;
+import java.util.List;
 
 public class LineCanvasRasterizer {
     private final Raster raster;
-    private final LineRasterizerTrivial lineRasterizer;
+    private final Rasterizer lineRasterizer;
+    private final VariableWidthRasterizer variableWidthRasterizer;
 
     // initialize with raster and create line rasterizer
     public LineCanvasRasterizer(Raster raster) {
         this.raster = raster;
-        this.lineRasterizer = new LineRasterizerTrivial(raster);
+        this.lineRasterizer = Rasterizers.create(raster);
+        this.variableWidthRasterizer = new VariableWidthRasterizer(lineRasterizer);
+    }
+
+    // restrict drawing to given tile bounds, null means the whole raster
+    public void setClip(Rectangle clip) {
+        lineRasterizer.setClip(clip);
     }
 
     // set width for all drawn lines
@@ -36,4 +47,38 @@ public class LineCanvasRasterizer {
             lineRasterizer.rasterize(line);
         }
     }
+
+    // draw line continuing a stroke at given dash phase and return the phase at its end
+    public int rasterizeLine(Line line, int phase) {
+        if (line == null || line.getPoint1() == null || line.getPoint2() == null) {
+            return phase;
+        }
+        return lineRasterizer.rasterizeSegment(line.getPoint1(), line.getPoint2(),
+                line.getColor(), line.getDashPattern(), phase);
+    }
+
+    // draw segment given by coordinates at given dash phase and return the phase at its end
+    public int rasterizeSegment(int x1, int y1, int x2, int y2, int color, DashPattern pattern, int phase) {
+        return lineRasterizer.rasterizeSegment(x1, y1, x2, y2, color, pattern, phase);
+    }
+
+    // draw segment whose width changes from width1 to width2, e.g. a pressure or velocity driven stroke
+    public void rasterizeSegment(int x1, int y1, int width1, int x2, int y2, int width2, int color) {
+        variableWidthRasterizer.rasterizeSegment(x1, y1, width1, x2, y2, width2, color);
+    }
+
+    // group following segments into one stroke so translucent overlaps blend only once
+    public void beginStroke() {
+        lineRasterizer.beginStroke();
+    }
+
+    // finish stroke started with beginStroke
+    public void endStroke() {
+        lineRasterizer.endStroke();
+    }
+
+    // draw connected points with continuous dash phase
+    public void rasterizePolyline(List<Point> points, boolean closed, int color, DashPattern pattern) {
+        lineRasterizer.rasterizePolyline(points, closed, color, pattern);
+    }
 }
\ No newline at end of file
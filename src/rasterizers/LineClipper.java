@@ -0,0 +1,48 @@
+package rasterizers;
+
+public class LineClipper {
+    // parameters of the visible part after the last successful clip
+    private double t0;
+    private double t1;
+
+    // clip segment against rectangle with Liang-Barsky, false if nothing is visible
+    public boolean clip(double x1, double y1, double x2, double y2,
+                        double minX, double minY, double maxX, double maxY) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        t0 = 0;
+        t1 = 1;
+
+        return clipEdge(-dx, x1 - minX)
+                && clipEdge(dx, maxX - x1)
+                && clipEdge(-dy, y1 - minY)
+                && clipEdge(dy, maxY - y1);
+    }
+
+    // narrow parameter range by one boundary, p is direction and q distance to it
+    private boolean clipEdge(double p, double q) {
+        if (p == 0) {
+            return q >= 0;  // parallel to boundary, inside or fully outside
+        }
+
+        double r = q / p;
+        if (p < 0) {
+            if (r > t1) return false;
+            if (r > t0) t0 = r;
+        } else {
+            if (r < t0) return false;
+            if (r < t1) t1 = r;
+        }
+        return true;
+    }
+
+    // get start parameter of visible part
+    public double getT0() {
+        return t0;
+    }
+
+    // get end parameter of visible part
+    public double getT1() {
+        return t1;
+    }
+}
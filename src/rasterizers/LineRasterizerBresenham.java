@@ -0,0 +1,45 @@
+package rasterizers;
+
+import rasters.Raster;
+
+public class LineRasterizerBresenham extends LineRasterizerTrivial {
+    // initialize with raster and default line width
+    public LineRasterizerBresenham(Raster raster) {
+        super(raster);
+    }
+
+    // draw sloped runs with an integer error term instead of rounding a float line equation per pixel
+    // axis aligned runs keep the span path of the base class
+    @Override
+    protected void drawRun(int x1, int y1, int x2, int y2, boolean xMajor, int from, int to) {
+        int dx = x2 - x1;
+        int dy = y2 - y1;
+        if (dx == 0 || dy == 0) {
+            super.drawRun(x1, y1, x2, y2, xMajor, from, to);
+            return;
+        }
+
+        int major = Math.abs(xMajor ? dx : dy);
+        int minor = Math.abs(xMajor ? dy : dx);
+        int majorStep = (xMajor ? dx : dy) > 0 ? 1 : -1;
+        int minorStep = (xMajor ? dy : dx) > 0 ? 1 : -1;
+
+        // minor offset at step i is i * minor / major rounded to nearest, the run may start mid line
+        long doubleMajor = 2L * major;
+        long numerator = 2L * from * minor + major;
+        int offset = (int) (numerator / doubleMajor);
+        long error = numerator - offset * doubleMajor;
+        for (int i = from; i <= to; i++) {
+            int x = xMajor ? x1 + i * majorStep : x1 + offset * minorStep;
+            int y = xMajor ? y1 + offset * minorStep : y1 + i * majorStep;
+            if (isValid(x, y)) {
+                plot(x, y);
+            }
+            error += 2L * minor;
+            if (error >= doubleMajor) {
+                error -= doubleMajor;
+                offset++;
+            }
+        }
+    }
+}
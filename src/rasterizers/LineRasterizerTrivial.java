@@ -1,5 +1,6 @@
 package rasterizers;
 
+import models.DashPattern;
 import models.Line;
 import models.LineStyle;
 import models.Point;
@@ -7,11 +8,27 @@ import rasters.Raster;
 
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.List;
 
 public class LineRasterizerTrivial implements Rasterizer {
     private final Raster raster;
+    private final LineClipper clipper = new LineClipper();
     private int lineWidth;
 
+    // color of the segment being drawn, translucent colors blend each pixel once per stroke
+    private final StrokeMask strokeMask = new StrokeMask();
+    private int argb;
+    private boolean opaque;
+    private int strokeDepth;
+    private boolean maskStarted;
+
+    // optional tile bounds narrowing the raster bounds, inclusive pixel range
+    private Rectangle clip;
+    private int clipMinX;
+    private int clipMinY;
+    private int clipMaxX;
+    private int clipMaxY;
+
     // initialize with raster and default line width
     public LineRasterizerTrivial(Raster raster) {
         this.raster = raster;
@@ -19,145 +36,288 @@ public class LineRasterizerTrivial implements Rasterizer {
     }
 
     // set minimum line width to 1 pixel
+    @Override
     public void setLineWidth(int width) {
         this.lineWidth = Math.max(1, width);
     }
 
+    // restrict drawing to given tile bounds, null means the whole raster
+    @Override
+    public void setClip(Rectangle clip) {
+        this.clip = clip == null ? null : new Rectangle(clip);
+    }
+
     // draw line with given style and width
     @Override
     public void rasterize(Line line) {
         if (line == null || line.getPoint1() == null || line.getPoint2() == null) {
             return;
         }
+        rasterizeSegment(line.getPoint1(), line.getPoint2(), line.getColor(), line.getDashPattern(), 0);
+    }
 
-        int x1 = line.getPoint1().getX();
-        int y1 = line.getPoint1().getY();
-        int x2 = line.getPoint2().getX();
-        int y2 = line.getPoint2().getY();
-
-        if (lineWidth == 1) {
-            drawThinLine(x1, y1, x2, y2, line.getColor(), line.getStyle());
-        } else {
-            drawThickLine(x1, y1, x2, y2, line.getColor(), lineWidth, line.getStyle());
+    // group following segments into one stroke so translucent overlaps and joints blend only once
+    @Override
+    public void beginStroke() {
+        if (strokeDepth++ == 0) {
+            maskStarted = false;
         }
     }
 
-    // draw single pixel width line with style pattern
-    private void drawThinLine(int x1, int y1, int x2, int y2, Color color, LineStyle style) {
-        int width = raster.getWidth();
-        int height = raster.getHeight();
+    // start mask of the current stroke on its first translucent segment, opaque strokes never need it
+    private void startMask() {
+        if (maskStarted) return;
+        maskStarted = true;
+        updateClipBounds();
+        strokeMask.begin(clipMinX, clipMinY, clipMaxX, clipMaxY);
+    }
 
-        if (x1 == x2) { // vertical line case
-            if (y1 > y2) {
-                int temp = y1;
-                y1 = y2;
-                y2 = temp;
-            }
+    // finish stroke started with beginStroke
+    @Override
+    public void endStroke() {
+        strokeDepth = Math.max(0, strokeDepth - 1);
+    }
 
-            for (int y = y1; y <= y2; y++) {
-                if (shouldDraw(y - y1, style) && isValid(x1, y)) {
-                    raster.setPixel(x1, y, color.getRGB());
-                }
+    // draw one segment starting at given dash phase and return the phase at its end
+    @Override
+    public int rasterizeSegment(Point p1, Point p2, int color, DashPattern pattern, int phase) {
+        if (p1 == null || p2 == null) return phase;
+        return rasterizeSegment(p1.getX(), p1.getY(), p2.getX(), p2.getY(), color, pattern, phase);
+    }
+
+    // draw one segment given by coordinates and return the dash phase at its end
+    @Override
+    public int rasterizeSegment(int x1, int y1, int x2, int y2, int color, DashPattern pattern, int phase) {
+        argb = color;
+        opaque = color >>> 24 == 255;
+        if (color >>> 24 != 0) {
+            // a lone translucent segment is its own stroke
+            boolean single = !opaque && strokeDepth == 0;
+            if (single) beginStroke();
+            if (!opaque) startMask();
+            if (lineWidth == 1) {
+                drawThinLine(x1, y1, x2, y2, pattern, phase);
+            } else {
+                drawThickLine(x1, y1, x2, y2, lineWidth, pattern, phase);
             }
+            if (single) endStroke();
+        }
+
+        // joints share a pixel, so the next segment continues one step before our end
+        return pattern == null ? 0 : pattern.normalize(phase + segmentLength(x1, y1, x2, y2));
+    }
+
+    // stamp filled disk of given radius, e.g. one dab of a variable width stroke
+    @Override
+    public void stampDab(int centerX, int centerY, int radius, int color) {
+        argb = color;
+        opaque = color >>> 24 == 255;
+        if (color >>> 24 == 0) return;
+
+        boolean single = !opaque && strokeDepth == 0;
+        if (single) beginStroke();
+        if (!opaque) startMask();
+        drawDab(centerX, centerY, Math.max(0, radius));
+        if (single) endStroke();
+    }
+
+    // number of major axis steps of a segment
+    private static int segmentLength(int x1, int y1, int x2, int y2) {
+        return Math.max(Math.abs(x2 - x1), Math.abs(y2 - y1));
+    }
+
+    // draw connected segments with the dash phase carried across joints
+    @Override
+    public void rasterizePolyline(List<Point> points, boolean closed, int color, DashPattern pattern) {
+        int size = points.size();
+        if (size < 2) return;
+
+        beginStroke();
+        int phase = 0;
+        int segments = closed ? size : size - 1;
+        for (int i = 0; i < segments; i++) {
+            phase = rasterizeSegment(points.get(i), points.get((i + 1) % size), color, pattern, phase);
+        }
+        endStroke();
+    }
+
+    // draw connected points packed as x,y pairs with the dash phase carried across joints
+    @Override
+    public void rasterizePolyline(int[] coords, int pointCount, boolean closed, int color, DashPattern pattern) {
+        if (pointCount == 1) {
+            rasterizeSegment(coords[0], coords[1], coords[0], coords[1], color, pattern, 0);
             return;
         }
 
-        float k = (float) (y2 - y1) / (x2 - x1);
-        float q = y1 - (k * x1);
+        beginStroke();
+        int phase = 0;
+        int segments = closed ? pointCount : pointCount - 1;
+        for (int i = 0; i < segments; i++) {
+            int j = (i + 1) % pointCount;
+            phase = rasterizeSegment(coords[i * 2], coords[i * 2 + 1], coords[j * 2], coords[j * 2 + 1],
+                    color, pattern, phase);
+        }
+        endStroke();
+    }
 
-        if (Math.abs(k) < 1) { // shallow slope (x-major)
-            if (x1 > x2) {
-                int temp = x1;
-                x1 = x2;
-                x2 = temp;
-            }
+    // draw single pixel width line walking from the first point, clipped before the pixel loop
+    private void drawThinLine(int x1, int y1, int x2, int y2, DashPattern pattern, int phase) {
+        updateClipBounds();
 
-            for (int x = x1; x <= x2; x++) {
-                int y = Math.round(k * x + q);
-                if (shouldDraw(x - x1, style) && isValid(x, y)) {
-                    raster.setPixel(x, y, color.getRGB());
-                }
+        // pixel centres round to the clip rectangle grown by half a pixel
+        if (!clipper.clip(x1, y1, x2, y2, clipMinX - 0.5, clipMinY - 0.5, clipMaxX + 0.5, clipMaxY + 0.5)) {
+            return;
+        }
+
+        int dx = x2 - x1;
+        int dy = y2 - y1;
+        boolean xMajor = Math.abs(dy) < Math.abs(dx);
+        int length = xMajor ? Math.abs(dx) : Math.abs(dy);
+
+        // steps along the major axis that survived clipping, dash positions stay unclipped
+        int from = Math.max(0, (int) Math.floor(clipper.getT0() * length));
+        int to = Math.min(length, (int) Math.ceil(clipper.getT1() * length));
+
+        int i = from;
+        while (i <= to) {
+            int runEnd = to;
+            boolean on = true;
+            if (pattern != null) {
+                int position = phase + i;
+                on = pattern.isOn(pattern.runIndexAt(position));
+                runEnd = Math.min(to, pattern.runEndAt(position) - phase - 1);
             }
-        } else { // steep slope (y-major)
-            if (y1 > y2) {
-                int temp = y1;
-                y1 = y2;
-                y2 = temp;
+            if (on) {
+                drawRun(x1, y1, x2, y2, xMajor, i, runEnd);
             }
+            i = runEnd + 1;
+        }
+    }
 
-            for (int y = y1; y <= y2; y++) {
-                int x = Math.round((y - q) / k);
-                if (shouldDraw(y - y1, style) && isValid(x, y)) {
-                    raster.setPixel(x, y, color.getRGB());
-                }
+    // draw pixels for major axis steps [from, to] of one line without per-pixel pattern tests
+    protected void drawRun(int x1, int y1, int x2, int y2, boolean xMajor, int from, int to) {
+        int dx = x2 - x1;
+        int dy = y2 - y1;
+
+        if (dy == 0) { // horizontal run as one span
+            int a = x1 + (dx >= 0 ? from : -to);
+            int b = x1 + (dx >= 0 ? to : -from);
+            int left = Math.max(a, clipMinX);
+            int right = Math.min(b, clipMaxX);
+            if (left <= right) {
+                plotSpan(left, y1, right - left + 1);
             }
+            return;
         }
-    }
 
-    // determine if pixel should be drawn based on line style
-    private boolean shouldDraw(int position, LineStyle style) {
-        if (style == null) return true;
+        float k = dx == 0 ? 0 : (float) dy / dx;
+        float q = y1 - (k * x1);
 
-        switch (style) {
-            case DOTTED:
-                return position % 4 < 2;  // 2 on, 2 off
-            case DASHED:
-                return position % 12 < 8;  // 8 on, 4 off
-            default:  // SOLID
-                return true;
+        if (xMajor) { // shallow slope
+            int step = dx > 0 ? 1 : -1;
+            for (int i = from; i <= to; i++) {
+                int x = x1 + i * step;
+                int y = Math.round(k * x + q);
+                if (isValid(x, y)) {
+                    plot(x, y);
+                }
+            }
+        } else { // steep slope or vertical
+            int step = dy > 0 ? 1 : -1;
+            for (int i = from; i <= to; i++) {
+                int y = y1 + i * step;
+                int x = dx == 0 ? x1 : Math.round((y - q) / k);
+                if (isValid(x, y)) {
+                    plot(x, y);
+                }
+            }
         }
     }
 
     // rasterize polygon edges
-    public void rasterizePolygonEdge(Point p1, Point p2, Color color, LineStyle style) {
-        if (p1 == null || p2 == null) return;
-
-        int x1 = p1.getX();
-        int y1 = p1.getY();
-        int x2 = p2.getX();
-        int y2 = p2.getY();
+    public void rasterizePolygonEdge(Point p1, Point p2, int color, LineStyle style) {
+        rasterizeSegment(p1, p2, color, style != null ? style.getPattern() : null, 0);
+    }
 
-        if (lineWidth == 1) {
-            drawThinLine(x1, y1, x2, y2, color, style);
-        } else {
-            drawThickLine(x1, y1, x2, y2, color, lineWidth, style);
-        }
+    // check if coordinates are within clip bounds
+    protected final boolean isValid(int x, int y) {
+        return x >= clipMinX && x <= clipMaxX && y >= clipMinY && y <= clipMaxY;
     }
 
-    // check if coordinates are within raster bounds
-    private boolean isValid(int x, int y) {
-        return x >= 0 && x < raster.getWidth() && y >= 0 && y < raster.getHeight();
+    // intersect raster bounds with optional tile clip
+    private void updateClipBounds() {
+        clipMinX = 0;
+        clipMinY = 0;
+        clipMaxX = raster.getWidth() - 1;
+        clipMaxY = raster.getHeight() - 1;
+        if (clip != null) {
+            clipMinX = Math.max(clipMinX, clip.x);
+            clipMinY = Math.max(clipMinY, clip.y);
+            clipMaxX = Math.min(clipMaxX, clip.x + clip.width - 1);
+            clipMaxY = Math.min(clipMaxY, clip.y + clip.height - 1);
+        }
     }
 
-    // draw thick line using multiple thin lines
-    private void drawThickLine(int x1, int y1, int x2, int y2, Color color, int thickness, LineStyle style) {
+    // draw thick line using multiple thin lines sharing one dash phase
+    private void drawThickLine(int x1, int y1, int x2, int y2, int thickness, DashPattern pattern, int phase) {
         int halfThickness = thickness / 2;
         if (Math.abs(x2 - x1) > Math.abs(y2 - y1)) {
             for (int i = -halfThickness; i <= halfThickness; i++) {
-                drawThinLine(x1, y1 + i, x2, y2 + i, color, style);
+                drawThinLine(x1, y1 + i, x2, y2 + i, pattern, phase);
             }
         } else {
             for (int i = -halfThickness; i <= halfThickness; i++) {
-                drawThinLine(x1 + i, y1, x2 + i, y2, color, style);
+                drawThinLine(x1 + i, y1, x2 + i, y2, pattern, phase);
             }
         }
-        drawCircle(x1, y1, halfThickness, color);
-        drawCircle(x2, y2, halfThickness, color);
+        drawDab(x1, y1, halfThickness);
+        drawDab(x2, y2, halfThickness);
     }
 
-    // draw filled circle for line endpoints
-    private void drawCircle(int centerX, int centerY, int radius, Color color) {
-        for (int y = -radius; y <= radius; y++) {
-            for (int x = -radius; x <= radius; x++) {
-                if (x*x + y*y <= radius*radius) {
-                    int px = centerX + x;
-                    int py = centerY + y;
-                    if (isValid(px, py)) {
-                        raster.setPixel(px, py, color.getRGB());
-                    }
-                }
+    // draw filled disk as one span per row from the cached dab table
+    private void drawDab(int centerX, int centerY, int radius) {
+        updateClipBounds();
+        int[] halfWidths = DabCache.getHalfWidths(radius);
+        int fromY = Math.max(-radius, clipMinY - centerY);
+        int toY = Math.min(radius, clipMaxY - centerY);
+
+        for (int y = fromY; y <= toY; y++) {
+            int halfWidth = halfWidths[y + radius];
+            int left = Math.max(centerX - halfWidth, clipMinX);
+            int right = Math.min(centerX + halfWidth, clipMaxX);
+            if (left <= right) {
+                plotSpan(left, centerY + y, right - left + 1);
+            }
+        }
+    }
+
+    // write one pixel inside the clip bounds in the current color
+    protected final void plot(int x, int y) {
+        if (opaque) {
+            raster.setPixel(x, y, argb);
+        } else if (strokeMask.mark(x, y)) {
+            raster.blendPixel(x, y, argb);
+        }
+    }
+
+    // write run of pixels inside the clip bounds, translucent runs skip pixels the stroke already covered
+    private void plotSpan(int x, int y, int length) {
+        if (opaque) {
+            raster.fillSpan(x, y, length, argb);
+            return;
+        }
+        int runStart = -1;
+        for (int i = x; i < x + length; i++) {
+            if (strokeMask.mark(i, y)) {
+                if (runStart < 0) runStart = i;
+            } else if (runStart >= 0) {
+                raster.blendSpan(runStart, y, i - runStart, argb);
+                runStart = -1;
             }
         }
+        if (runStart >= 0) {
+            raster.blendSpan(runStart, y, x + length - runStart, argb);
+        }
     }
 
     // draw multiple lines from array
@@ -167,4 +327,4 @@ public class LineRasterizerTrivial implements Rasterizer {
             rasterize(line);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+package rasterizers;
+
+public class LinearGradientShader extends GradientShader {
+    // extra fraction bits of the position accumulated along a span
+    private static final int STEP_BITS = 16;
+
+    private int x1;
+    private int y1;
+    // position change per pixel step in x and y, with STEP_BITS fraction bits
+    private double stepX;
+    private double stepY;
+
+    // create gradient from start color at (x1,y1) to end color at (x2,y2), constant across the axis
+    public LinearGradientShader(int x1, int y1, int x2, int y2, int startColor, int endColor, boolean dithered) {
+        super(startColor, endColor, dithered);
+        setAxis(x1, y1, x2, y2);
+    }
+
+    // move gradient axis keeping the color table
+    public void setAxis(int x1, int y1, int x2, int y2) {
+        this.x1 = x1;
+        this.y1 = y1;
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double lengthSquared = dx * dx + dy * dy;
+        double scale = lengthSquared == 0 ? 0 : MAX_POSITION * (double) (1L << STEP_BITS) / lengthSquared;
+        stepX = dx * scale;
+        stepY = dy * scale;
+    }
+
+    @Override
+    public void shadeSpan(int x, int y, int length, int[] out, int offset) {
+        // position is linear in x, so one multiplication per span and an addition per pixel
+        long position = (long) ((x - x1) * stepX + (y - y1) * stepY);
+        long step = (long) stepX;
+        for (int i = 0; i < length; i++) {
+            out[offset + i] = colorAt(position >> STEP_BITS, x + i, y);
+            position += step;
+        }
+    }
+}
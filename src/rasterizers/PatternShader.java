@@ -0,0 +1,64 @@
+package rasterizers;
+
+public class PatternShader implements Shader {
+    private final int[] tile;
+    private final int width;
+    private final int height;
+    private int originX;
+    private int originY;
+    private final boolean opaque;
+
+    // create pattern repeating argb tile of given size with its corner at origin
+    public PatternShader(int[] tile, int width, int height, int originX, int originY) {
+        this.tile = tile;
+        this.width = Math.max(1, width);
+        this.height = Math.max(1, height);
+        this.originX = originX;
+        this.originY = originY;
+
+        boolean allOpaque = true;
+        for (int color : tile) {
+            if (color >>> 24 != 255) {
+                allOpaque = false;
+                break;
+            }
+        }
+        this.opaque = allOpaque;
+    }
+
+    // check if shader repeats given tile, the shader can then be reused with a new origin
+    public boolean hasTile(int[] tile) {
+        return this.tile == tile;
+    }
+
+    // move corner of the tile grid
+    public void setOrigin(int originX, int originY) {
+        this.originX = originX;
+        this.originY = originY;
+    }
+
+    @Override
+    public boolean isOpaque() {
+        return opaque;
+    }
+
+    @Override
+    public void shadeSpan(int x, int y, int length, int[] out, int offset) {
+        // tile rows are copied in runs up to the tile edge
+        int row = wrap(y - originY, height) * width;
+        int u = wrap(x - originX, width);
+        while (length > 0) {
+            int run = Math.min(width - u, length);
+            System.arraycopy(tile, row + u, out, offset, run);
+            offset += run;
+            length -= run;
+            u = 0;
+        }
+    }
+
+    // coordinate inside the tile for any offset from the origin
+    private static int wrap(int value, int size) {
+        int wrapped = value % size;
+        return wrapped < 0 ? wrapped + size : wrapped;
+    }
+}
@@ -0,0 +1,89 @@
+package rasterizers;
+
+import geometry.PolygonIndex;
+
+public class PolygonClipper {
+    // vertices packed as x,y pairs, the passes alternate between both buffers which are kept between calls
+    private double[] coords = new double[64];
+    private double[] scratch = new double[64];
+    private int count;
+
+    // clip polygon area against rectangle with Sutherland-Hodgman, returns number of remaining vertices
+    // intersections are not rounded, so rows inside the rectangle cross the clipped edges where they crossed
+    // the original ones
+    public int clip(PolygonIndex polygon, double minX, double minY, double maxX, double maxY) {
+        int size = polygon.getEdgeCount();
+        ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            coords[i * 2] = polygon.getVertexX(i);
+            coords[i * 2 + 1] = polygon.getVertexY(i);
+        }
+        count = size;
+
+        clipAgainst(minX, true, true);
+        clipAgainst(maxX, true, false);
+        clipAgainst(minY, false, true);
+        clipAgainst(maxY, false, false);
+        return count;
+    }
+
+    // get clipped vertices packed as x,y pairs
+    public double[] getCoords() {
+        return coords;
+    }
+
+    // clip against one axis-aligned boundary, each pass adds at most one vertex per boundary crossing
+    private void clipAgainst(double bound, boolean vertical, boolean keepGreater) {
+        if (count == 0) return;
+        ensureCapacity(count * 2);
+        double[] input = coords;
+        double[] output = scratch;
+        int written = 0;
+
+        double previousX = input[(count - 1) * 2];
+        double previousY = input[(count - 1) * 2 + 1];
+        boolean previousInside = isInside(vertical ? previousX : previousY, bound, keepGreater);
+
+        for (int i = 0; i < count; i++) {
+            double x = input[i * 2];
+            double y = input[i * 2 + 1];
+            boolean inside = isInside(vertical ? x : y, bound, keepGreater);
+            if (inside != previousInside) {
+                // intersect edge with boundary line
+                if (vertical) {
+                    output[written++] = bound;
+                    output[written++] = previousY + (bound - previousX) / (x - previousX) * (y - previousY);
+                } else {
+                    output[written++] = previousX + (bound - previousY) / (y - previousY) * (x - previousX);
+                    output[written++] = bound;
+                }
+            }
+            if (inside) {
+                output[written++] = x;
+                output[written++] = y;
+            }
+            previousX = x;
+            previousY = y;
+            previousInside = inside;
+        }
+
+        scratch = input;
+        coords = output;
+        count = written / 2;
+    }
+
+    // check which side of boundary the value lies on
+    private static boolean isInside(double value, double bound, boolean keepGreater) {
+        return keepGreater ? value >= bound : value <= bound;
+    }
+
+    // grow both buffers to hold given number of vertices
+    private void ensureCapacity(int vertices) {
+        if (coords.length < vertices * 2) {
+            double[] grown = new double[vertices * 2];
+            System.arraycopy(coords, 0, grown, 0, count * 2);
+            coords = grown;
+            scratch = new double[vertices * 2];
+        }
+    }
+}
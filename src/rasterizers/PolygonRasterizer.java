@@ -1,26 +1,37 @@
 package rasterizers;
 
+import geometry.PolygonIndex;
+import models.FillPaint;
 import models.LineStyle;
 import models.Point;
-import models.Line;
 import models.Polygon;
 import rasters.Raster;
 
 import java.awt.*;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 public class PolygonRasterizer {
-    private final LineRasterizerTrivial lineRasterizer;
     private final LineCanvasRasterizer lineCanvasRasterizer;
+    private final SpanFiller spanFiller;
+
+    // scratch of paint fills reused between calls
+    private final Rectangle fillBounds = new Rectangle();
+    private final int[] fillAxis = new int[4];
+    private Shader fillShader;
+
+    // lazily built hit testing data, dropped together with its polygon
+    private final Map<Polygon, PolygonIndex> indexes = new WeakHashMap<>();
 
     // initialize with both rasterizers
     public PolygonRasterizer(Raster raster, LineCanvasRasterizer lineCanvasRasterizer) {
-        this.lineRasterizer = new LineRasterizerTrivial(raster);
         this.lineCanvasRasterizer = lineCanvasRasterizer;
+        this.spanFiller = new SpanFiller(raster);
     }
 
     // draw polygon outline using LineCanvasRasterizer with given color, style, and width
-    public void rasterize(Polygon polygon, Color color, LineStyle style, int lineWidth) {
+    public void rasterize(Polygon polygon, int color, LineStyle style, int lineWidth) {
         if (lineCanvasRasterizer == null) {
             throw new IllegalStateException("LineCanvasRasterizer is not initialized.");
         }
@@ -28,42 +39,64 @@ public class PolygonRasterizer {
         List<Point> points = polygon.getPoints();
         if (points.size() < 2) return;
 
-        for (int i = 0; i < points.size(); i++) {
-            Point a = points.get(i);
-            Point b = points.get((i + 1) % points.size());
-            Line line = new Line(a, b, color, style);
-            lineCanvasRasterizer.setLineWidth(lineWidth);
-            lineCanvasRasterizer.rasterizeLine(line);
+        // one closed polyline keeps the dash pattern continuous around corners
+        lineCanvasRasterizer.setLineWidth(lineWidth);
+        lineCanvasRasterizer.rasterizePolyline(points, true, color, style != null ? style.getPattern() : null);
+    }
+
+    // fill polygon interior with colors from shader, one span per crossing pair of each row
+    public void fill(Polygon polygon, Shader shader) {
+        if (polygon.getPoints().size() < 3) return;
+        spanFiller.fillPolygon(getIndex(polygon), shader);
+    }
+
+    // fill polygon interior with paint laid over the polygon bounds
+    // the shader, bounds and axis are kept for the next call, so previews filled on every drag do not allocate
+    public void fill(Polygon polygon, FillPaint paint) {
+        if (polygon.getPoints().size() < 3) return;
+        PolygonIndex index = getIndex(polygon);
+        fillBounds.setBounds(index.getMinX(), index.getMinY(),
+                index.getMaxX() - index.getMinX() + 1, index.getMaxY() - index.getMinY() + 1);
+        paint.fitAxis(fillBounds, fillAxis);
+        fillShader = Shaders.update(fillShader, paint, fillAxis[0], fillAxis[1], fillAxis[2], fillAxis[3]);
+        if (fillShader != null) {
+            spanFiller.fillPolygon(index, fillShader);
         }
     }
 
-    // point-in-polygon test using ray casting algorithm
+    // point-in-polygon test using ray casting over the edges of one y slab
     public boolean isPointInsidePolygon(Polygon polygon, Point point) {
-        List<Point> points = polygon.getPoints();
-        int size = points.size();
-        int x = point.getX();
-        int y = point.getY();
-        boolean inside = false;
-
-        for (int i = 0, j = size - 1; i < size; j = i++) {
-            int xi = points.get(i).getX();
-            int yi = points.get(i).getY();
-            int xj = points.get(j).getX();
-            int yj = points.get(j).getY();
+        return getIndex(polygon).contains(point.getX(), point.getY());
+    }
 
-            // point lies exactly on a vertex
-            if ((xi == x && yi == y) || (xj == x && yj == y)) {
-                return true;
-            }
+    // test many points packed as x,y pairs against one polygon, returns number of points inside
+    public int arePointsInsidePolygon(Polygon polygon, int[] coords, int count, boolean[] result) {
+        return getIndex(polygon).containsAll(coords, count, result);
+    }
 
-            // ray-casting logic
-            boolean intersect = ((yi > y) != (yj > y)) &&
-                    (x < (xj - xi) * (y - yi) / (double)(yj - yi) + xi);
-            if (intersect) {
-                inside = !inside;
-            }
+    // build mask of pixels inside polygon, one byte per pixel in row-major order
+    public byte[] createMask(Polygon polygon, int width, int height) {
+        PolygonIndex index = getIndex(polygon);
+        byte[] mask = new byte[width * height];
+        double[] crossings = new double[index.getEdgeCount()];
+        int fromY = Math.max(0, index.getMinY());
+        int toY = Math.min(height - 1, index.getMaxY());
+        for (int y = fromY; y <= toY; y++) {
+            index.fillRow(y, crossings, mask, y * width, width);
         }
+        return mask;
+    }
 
-        return inside;
+    // get index for polygon, rebuilding it after edits
+    public PolygonIndex getIndex(Polygon polygon) {
+        PolygonIndex index = indexes.get(polygon);
+        if (index == null) {
+            index = new PolygonIndex(polygon);
+            indexes.put(polygon, index);
+        } else if (!index.isValidFor(polygon)) {
+            // edited polygons, e.g. the outline of a shape being dragged, refill their index in place
+            index.rebuild(polygon);
+        }
+        return index;
     }
 }
@@ -0,0 +1,62 @@
+package rasterizers;
+
+public class RadialGradientShader extends GradientShader {
+    // squared distances are scaled to this range, the root table maps them to positions
+    private static final int SQUARED_BITS = 16;
+    private static final int SQUARED_SIZE = 1 << SQUARED_BITS;
+    private static int[] rootTable;
+
+    private int centerX;
+    private int centerY;
+    // scale from squared pixel distance to the table range
+    private double scale;
+    private final int[] roots;
+
+    // create gradient from start color at the centre to end color on the circle of given radius
+    public RadialGradientShader(int centerX, int centerY, int radius, int startColor, int endColor,
+                                boolean dithered) {
+        super(startColor, endColor, dithered);
+        this.roots = getRootTable();
+        setCircle(centerX, centerY, radius);
+    }
+
+    // move gradient circle keeping the color table
+    public void setCircle(int centerX, int centerY, int radius) {
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.scale = radius <= 0 ? Double.POSITIVE_INFINITY : SQUARED_SIZE / ((double) radius * radius);
+    }
+
+    @Override
+    public void shadeSpan(int x, int y, int length, int[] out, int offset) {
+        if (scale == Double.POSITIVE_INFINITY) {
+            for (int i = 0; i < length; i++) out[offset + i] = colorAt(MAX_POSITION, x + i, y);
+            return;
+        }
+
+        // squared distance is quadratic in x, so forward differences replace the square root per pixel
+        double dx = x - centerX;
+        double dy = y - centerY;
+        double squared = (dx * dx + dy * dy) * scale;
+        double delta = (2 * dx + 1) * scale;
+        double delta2 = 2 * scale;
+        for (int i = 0; i < length; i++) {
+            int index = squared >= SQUARED_SIZE ? SQUARED_SIZE : (int) squared;
+            out[offset + i] = colorAt(roots[index], x + i, y);
+            squared += delta;
+            delta += delta2;
+        }
+    }
+
+    // get table of gradient positions by scaled squared distance, built once
+    private static synchronized int[] getRootTable() {
+        if (rootTable == null) {
+            int[] table = new int[SQUARED_SIZE + 1];
+            for (int i = 0; i <= SQUARED_SIZE; i++) {
+                table[i] = (int) Math.round(Math.sqrt(i / (double) SQUARED_SIZE) * MAX_POSITION);
+            }
+            rootTable = table;
+        }
+        return rootTable;
+    }
+}
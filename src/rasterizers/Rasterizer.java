@@ -1,10 +1,12 @@
 package rasterizers;
 
+import models.DashPattern;
 import models.Line;
-import models.LineCanvas;
+import models.Point;
 
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.List;
 
 public interface Rasterizer {
 
@@ -12,4 +14,31 @@ public interface Rasterizer {
 
     void rasterizeArray(ArrayList<Line> arrayList);
 
+    // set width of following lines, at least one pixel
+    void setLineWidth(int width);
+
+    // restrict drawing to given tile bounds, null means the whole raster
+    void setClip(Rectangle clip);
+
+    // draw one segment starting at given dash phase and return the phase at its end
+    int rasterizeSegment(Point p1, Point p2, int color, DashPattern pattern, int phase);
+
+    // draw one segment given by coordinates and return the dash phase at its end
+    int rasterizeSegment(int x1, int y1, int x2, int y2, int color, DashPattern pattern, int phase);
+
+    // draw connected segments with the dash phase carried across joints
+    void rasterizePolyline(List<Point> points, boolean closed, int color, DashPattern pattern);
+
+    // draw connected points packed as x,y pairs with the dash phase carried across joints
+    void rasterizePolyline(int[] coords, int pointCount, boolean closed, int color, DashPattern pattern);
+
+    // stamp filled disk of given radius
+    void stampDab(int centerX, int centerY, int radius, int color);
+
+    // group following drawing into one stroke so translucent overlaps blend only once
+    void beginStroke();
+
+    // finish stroke started with beginStroke
+    void endStroke();
+
 }
@@ -0,0 +1,11 @@
+package rasterizers;
+
+import rasters.Raster;
+
+public interface RasterizerProvider {
+    // get name used to select the implementation with -Drasterizer=name
+    String getName();
+
+    // create line rasterizer drawing into raster
+    Rasterizer create(Raster raster);
+}
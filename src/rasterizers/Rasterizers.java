@@ -0,0 +1,101 @@
+package rasterizers;
+
+import logging.Logger;
+import rasters.Raster;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.function.Function;
+
+public final class Rasterizers {
+    private static final Logger LOG = Logger.get("renderer");
+
+    // implementation used when none or an unknown one is requested
+    public static final String DEFAULT = "trivial";
+
+    // built in implementations, then providers listed in META-INF/services/rasterizers.RasterizerProvider
+    private static final Map<String, RasterizerProvider> PROVIDERS = load();
+    private static volatile RasterizerProvider selected = find(System.getProperty("rasterizer", DEFAULT));
+
+    private Rasterizers() {
+    }
+
+    // create line rasterizer of the selected implementation
+    public static Rasterizer create(Raster raster) {
+        return selected.create(raster);
+    }
+
+    // use named implementation for following create calls
+    public static void select(String name) {
+        selected = find(name);
+    }
+
+    // get name of the selected implementation
+    public static String getSelectedName() {
+        return selected.getName();
+    }
+
+    // get names of all registered implementations
+    public static Set<String> getNames() {
+        return Collections.unmodifiableSet(PROVIDERS.keySet());
+    }
+
+    // look up implementation by name, unknown names fall back to the default
+    private static RasterizerProvider find(String name) {
+        RasterizerProvider provider = PROVIDERS.get(name);
+        if (provider == null) {
+            LOG.warn("Unknown rasterizer {}, using {}; available: {}", name, DEFAULT, PROVIDERS.keySet());
+            provider = PROVIDERS.get(DEFAULT);
+        }
+        return provider;
+    }
+
+    // collect built in and plugged in implementations, a broken plugin is skipped
+    private static Map<String, RasterizerProvider> load() {
+        Map<String, RasterizerProvider> providers = new LinkedHashMap<>();
+        // lambdas rather than constructor references, so implementations are loaded only when used
+        providers.put(DEFAULT, new Builtin(DEFAULT, raster -> new LineRasterizerTrivial(raster)));
+        providers.put("bresenham", new Builtin("bresenham", raster -> new LineRasterizerBresenham(raster)));
+
+        Iterator<RasterizerProvider> plugins = ServiceLoader.load(RasterizerProvider.class).iterator();
+        while (true) {
+            try {
+                if (!plugins.hasNext()) break;
+                RasterizerProvider provider = plugins.next();
+                if (providers.putIfAbsent(provider.getName(), provider) != null) {
+                    LOG.warn("Rasterizer {} is already registered, ignoring {}", provider.getName(),
+                            provider.getClass().getName());
+                }
+            } catch (ServiceConfigurationError e) {
+                LOG.warn("Cannot load rasterizer plugin", e);
+            }
+        }
+        return providers;
+    }
+
+    // implementation shipped with the application
+    private static final class Builtin implements RasterizerProvider {
+        private final String name;
+        private final Function<Raster, Rasterizer> factory;
+
+        private Builtin(String name, Function<Raster, Rasterizer> factory) {
+            this.name = name;
+            this.factory = factory;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Rasterizer create(Raster raster) {
+            return factory.apply(raster);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package rasterizers;
+
+public interface Shader {
+    // write argb colors of pixels x .. x + length - 1 on row y into out starting at offset
+    void shadeSpan(int x, int y, int length, int[] out, int offset);
+
+    // check if every shaded color is opaque, opaque spans are written without blending
+    boolean isOpaque();
+}
@@ -0,0 +1,118 @@
+package rasterizers;
+
+import logging.Logger;
+import models.FillPaint;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class Shaders {
+    private static final Logger LOG = Logger.get("renderer");
+
+    // decoded pattern tiles kept for repeated fills, least recently used ones are dropped first
+    private static final int MAX_CACHED_TILES = 8;
+    private static final Map<String, Tile> TILES = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Tile> eldest) {
+            return size() > MAX_CACHED_TILES;
+        }
+    };
+
+    // argb pixels of a pattern tile, shared by every shader repeating it
+    private static final class Tile {
+        private final int[] pixels;
+        private final int width;
+        private final int height;
+
+        private Tile(int[] pixels, int width, int height) {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private Shaders() {
+    }
+
+    // create shader drawing paint at document scale, null when a pattern tile cannot be read
+    public static Shader create(FillPaint paint) {
+        return create(paint, 1);
+    }
+
+    // create shader drawing paint with its geometry scaled by given factor
+    public static Shader create(FillPaint paint, double scale) {
+        return update(null, paint, (int) Math.round(paint.getX1() * scale), (int) Math.round(paint.getY1() * scale),
+                (int) Math.round(paint.getX2() * scale), (int) Math.round(paint.getY2() * scale));
+    }
+
+    // get shader drawing paint along axis (x1,y1)-(x2,y2) instead of its own
+    // a shader made earlier for the same kind and colors is moved to the axis instead of building a new one,
+    // so previews redrawn on every drag event do not allocate; null when a pattern tile cannot be read
+    public static Shader update(Shader shader, FillPaint paint, int x1, int y1, int x2, int y2) {
+        int start = paint.getStartColor();
+        int end = paint.getEndColor();
+        boolean dithered = paint.isDithered();
+        switch (paint.getKind()) {
+            case SOLID -> {
+                if (shader instanceof SolidShader && ((SolidShader) shader).getColor() == start) return shader;
+                return new SolidShader(start);
+            }
+            case LINEAR -> {
+                if (shader instanceof LinearGradientShader && hasColors(shader, paint)) {
+                    ((LinearGradientShader) shader).setAxis(x1, y1, x2, y2);
+                    return shader;
+                }
+                return new LinearGradientShader(x1, y1, x2, y2, start, end, dithered);
+            }
+            case RADIAL -> {
+                int radius = (int) Math.round(Math.hypot(x2 - x1, y2 - y1));
+                if (shader instanceof RadialGradientShader && hasColors(shader, paint)) {
+                    ((RadialGradientShader) shader).setCircle(x1, y1, radius);
+                    return shader;
+                }
+                return new RadialGradientShader(x1, y1, radius, start, end, dithered);
+            }
+            default -> {
+                Tile tile = loadTile(paint.getPatternPath());
+                if (tile == null) return null;
+                if (shader instanceof PatternShader && ((PatternShader) shader).hasTile(tile.pixels)) {
+                    ((PatternShader) shader).setOrigin(x1, y1);
+                    return shader;
+                }
+                return new PatternShader(tile.pixels, tile.width, tile.height, x1, y1);
+            }
+        }
+    }
+
+    // check if gradient shader has the color table of paint
+    private static boolean hasColors(Shader shader, FillPaint paint) {
+        return ((GradientShader) shader).hasColors(paint.getStartColor(), paint.getEndColor(), paint.isDithered());
+    }
+
+    // read tile image once, later fills reuse its pixels
+    private static synchronized Tile loadTile(String path) {
+        Tile tile = TILES.get(path);
+        if (tile != null) return tile;
+
+        BufferedImage image;
+        try {
+            image = path != null ? ImageIO.read(new File(path)) : null;
+        } catch (IOException e) {
+            LOG.warn("Cannot read pattern {}: {}", path, e.getMessage());
+            return null;
+        }
+        if (image == null) {
+            LOG.warn("Cannot read pattern {}", path);
+            return null;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        tile = new Tile(image.getRGB(0, 0, width, height, null, 0, width), width, height);
+        TILES.put(path, tile);
+        return tile;
+    }
+}
@@ -0,0 +1,27 @@
+package rasterizers;
+
+import java.util.Arrays;
+
+public class SolidShader implements Shader {
+    private final int color;
+
+    // create shader painting one argb color
+    public SolidShader(int color) {
+        this.color = color;
+    }
+
+    // get painted argb color
+    public int getColor() {
+        return color;
+    }
+
+    @Override
+    public void shadeSpan(int x, int y, int length, int[] out, int offset) {
+        Arrays.fill(out, offset, offset + length, color);
+    }
+
+    @Override
+    public boolean isOpaque() {
+        return color >>> 24 == 255;
+    }
+}
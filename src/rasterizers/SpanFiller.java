@@ -0,0 +1,115 @@
+package rasterizers;
+
+import geometry.PolygonIndex;
+import models.Polygon;
+import rasters.PixelOps;
+import rasters.Raster;
+
+import java.awt.Rectangle;
+
+public class SpanFiller {
+    private final Raster raster;
+
+    // shaded colors of one span and edge crossings of one row, grown on demand
+    private int[] row = new int[256];
+    private double[] crossings = new double[16];
+
+    // optional tile bounds narrowing the raster bounds
+    private Rectangle clip;
+
+    // polygons reaching past the filled window are clipped to it and indexed here, both kept between calls
+    private final PolygonClipper clipper = new PolygonClipper();
+    private final PolygonIndex clipped = new PolygonIndex(new Polygon());
+
+    // initialize with raster to fill
+    public SpanFiller(Raster raster) {
+        this.raster = raster;
+    }
+
+    // restrict filling to given tile bounds, null means the whole raster
+    public void setClip(Rectangle clip) {
+        this.clip = clip == null ? null : new Rectangle(clip);
+    }
+
+    // fill polygon interior row by row, a pixel is inside when an odd number of edge crossings lies right of it
+    public void fillPolygon(PolygonIndex index, Shader shader) {
+        if (index.getEdgeCount() == 0) return;
+
+        int minX = 0, minY = 0;
+        int maxX = raster.getWidth() - 1, maxY = raster.getHeight() - 1;
+        if (clip != null) {
+            minX = Math.max(minX, clip.x);
+            minY = Math.max(minY, clip.y);
+            maxX = Math.min(maxX, clip.x + clip.width - 1);
+            maxY = Math.min(maxY, clip.y + clip.height - 1);
+        }
+        if (minX > maxX || minY > maxY) return;
+
+        // edges outside the window only add crossings that get clamped, so cut the polygon one pixel beyond it
+        // the boundary edges then cross rows just outside the window and the spans inside stay the same
+        if (index.getMinX() < minX - 1 || index.getMaxX() > maxX + 1
+                || index.getMinY() < minY - 1 || index.getMaxY() > maxY + 1) {
+            int count = clipper.clip(index, minX - 1, minY - 1, maxX + 1, maxY + 1);
+            if (count < 3) return;
+            clipped.rebuild(clipper.getCoords(), count);
+            index = clipped;
+        }
+        if (crossings.length < index.getEdgeCount()) {
+            crossings = new double[index.getEdgeCount()];
+        }
+
+        int fromY = Math.max(minY, index.getMinY());
+        int toY = Math.min(maxY, index.getMaxY());
+        for (int y = fromY; y <= toY; y++) {
+            int count = index.getCrossings(y, crossings);
+            for (int i = 0; i + 1 < count; i += 2) {
+                int from = (int) Math.floor(crossings[i]);
+                if (from < crossings[i]) from++;
+                int to = (int) Math.ceil(crossings[i + 1]) - 1;
+                from = Math.max(from, minX);
+                to = Math.min(to, maxX);
+                if (from <= to) {
+                    fillSpan(from, y, to - from + 1, shader);
+                }
+            }
+        }
+    }
+
+    // shade run of pixels, translucent colors blend over the raster
+    public void fillSpan(int x, int y, int length, Shader shader) {
+        int[] colors = shade(x, y, length, shader);
+        if (shader.isOpaque()) {
+            raster.setRow(x, y, length, colors, 0);
+        } else {
+            raster.blendRow(x, y, length, colors, 0);
+        }
+    }
+
+    // shade run of pixels that currently hold placeholders for one backdrop color, e.g. a flood fill area
+    void fillSpanOver(int x, int y, int length, Shader shader, int backdrop) {
+        int[] colors = shade(x, y, length, shader);
+        if (!shader.isOpaque()) {
+            int premultipliedBackdrop = PixelOps.premultiply(backdrop);
+            for (int i = 0; i < length; i++) {
+                int color = colors[i];
+                int alpha = color >>> 24;
+                if (alpha == 0) {
+                    colors[i] = backdrop;
+                } else if (alpha != 255) {
+                    colors[i] = PixelOps.unpremultiply(
+                            PixelOps.blendOver(premultipliedBackdrop, PixelOps.premultiply(color)));
+                }
+            }
+        }
+        raster.setRow(x, y, length, colors, 0);
+    }
+
+    // evaluate shader over span into the reusable row buffer
+    private int[] shade(int x, int y, int length, Shader shader) {
+        if (row.length < length) {
+            row = new int[Math.max(length, row.length * 2)];
+        }
+        shader.shadeSpan(x, y, length, row, 0);
+        return row;
+    }
+}
@@ -0,0 +1,43 @@
+package rasterizers;
+
+import java.util.Arrays;
+
+class StrokeMask {
+    // stamp of the stroke that last covered each pixel, bumped per stroke so the buffer is never cleared
+    private int[] stamps = new int[0];
+    private int stamp;
+    private int originX;
+    private int originY;
+    private int width;
+    private int height;
+
+    // start new stroke covering given inclusive bounds
+    void begin(int minX, int minY, int maxX, int maxY) {
+        originX = minX;
+        originY = minY;
+        width = Math.max(0, maxX - minX + 1);
+        height = Math.max(0, maxY - minY + 1);
+        int size = width * height;
+        if (stamps.length < size) {
+            stamps = new int[size];
+            stamp = 0;
+        }
+        stamp++;
+        if (stamp == 0) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+    }
+
+    // mark pixel and report if the current stroke had not covered it yet, pixels outside the bounds
+    // fixed in begin (clip or raster changed mid stroke) are never tracked and always reported as new
+    boolean mark(int x, int y) {
+        int dx = x - originX;
+        int dy = y - originY;
+        if (dx < 0 || dy < 0 || dx >= width || dy >= height) return true;
+        int i = dy * width + dx;
+        if (stamps[i] == stamp) return false;
+        stamps[i] = stamp;
+        return true;
+    }
+}
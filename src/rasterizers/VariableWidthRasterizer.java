@@ -0,0 +1,55 @@
+package rasterizers;
+
+public class VariableWidthRasterizer {
+    private final Rasterizer lineRasterizer;
+
+    // draw through line rasterizer, sharing its clip and translucent stroke tracking
+    public VariableWidthRasterizer(Rasterizer lineRasterizer) {
+        this.lineRasterizer = lineRasterizer;
+    }
+
+    // group following segments into one stroke so translucent dabs blend only once
+    public void beginStroke() {
+        lineRasterizer.beginStroke();
+    }
+
+    // finish stroke started with beginStroke
+    public void endStroke() {
+        lineRasterizer.endStroke();
+    }
+
+    // draw segment whose width changes linearly between its ends by stamping overlapping dabs
+    public void rasterizeSegment(int x1, int y1, int width1, int x2, int y2, int width2, int color) {
+        double radius1 = Math.max(1, width1) / 2.0;
+        double radius2 = Math.max(1, width2) / 2.0;
+        double length = Math.hypot(x2 - x1, y2 - y1);
+
+        lineRasterizer.beginStroke();
+        double position = 0;
+        while (position < length) {
+            double t = position / length;
+            double radius = radius1 + (radius2 - radius1) * t;
+            lineRasterizer.stampDab((int) Math.round(x1 + (x2 - x1) * t), (int) Math.round(y1 + (y2 - y1) * t),
+                    (int) radius, color);
+            // small dabs go every pixel, larger ones an eighth of the radius apart, so the edge stays straight
+            position += Math.max(1, radius / 8);
+        }
+        lineRasterizer.stampDab(x2, y2, (int) radius2, color);
+        lineRasterizer.endStroke();
+    }
+
+    // draw connected points packed as x,y pairs with a width per point
+    public void rasterizePolyline(int[] coords, int[] widths, int pointCount, int color) {
+        if (pointCount == 0) return;
+
+        lineRasterizer.beginStroke();
+        if (pointCount == 1) {
+            lineRasterizer.stampDab(coords[0], coords[1], Math.max(1, widths[0]) / 2, color);
+        }
+        for (int i = 0; i + 1 < pointCount; i++) {
+            rasterizeSegment(coords[i * 2], coords[i * 2 + 1], widths[i],
+                    coords[i * 2 + 2], coords[i * 2 + 3], widths[i + 1], color);
+        }
+        lineRasterizer.endStroke();
+    }
+}
@@ -0,0 +1,23 @@
+package rasters;
+
+public enum BlendMode {
+    NORMAL, MULTIPLY, SCREEN, ADD, DARKEN, LIGHTEN;
+
+    // blend one 8-bit source channel over one 8-bit backdrop channel
+    public int blendChannel(int backdrop, int source) {
+        switch (this) {
+            case MULTIPLY:
+                return (backdrop * source + 127) / 255;
+            case SCREEN:
+                return backdrop + source - (backdrop * source + 127) / 255;
+            case ADD:
+                return Math.min(255, backdrop + source);
+            case DARKEN:
+                return Math.min(backdrop, source);
+            case LIGHTEN:
+                return Math.max(backdrop, source);
+            default:  // NORMAL
+                return source;
+        }
+    }
+}
@@ -50,6 +50,13 @@ public class DoubleBufferedRaster implements Raster {
         previewLayer.setClearColor(color);
     }
 
+    // resize both layers
+    @Override
+    public void resize(int width, int height) {
+        baseLayer.resize(width, height);
+        previewLayer.resize(width, height);
+    }
+
     // get width from base layer
     @Override
     public int getWidth() {
@@ -86,4 +93,88 @@ public class DoubleBufferedRaster implements Raster {
     public BufferedImage getImg() {
         return previewLayer.getImg();
     }
+
+    // read row from preview layer
+    @Override
+    public void getRow(int x, int y, int length, int[] out, int offset) {
+        previewLayer.getRow(x, y, length, out, offset);
+    }
+
+    // write row in preview layer
+    @Override
+    public void setRow(int x, int y, int length, int[] in, int offset) {
+        previewLayer.setRow(x, y, length, in, offset);
+    }
+
+    // blend row in preview layer
+    @Override
+    public void blendRow(int x, int y, int length, int[] in, int offset) {
+        previewLayer.blendRow(x, y, length, in, offset);
+    }
+
+    // fill span in preview layer
+    @Override
+    public void fillSpan(int x, int y, int length, int color) {
+        previewLayer.fillSpan(x, y, length, color);
+    }
+
+    // blend pixel in preview layer
+    @Override
+    public void blendPixel(int x, int y, int argb) {
+        previewLayer.blendPixel(x, y, argb);
+    }
+
+    // blend span in preview layer
+    @Override
+    public void blendSpan(int x, int y, int length, int argb) {
+        previewLayer.blendSpan(x, y, length, argb);
+    }
+
+    // scan right in preview layer
+    @Override
+    public int findSpanEnd(int x, int y, int color) {
+        return previewLayer.findSpanEnd(x, y, color);
+    }
+
+    // scan left in preview layer
+    @Override
+    public int findSpanStart(int x, int y, int color) {
+        return previewLayer.findSpanStart(x, y, color);
+    }
+
+    // find matching pixel in preview layer
+    @Override
+    public int findPixel(int x, int y, int toX, int color) {
+        return previewLayer.findPixel(x, y, toX, color);
+    }
+
+    // copy rectangle into preview layer
+    @Override
+    public void copyRect(Raster source, int x, int y, int width, int height) {
+        previewLayer.copyRect(source, x, y, width, height);
+    }
+
+    // draw sprite into preview layer
+    @Override
+    public void drawSprite(Raster sprite, int x, int y) {
+        previewLayer.drawSprite(sprite, x, y);
+    }
+
+    // get changed bounds of the visible preview layer
+    @Override
+    public Rectangle takeDirtyRegion() {
+        return previewLayer.takeDirtyRegion();
+    }
+
+    // drawing goes to the preview layer, so its tracking is the one switched
+    @Override
+    public void setDirtyTracking(boolean enabled) {
+        previewLayer.setDirtyTracking(enabled);
+    }
+
+    // add changed bounds to the preview layer
+    @Override
+    public void markDirty(Rectangle region) {
+        previewLayer.markDirty(region);
+    }
 }
\ No newline at end of file
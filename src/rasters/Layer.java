@@ -0,0 +1,94 @@
+package rasters;
+
+import java.awt.Rectangle;
+
+public class Layer {
+    private final String name;
+    private final Raster raster;
+    private LayerStack owner;
+
+    // compositing settings
+    private int opacity = 255;
+    private boolean visible = true;
+    private BlendMode blendMode = BlendMode.NORMAL;
+
+    // create layer with given name drawing into raster
+    Layer(String name, Raster raster) {
+        this.name = name;
+        this.raster = raster;
+    }
+
+    // get layer name
+    public String getName() {
+        return name;
+    }
+
+    // get raster holding the layer pixels
+    public Raster getRaster() {
+        return raster;
+    }
+
+    // get opacity in range 0..255
+    public int getOpacity() {
+        return opacity;
+    }
+
+    // set opacity clamped to range 0..255
+    public void setOpacity(int opacity) {
+        int clamped = Math.max(0, Math.min(255, opacity));
+        if (clamped != this.opacity) {
+            this.opacity = clamped;
+            invalidateStack();
+        }
+    }
+
+    // check if layer takes part in compositing
+    public boolean isVisible() {
+        return visible;
+    }
+
+    // show or hide layer
+    public void setVisible(boolean visible) {
+        if (visible != this.visible) {
+            this.visible = visible;
+            invalidateStack();
+        }
+    }
+
+    // get blend mode used when compositing
+    public BlendMode getBlendMode() {
+        return blendMode;
+    }
+
+    // set blend mode used when compositing
+    public void setBlendMode(BlendMode blendMode) {
+        if (blendMode != null && blendMode != this.blendMode) {
+            this.blendMode = blendMode;
+            invalidateStack();
+        }
+    }
+
+    // check if compositing skips this layer, its pixels need not even be kept up to date then
+    public boolean isSkipped() {
+        return !visible || opacity == 0;
+    }
+
+    // composite region again after the layer pixels changed there, changes of a skipped layer cost nothing
+    public void invalidate(Rectangle region) {
+        if (owner != null && !isSkipped()) {
+            owner.invalidate(region);
+        }
+    }
+
+    // attach layer to a stack
+    void setOwner(LayerStack owner) {
+        this.owner = owner;
+    }
+
+    // composite the whole layer area again after a settings change
+    private void invalidateStack() {
+        if (owner != null) {
+            owner.invalidateAll();
+        }
+    }
+}
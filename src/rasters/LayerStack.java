@@ -0,0 +1,195 @@
+package rasters;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class LayerStack {
+    private final List<Layer> layers = new ArrayList<>();
+    private int activeIndex;
+
+    // flattened result of all composited layers, rebuilt only inside invalidated regions
+    private final Raster composite;
+    private Rectangle pendingRegion;
+    private int backdropColor = 0xffffffff;
+
+    // rows read from a layer and built for the composite, reused between calls
+    private int[] sourceRow = new int[0];
+    private int[] outputRow = new int[0];
+
+    // create stack compositing into given raster, the bottom layer is opaque and has the size of the composite
+    public LayerStack(Raster composite, String bottomName, Raster bottom) {
+        this.composite = composite;
+        Layer layer = new Layer(bottomName, bottom);
+        layer.setOwner(this);
+        layers.add(layer);
+        invalidateAll();
+    }
+
+    // put new transparent layer on top, its pixels are kept premultiplied
+    public Layer addLayer(String name) {
+        Raster raster = new RasterBufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+        raster.setClearColor(0);
+        Layer layer = new Layer(name, raster);
+        layer.setOwner(this);
+        layers.add(layer);
+        invalidateAll();
+        return layer;
+    }
+
+    // get layers from bottom to top
+    public List<Layer> getLayers() {
+        return Collections.unmodifiableList(layers);
+    }
+
+    // get index of layer receiving drawing operations
+    public int getActiveIndex() {
+        return activeIndex;
+    }
+
+    // get layer receiving drawing operations
+    public Layer getActiveLayer() {
+        return layers.get(activeIndex);
+    }
+
+    // select layer receiving drawing operations
+    public void setActiveIndex(int index) {
+        if (index >= 0 && index < layers.size()) {
+            activeIndex = index;
+        }
+    }
+
+    // check if active layer is shown as is above every other shown layer, drawing over the composite
+    // then gives the pixels of drawing into the layer and compositing again
+    public boolean isActiveOnTop() {
+        Layer active = getActiveLayer();
+        if (active.isSkipped() || active.getOpacity() != 255 || active.getBlendMode() != BlendMode.NORMAL) {
+            return false;
+        }
+        for (int i = activeIndex + 1; i < layers.size(); i++) {
+            if (!layers.get(i).isSkipped()) return false;
+        }
+        return true;
+    }
+
+    // get number of layers taking part in compositing
+    public int getShownCount() {
+        int shown = 0;
+        for (Layer layer : layers) {
+            if (!layer.isSkipped()) shown++;
+        }
+        return shown;
+    }
+
+    // get raster holding the flattened image, rebuilt first where invalidated, while only the opaque bottom
+    // layer is shown as is it already is the flattened image and nothing is composited
+    public Raster flatten() {
+        Layer bottom = layers.get(0);
+        if (getShownCount() == 1 && !bottom.isSkipped() && bottom.getOpacity() == 255
+                && bottom.getBlendMode() == BlendMode.NORMAL) {
+            return bottom.getRaster();
+        }
+        composite();
+        return composite;
+    }
+
+    // get stack width
+    public int getWidth() {
+        return composite.getWidth();
+    }
+
+    // get stack height
+    public int getHeight() {
+        return composite.getHeight();
+    }
+
+    // set color shown where no layer covers the backdrop, also the clear color of the bottom layer
+    public void setClearColor(int color) {
+        backdropColor = color;
+        layers.get(0).getRaster().setClearColor(color);
+        invalidateAll();
+    }
+
+    // resize composite and every layer, pixels that stay inside are kept and only uncovered strips are rebuilt
+    public void resize(int width, int height) {
+        int oldWidth = getWidth();
+        int oldHeight = getHeight();
+        if (width == oldWidth && height == oldHeight) return;
+
+        composite.resize(width, height);
+        for (Layer layer : layers) {
+            layer.getRaster().resize(width, height);
+        }
+        if (width > oldWidth) invalidate(new Rectangle(oldWidth, 0, width - oldWidth, height));
+        if (height > oldHeight) invalidate(new Rectangle(0, oldHeight, width, height - oldHeight));
+    }
+
+    // mark whole composite for rebuild, e.g. after a layer setting changed
+    void invalidateAll() {
+        invalidate(new Rectangle(0, 0, getWidth(), getHeight()));
+    }
+
+    // mark region of composite for rebuild
+    public void invalidate(Rectangle region) {
+        pendingRegion = pendingRegion == null ? new Rectangle(region) : pendingRegion.union(region);
+    }
+
+    // rebuild composite inside regions invalidated since the last call
+    private void composite() {
+        if (pendingRegion == null) return;
+        Rectangle region = pendingRegion.intersection(new Rectangle(0, 0, getWidth(), getHeight()));
+        pendingRegion = null;
+        if (region.isEmpty()) return;
+
+        if (outputRow.length < region.width) {
+            sourceRow = new int[region.width];
+            outputRow = new int[region.width];
+        }
+        int backdrop = backdropColor | 0xff000000;
+        for (int y = region.y; y < region.y + region.height; y++) {
+            PixelOps.fillSpan(outputRow, 0, region.width, backdrop);
+            // hidden and fully transparent layers are not even read
+            for (Layer layer : layers) {
+                if (layer.isSkipped()) continue;
+                layer.getRaster().getRow(region.x, y, region.width, sourceRow, 0);
+                compositeSpan(layer, sourceRow, outputRow, region.width);
+            }
+            composite.setRow(region.x, y, region.width, outputRow, 0);
+        }
+    }
+
+    // blend one row of straight layer colors over the opaque composite row
+    private static void compositeSpan(Layer layer, int[] src, int[] out, int length) {
+        int opacity = layer.getOpacity();
+        BlendMode mode = layer.getBlendMode();
+
+        for (int i = 0; i < length; i++) {
+            int s = src[i];
+            int premultiplied = PixelOps.premultiply(s);
+            if (opacity != 255) {
+                premultiplied = PixelOps.scale(premultiplied, opacity);
+            }
+            int alpha = premultiplied >>> 24;
+            if (alpha == 0) continue;
+
+            if (mode == BlendMode.NORMAL) {
+                out[i] = alpha == 255 ? premultiplied : PixelOps.blendOver(out[i], premultiplied);
+                continue;
+            }
+
+            // other modes mix straight channels and cover the backdrop by the scaled alpha
+            int d = out[i];
+            int dr = (d >> 16) & 0xff, dg = (d >> 8) & 0xff, db = d & 0xff;
+            int sr = mode.blendChannel(dr, (s >> 16) & 0xff);
+            int sg = mode.blendChannel(dg, (s >> 8) & 0xff);
+            int sb = mode.blendChannel(db, s & 0xff);
+
+            int r = (dr * (255 - alpha) + sr * alpha + 127) / 255;
+            int g = (dg * (255 - alpha) + sg * alpha + 127) / 255;
+            int b = (db * (255 - alpha) + sb * alpha + 127) / 255;
+            out[i] = 0xff000000 | (r << 16) | (g << 8) | b;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package rasters;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MipmapPyramid {
+    private final Raster source;
+
+    // levels 1..n, level 0 is the source image itself
+    private final List<BufferedImage> levels = new ArrayList<>();
+    private final List<Rectangle> pendingRegions = new ArrayList<>();
+    // scratch rows reused by every downsample call
+    private int[] rowBuffer = new int[0];
+    private int[] outBuffer = new int[0];
+
+    // create pyramid over given raster, levels are built on first use
+    public MipmapPyramid(Raster source) {
+        this.source = source;
+    }
+
+    // get number of levels including the source level
+    public int getLevelCount() {
+        int count = 1;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        while (w > 1 || h > 1) {
+            w = (w + 1) / 2;
+            h = (h + 1) / 2;
+            count++;
+        }
+        return count;
+    }
+
+    // mark source region as changed, levels are refreshed lazily
+    public void invalidate(Rectangle region) {
+        if (region == null || region.isEmpty()) return;
+
+        for (int i = 0; i < pendingRegions.size(); i++) {
+            Rectangle pending = pendingRegions.get(i);
+            pendingRegions.set(i, pending == null ? new Rectangle(region) : pending.union(region));
+        }
+    }
+
+    // get image of given level, refreshing dirty parts of it and the levels below
+    public BufferedImage getLevel(int level) {
+        if (level <= 0) return source.getImg();
+
+        dropLevelsOfOtherSize();
+        level = Math.min(level, getLevelCount() - 1);
+        for (int i = 1; i <= level; i++) {
+            if (i > levels.size()) {
+                BufferedImage parent = i == 1 ? source.getImg() : levels.get(i - 2);
+                levels.add(new BufferedImage((parent.getWidth() + 1) / 2,
+                        (parent.getHeight() + 1) / 2, BufferedImage.TYPE_INT_RGB));
+                pendingRegions.add(new Rectangle(0, 0, source.getWidth(), source.getHeight()));
+            }
+
+            Rectangle pending = pendingRegions.get(i - 1);
+            if (pending != null) {
+                downsample(i, pending);
+                pendingRegions.set(i - 1, null);
+            }
+        }
+        return levels.get(level - 1);
+    }
+
+    // forget levels built before the source was resized, they are rebuilt on demand
+    private void dropLevelsOfOtherSize() {
+        if (levels.isEmpty()) return;
+
+        BufferedImage first = levels.get(0);
+        if (first.getWidth() != (source.getWidth() + 1) / 2 || first.getHeight() != (source.getHeight() + 1) / 2) {
+            levels.clear();
+            pendingRegions.clear();
+        }
+    }
+
+    // rebuild part of a level from the level above it with a 2x2 box filter
+    private void downsample(int level, Rectangle sourceRegion) {
+        BufferedImage parent = level == 1 ? source.getImg() : levels.get(level - 2);
+        BufferedImage target = levels.get(level - 1);
+
+        // map source-space region into this level, rounding outwards
+        int scale = 1 << level;
+        int x0 = Math.max(0, sourceRegion.x / scale);
+        int y0 = Math.max(0, sourceRegion.y / scale);
+        int x1 = Math.min(target.getWidth(), (sourceRegion.x + sourceRegion.width + scale - 1) / scale);
+        int y1 = Math.min(target.getHeight(), (sourceRegion.y + sourceRegion.height + scale - 1) / scale);
+        if (x0 >= x1 || y0 >= y1) return;
+
+        int parentWidth = parent.getWidth();
+        int parentHeight = parent.getHeight();
+        int px0 = x0 * 2;
+        int pw = Math.min(parentWidth, x1 * 2) - px0;
+        if (rowBuffer.length < pw * 2) {
+            rowBuffer = new int[pw * 2];
+        }
+
+        if (outBuffer.length < x1 - x0) {
+            outBuffer = new int[x1 - x0];
+        }
+        int[] out = outBuffer;
+        for (int y = y0; y < y1; y++) {
+            int py = y * 2;
+            int rows = py + 1 < parentHeight ? 2 : 1;
+            parent.getRGB(px0, py, pw, rows, rowBuffer, 0, pw);
+
+            for (int x = x0; x < x1; x++) {
+                int i = (x - x0) * 2;
+                int j = i + 1 < pw ? i + 1 : i;
+                int a = rowBuffer[i];
+                int b = rowBuffer[j];
+                int c = rows == 2 ? rowBuffer[pw + i] : a;
+                int d = rows == 2 ? rowBuffer[pw + j] : b;
+                out[x - x0] = average(a, b, c, d);
+            }
+            target.setRGB(x0, y, x1 - x0, 1, out, 0, x1 - x0);
+        }
+    }
+
+    // average four rgb pixels channel by channel
+    private static int average(int a, int b, int c, int d) {
+        int r = ((a >> 16 & 0xff) + (b >> 16 & 0xff) + (c >> 16 & 0xff) + (d >> 16 & 0xff) + 2) >> 2;
+        int g = ((a >> 8 & 0xff) + (b >> 8 & 0xff) + (c >> 8 & 0xff) + (d >> 8 & 0xff) + 2) >> 2;
+        int bl = ((a & 0xff) + (b & 0xff) + (c & 0xff) + (d & 0xff) + 2) >> 2;
+        return 0xff000000 | (r << 16) | (g << 8) | bl;
+    }
+}
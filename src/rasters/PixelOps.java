@@ -0,0 +1,159 @@
+package rasters;
+
+import java.util.Arrays;
+
+public final class PixelOps {
+
+    // static helpers only, loops stay simple and counted so the jit can vectorize them
+    private PixelOps() {
+    }
+
+    // fill horizontal run of pixels with one color
+    public static void fillSpan(int[] data, int offset, int length, int color) {
+        Arrays.fill(data, offset, offset + length, color);
+    }
+
+    // fill rectangle of a buffer with given stride with one color
+    public static void fillRect(int[] data, int stride, int x, int y, int width, int height, int color) {
+        if (width <= 0) return;
+        int offset = y * stride + x;
+        for (int row = 0; row < height; row++) {
+            Arrays.fill(data, offset, offset + width, color);
+            offset += stride;
+        }
+    }
+
+    // copy span or-ing mask into every pixel, e.g. forcing opaque alpha on pixels of an rgb buffer
+    public static void copySpanMasked(int[] src, int srcOffset, int[] dst, int dstOffset, int length, int mask) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] = src[srcOffset + i] | mask;
+        }
+    }
+
+    // copy span of straight argb pixels into premultiplied ones
+    public static void premultiplySpan(int[] src, int srcOffset, int[] dst, int dstOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] = premultiply(src[srcOffset + i]);
+        }
+    }
+
+    // copy span of premultiplied pixels into straight argb ones
+    public static void unpremultiplySpan(int[] src, int srcOffset, int[] dst, int dstOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] = unpremultiply(src[srcOffset + i]);
+        }
+    }
+
+    // copy rectangle between buffers with their own strides
+    public static void copyRect(int[] src, int srcStride, int srcX, int srcY,
+                                int[] dst, int dstStride, int dstX, int dstY, int width, int height) {
+        int srcOffset = srcY * srcStride + srcX;
+        int dstOffset = dstY * dstStride + dstX;
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(src, srcOffset, dst, dstOffset, width);
+            srcOffset += srcStride;
+            dstOffset += dstStride;
+        }
+    }
+
+    // multiply straight argb color channels by its alpha
+    public static int premultiply(int argb) {
+        int a = argb >>> 24;
+        if (a == 255) return argb;
+        if (a == 0) return 0;
+        return (a << 24) | (mul255(argb >> 16 & 0xff, a) << 16) | (mul255(argb >> 8 & 0xff, a) << 8)
+                | mul255(argb & 0xff, a);
+    }
+
+    // divide premultiplied color channels by alpha, fully transparent pixels become 0
+    public static int unpremultiply(int premultiplied) {
+        int a = premultiplied >>> 24;
+        if (a == 255) return premultiplied;
+        if (a == 0) return 0;
+        int half = a / 2;
+        int r = Math.min(255, ((premultiplied >> 16 & 0xff) * 255 + half) / a);
+        int g = Math.min(255, ((premultiplied >> 8 & 0xff) * 255 + half) / a);
+        int b = Math.min(255, ((premultiplied & 0xff) * 255 + half) / a);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    // scale all channels of premultiplied color by factor in range 0..255
+    public static int scale(int premultiplied, int factor) {
+        return (mul255(premultiplied >>> 24, factor) << 24) | (mul255(premultiplied >> 16 & 0xff, factor) << 16)
+                | (mul255(premultiplied >> 8 & 0xff, factor) << 8) | mul255(premultiplied & 0xff, factor);
+    }
+
+    // composite premultiplied source over premultiplied destination
+    public static int blendOver(int dst, int src) {
+        int inverse = 255 - (src >>> 24);
+        int a = (src >>> 24) + mul255(dst >>> 24, inverse);
+        int r = (src >> 16 & 0xff) + mul255(dst >> 16 & 0xff, inverse);
+        int g = (src >> 8 & 0xff) + mul255(dst >> 8 & 0xff, inverse);
+        int b = (src & 0xff) + mul255(dst & 0xff, inverse);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    // composite one premultiplied color over a span, dstAlpha is or-ed into destination pixels
+    // so buffers without an alpha channel pass 0xff000000 and are treated as opaque
+    public static void blendSpanOver(int[] data, int offset, int length, int src, int dstAlpha) {
+        int inverse = 255 - (src >>> 24);
+        int sa = src >>> 24, sr = src >> 16 & 0xff, sg = src >> 8 & 0xff, sb = src & 0xff;
+        for (int i = offset; i < offset + length; i++) {
+            int d = data[i] | dstAlpha;
+            int a = sa + mul255(d >>> 24, inverse);
+            int r = sr + mul255(d >> 16 & 0xff, inverse);
+            int g = sg + mul255(d >> 8 & 0xff, inverse);
+            int b = sb + mul255(d & 0xff, inverse);
+            data[i] = (a << 24) | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    // composite straight argb sprite span over premultiplied or opaque destination
+    public static void blendSpriteSpan(int[] src, int srcOffset, int[] dst, int dstOffset, int length, int dstAlpha) {
+        for (int i = 0; i < length; i++) {
+            int s = src[srcOffset + i];
+            int a = s >>> 24;
+            if (a == 255) {
+                dst[dstOffset + i] = s;
+            } else if (a != 0) {
+                dst[dstOffset + i] = blendOver(dst[dstOffset + i] | dstAlpha, premultiply(s));
+            }
+        }
+    }
+
+    // product of two 8-bit values divided by 255 with rounding, without a division
+    private static int mul255(int a, int b) {
+        int t = a * b + 128;
+        return (t + (t >>> 8)) >>> 8;
+    }
+
+    // find first index in [from, to) whose masked pixel differs from color, to if none
+    public static int scanEqual(int[] data, int from, int to, int color, int mask) {
+        int target = color & mask;
+        int i = from;
+        while (i < to && (data[i] & mask) == target) {
+            i++;
+        }
+        return i;
+    }
+
+    // find first index in [from, to) whose masked pixel equals color, to if none
+    public static int scanFor(int[] data, int from, int to, int color, int mask) {
+        int target = color & mask;
+        int i = from;
+        while (i < to && (data[i] & mask) != target) {
+            i++;
+        }
+        return i;
+    }
+
+    // find last index in [to, from] scanning backwards whose masked pixel differs from color, to - 1 if none
+    public static int scanEqualBackward(int[] data, int from, int to, int color, int mask) {
+        int target = color & mask;
+        int i = from;
+        while (i >= to && (data[i] & mask) == target) {
+            i--;
+        }
+        return i;
+    }
+}
@@ -67,4 +67,238 @@ public interface Raster {
 
     BufferedImage getImg();
 
+    /**
+     * Fill horizontal run of pixels, clipped to the raster
+     *
+     * @param x
+     *            first horizontal coordinate
+     * @param y
+     *            vertical coordinate
+     * @param length
+     *            number of pixels
+     * @param color
+     *            pixel color
+     */
+    default void fillSpan(int x, int y, int length, int color) {
+        int from = Math.max(0, x);
+        int to = Math.min(getWidth(), x + length);
+        if (y < 0 || y >= getHeight()) return;
+        for (int i = from; i < to; i++) {
+            setPixel(i, y, color);
+        }
+    }
+
+    /**
+     * Composite color over pixel at [x,y] with source-over, opaque colors replace the pixel
+     *
+     * @param x
+     *            horizontal coordinate
+     * @param y
+     *            vertical coordinate
+     * @param argb
+     *            non-premultiplied color with alpha
+     */
+    default void blendPixel(int x, int y, int argb) {
+        int alpha = argb >>> 24;
+        if (alpha == 255) {
+            setPixel(x, y, argb);
+        } else if (alpha != 0 && x >= 0 && x < getWidth() && y >= 0 && y < getHeight()) {
+            int blended = PixelOps.blendOver(PixelOps.premultiply(getPixel(x, y)), PixelOps.premultiply(argb));
+            setPixel(x, y, PixelOps.unpremultiply(blended));
+        }
+    }
+
+    /**
+     * Composite color over horizontal run of pixels, clipped to the raster
+     *
+     * @param x
+     *            first horizontal coordinate
+     * @param y
+     *            vertical coordinate
+     * @param length
+     *            number of pixels
+     * @param argb
+     *            non-premultiplied color with alpha
+     */
+    default void blendSpan(int x, int y, int length, int argb) {
+        if (argb >>> 24 == 255) {
+            fillSpan(x, y, length, argb);
+            return;
+        }
+        int from = Math.max(0, x);
+        int to = Math.min(getWidth(), x + length);
+        for (int i = from; i < to; i++) {
+            blendPixel(i, y, argb);
+        }
+    }
+
+    /**
+     * Scan right from [x,y] while pixels equal the color
+     *
+     * @return    first coordinate not matching the color, or width
+     */
+    default int findSpanEnd(int x, int y, int color) {
+        while (x < getWidth() && getPixel(x, y) == color) {
+            x++;
+        }
+        return x;
+    }
+
+    /**
+     * Scan left from [x,y] while pixels equal the color
+     *
+     * @return    leftmost coordinate of the matching run, x + 1 if [x,y] does not match
+     */
+    default int findSpanStart(int x, int y, int color) {
+        while (x >= 0 && getPixel(x, y) == color) {
+            x--;
+        }
+        return x + 1;
+    }
+
+    /**
+     * Read run of shown pixels on row y into an array, pixels outside the raster read as 0
+     *
+     * @param x
+     *            first horizontal coordinate
+     * @param y
+     *            vertical coordinate
+     * @param length
+     *            number of pixels
+     * @param out
+     *            destination array
+     * @param offset
+     *            index of the first pixel in out
+     */
+    default void getRow(int x, int y, int length, int[] out, int offset) {
+        for (int i = 0; i < length; i++) {
+            out[offset + i] = getPixel(x + i, y);
+        }
+    }
+
+    /**
+     * Write run of pixels on row y from an array, clipped to the raster
+     *
+     * @param x
+     *            first horizontal coordinate
+     * @param y
+     *            vertical coordinate
+     * @param length
+     *            number of pixels
+     * @param in
+     *            source array of argb colors
+     * @param offset
+     *            index of the first pixel in in
+     */
+    default void setRow(int x, int y, int length, int[] in, int offset) {
+        if (y < 0 || y >= getHeight()) return;
+        int from = Math.max(0, x);
+        int to = Math.min(getWidth(), x + length);
+        for (int i = from; i < to; i++) {
+            setPixel(i, y, in[offset + i - x]);
+        }
+    }
+
+    /**
+     * Composite run of non-premultiplied colors over row y with source-over, clipped to the raster
+     *
+     * @param x
+     *            first horizontal coordinate
+     * @param y
+     *            vertical coordinate
+     * @param length
+     *            number of pixels
+     * @param in
+     *            source array of argb colors
+     * @param offset
+     *            index of the first pixel in in
+     */
+    default void blendRow(int x, int y, int length, int[] in, int offset) {
+        if (y < 0 || y >= getHeight()) return;
+        int from = Math.max(0, x);
+        int to = Math.min(getWidth(), x + length);
+        for (int i = from; i < to; i++) {
+            blendPixel(i, y, in[offset + i - x]);
+        }
+    }
+
+    /**
+     * Find first pixel of the color on row y in range [x, toX)
+     *
+     * @return    coordinate of the matching pixel, or toX if there is none
+     */
+    default int findPixel(int x, int y, int toX, int color) {
+        while (x < toX && getPixel(x, y) != color) {
+            x++;
+        }
+        return x;
+    }
+
+    /**
+     * Copy rectangle from a raster of the same size, clipped to both rasters
+     */
+    default void copyRect(Raster source, int x, int y, int width, int height) {
+        int x0 = Math.max(0, x), y0 = Math.max(0, y);
+        int x1 = Math.min(Math.min(getWidth(), source.getWidth()), x + width);
+        int y1 = Math.min(Math.min(getHeight(), source.getHeight()), y + height);
+        for (int py = y0; py < y1; py++) {
+            for (int px = x0; px < x1; px++) {
+                setPixel(px, py, source.getPixel(px, py));
+            }
+        }
+    }
+
+    /**
+     * Composite sprite over the raster with its top left corner at [x,y]
+     */
+    default void drawSprite(Raster sprite, int x, int y) {
+        int x0 = Math.max(0, x), y0 = Math.max(0, y);
+        int x1 = Math.min(getWidth(), x + sprite.getWidth());
+        int y1 = Math.min(getHeight(), y + sprite.getHeight());
+        for (int py = y0; py < y1; py++) {
+            for (int px = x0; px < x1; px++) {
+                blendPixel(px, py, sprite.getPixel(px - x, py - y));
+            }
+        }
+    }
+
+    /**
+     * Change size keeping the pixels that stay inside, newly uncovered pixels get the clear color
+     *
+     * @param width
+     *            new horizontal size
+     * @param height
+     *            new vertical size
+     */
+    void resize(int width, int height);
+
+    /**
+     * Get bounds of pixels changed since the previous call and reset tracking.
+     * Implementations without tracking report the whole raster.
+     *
+     * @return    changed bounds, or null when nothing changed
+     */
+    default Rectangle takeDirtyRegion() {
+        return new Rectangle(0, 0, getWidth(), getHeight());
+    }
+
+    /**
+     * Turn dirty tracking on or off, e.g. while several threads draw into disjoint parts.
+     * Bounds drawn while it is off have to be reported with markDirty.
+     *
+     * @param enabled
+     *            false to stop recording touched pixels
+     */
+    default void setDirtyTracking(boolean enabled) {
+    }
+
+    /**
+     * Add region to the bounds reported by the next takeDirtyRegion, clipped to the raster
+     *
+     * @param region
+     *            changed bounds
+     */
+    default void markDirty(Rectangle region) {
+    }
+
 }
@@ -0,0 +1,14 @@
+package rasters;
+
+public interface RasterBackend {
+    // get name used to select the backend with -Draster.backend=name
+    String getName();
+
+    // check if backend can run on this machine, e.g. when it needs a native library or a display
+    default boolean isAvailable() {
+        return true;
+    }
+
+    // create canvas raster of given size
+    Raster create(int width, int height);
+}
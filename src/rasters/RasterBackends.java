@@ -0,0 +1,177 @@
+package rasters;
+
+import logging.Logger;
+
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+public final class RasterBackends {
+    private static final Logger LOG = Logger.get("raster");
+
+    // backend used when none or an unknown one is requested
+    public static final String DEFAULT = "int-rgb";
+    // pseudo backend name picking the fastest available backend with a short benchmark
+    public static final String AUTO = "auto";
+
+    private static final int BENCH_SIZE = 256;
+    private static final int BENCH_ROUNDS = 7;
+
+    // sink for benchmark scan results so the jit cannot drop the scans
+    private static volatile int benchSink;
+
+    // built in backends, then providers listed in META-INF/services/rasters.RasterBackend
+    private static final Map<String, RasterBackend> BACKENDS = load();
+
+    private RasterBackends() {
+    }
+
+    // get backend by name, auto benchmarks the available ones, unknown names fall back to the default
+    public static RasterBackend select(String name) {
+        if (AUTO.equals(name)) return benchmark();
+
+        RasterBackend backend = BACKENDS.get(name);
+        if (backend == null || !backend.isAvailable()) {
+            LOG.warn("Raster backend {} is not available, using {}; known: {}", name, DEFAULT, BACKENDS.keySet());
+            backend = BACKENDS.get(DEFAULT);
+        }
+        return backend;
+    }
+
+    // get names of all registered backends
+    public static Set<String> getNames() {
+        return Collections.unmodifiableSet(BACKENDS.keySet());
+    }
+
+    // time canvas workload on every available backend and return the fastest one
+    // rounds are interleaved so a warming jit or a busy core does not favour the backend measured first
+    private static RasterBackend benchmark() {
+        List<RasterBackend> candidates = new ArrayList<>();
+        for (RasterBackend backend : BACKENDS.values()) {
+            if (backend.isAvailable()) candidates.add(backend);
+        }
+        long[] best = new long[candidates.size()];
+        Arrays.fill(best, Long.MAX_VALUE);
+        BufferedImage screen = createScreenImage();
+
+        for (int round = 0; round < BENCH_ROUNDS; round++) {
+            for (int i = 0; i < candidates.size(); i++) {
+                if (best[i] < 0) continue;
+                try {
+                    best[i] = Math.min(best[i], runWorkload(candidates.get(i), screen));
+                } catch (RuntimeException e) {
+                    LOG.warn("Raster backend " + candidates.get(i).getName() + " failed the benchmark", e);
+                    best[i] = -1;
+                }
+            }
+        }
+
+        RasterBackend fastest = BACKENDS.get(DEFAULT);
+        long fastestTime = Long.MAX_VALUE;
+        for (int i = 0; i < candidates.size(); i++) {
+            if (best[i] < 0) continue;
+            LOG.debug("Raster backend benchmark: {}", candidates.get(i).getName() + " " + best[i] / 1000 + " us");
+            if (best[i] < fastestTime) {
+                fastestTime = best[i];
+                fastest = candidates.get(i);
+            }
+        }
+        LOG.info("Using raster backend {} ({} us per benchmark round)", fastest.getName(), fastestTime / 1000);
+        return fastest;
+    }
+
+    // get image laid out like the screen so the final blit is part of the measurement
+    private static BufferedImage createScreenImage() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(BENCH_SIZE, BENCH_SIZE, BufferedImage.TYPE_INT_RGB);
+        }
+        GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration();
+        return config.createCompatibleImage(BENCH_SIZE, BENCH_SIZE, Transparency.OPAQUE);
+    }
+
+    // run one round of the span, pixel, scan, copy and blit work the canvas does and return its time in ns
+    private static long runWorkload(RasterBackend backend, BufferedImage screen) {
+        long start = System.nanoTime();
+        Raster raster = backend.create(BENCH_SIZE, BENCH_SIZE);
+        Raster copy = backend.create(BENCH_SIZE, BENCH_SIZE);
+        raster.setClearColor(0xffffffff);
+        raster.clear();
+        for (int y = 0; y < BENCH_SIZE; y++) {
+            raster.fillSpan(y / 2, y, BENCH_SIZE / 2, 0xff204080 + y);
+            raster.blendSpan(BENCH_SIZE / 4, y, BENCH_SIZE / 2, 0x80ff8000);
+        }
+        for (int i = 0; i < BENCH_SIZE; i++) {
+            raster.setPixel(i, BENCH_SIZE - 1 - i, 0xff000000);
+            raster.blendPixel(i, i, 0x40000000);
+        }
+        int found = 0;
+        for (int y = 0; y < BENCH_SIZE; y++) {
+            found += raster.findSpanEnd(0, y, 0xffffffff);
+        }
+        copy.copyFrom(raster);
+        Graphics graphics = screen.getGraphics();
+        copy.repaint(graphics);
+        graphics.dispose();
+        benchSink = found;
+        return System.nanoTime() - start;
+    }
+
+    // collect built in and plugged in backends, a broken plugin is skipped
+    private static Map<String, RasterBackend> load() {
+        Map<String, RasterBackend> backends = new LinkedHashMap<>();
+        backends.put(DEFAULT, new Builtin(DEFAULT,
+                (width, height) -> new RasterBufferedImage(width, height, BufferedImage.TYPE_INT_RGB)));
+        backends.put("int-argb-pre", new Builtin("int-argb-pre",
+                (width, height) -> new RasterBufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE)));
+
+        Iterator<RasterBackend> plugins = ServiceLoader.load(RasterBackend.class).iterator();
+        while (true) {
+            try {
+                if (!plugins.hasNext()) break;
+                RasterBackend backend = plugins.next();
+                if (backends.putIfAbsent(backend.getName(), backend) != null) {
+                    LOG.warn("Raster backend {} is already registered, ignoring {}", backend.getName(),
+                            backend.getClass().getName());
+                }
+            } catch (ServiceConfigurationError e) {
+                LOG.warn("Cannot load raster backend plugin", e);
+            }
+        }
+        return backends;
+    }
+
+    // backend shipped with the application
+    private static final class Builtin implements RasterBackend {
+        private final String name;
+        private final BiFunction<Integer, Integer, Raster> factory;
+
+        private Builtin(String name, BiFunction<Integer, Integer, Raster> factory) {
+            this.name = name;
+            this.factory = factory;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Raster create(int width, int height) {
+            return factory.apply(width, height);
+        }
+    }
+}
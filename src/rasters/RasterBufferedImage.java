@@ -1,13 +1,38 @@
 package rasters;
 
+import logging.Logger;
+
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 
 public class RasterBufferedImage implements Raster {
+    private static final Logger LOG = Logger.get("raster");
+
+    // grown stores are rounded up to whole chunks so a window dragged larger reallocates rarely
+    private static final int CHUNK = 256;
+    // a store holding more than this many times the needed pixels is given back on the next resize
+    private static final int SHRINK_RATIO = 2;
 
-    private final BufferedImage img;
+    private final int imageType;
+    private final boolean directAccess;
+    private final boolean premultiplied;
     private int color;
 
+    // allocated image, img is its top left part of the current size and shares its pixels
+    private BufferedImage store;
+    private BufferedImage img;
+    private int[] pixels;
+    private int stride;
+
+    // bounds of pixels touched since the last takeDirtyRegion call
+    private int dirtyMinX = Integer.MAX_VALUE;
+    private int dirtyMinY = Integer.MAX_VALUE;
+    private int dirtyMaxX = Integer.MIN_VALUE;
+    private int dirtyMaxY = Integer.MIN_VALUE;
+    // off while several threads draw, their bounds are reported afterwards through markDirty
+    private boolean dirtyTracking = true;
+
     // get the underlying buffered image
     public BufferedImage getImg() {
         return img;
@@ -15,7 +40,20 @@ public class RasterBufferedImage implements Raster {
 
     // create new buffered image with given dimensions
     public RasterBufferedImage(int width, int height) {
-        img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        this(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    // create new buffered image with given dimensions and int image type
+    public RasterBufferedImage(int width, int height, int imageType) {
+        this.imageType = imageType;
+        store = new BufferedImage(width, height, imageType);
+        img = store;
+        pixels = ((DataBufferInt) store.getRaster().getDataBuffer()).getData();
+        stride = width;
+        // layouts where an argb value is stored as is or premultiplied, others go through the color model
+        premultiplied = imageType == BufferedImage.TYPE_INT_ARGB_PRE;
+        directAccess = imageType == BufferedImage.TYPE_INT_RGB || imageType == BufferedImage.TYPE_INT_ARGB
+                || premultiplied;
     }
 
     // draw the image to specified graphics context
@@ -25,6 +63,7 @@ public class RasterBufferedImage implements Raster {
 
     // get graphics context for drawing operations
     public Graphics getGraphics(){
+        markAllDirty();
         return img.getGraphics();
     }
 
@@ -32,7 +71,10 @@ public class RasterBufferedImage implements Raster {
     @Override
     public int getPixel(int x, int y) {
         if (x >= 0 && x < img.getWidth() && y >= 0 && y < img.getHeight()) {
-            return img.getRGB(x, y);
+            if (!directAccess) return img.getRGB(x, y);
+            int pixel = pixels[y * stride + x];
+            if (premultiplied) return PixelOps.unpremultiply(pixel);
+            return imageType == BufferedImage.TYPE_INT_RGB ? pixel | 0xff000000 : pixel;
         }
         return 0;
     }
@@ -41,27 +83,200 @@ public class RasterBufferedImage implements Raster {
     @Override
     public void setPixel(int x, int y, int color) {
         if (x >= 0 && x < img.getWidth() && y >= 0 && y < img.getHeight()) {
-            img.setRGB(x, y, color);
+            if (directAccess) {
+                pixels[y * stride + x] = premultiplied ? PixelOps.premultiply(color) : color;
+            } else {
+                img.setRGB(x, y, color);
+            }
+            markDirty(x, y);
         } else {
-            System.out.printf("Pixel out of bounds: (%d, %d)%n", x, y);
+            LOG.debug("Pixel out of bounds: ({}, {})", x, y);
         }
     }
 
     // clear the image with current background color
     @Override
     public void clear() {
-        Graphics g = img.getGraphics();
-        g.setColor(new Color(color));
-        g.fillRect(0, 0, img.getWidth(), img.getHeight());
+        int[] data = getPixelData();
+        PixelOps.fillSpan(data, 0, data.length, stored(color));
+        markAllDirty();
     }
 
     // copy contents from another raster
     @Override
     public void copyFrom(Raster source) {
-        BufferedImage sourceImg = ((RasterBufferedImage)source).getImg();
-        Graphics g = img.getGraphics();
-        g.drawImage(sourceImg, 0, 0, null);
-        g.dispose();
+        BufferedImage sourceImg = source.getImg();
+        if (hasSameLayout(source)) {
+            // same pixel layout, copy the overlapping rows directly
+            int width = Math.min(getWidth(), sourceImg.getWidth());
+            int height = Math.min(getHeight(), sourceImg.getHeight());
+            RasterBufferedImage bufferedSource = (RasterBufferedImage) source;
+            PixelOps.copyRect(bufferedSource.getPixelData(), bufferedSource.stride, 0, 0,
+                    getPixelData(), stride, 0, 0, width, height);
+        } else {
+            Graphics g = img.getGraphics();
+            g.drawImage(sourceImg, 0, 0, null);
+            g.dispose();
+        }
+        markAllDirty();
+    }
+
+    // copy rectangle row by row from a raster with the same pixel layout
+    @Override
+    public void copyRect(Raster source, int x, int y, int width, int height) {
+        if (!hasSameLayout(source)) {
+            Raster.super.copyRect(source, x, y, width, height);
+            return;
+        }
+
+        int x0 = Math.max(0, x), y0 = Math.max(0, y);
+        int x1 = Math.min(Math.min(getWidth(), source.getWidth()), x + width);
+        int y1 = Math.min(Math.min(getHeight(), source.getHeight()), y + height);
+        if (x0 >= x1 || y0 >= y1) return;
+
+        RasterBufferedImage bufferedSource = (RasterBufferedImage) source;
+        PixelOps.copyRect(bufferedSource.getPixelData(), bufferedSource.stride, x0, y0,
+                pixels, stride, x0, y0, x1 - x0, y1 - y0);
+        markDirty(x0, y0);
+        markDirty(x1 - 1, y1 - 1);
+    }
+
+    // composite sprite pixels over the image row by row
+    @Override
+    public void drawSprite(Raster sprite, int x, int y) {
+        if (!(sprite instanceof RasterBufferedImage)
+                || ((RasterBufferedImage) sprite).imageType != BufferedImage.TYPE_INT_ARGB
+                || !hasOpaqueOrPremultipliedPixels()) {
+            Raster.super.drawSprite(sprite, x, y);
+            return;
+        }
+
+        int x0 = Math.max(0, x), y0 = Math.max(0, y);
+        int x1 = Math.min(getWidth(), x + sprite.getWidth());
+        int y1 = Math.min(getHeight(), y + sprite.getHeight());
+        if (x0 >= x1 || y0 >= y1) return;
+
+        int[] spritePixels = ((RasterBufferedImage) sprite).getPixelData();
+        int spriteStride = ((RasterBufferedImage) sprite).stride;
+        for (int py = y0; py < y1; py++) {
+            PixelOps.blendSpriteSpan(spritePixels, (py - y) * spriteStride + (x0 - x),
+                    pixels, py * stride + x0, x1 - x0, opaqueAlpha());
+        }
+        markDirty(x0, y0);
+        markDirty(x1 - 1, y1 - 1);
+    }
+
+    // copy row straight out of the pixel buffer
+    @Override
+    public void getRow(int x, int y, int length, int[] out, int offset) {
+        if (!directAccess || y < 0 || y >= getHeight() || x < 0 || x + length > getWidth()) {
+            Raster.super.getRow(x, y, length, out, offset);
+            return;
+        }
+
+        int row = y * stride + x;
+        if (imageType == BufferedImage.TYPE_INT_RGB) {
+            PixelOps.copySpanMasked(pixels, row, out, offset, length, 0xff000000);
+        } else if (premultiplied) {
+            PixelOps.unpremultiplySpan(pixels, row, out, offset, length);
+        } else {
+            System.arraycopy(pixels, row, out, offset, length);
+        }
+    }
+
+    // write row straight into the pixel buffer
+    @Override
+    public void setRow(int x, int y, int length, int[] in, int offset) {
+        int from = Math.max(0, x);
+        int to = Math.min(getWidth(), x + length);
+        if (!directAccess || y < 0 || y >= getHeight() || from >= to) {
+            Raster.super.setRow(x, y, length, in, offset);
+            return;
+        }
+
+        int row = y * stride;
+        if (premultiplied) {
+            PixelOps.premultiplySpan(in, offset + from - x, pixels, row + from, to - from);
+        } else {
+            System.arraycopy(in, offset + from - x, pixels, row + from, to - from);
+        }
+        markDirty(from, y);
+        markDirty(to - 1, y);
+    }
+
+    // composite row directly in the pixel buffer
+    @Override
+    public void blendRow(int x, int y, int length, int[] in, int offset) {
+        int from = Math.max(0, x);
+        int to = Math.min(getWidth(), x + length);
+        if (!hasOpaqueOrPremultipliedPixels() || y < 0 || y >= getHeight() || from >= to) {
+            Raster.super.blendRow(x, y, length, in, offset);
+            return;
+        }
+
+        PixelOps.blendSpriteSpan(in, offset + from - x, pixels, y * stride + from, to - from, opaqueAlpha());
+        markDirty(from, y);
+        markDirty(to - 1, y);
+    }
+
+    // fill horizontal run directly in the pixel buffer
+    @Override
+    public void fillSpan(int x, int y, int length, int color) {
+        int from = Math.max(0, x);
+        int to = Math.min(getWidth(), x + length);
+        if (y < 0 || y >= getHeight() || from >= to) return;
+
+        PixelOps.fillSpan(pixels, y * stride + from, to - from, stored(color));
+        markDirty(from, y);
+        markDirty(to - 1, y);
+    }
+
+    // composite color over one pixel in the buffer
+    @Override
+    public void blendPixel(int x, int y, int argb) {
+        if (!hasOpaqueOrPremultipliedPixels() || argb >>> 24 == 255) {
+            Raster.super.blendPixel(x, y, argb);
+            return;
+        }
+        if (argb >>> 24 == 0 || x < 0 || x >= getWidth() || y < 0 || y >= getHeight()) return;
+
+        int i = y * stride + x;
+        pixels[i] = PixelOps.blendOver(pixels[i] | opaqueAlpha(), PixelOps.premultiply(argb));
+        markDirty(x, y);
+    }
+
+    // composite color over horizontal run directly in the pixel buffer
+    @Override
+    public void blendSpan(int x, int y, int length, int argb) {
+        if (!hasOpaqueOrPremultipliedPixels() || argb >>> 24 == 255) {
+            Raster.super.blendSpan(x, y, length, argb);
+            return;
+        }
+        int from = Math.max(0, x);
+        int to = Math.min(getWidth(), x + length);
+        if (argb >>> 24 == 0 || y < 0 || y >= getHeight() || from >= to) return;
+
+        PixelOps.blendSpanOver(pixels, y * stride + from, to - from, PixelOps.premultiply(argb), opaqueAlpha());
+        markDirty(from, y);
+        markDirty(to - 1, y);
+    }
+
+    // scan right in the pixel buffer while pixels match color
+    @Override
+    public int findSpanEnd(int x, int y, int color) {
+        if (y < 0 || y >= getHeight() || x < 0 || x >= getWidth()) return x;
+
+        int row = y * stride;
+        return PixelOps.scanEqual(getPixelData(), row + x, row + getWidth(), stored(color), colorMask()) - row;
+    }
+
+    // scan left in the pixel buffer while pixels match color
+    @Override
+    public int findSpanStart(int x, int y, int color) {
+        if (y < 0 || y >= getHeight() || x < 0 || x >= getWidth()) return x + 1;
+
+        int row = y * stride;
+        return PixelOps.scanEqualBackward(getPixelData(), row + x, row, stored(color), colorMask()) - row + 1;
     }
 
     // set the background clear color
@@ -70,6 +285,38 @@ public class RasterBufferedImage implements Raster {
         this.color = color;
     }
 
+    // change size keeping the pixels that stay inside, shrinking only hides pixels until the store is oversized
+    @Override
+    public void resize(int width, int height) {
+        int oldWidth = getWidth();
+        int oldHeight = getHeight();
+        if (width == oldWidth && height == oldHeight) return;
+
+        int capacityWidth = store.getWidth();
+        int capacityHeight = store.getHeight();
+        boolean fits = width <= capacityWidth && height <= capacityHeight;
+        boolean oversized = (long) capacityWidth * capacityHeight
+                > SHRINK_RATIO * (long) alignToChunk(width) * alignToChunk(height);
+        if (!fits || oversized) {
+            BufferedImage grown = new BufferedImage(alignToChunk(width), alignToChunk(height), imageType);
+            int[] data = ((DataBufferInt) grown.getRaster().getDataBuffer()).getData();
+            PixelOps.fillSpan(data, 0, data.length, stored(color));
+            PixelOps.copyRect(pixels, stride, 0, 0, data, grown.getWidth(), 0, 0,
+                    Math.min(oldWidth, width), Math.min(oldHeight, height));
+            LOG.debug("Raster store reallocated to {}x{}", grown.getWidth(), grown.getHeight());
+            store = grown;
+            pixels = data;
+            stride = grown.getWidth();
+        } else {
+            // pixels hidden by an earlier shrink are stale, uncovered parts start with the clear color
+            int clearColor = stored(color);
+            PixelOps.fillRect(pixels, stride, oldWidth, 0, width - oldWidth, Math.min(oldHeight, height), clearColor);
+            PixelOps.fillRect(pixels, stride, 0, oldHeight, width, height - oldHeight, clearColor);
+        }
+        img = width == store.getWidth() && height == store.getHeight() ? store : store.getSubimage(0, 0, width, height);
+        markAllDirty();
+    }
+
     // get image width
     @Override
     public int getWidth() {
@@ -81,4 +328,111 @@ public class RasterBufferedImage implements Raster {
     public int getHeight() {
         return img.getHeight();
     }
-}
\ No newline at end of file
+
+    // return bounds touched since last call and reset tracking
+    @Override
+    public Rectangle takeDirtyRegion() {
+        if (dirtyMinX > dirtyMaxX) {
+            return null;
+        }
+        Rectangle region = new Rectangle(dirtyMinX, dirtyMinY,
+                dirtyMaxX - dirtyMinX + 1, dirtyMaxY - dirtyMinY + 1);
+        dirtyMinX = Integer.MAX_VALUE;
+        dirtyMinY = Integer.MAX_VALUE;
+        dirtyMaxX = Integer.MIN_VALUE;
+        dirtyMaxY = Integer.MIN_VALUE;
+        return region;
+    }
+
+    // switch recording of touched pixels
+    @Override
+    public void setDirtyTracking(boolean enabled) {
+        dirtyTracking = enabled;
+    }
+
+    // add region clipped to the image to the dirty bounds
+    @Override
+    public void markDirty(Rectangle region) {
+        int x0 = Math.max(0, region.x);
+        int y0 = Math.max(0, region.y);
+        int x1 = Math.min(getWidth(), region.x + region.width);
+        int y1 = Math.min(getHeight(), region.y + region.height);
+        if (x0 >= x1 || y0 >= y1) return;
+        markDirty(x0, y0);
+        markDirty(x1 - 1, y1 - 1);
+    }
+
+    // scan right in the pixel buffer for a pixel matching color
+    @Override
+    public int findPixel(int x, int y, int toX, int color) {
+        int from = Math.max(0, x);
+        int to = Math.min(getWidth(), toX);
+        if (y < 0 || y >= getHeight() || from >= to) return toX;
+
+        int row = y * stride;
+        int found = PixelOps.scanFor(getPixelData(), row + from, row + to, stored(color), colorMask()) - row;
+        return found < to ? found : toX;
+    }
+
+    // check if raster keeps its pixels in the same int layout as this one
+    private boolean hasSameLayout(Raster source) {
+        return source instanceof RasterBufferedImage && ((RasterBufferedImage) source).imageType == imageType;
+    }
+
+    // bits that take part in color comparison, alpha is undefined without an alpha channel
+    private int colorMask() {
+        return img.getColorModel().hasAlpha() ? 0xffffffff : 0x00ffffff;
+    }
+
+    // color as kept in the pixel buffer
+    private int stored(int color) {
+        return premultiplied ? PixelOps.premultiply(color) : color;
+    }
+
+    // check if source-over can run on the buffer without converting straight alpha
+    private boolean hasOpaqueOrPremultipliedPixels() {
+        return premultiplied || imageType == BufferedImage.TYPE_INT_RGB;
+    }
+
+    // alpha bits forced into destination pixels, the rgb layout keeps no alpha
+    private int opaqueAlpha() {
+        return premultiplied ? 0 : 0xff000000;
+    }
+
+    // check if the pixel buffer holds premultiplied colors
+    boolean isPremultiplied() {
+        return premultiplied;
+    }
+
+    // direct access to the int pixel buffer for bulk operations in this package
+    int[] getPixelData() {
+        return pixels;
+    }
+
+    // get distance between rows in the pixel buffer, wider than the image once it was resized
+    int getStride() {
+        return stride;
+    }
+
+    // round size up to whole chunks
+    private static int alignToChunk(int size) {
+        return Math.max(CHUNK, (size + CHUNK - 1) / CHUNK * CHUNK);
+    }
+
+    // extend dirty bounds by one pixel
+    private void markDirty(int x, int y) {
+        if (!dirtyTracking) return;
+        if (x < dirtyMinX) dirtyMinX = x;
+        if (x > dirtyMaxX) dirtyMaxX = x;
+        if (y < dirtyMinY) dirtyMinY = y;
+        if (y > dirtyMaxY) dirtyMaxY = y;
+    }
+
+    // mark the whole image as dirty
+    private void markAllDirty() {
+        dirtyMinX = 0;
+        dirtyMinY = 0;
+        dirtyMaxX = img.getWidth() - 1;
+        dirtyMaxY = img.getHeight() - 1;
+    }
+}
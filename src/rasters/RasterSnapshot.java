@@ -0,0 +1,116 @@
+package rasters;
+
+import java.io.*;
+
+public class RasterSnapshot {
+    private final int width;
+    private final int height;
+
+    // row-wise run length encoding as length,color pairs, null once spilled to disk
+    private int[] runs;
+    private int runCount;
+    private File spillFile;
+
+    // capture raster content as run length encoded rows
+    public RasterSnapshot(Raster source) {
+        this.width = source.getWidth();
+        this.height = source.getHeight();
+
+        int[] encoded = new int[256];
+        int count = 0;
+        int[] data = source instanceof RasterBufferedImage ? ((RasterBufferedImage) source).getPixelData() : null;
+        boolean premultiplied = data != null && ((RasterBufferedImage) source).isPremultiplied();
+        int stride = data != null ? ((RasterBufferedImage) source).getStride() : width;
+
+        for (int y = 0; y < height; y++) {
+            int x = 0;
+            while (x < width) {
+                int row = y * stride;
+                int color = data != null ? data[row + x] : source.getPixel(x, y);
+                int end = data != null
+                        ? PixelOps.scanEqual(data, row + x + 1, row + width, color, 0xffffffff) - row
+                        : source.findSpanEnd(x + 1, y, color);
+
+                if (count * 2 + 2 > encoded.length) {
+                    int[] grown = new int[encoded.length * 2];
+                    System.arraycopy(encoded, 0, grown, 0, count * 2);
+                    encoded = grown;
+                }
+                encoded[count * 2] = end - x;
+                // runs hold straight colors, restoring goes through fillSpan
+                encoded[count * 2 + 1] = premultiplied ? PixelOps.unpremultiply(color) : color;
+                count++;
+                x = end;
+            }
+        }
+
+        this.runs = new int[count * 2];
+        System.arraycopy(encoded, 0, runs, 0, count * 2);
+        this.runCount = count;
+    }
+
+    // check if snapshot fits given raster size
+    public boolean matches(Raster target) {
+        return target.getWidth() == width && target.getHeight() == height;
+    }
+
+    // write content back into raster of the same size
+    public void restoreInto(Raster target) throws IOException {
+        int[] data = runs != null ? runs : readSpill();
+        int x = 0;
+        int y = 0;
+        for (int i = 0; i < runCount; i++) {
+            int length = data[i * 2];
+            target.fillSpan(x, y, length, data[i * 2 + 1]);
+            x += length;
+            if (x >= width) {
+                x = 0;
+                y++;
+            }
+        }
+    }
+
+    // get approximate heap size of encoded data, 0 once spilled
+    public long getMemorySize() {
+        return runs != null ? (long) runs.length * Integer.BYTES : 0;
+    }
+
+    // move encoded data to a temporary file and release heap memory
+    public void spill() throws IOException {
+        if (runs == null) return;
+
+        File file = File.createTempFile("draw-checkpoint", ".rle");
+        file.deleteOnExit();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            for (int value : runs) {
+                out.writeInt(value);
+            }
+        }
+        spillFile = file;
+        runs = null;
+    }
+
+    // delete spilled data if any
+    public void dispose() {
+        if (spillFile != null) {
+            spillFile.delete();
+            spillFile = null;
+        }
+        runs = null;
+    }
+
+    // load encoded data from spill file
+    private int[] readSpill() throws IOException {
+        if (spillFile == null) {
+            throw new IOException("Snapshot was disposed.");
+        }
+
+        int[] data = new int[runCount * 2];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile)))) {
+            for (int i = 0; i < data.length; i++) {
+                data[i] = in.readInt();
+            }
+        }
+        return data;
+    }
+}
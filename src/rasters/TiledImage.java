@@ -0,0 +1,266 @@
+package rasters;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class TiledImage {
+    public static final int TILE_SIZE = 256;
+
+    // decoded tiles of all open images share this budget
+    private static final long CACHE_BUDGET_BYTES = 64L << 20;
+    // images keeping a file handle open, the least recently opened one is closed beyond this
+    private static final int MAX_OPEN = 8;
+    private static final Map<String, TiledImage> OPEN = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TiledImage> eldest) {
+            if (size() <= MAX_OPEN) return false;
+            eldest.getValue().close();
+            return true;
+        }
+    };
+    private static final Map<TileKey, int[]> TILES = new LinkedHashMap<>(64, 0.75f, true);
+    private static long cachedBytes;
+
+    private final String path;
+    // guards the reader, which is closed on eviction and reopened by a holder still decoding
+    private final Object readLock = new Object();
+    private ImageInputStream input;
+    private ImageReader reader;
+    private final int width;
+    private final int height;
+
+    // open image file and read only its header
+    private TiledImage(String path) throws IOException {
+        this.path = path;
+        openReader();
+        this.width = reader.getWidth(0);
+        this.height = reader.getHeight(0);
+    }
+
+    // open file stream and its reader, called with readLock held or from the constructor
+    private void openReader() throws IOException {
+        input = ImageIO.createImageInputStream(new File(path));
+        if (input == null) throw new IOException("Cannot open " + path);
+
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            input.close();
+            input = null;
+            throw new IOException("Unsupported image format: " + path);
+        }
+        reader = readers.next();
+        reader.setInput(input, false, true);
+    }
+
+    // release file handle and decoded tiles of image dropped from the open set
+    private void close() {
+        synchronized (readLock) {
+            if (reader != null) {
+                reader.dispose();
+                reader = null;
+            }
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException ignored) {
+                    // the handle is gone either way
+                }
+                input = null;
+            }
+        }
+        synchronized (TILES) {
+            Iterator<TileKey> iterator = TILES.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().image == this) {
+                    iterator.remove();
+                    cachedBytes -= TILE_SIZE * TILE_SIZE * 4L;
+                }
+            }
+        }
+    }
+
+    // get shared instance for image file, decoding nothing yet
+    public static TiledImage open(String path) throws IOException {
+        synchronized (OPEN) {
+            TiledImage image = OPEN.get(path);
+            if (image == null) {
+                image = new TiledImage(path);
+                OPEN.put(path, image);
+            }
+            return image;
+        }
+    }
+
+    // get full resolution width
+    public int getWidth() {
+        return width;
+    }
+
+    // get full resolution height
+    public int getHeight() {
+        return height;
+    }
+
+    // get source file path
+    public String getPath() {
+        return path;
+    }
+
+    // largest power of two subsampling that still gives at least one decoded pixel per shown pixel
+    public int chooseSubsampling(int shownWidth, int shownHeight) {
+        double ratio = Math.min(width / (double) Math.max(1, shownWidth), height / (double) Math.max(1, shownHeight));
+        int subsampling = 1;
+        while (subsampling * 2 <= ratio) {
+            subsampling *= 2;
+        }
+        return subsampling;
+    }
+
+    // get width of image decoded with given subsampling
+    public int getLevelWidth(int subsampling) {
+        return (width + subsampling - 1) / subsampling;
+    }
+
+    // get height of image decoded with given subsampling
+    public int getLevelHeight(int subsampling) {
+        return (height + subsampling - 1) / subsampling;
+    }
+
+    // get ARGB tile of image decoded with given subsampling, decoding it on first use
+    public int[] getTile(int subsampling, int tileX, int tileY) throws IOException {
+        TileKey key = new TileKey(this, subsampling, tileX, tileY);
+        synchronized (TILES) {
+            int[] tile = TILES.get(key);
+            if (tile != null) return tile;
+        }
+        return decodeTiles(subsampling, tileX, tileY, tileX, tileY).get(key);
+    }
+
+    // decode all missing tiles covering region of the subsampled image with one region read
+    public void ensureTiles(int subsampling, Rectangle region) throws IOException {
+        int levelWidth = getLevelWidth(subsampling);
+        int levelHeight = getLevelHeight(subsampling);
+        Rectangle clipped = region.intersection(new Rectangle(0, 0, levelWidth, levelHeight));
+        if (clipped.isEmpty()) return;
+
+        int tx0 = clipped.x / TILE_SIZE, ty0 = clipped.y / TILE_SIZE;
+        int tx1 = (clipped.x + clipped.width - 1) / TILE_SIZE;
+        int ty1 = (clipped.y + clipped.height - 1) / TILE_SIZE;
+
+        // shrink the decoded block to the bounding box of tiles not cached yet
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = -1, maxY = -1;
+        synchronized (TILES) {
+            for (int ty = ty0; ty <= ty1; ty++) {
+                for (int tx = tx0; tx <= tx1; tx++) {
+                    if (!TILES.containsKey(new TileKey(this, subsampling, tx, ty))) {
+                        minX = Math.min(minX, tx);
+                        minY = Math.min(minY, ty);
+                        maxX = Math.max(maxX, tx);
+                        maxY = Math.max(maxY, ty);
+                    }
+                }
+            }
+        }
+        if (maxX >= 0) {
+            decodeTiles(subsampling, minX, minY, maxX, maxY);
+        }
+    }
+
+    // read block of tiles from file with source region and subsampling, then cut it into tiles
+    private Map<TileKey, int[]> decodeTiles(int subsampling, int tx0, int ty0, int tx1, int ty1) throws IOException {
+        int levelWidth = getLevelWidth(subsampling);
+        int levelHeight = getLevelHeight(subsampling);
+        int x = tx0 * TILE_SIZE;
+        int y = ty0 * TILE_SIZE;
+        int blockWidth = Math.min(levelWidth, (tx1 + 1) * TILE_SIZE) - x;
+        int blockHeight = Math.min(levelHeight, (ty1 + 1) * TILE_SIZE) - y;
+
+        BufferedImage block;
+        synchronized (readLock) {
+            if (reader == null) openReader();
+            ImageReadParam param = reader.getDefaultReadParam();
+            int sourceX = x * subsampling;
+            int sourceY = y * subsampling;
+            param.setSourceRegion(new Rectangle(sourceX, sourceY,
+                    Math.min(width - sourceX, blockWidth * subsampling),
+                    Math.min(height - sourceY, blockHeight * subsampling)));
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            block = reader.read(0, param);
+        }
+
+        Map<TileKey, int[]> decoded = new HashMap<>();
+        int[] row = new int[TILE_SIZE];
+        for (int ty = ty0; ty <= ty1; ty++) {
+            for (int tx = tx0; tx <= tx1; tx++) {
+                int[] tile = new int[TILE_SIZE * TILE_SIZE];
+                int fromX = tx * TILE_SIZE - x;
+                int fromY = ty * TILE_SIZE - y;
+                int w = Math.min(TILE_SIZE, block.getWidth() - fromX);
+                int h = Math.min(TILE_SIZE, block.getHeight() - fromY);
+                for (int j = 0; j < h; j++) {
+                    block.getRGB(fromX, fromY + j, w, 1, row, 0, TILE_SIZE);
+                    System.arraycopy(row, 0, tile, j * TILE_SIZE, w);
+                }
+                decoded.put(new TileKey(this, subsampling, tx, ty), tile);
+            }
+        }
+
+        synchronized (TILES) {
+            for (Map.Entry<TileKey, int[]> entry : decoded.entrySet()) {
+                if (TILES.put(entry.getKey(), entry.getValue()) == null) {
+                    cachedBytes += TILE_SIZE * TILE_SIZE * 4L;
+                }
+            }
+            evict();
+        }
+        return decoded;
+    }
+
+    // drop least recently used tiles over budget
+    private static void evict() {
+        Iterator<int[]> iterator = TILES.values().iterator();
+        while (cachedBytes > CACHE_BUDGET_BYTES && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            cachedBytes -= TILE_SIZE * TILE_SIZE * 4L;
+        }
+    }
+
+    // cache key of one decoded tile
+    private static class TileKey {
+        final TiledImage image;
+        final int subsampling;
+        final int tileX;
+        final int tileY;
+
+        TileKey(TiledImage image, int subsampling, int tileX, int tileY) {
+            this.image = image;
+            this.subsampling = subsampling;
+            this.tileX = tileX;
+            this.tileY = tileY;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TileKey)) return false;
+            TileKey other = (TileKey) o;
+            return image == other.image && subsampling == other.subsampling
+                    && tileX == other.tileX && tileY == other.tileY;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((System.identityHashCode(image) * 31 + subsampling) * 31 + tileX) * 31 + tileY;
+        }
+    }
+}
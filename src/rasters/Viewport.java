@@ -0,0 +1,133 @@
+package rasters;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+public class Viewport {
+    private static final double MIN_ZOOM = 1.0 / 64;
+    private static final double MAX_ZOOM = 32;
+
+    private final Raster raster;
+    private final MipmapPyramid pyramid;
+
+    // view transform in device pixels: device = raster * zoom + pan
+    private double zoom = 1;
+    private double panX = 0;
+    private double panY = 0;
+
+    // device pixels per screen unit of the display, e.g. 2 on a HiDPI screen scaled to 200 %
+    private double deviceScale = 1;
+
+    // create viewport showing given raster at 1:1
+    public Viewport(Raster raster) {
+        this.raster = raster;
+        this.pyramid = new MipmapPyramid(raster);
+    }
+
+    // get current zoom factor
+    public double getZoom() {
+        return zoom;
+    }
+
+    // get device pixels per screen unit
+    public double getDeviceScale() {
+        return deviceScale;
+    }
+
+    // set device pixels per screen unit, at zoom 1 one raster pixel then covers one device pixel
+    public void setDeviceScale(double deviceScale) {
+        this.deviceScale = deviceScale;
+    }
+
+    // reset to 1:1 with raster origin at top left
+    public void reset() {
+        zoom = 1;
+        panX = 0;
+        panY = 0;
+    }
+
+    // move view by screen delta
+    public void pan(double dx, double dy) {
+        panX += dx * deviceScale;
+        panY += dy * deviceScale;
+    }
+
+    // multiply zoom keeping the raster point under the screen anchor fixed
+    public void zoomAt(double factor, int anchorX, int anchorY) {
+        double newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * factor));
+        double deviceX = anchorX * deviceScale;
+        double deviceY = anchorY * deviceScale;
+        double rasterX = (deviceX - panX) / zoom;
+        double rasterY = (deviceY - panY) / zoom;
+        zoom = newZoom;
+        panX = deviceX - rasterX * zoom;
+        panY = deviceY - rasterY * zoom;
+    }
+
+    // map screen x coordinate to raster coordinate
+    public int toRasterX(int screenX) {
+        return (int) Math.floor((screenX * deviceScale - panX) / zoom);
+    }
+
+    // map screen y coordinate to raster coordinate
+    public int toRasterY(int screenY) {
+        return (int) Math.floor((screenY * deviceScale - panY) / zoom);
+    }
+
+    // map raster rectangle to the screen rectangle covering it
+    public Rectangle toScreen(Rectangle region) {
+        return toScreen(region.x, region.y, region.width, region.height, new Rectangle());
+    }
+
+    // map raster rectangle into out without allocating, returns out
+    public Rectangle toScreen(int x, int y, int width, int height, Rectangle out) {
+        int x0 = (int) Math.floor((x * zoom + panX) / deviceScale);
+        int y0 = (int) Math.floor((y * zoom + panY) / deviceScale);
+        int x1 = (int) Math.ceil(((x + width) * zoom + panX) / deviceScale);
+        int y1 = (int) Math.ceil(((y + height) * zoom + panY) / deviceScale);
+        out.setBounds(x0, y0, x1 - x0, y1 - y0);
+        return out;
+    }
+
+    // draw visible part of the raster, sampling a mipmap level when zoomed out
+    public void paint(Graphics graphics) {
+        pyramid.invalidate(raster.takeDirtyRegion());
+
+        // smallest level that is still at least as detailed as the screen
+        int level = 0;
+        while (zoom * (1 << (level + 1)) <= 1 && level + 1 < pyramid.getLevelCount()) {
+            level++;
+        }
+        BufferedImage image = pyramid.getLevel(level);
+        double scale = zoom * (1 << level);
+
+        // draw in device pixels, so the backing store is not scaled up on HiDPI screens
+        Graphics2D g = (Graphics2D) graphics.create();
+        if (deviceScale != 1) {
+            g.scale(1 / deviceScale, 1 / deviceScale);
+        }
+
+        // limit drawing to the part of the level inside the clip
+        Rectangle clip = g.getClipBounds();
+        int sx0 = 0, sy0 = 0, sx1 = image.getWidth(), sy1 = image.getHeight();
+        if (clip != null) {
+            sx0 = Math.max(sx0, (int) Math.floor((clip.x - panX) / scale));
+            sy0 = Math.max(sy0, (int) Math.floor((clip.y - panY) / scale));
+            sx1 = Math.min(sx1, (int) Math.ceil((clip.x + clip.width - panX) / scale));
+            sy1 = Math.min(sy1, (int) Math.ceil((clip.y + clip.height - panY) / scale));
+        }
+        if (sx0 >= sx1 || sy0 >= sy1) {
+            g.dispose();
+            return;
+        }
+
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, scale < 1
+                ? RenderingHints.VALUE_INTERPOLATION_BILINEAR
+                : RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g.drawImage(image,
+                (int) Math.round(panX + sx0 * scale), (int) Math.round(panY + sy0 * scale),
+                (int) Math.round(panX + sx1 * scale), (int) Math.round(panY + sy1 * scale),
+                sx0, sy0, sx1, sy1, null);
+        g.dispose();
+    }
+}
@@ -0,0 +1,174 @@
+package storage;
+
+import logging.Logger;
+import models.DisplayList;
+import models.DrawOp;
+
+import javax.swing.Timer;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class Autosaver implements DisplayList.Listener {
+    private static final Logger LOG = Logger.get("autosave");
+    private static final int DEFAULT_INTERVAL_MILLIS = 2000;
+
+    private final Journal journal;
+    private final ExecutorService writer;
+    private final Timer timer;
+    private DisplayList displayList;
+
+    // journal ids of recorded operations, only touched on the event thread
+    private final Map<DrawOp, Integer> ids = new IdentityHashMap<>();
+    private final Map<DrawOp, Boolean> pendingEncode = new IdentityHashMap<>();
+    private final List<Pending> pending = new ArrayList<>();
+    private int nextId;
+    private boolean resync;
+
+    // edit waiting for the next flush, operation is encoded only then
+    private static class Pending {
+        final int kind;
+        final int id;
+        final DrawOp op;
+
+        Pending(int kind, int id, DrawOp op) {
+            this.kind = kind;
+            this.id = id;
+            this.op = op;
+        }
+    }
+
+    // create autosaver writing to given journal file
+    public Autosaver(Path file) {
+        this.journal = new Journal(file);
+        this.writer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "autosave");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        this.timer = new Timer(DEFAULT_INTERVAL_MILLIS, e -> flush());
+        this.timer.setRepeats(true);
+    }
+
+    // read document saved in journal with every operation on its layer, empty when there is none
+    public static DisplayList recover(Path file) throws IOException {
+        DisplayList list = new DisplayList();
+        for (byte[] record : Journal.read(file).values()) {
+            OpCodec.decodeInto(record, list);
+        }
+        return list;
+    }
+
+    // start tracking document, its current content is written as a fresh journal
+    public void attach(DisplayList displayList) {
+        this.displayList = displayList;
+        displayList.addListener(this);
+        for (DrawOp op : displayList.getOps()) {
+            ids.put(op, nextId++);
+        }
+        resync = true;
+        timer.start();
+    }
+
+    @Override
+    public void opAdded(DrawOp op) {
+        int id = nextId++;
+        ids.put(op, id);
+        pending.add(new Pending(Journal.ADD, id, op));
+        pendingEncode.put(op, Boolean.TRUE);
+    }
+
+    @Override
+    public void opRemoved(DrawOp op) {
+        Integer id = ids.remove(op);
+        if (id != null) {
+            pending.add(new Pending(Journal.REMOVE, id, null));
+        }
+    }
+
+    @Override
+    public void opChanged(DrawOp op) {
+        if (op == null) {
+            resync = true;
+            return;
+        }
+        Integer id = ids.get(op);
+        if (id != null && !pendingEncode.containsKey(op)) {
+            pending.add(new Pending(Journal.SET, id, op));
+            pendingEncode.put(op, Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public void cleared() {
+        ids.clear();
+        pending.clear();
+        pendingEncode.clear();
+        pending.add(new Pending(Journal.CLEAR, 0, null));
+    }
+
+    // encode edits since the last flush on the calling thread and write them in the background
+    public void flush() {
+        if (displayList == null || (pending.isEmpty() && !resync)) return;
+
+        // only changed operations are encoded here, the file work happens on the writer thread
+        List<Journal.Record> records = new ArrayList<>();
+        try {
+            if (resync) {
+                records.add(new Journal.Record(Journal.CLEAR, 0, null));
+                for (DrawOp op : displayList.getOps()) {
+                    byte[] data = OpCodec.encode(op, displayList.getLayer(op));
+                    records.add(new Journal.Record(Journal.ADD, ids.get(op), data));
+                }
+            } else {
+                for (Pending edit : pending) {
+                    byte[] data = edit.op != null && ids.containsKey(edit.op)
+                            ? OpCodec.encode(edit.op, displayList.getLayer(edit.op)) : null;
+                    if (edit.kind != Journal.REMOVE && edit.kind != Journal.CLEAR && data == null) continue;
+                    records.add(new Journal.Record(edit.kind, edit.id, data));
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Autosave failed: {}", e.getMessage());
+            return;
+        } finally {
+            pending.clear();
+            pendingEncode.clear();
+            resync = false;
+        }
+
+        writer.execute(() -> {
+            try {
+                journal.append(records);
+            } catch (IOException e) {
+                LOG.warn("Autosave failed: {}", e.getMessage());
+            }
+        });
+    }
+
+    // flush remaining edits and wait for the writer to finish
+    public void close() {
+        timer.stop();
+        flush();
+        writer.execute(() -> {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                LOG.warn("Autosave failed: {}", e.getMessage());
+            }
+        });
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
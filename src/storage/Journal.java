@@ -0,0 +1,190 @@
+package storage;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+class Journal {
+    // record kinds
+    static final int ADD = 1;
+    static final int SET = 2;
+    static final int REMOVE = 3;
+    static final int CLEAR = 4;
+
+    private static final int MAGIC = 0x44444A31;
+    // compaction starts once the journal is this much larger than the live document
+    private static final long MIN_COMPACT_BYTES = 1 << 20;
+
+    private final Path file;
+    private final Map<Integer, byte[]> live = new LinkedHashMap<>();
+    private long liveBytes;
+    private long journalBytes;
+    private FileChannel channel;
+
+    // journal entry, data is the encoded operation for ADD and SET
+    static class Record {
+        final int kind;
+        final int id;
+        final byte[] data;
+
+        Record(int kind, int id, byte[] data) {
+            this.kind = kind;
+            this.id = id;
+            this.data = data;
+        }
+    }
+
+    // create journal, the file is rewritten from scratch on the first append
+    Journal(Path file) {
+        this.file = file;
+    }
+
+    // append records, make them durable and compact when the journal outgrew the document
+    void append(List<Record> records) throws IOException {
+        if (channel == null) {
+            rewrite();
+        }
+
+        ByteBuffer buffer = encode(records);
+        for (Record record : records) {
+            apply(live, record);
+        }
+        liveBytes = 0;
+        for (byte[] data : live.values()) liveBytes += data.length + 17;
+
+        journalBytes += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+
+        if (journalBytes > MIN_COMPACT_BYTES && journalBytes > liveBytes * 2) {
+            rewrite();
+        }
+    }
+
+    // close underlying file
+    void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    // write current document to a fresh file and atomically replace the journal with it
+    private void rewrite() throws IOException {
+        close();
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        List<Record> records = new ArrayList<>(live.size());
+        for (Map.Entry<Integer, byte[]> entry : live.entrySet()) {
+            records.add(new Record(ADD, entry.getKey(), entry.getValue()));
+        }
+        ByteBuffer buffer = encode(records);
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(4).putInt(MAGIC);
+            header.flip();
+            out.write(header);
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        journalBytes = Files.size(file);
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // read journal into ordered map of operation records, a torn tail ends reading quietly
+    static Map<Integer, byte[]> read(Path file) throws IOException {
+        Map<Integer, byte[]> state = new LinkedHashMap<>();
+        if (!Files.exists(file)) return state;
+
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not an autosave journal: " + file);
+
+            CRC32 crc = new CRC32();
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                long checksum = in.readInt() & 0xffffffffL;
+                if (length < 5 || length > (1 << 28)) break;
+
+                byte[] payload = new byte[length];
+                try {
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload);
+                if (crc.getValue() != checksum) break;
+
+                ByteBuffer buffer = ByteBuffer.wrap(payload);
+                int kind = buffer.get();
+                int id = buffer.getInt();
+                byte[] data = new byte[buffer.remaining()];
+                buffer.get(data);
+                apply(state, new Record(kind, id, data));
+            }
+        }
+        return state;
+    }
+
+    // apply record to ordered document state
+    private static void apply(Map<Integer, byte[]> state, Record record) {
+        switch (record.kind) {
+            case ADD -> {
+                state.remove(record.id);
+                state.put(record.id, record.data);
+            }
+            case SET -> state.replace(record.id, record.data);
+            case REMOVE -> state.remove(record.id);
+            case CLEAR -> state.clear();
+        }
+    }
+
+    // frame records as length, crc32 and payload of kind, id and data
+    private static ByteBuffer encode(List<Record> records) {
+        int size = 0;
+        for (Record record : records) {
+            size += 8 + 5 + (record.data != null ? record.data.length : 0);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        CRC32 crc = new CRC32();
+        for (Record record : records) {
+            int dataLength = record.data != null ? record.data.length : 0;
+            ByteBuffer payload = ByteBuffer.allocate(5 + dataLength);
+            payload.put((byte) record.kind).putInt(record.id);
+            if (record.data != null) payload.put(record.data);
+
+            crc.reset();
+            crc.update(payload.array());
+            buffer.putInt(payload.capacity()).putInt((int) crc.getValue()).put(payload.array());
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,138 @@
+package storage;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+final class Lz4Block {
+    private static final int MIN_MATCH = 4;
+    // the last match must start this far from the end and the last bytes are always literals
+    private static final int MF_LIMIT = 12;
+    private static final int LAST_LITERALS = 5;
+    private static final int MAX_OFFSET = 65535;
+    private static final int HASH_BITS = 14;
+
+    private Lz4Block() {
+    }
+
+    // compress bytes into an LZ4 block with greedy hash matching
+    static byte[] compress(byte[] src, int length) {
+        byte[] dst = new byte[length + length / 255 + 16];
+        int op = 0;
+        int anchor = 0;
+
+        if (length > MF_LIMIT) {
+            int[] table = new int[1 << HASH_BITS];
+            Arrays.fill(table, -1);
+            int limit = length - MF_LIMIT;
+            int matchLimit = length - LAST_LITERALS;
+
+            int ip = 0;
+            while (ip < limit) {
+                int sequence = readInt(src, ip);
+                int hash = (sequence * -1640531535) >>> (32 - HASH_BITS);
+                int ref = table[hash];
+                table[hash] = ip;
+
+                if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                    ip++;
+                    continue;
+                }
+
+                int matchLength = MIN_MATCH;
+                while (ip + matchLength < matchLimit && src[ref + matchLength] == src[ip + matchLength]) {
+                    matchLength++;
+                }
+                op = writeSequence(src, anchor, ip - anchor, ip - ref, matchLength, dst, op);
+                ip += matchLength;
+                anchor = ip;
+            }
+        }
+
+        op = writeLiterals(src, anchor, length - anchor, dst, op);
+        return Arrays.copyOf(dst, op);
+    }
+
+    // decompress LZ4 block into dst, which must hold exactly the original length
+    static void decompress(byte[] src, int length, byte[] dst, int dstLength) throws IOException {
+        int ip = 0;
+        int op = 0;
+        try {
+            while (ip < length) {
+                int token = src[ip++] & 0xff;
+                int literalLength = token >>> 4;
+                if (literalLength == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xff;
+                        literalLength += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(src, ip, dst, op, literalLength);
+                ip += literalLength;
+                op += literalLength;
+                if (ip >= length) break;
+
+                int offset = (src[ip] & 0xff) | (src[ip + 1] & 0xff) << 8;
+                ip += 2;
+                int matchLength = token & 15;
+                if (matchLength == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xff;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += MIN_MATCH;
+                if (offset == 0 || offset > op) throw new IOException("Corrupt LZ4 block");
+
+                // matches may overlap their own output
+                for (int from = op - offset, end = op + matchLength; op < end; ) {
+                    dst[op++] = dst[from++];
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Corrupt LZ4 block", e);
+        }
+        if (op != dstLength) throw new IOException("LZ4 block has " + op + " bytes, expected " + dstLength);
+    }
+
+    // write token, literals, offset and match length extension
+    private static int writeSequence(byte[] src, int literalsFrom, int literalLength, int offset, int matchLength,
+                                     byte[] dst, int op) {
+        int matchCode = matchLength - MIN_MATCH;
+        int token = op++;
+        dst[token] = (byte) ((Math.min(literalLength, 15) << 4) | Math.min(matchCode, 15));
+        op = writeLength(literalLength, dst, op);
+        System.arraycopy(src, literalsFrom, dst, op, literalLength);
+        op += literalLength;
+
+        dst[op++] = (byte) offset;
+        dst[op++] = (byte) (offset >>> 8);
+        return writeLength(matchCode, dst, op);
+    }
+
+    // write final literal-only sequence
+    private static int writeLiterals(byte[] src, int from, int literalLength, byte[] dst, int op) {
+        dst[op++] = (byte) (Math.min(literalLength, 15) << 4);
+        op = writeLength(literalLength, dst, op);
+        System.arraycopy(src, from, dst, op, literalLength);
+        return op + literalLength;
+    }
+
+    // write remainder of a length that did not fit into the token nibble
+    private static int writeLength(int length, byte[] dst, int op) {
+        if (length < 15) return op;
+        length -= 15;
+        while (length >= 255) {
+            dst[op++] = (byte) 255;
+            length -= 255;
+        }
+        dst[op++] = (byte) length;
+        return op;
+    }
+
+    // read four bytes as little-endian int
+    private static int readInt(byte[] b, int i) {
+        return (b[i] & 0xff) | (b[i + 1] & 0xff) << 8 | (b[i + 2] & 0xff) << 16 | (b[i + 3] & 0xff) << 24;
+    }
+}
@@ -0,0 +1,227 @@
+package storage;
+
+import models.DashPattern;
+import models.DisplayList;
+import models.DrawOp;
+import models.FillOp;
+import models.FillPaint;
+import models.ImageOp;
+import models.Line;
+import models.LineOp;
+import models.LineStyle;
+import models.Point;
+import models.Polygon;
+import models.PolygonOp;
+import models.StrokeOp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+public final class OpCodec {
+    private static final int LINE = 1;
+    private static final int POLYGON = 2;
+    private static final int STROKE = 3;
+    private static final int FILL = 4;
+    private static final int IMAGE = 5;
+    private static final int VARIABLE_STROKE = 6;
+    private static final int SHADED_FILL = 7;
+    private static final int FILLED_POLYGON = 8;
+
+    private OpCodec() {
+    }
+
+    // encode operation drawn on given layer into a self-contained byte record
+    public static byte[] encode(DrawOp op, int layer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        if (op instanceof LineOp) {
+            LineOp lineOp = (LineOp) op;
+            Line line = lineOp.getLine();
+            out.writeByte(LINE);
+            out.writeInt(line.getColor());
+            writeStyle(out, line.getStyle());
+            out.writeInt(lineOp.getWidth());
+            writePoint(out, line.getPoint1());
+            writePoint(out, line.getPoint2());
+
+            // custom dash pattern differing from the style one
+            DashPattern pattern = line.getDashPattern();
+            DashPattern stylePattern = line.getStyle() != null ? line.getStyle().getPattern() : null;
+            int[] runs = pattern != null && pattern != stylePattern ? pattern.getRuns() : new int[0];
+            out.writeInt(runs.length);
+            for (int run : runs) out.writeInt(run);
+        } else if (op instanceof PolygonOp) {
+            PolygonOp polygonOp = (PolygonOp) op;
+            List<Point> points = polygonOp.getPolygon().getPoints();
+            out.writeByte(polygonOp.getFill() != null ? FILLED_POLYGON : POLYGON);
+            out.writeInt(polygonOp.getColor());
+            writeStyle(out, polygonOp.getStyle());
+            out.writeInt(polygonOp.getWidth());
+            out.writeInt(points.size());
+            for (Point p : points) writePoint(out, p);
+            if (polygonOp.getFill() != null) writePaint(out, polygonOp.getFill());
+        } else if (op instanceof StrokeOp) {
+            StrokeOp strokeOp = (StrokeOp) op;
+            boolean variable = strokeOp.isVariableWidth();
+            out.writeByte(variable ? VARIABLE_STROKE : STROKE);
+            out.writeInt(strokeOp.getColor());
+            writeStyle(out, strokeOp.getStyle());
+            out.writeInt(strokeOp.getWidth());
+            out.writeInt(strokeOp.getPointCount());
+            for (int i = 0; i < strokeOp.getPointCount(); i++) {
+                out.writeInt(strokeOp.getX(i));
+                out.writeInt(strokeOp.getY(i));
+                if (variable) out.writeInt(strokeOp.getWidth(i));
+            }
+        } else if (op instanceof FillOp) {
+            FillOp fillOp = (FillOp) op;
+            out.writeByte(fillOp.getPaint() != null ? SHADED_FILL : FILL);
+            out.writeInt(fillOp.getColor());
+            out.writeInt(fillOp.getX());
+            out.writeInt(fillOp.getY());
+            if (fillOp.getPaint() != null) writePaint(out, fillOp.getPaint());
+        } else if (op instanceof ImageOp) {
+            ImageOp imageOp = (ImageOp) op;
+            out.writeByte(IMAGE);
+            // images have no color, the field keeps the common record header
+            out.writeInt(0);
+            out.writeUTF(imageOp.getPath());
+            out.writeInt(imageOp.getX());
+            out.writeInt(imageOp.getY());
+            out.writeInt(imageOp.getWidth());
+            out.writeInt(imageOp.getHeight());
+        } else {
+            throw new IOException("Unsupported operation: " + op.getClass().getSimpleName());
+        }
+        // the bottom layer is left out, so its records read the same as before there were layers
+        if (layer != 0) {
+            out.writeInt(layer);
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    // decode record written by encode and append its operation to the layer it was drawn on
+    public static void decodeInto(byte[] record, DisplayList list) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        DrawOp op = read(in);
+        list.add(op, in.available() >= 4 ? in.readInt() : 0);
+    }
+
+    // read operation fields, a layer may follow them
+    private static DrawOp read(DataInputStream in) throws IOException {
+        int type = in.readByte();
+        int color = in.readInt();
+
+        switch (type) {
+            case LINE -> {
+                LineStyle style = readStyle(in);
+                int width = in.readInt();
+                Point a = readPoint(in);
+                Point b = readPoint(in);
+                int[] runs = new int[in.readInt()];
+                for (int i = 0; i < runs.length; i++) runs[i] = in.readInt();
+                DashPattern pattern = runs.length > 0 ? new DashPattern(runs) : null;
+                return new LineOp(new Line(a, b, color, style, pattern), width);
+            }
+            case POLYGON, FILLED_POLYGON -> {
+                LineStyle style = readStyle(in);
+                int width = in.readInt();
+                int count = in.readInt();
+                Polygon polygon = new Polygon();
+                for (int i = 0; i < count; i++) polygon.addPoint(readPoint(in));
+                FillPaint fill = type == FILLED_POLYGON ? readPaint(in) : null;
+                return new PolygonOp(polygon, color, style, width, fill);
+            }
+            case STROKE -> {
+                LineStyle style = readStyle(in);
+                int width = in.readInt();
+                int count = in.readInt();
+                StrokeOp stroke = new StrokeOp(color, style, width);
+                for (int i = 0; i < count; i++) stroke.addPoint(in.readInt(), in.readInt());
+                return stroke;
+            }
+            case VARIABLE_STROKE -> {
+                LineStyle style = readStyle(in);
+                int width = in.readInt();
+                int count = in.readInt();
+                StrokeOp stroke = new StrokeOp(color, style, width);
+                for (int i = 0; i < count; i++) stroke.addPoint(in.readInt(), in.readInt(), in.readInt());
+                return stroke;
+            }
+            case FILL, SHADED_FILL -> {
+                int x = in.readInt();
+                int y = in.readInt();
+                FillPaint paint = type == SHADED_FILL ? readPaint(in) : null;
+                return new FillOp(x, y, color, paint);
+            }
+            case IMAGE -> {
+                String path = in.readUTF();
+                return new ImageOp(path, in.readInt(), in.readInt(), in.readInt(), in.readInt());
+            }
+            default -> throw new IOException("Unknown operation type " + type);
+        }
+    }
+
+    // write style ordinal, -1 for none
+    private static void writeStyle(DataOutputStream out, LineStyle style) throws IOException {
+        out.writeByte(style != null ? style.ordinal() : -1);
+    }
+
+    // read style written by writeStyle
+    private static LineStyle readStyle(DataInputStream in) throws IOException {
+        int ordinal = in.readByte();
+        if (ordinal < 0) return null;
+        if (ordinal >= LineStyle.values().length) throw new IOException("Unknown line style " + ordinal);
+        return LineStyle.values()[ordinal];
+    }
+
+    // write gradient or pattern description
+    private static void writePaint(DataOutputStream out, FillPaint paint) throws IOException {
+        out.writeByte(paint.getKind().ordinal());
+        if (paint.getKind() == FillPaint.Kind.PATTERN) {
+            out.writeUTF(paint.getPatternPath());
+            out.writeInt(paint.getX1());
+            out.writeInt(paint.getY1());
+            return;
+        }
+        out.writeInt(paint.getStartColor());
+        out.writeInt(paint.getEndColor());
+        out.writeInt(paint.getX1());
+        out.writeInt(paint.getY1());
+        out.writeInt(paint.getX2());
+        out.writeInt(paint.getY2());
+        out.writeBoolean(paint.isDithered());
+    }
+
+    // read paint written by writePaint
+    private static FillPaint readPaint(DataInputStream in) throws IOException {
+        int ordinal = in.readByte();
+        if (ordinal < 0 || ordinal >= FillPaint.Kind.values().length) {
+            throw new IOException("Unknown paint kind " + ordinal);
+        }
+        FillPaint.Kind kind = FillPaint.Kind.values()[ordinal];
+        if (kind == FillPaint.Kind.PATTERN) {
+            return new FillPaint(in.readUTF(), in.readInt(), in.readInt());
+        }
+        return new FillPaint(kind, in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+                in.readBoolean());
+    }
+
+    // write point coordinates
+    private static void writePoint(DataOutputStream out, Point p) throws IOException {
+        out.writeInt(p.getX());
+        out.writeInt(p.getY());
+    }
+
+    // read point coordinates
+    private static Point readPoint(DataInputStream in) throws IOException {
+        return new Point(in.readInt(), in.readInt());
+    }
+}
@@ -0,0 +1,396 @@
+package storage;
+
+import rasters.Raster;
+import rasters.RasterBufferedImage;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+public class RasterExporter {
+    // supported output formats
+    public enum Format {
+        PNG, RAW, LZ4
+    }
+
+    // receives progress as bands are written, called on the exporting thread
+    public interface ProgressListener {
+        void progress(int bandsDone, int bandsTotal);
+    }
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final int RAW_MAGIC = 0x44445257;
+    private static final int LZ4_MAGIC = 0x44444C34;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final int ADLER_BASE = 65521;
+
+    private int bandHeight = 128;
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private boolean alpha = false;
+
+    // set rows per independently compressed band
+    public void setBandHeight(int bandHeight) {
+        this.bandHeight = Math.max(1, bandHeight);
+    }
+
+    // set deflate level for png output
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    // keep alpha channel in png output
+    public void setAlpha(boolean alpha) {
+        this.alpha = alpha;
+    }
+
+    // pick format from file extension, png by default
+    public static Format formatFor(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".raw")) return Format.RAW;
+        if (name.endsWith(".lz4")) return Format.LZ4;
+        return Format.PNG;
+    }
+
+    // write raster to file, bands are encoded in parallel and written in order
+    public void export(Raster raster, Path file, Format format, ProgressListener listener) throws IOException {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        int bands = Math.max(1, (height + bandHeight - 1) / bandHeight);
+
+        List<CompletableFuture<byte[]>> encoded = new ArrayList<>(bands);
+        for (int band = 0; band < bands; band++) {
+            int y0 = band * bandHeight;
+            int y1 = Math.min(height, y0 + bandHeight);
+            boolean last = band == bands - 1;
+            encoded.add(CompletableFuture.supplyAsync(() -> switch (format) {
+                case PNG -> deflateBand(raster, y0, y1, last);
+                case RAW -> rawBand(raster, y0, y1);
+                case LZ4 -> lz4Band(raster, y0, y1);
+            }));
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeHeader(channel, format, width, height, bands);
+
+            long adler = 1;
+            for (int band = 0; band < bands; band++) {
+                byte[] data = join(encoded.get(band));
+                if (format == Format.PNG) {
+                    int y0 = band * bandHeight;
+                    long rawLength = (long) (Math.min(height, y0 + bandHeight) - y0) * (1 + width * bytesPerPixel());
+                    adler = combineAdler(adler, readAdler(data), rawLength);
+                    writePngData(channel, data, band == 0, band == bands - 1, adler);
+                } else {
+                    write(channel, ByteBuffer.wrap(data));
+                }
+                if (listener != null) listener.progress(band + 1, bands);
+            }
+
+            if (format == Format.PNG) {
+                writeChunk(channel, "IEND", new byte[0]);
+            }
+        }
+    }
+
+    // read raw or lz4 intermediate file back into a raster
+    public static RasterBufferedImage read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, 16);
+            int magic = header.getInt();
+            int width = header.getInt();
+            int height = header.getInt();
+            int bands = header.getInt();
+            if (magic != RAW_MAGIC && magic != LZ4_MAGIC) throw new IOException("Unknown raster file: " + file);
+
+            RasterBufferedImage raster = new RasterBufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            int[] row = new int[width];
+            int y = 0;
+            for (int band = 0; band < bands; band++) {
+                ByteBuffer pixels;
+                if (magic == RAW_MAGIC) {
+                    ByteBuffer size = readFully(channel, 4);
+                    pixels = readFully(channel, size.getInt());
+                } else {
+                    ByteBuffer sizes = readFully(channel, 8);
+                    int rawLength = sizes.getInt();
+                    int compressedLength = sizes.getInt();
+                    ByteBuffer compressed = readFully(channel, compressedLength);
+                    byte[] raw = new byte[rawLength];
+                    Lz4Block.decompress(compressed.array(), compressedLength, raw, rawLength);
+                    pixels = ByteBuffer.wrap(raw);
+                }
+                pixels.order(ByteOrder.LITTLE_ENDIAN);
+
+                while (pixels.remaining() >= width * 4 && y < height) {
+                    pixels.asIntBuffer().get(row);
+                    pixels.position(pixels.position() + width * 4);
+                    for (int x = 0; x < width; x++) {
+                        raster.setPixel(x, y, row[x]);
+                    }
+                    y++;
+                }
+            }
+            return raster;
+        }
+    }
+
+    // filter rows of a band and deflate them, non-final bands end byte aligned with a sync flush
+    private byte[] deflateBand(Raster raster, int y0, int y1, boolean last) {
+        int width = raster.getWidth();
+        int stride = width * bytesPerPixel();
+        byte[] filtered = filterRows(raster, y0, y1);
+
+        Deflater deflater = new Deflater(compressionLevel, true);
+        try {
+            // prime with the end of the previous band like pigz, so bands compress nearly as well as one stream
+            if (y0 > 0) {
+                int rows = Math.min(y0, (DICTIONARY_SIZE + stride) / (stride + 1) + 1);
+                byte[] previous = filterRows(raster, y0 - rows, y0);
+                int length = Math.min(DICTIONARY_SIZE, previous.length);
+                deflater.setDictionary(previous, previous.length - length, length);
+            }
+            deflater.setInput(filtered);
+            if (last) deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(filtered.length / 4 + 64);
+            byte[] buffer = new byte[64 * 1024];
+            while (true) {
+                int count = last ? deflater.deflate(buffer) : deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                out.write(buffer, 0, count);
+                if (last ? deflater.finished() : count < buffer.length && deflater.needsInput()) break;
+            }
+
+            // band checksum travels in front of the data and is combined while writing
+            Adler32 adler = new Adler32();
+            adler.update(filtered);
+            byte[] data = out.toByteArray();
+            byte[] result = new byte[data.length + 4];
+            ByteBuffer.wrap(result).putInt((int) adler.getValue());
+            System.arraycopy(data, 0, result, 4, data.length);
+            return result;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // convert rows to png scanlines, each with the filter giving the smallest sum of absolute values
+    private byte[] filterRows(Raster raster, int y0, int y1) {
+        int width = raster.getWidth();
+        int bpp = bytesPerPixel();
+        int stride = width * bpp;
+        byte[] out = new byte[(y1 - y0) * (stride + 1)];
+        byte[] previous = new byte[stride];
+        byte[] current = new byte[stride];
+        byte[] candidate = new byte[stride];
+        int[] pixels = new int[width];
+
+        if (y0 > 0) {
+            toBytes(raster, y0 - 1, pixels, previous);
+        }
+        for (int y = y0; y < y1; y++) {
+            toBytes(raster, y, pixels, current);
+            int base = (y - y0) * (stride + 1);
+
+            int bestFilter = 0;
+            long bestScore = Long.MAX_VALUE;
+            for (int filter = 0; filter < 5; filter++) {
+                long score = applyFilter(filter, current, previous, candidate, bpp);
+                if (score < bestScore) {
+                    bestScore = score;
+                    bestFilter = filter;
+                }
+            }
+            applyFilter(bestFilter, current, previous, candidate, bpp);
+            out[base] = (byte) bestFilter;
+            System.arraycopy(candidate, 0, out, base + 1, stride);
+
+            byte[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return out;
+    }
+
+    // apply png filter to a scanline, returns sum of absolute signed bytes
+    private static long applyFilter(int filter, byte[] row, byte[] up, byte[] out, int bpp) {
+        long score = 0;
+        for (int i = 0; i < row.length; i++) {
+            int a = i >= bpp ? row[i - bpp] & 0xff : 0;
+            int b = up[i] & 0xff;
+            int c = i >= bpp ? up[i - bpp] & 0xff : 0;
+            int x = row[i] & 0xff;
+            int value = switch (filter) {
+                case 1 -> x - a;
+                case 2 -> x - b;
+                case 3 -> x - ((a + b) >>> 1);
+                case 4 -> x - paeth(a, b, c);
+                default -> x;
+            };
+            out[i] = (byte) value;
+            score += Math.abs((byte) value);
+        }
+        return score;
+    }
+
+    // paeth predictor from the png specification
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) return a;
+        return pb <= pc ? b : c;
+    }
+
+    // read row through bulk accessor and split into rgb or rgba bytes
+    private void toBytes(Raster raster, int y, int[] pixels, byte[] out) {
+        raster.getRow(0, y, pixels.length, pixels, 0);
+        int j = 0;
+        for (int pixel : pixels) {
+            out[j++] = (byte) (pixel >>> 16);
+            out[j++] = (byte) (pixel >>> 8);
+            out[j++] = (byte) pixel;
+            if (alpha) out[j++] = (byte) (pixel >>> 24);
+        }
+    }
+
+    // pack band rows as little-endian ARGB ints
+    private static byte[] rowsToBytes(Raster raster, int y0, int y1) {
+        int width = raster.getWidth();
+        ByteBuffer buffer = ByteBuffer.allocate((y1 - y0) * width * 4).order(ByteOrder.LITTLE_ENDIAN);
+        int[] row = new int[width];
+        for (int y = y0; y < y1; y++) {
+            raster.getRow(0, y, width, row, 0);
+            buffer.asIntBuffer().put(row);
+            buffer.position(buffer.position() + width * 4);
+        }
+        return buffer.array();
+    }
+
+    // uncompressed band prefixed with its length
+    private static byte[] rawBand(Raster raster, int y0, int y1) {
+        byte[] pixels = rowsToBytes(raster, y0, y1);
+        byte[] result = new byte[pixels.length + 4];
+        ByteBuffer.wrap(result).putInt(pixels.length);
+        System.arraycopy(pixels, 0, result, 4, pixels.length);
+        return result;
+    }
+
+    // lz4 compressed band prefixed with raw and compressed length
+    private static byte[] lz4Band(Raster raster, int y0, int y1) {
+        byte[] pixels = rowsToBytes(raster, y0, y1);
+        byte[] compressed = Lz4Block.compress(pixels, pixels.length);
+        byte[] result = new byte[compressed.length + 8];
+        ByteBuffer.wrap(result).putInt(pixels.length).putInt(compressed.length);
+        System.arraycopy(compressed, 0, result, 8, compressed.length);
+        return result;
+    }
+
+    // write file header of given format
+    private void writeHeader(FileChannel channel, Format format, int width, int height, int bands) throws IOException {
+        if (format == Format.PNG) {
+            write(channel, ByteBuffer.wrap(PNG_SIGNATURE));
+            ByteBuffer ihdr = ByteBuffer.allocate(13);
+            ihdr.putInt(width).putInt(height).put((byte) 8).put((byte) (alpha ? 6 : 2))
+                    .put((byte) 0).put((byte) 0).put((byte) 0);
+            writeChunk(channel, "IHDR", ihdr.array());
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(16);
+        header.putInt(format == Format.RAW ? RAW_MAGIC : LZ4_MAGIC).putInt(width).putInt(height).putInt(bands);
+        header.flip();
+        write(channel, header);
+    }
+
+    // write deflated band as IDAT, the first one opens the zlib stream and the last one closes it
+    private void writePngData(FileChannel channel, byte[] band, boolean first, boolean last, long adler) throws IOException {
+        int length = band.length - 4;
+        byte[] data = new byte[length + (first ? 2 : 0) + (last ? 4 : 0)];
+        int offset = 0;
+        if (first) {
+            data[offset++] = 0x78;
+            data[offset++] = (byte) 0xda;
+        }
+        System.arraycopy(band, 4, data, offset, length);
+        if (last) {
+            ByteBuffer.wrap(data, offset + length, 4).putInt((int) adler);
+        }
+        writeChunk(channel, "IDAT", data);
+    }
+
+    // write png chunk with length and crc
+    private static void writeChunk(FileChannel channel, String type, byte[] data) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(12 + data.length);
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        chunk.putInt(data.length).put(typeBytes).put(data).putInt((int) crc.getValue());
+        chunk.flip();
+        write(channel, chunk);
+    }
+
+    // get checksum stored in front of a deflated band
+    private static long readAdler(byte[] band) {
+        return ByteBuffer.wrap(band, 0, 4).getInt() & 0xffffffffL;
+    }
+
+    // combine adler32 of two concatenated blocks, as adler32_combine in zlib
+    static long combineAdler(long adler1, long adler2, long length2) {
+        long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = (remainder * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xffff) + ADLER_BASE - 1;
+        sum2 += ((adler1 >>> 16) & 0xffff) + ((adler2 >>> 16) & 0xffff) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum2 >= (ADLER_BASE << 1)) sum2 -= (ADLER_BASE << 1);
+        if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+        return sum1 | (sum2 << 16);
+    }
+
+    // bytes per pixel in png scanlines
+    private int bytesPerPixel() {
+        return alpha ? 4 : 3;
+    }
+
+    // wait for encoded band, unwrapping worker failures
+    private static byte[] join(CompletableFuture<byte[]> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new IOException("Export failed", e.getCause());
+        }
+    }
+
+    // write whole buffer
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // read exactly count bytes
+    private static ByteBuffer readFully(FileChannel channel, int count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(count);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new IOException("Unexpected end of file");
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,130 @@
+package tools;
+
+import geometry.Simplifier;
+import models.DashPattern;
+import models.LineStyle;
+import models.StrokeOp;
+import rasterizers.LineCanvasRasterizer;
+
+public class BrushTool implements Tool {
+    // freehand tools sharing the stroke handling
+    public enum Mode {
+        // fixed width brush in the chosen color and style
+        BRUSH,
+        // solid brush whose width follows pointer speed
+        INK,
+        // fixed width brush painting with the background color
+        ERASER
+    }
+
+    private static final double STROKE_TOLERANCE = 0.5;
+
+    private final ToolContext context;
+    private final Mode mode;
+    private final Simplifier simplifier = new Simplifier();
+    private final VelocityWidth velocityWidth = new VelocityWidth();
+
+    // stroke being drawn and the end of its last segment
+    private StrokeOp stroke;
+    private DashPattern pattern;
+    private int lastX;
+    private int lastY;
+    private int lastWidth;
+    private int dashPhase;
+
+    // create freehand tool of given mode drawing through context
+    public BrushTool(ToolContext context, Mode mode) {
+        this.context = context;
+        this.mode = mode;
+    }
+
+    @Override
+    public String getName() {
+        return mode.name();
+    }
+
+    @Override
+    public void deactivate() {
+        if (stroke != null) {
+            context.getLineRasterizer().endStroke();
+        }
+        stroke = null;
+    }
+
+    @Override
+    public void pressed(int x, int y) {
+        lastX = x;
+        lastY = y;
+        dashPhase = 0;
+        context.getRaster().startPreview();
+
+        boolean eraser = mode == Mode.ERASER;
+        int color = eraser ? context.getBackgroundColor() : context.getColor();
+        LineStyle style = mode == Mode.BRUSH ? context.getLineStyle() : LineStyle.SOLID;
+        pattern = style != null ? style.getPattern() : null;
+        stroke = new StrokeOp(color, style, context.getLineWidth());
+        context.getDisplayList().add(stroke);
+
+        // segments of one drag form one stroke, so a translucent brush does not darken where they overlap
+        LineCanvasRasterizer rasterizer = context.getLineRasterizer();
+        rasterizer.beginStroke();
+        if (mode == Mode.INK) {
+            velocityWidth.start(x, y, context.getEventTime());
+            lastWidth = velocityWidth.widthAt(stroke.getWidth());
+            stroke.addPoint(x, y, lastWidth);
+            rasterizer.rasterizeSegment(x, y, lastWidth, x, y, lastWidth, color);
+        } else {
+            lastWidth = stroke.getWidth();
+            stroke.addPoint(x, y);
+            rasterizer.setLineWidth(stroke.getWidth());
+            rasterizer.rasterizeSegment(x, y, x, y, color, pattern, 0);
+        }
+        context.repaint();
+    }
+
+    @Override
+    public void dragged(int x, int y) {
+        if (stroke == null) return;
+
+        // the stroke grows its packed point array in place, segments are drawn straight from coordinates
+        LineCanvasRasterizer rasterizer = context.getLineRasterizer();
+        int width = stroke.getWidth();
+        if (mode == Mode.INK) {
+            width = velocityWidth.next(x, y, context.getEventTime(), stroke.getWidth());
+            stroke.addPoint(x, y, width);
+            rasterizer.rasterizeSegment(lastX, lastY, lastWidth, x, y, width, stroke.getColor());
+        } else {
+            stroke.addPoint(x, y);
+            rasterizer.setLineWidth(width);
+            dashPhase = rasterizer.rasterizeSegment(lastX, lastY, x, y, stroke.getColor(), pattern, dashPhase);
+        }
+
+        int pad = Math.max(lastWidth, width) / 2 + 1;
+        context.repaint(Math.min(lastX, x) - pad, Math.min(lastY, y) - pad,
+                Math.abs(x - lastX) + 2 * pad + 1, Math.abs(y - lastY) + 2 * pad + 1);
+        lastX = x;
+        lastY = y;
+        lastWidth = width;
+    }
+
+    @Override
+    public void released(int x, int y) {
+        if (stroke != null) {
+            // freehand input is dense, keep only points that change the drawn path
+            // widths of ink strokes change along straight parts too, so those keep every point
+            int count = stroke.getPointCount();
+            if (!stroke.isVariableWidth()) {
+                int[] simplified = simplifier.simplify(stroke.getPoints(), count, STROKE_TOLERANCE);
+                if (simplified.length / 2 < count) {
+                    stroke.setPoints(simplified, simplified.length / 2);
+                }
+            }
+            // points were appended without notification while drawing
+            context.getDisplayList().markChanged(stroke);
+            context.getLineRasterizer().endStroke();
+        }
+        stroke = null;
+        context.getRaster().endPreview();
+        context.repaint();
+    }
+}
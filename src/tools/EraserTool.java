@@ -0,0 +1,306 @@
+package tools;
+
+import geometry.EraserPath;
+import geometry.PolygonBoolean;
+import models.DrawOp;
+import models.ImageOp;
+import models.Line;
+import models.LineOp;
+import models.LineStyle;
+import models.Point;
+import models.Polygon;
+import models.PolygonOp;
+import models.StrokeOp;
+import rasterizers.LineCanvasRasterizer;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class EraserTool implements Tool {
+    // erasers removing geometry from the document instead of painting over it
+    public enum Mode {
+        // delete every shape the eraser touches while dragging
+        OBJECT,
+        // cut the erased parts out of lines, outlines and strokes when the drag ends
+        SPLIT
+    }
+
+    private final ToolContext context;
+    private final Mode mode;
+    private final EraserPath path = new EraserPath();
+    private final PolygonBoolean polygonBoolean = new PolygonBoolean();
+
+    // eraser position of the last event, the overlay ring follows it
+    private boolean erasing;
+    private int lastX;
+    private int lastY;
+    private int width;
+
+    // create vector eraser of given mode working through context
+    public EraserTool(ToolContext context, Mode mode) {
+        this.context = context;
+        this.mode = mode;
+    }
+
+    @Override
+    public String getName() {
+        return mode.name() + "_ERASER";
+    }
+
+    @Override
+    public void deactivate() {
+        if (erasing) context.getDisplayList().endEdit();
+        erasing = false;
+    }
+
+    @Override
+    public void pressed(int x, int y) {
+        // everything one drag erases is undone together
+        if (!erasing) context.getDisplayList().beginEdit();
+        erasing = true;
+        width = context.getLineWidth();
+        lastX = x;
+        lastY = y;
+        path.reset(width / 2 + 0.5);
+        path.addPoint(x, y);
+
+        if (mode == Mode.OBJECT) {
+            eraseObjects();
+            return;
+        }
+        // the swept area is shown in the background color until the document is cut on release
+        context.getRaster().startPreview();
+        LineCanvasRasterizer rasterizer = context.getLineRasterizer();
+        rasterizer.setLineWidth(width);
+        rasterizer.rasterizeSegment(x, y, x, y, context.getBackgroundColor(), null, 0);
+        context.repaint();
+    }
+
+    @Override
+    public void dragged(int x, int y) {
+        if (!erasing) return;
+
+        if (mode == Mode.OBJECT) {
+            // only the newest capsule is tested, shapes touched earlier are already gone
+            path.reset(width / 2 + 0.5);
+            path.addPoint(lastX, lastY);
+            path.addPoint(x, y);
+            eraseObjects();
+        } else {
+            path.addPoint(x, y);
+            LineCanvasRasterizer rasterizer = context.getLineRasterizer();
+            rasterizer.setLineWidth(width);
+            rasterizer.rasterizeSegment(lastX, lastY, x, y, context.getBackgroundColor(), null, 0);
+        }
+
+        int pad = width / 2 + 1;
+        context.repaint(Math.min(lastX, x) - pad, Math.min(lastY, y) - pad,
+                Math.abs(x - lastX) + 2 * pad + 1, Math.abs(y - lastY) + 2 * pad + 1);
+        lastX = x;
+        lastY = y;
+    }
+
+    @Override
+    public void released(int x, int y) {
+        if (!erasing) return;
+        erasing = false;
+
+        if (mode == Mode.SPLIT) {
+            int changed = 0;
+            for (DrawOp op : context.findShapesTouching(path.getBounds())) {
+                List<DrawOp> pieces = split(op);
+                if (pieces != null) {
+                    context.replaceShape(op, pieces);
+                    changed++;
+                }
+            }
+            // the trail stays out of the base raster, the redraw shows what was really cut
+            if (changed > 0) {
+                context.commitAllChanges();
+            } else {
+                context.getPreviewRaster().copyFrom(context.getBaseRaster());
+            }
+        }
+        context.getDisplayList().endEdit();
+        context.repaint();
+    }
+
+    @Override
+    public void paintOverlay(Graphics graphics) {
+        if (!erasing) return;
+
+        int half = width / 2;
+        Rectangle ring = context.toScreen(new Rectangle(lastX - half, lastY - half, 2 * half + 1, 2 * half + 1));
+        graphics.setColor(Color.DARK_GRAY);
+        graphics.drawOval(ring.x, ring.y, ring.width, ring.height);
+    }
+
+    // delete shapes the current path touches and redraw once if any went away
+    private void eraseObjects() {
+        boolean removed = false;
+        for (DrawOp op : context.findShapesTouching(path.getBounds())) {
+            if (touches(op)) {
+                context.replaceShape(op, Collections.emptyList());
+                removed = true;
+            }
+        }
+        if (removed) {
+            context.commitAllChanges();
+        }
+    }
+
+    // check if eraser path touches geometry of operation, fills and images are hit anywhere inside
+    private boolean touches(DrawOp op) {
+        if (op instanceof LineOp) {
+            LineOp lineOp = (LineOp) op;
+            return path.hits(lineCoords(lineOp.getLine()), 2, false, null, lineOp.getWidth());
+        } else if (op instanceof PolygonOp) {
+            PolygonOp polygonOp = (PolygonOp) op;
+            int[] coords = polygonCoords(polygonOp);
+            return path.hits(coords, coords.length / 2, true, null, polygonOp.getWidth())
+                    || polygonOp.getFill() != null && reachesInside(polygonOp.getPolygon());
+        } else if (op instanceof StrokeOp) {
+            StrokeOp stroke = (StrokeOp) op;
+            return path.hits(stroke.getPoints(), stroke.getPointCount(), false, strokeWidths(stroke), stroke.getWidth());
+        } else if (op instanceof ImageOp) {
+            return path.getBounds().intersects(op.getBounds());
+        }
+        return false;
+    }
+
+    // cut erased parts out of operation, null when the eraser missed it
+    // outlines lose their closing edge when cut, so their pieces become open strokes in the same style
+    // a fill keeps the area the eraser left as a polygon under an invisible outline
+    private List<DrawOp> split(DrawOp op) {
+        if (op instanceof LineOp) {
+            LineOp lineOp = (LineOp) op;
+            Line line = lineOp.getLine();
+            int[] coords = lineCoords(line);
+            if (!path.clip(coords, 2, false, null, lineOp.getWidth())) return null;
+
+            List<DrawOp> pieces = new ArrayList<>();
+            for (int i = 0; i < path.getPieceCount(); i++) {
+                int[] piece = path.getPiece(i, coords, 2, null, lineOp.getWidth());
+                if (piece.length < 6) continue;
+                Line part = new Line(new Point(piece[0], piece[1]), new Point(piece[3], piece[4]),
+                        line.getColor(), line.getStyle(), line.getDashPattern());
+                pieces.add(new LineOp(part, lineOp.getWidth()));
+            }
+            return pieces;
+        } else if (op instanceof PolygonOp) {
+            PolygonOp polygonOp = (PolygonOp) op;
+            int[] coords = polygonCoords(polygonOp);
+            int count = coords.length / 2;
+            boolean outlineCut = path.clip(coords, count, true, null, polygonOp.getWidth());
+            if (polygonOp.getFill() == null) {
+                return outlineCut ? strokePieces(coords, count, null, polygonOp.getColor(), polygonOp.getStyle(),
+                        polygonOp.getWidth()) : null;
+            }
+            if (!outlineCut && !reachesInside(polygonOp.getPolygon())) return null;
+
+            List<DrawOp> pieces = new ArrayList<>();
+            Polygon fill = cutFill(polygonOp.getPolygon());
+            if (fill != null) {
+                pieces.add(new PolygonOp(fill, polygonOp.getColor() & 0x00ffffff, polygonOp.getStyle(),
+                        polygonOp.getWidth(), polygonOp.getFill()));
+            }
+            // the outline of a fill cut earlier is invisible and needs no pieces
+            if (polygonOp.getColor() >>> 24 != 0) {
+                if (outlineCut) {
+                    pieces.addAll(strokePieces(coords, count, null, polygonOp.getColor(), polygonOp.getStyle(),
+                            polygonOp.getWidth()));
+                } else {
+                    pieces.add(new PolygonOp(copyOf(polygonOp.getPolygon()), polygonOp.getColor(),
+                            polygonOp.getStyle(), polygonOp.getWidth()));
+                }
+            }
+            return pieces;
+        } else if (op instanceof StrokeOp) {
+            StrokeOp stroke = (StrokeOp) op;
+            int[] coords = stroke.getPoints();
+            int[] widths = strokeWidths(stroke);
+            if (!path.clip(coords, stroke.getPointCount(), false, widths, stroke.getWidth())) return null;
+            return strokePieces(coords, stroke.getPointCount(), widths, stroke.getColor(), stroke.getStyle(),
+                    stroke.getWidth());
+        }
+        return null;
+    }
+
+    // check if any point of the eraser centre line lies inside polygon
+    private boolean reachesInside(Polygon polygon) {
+        for (int i = 0; i < path.getPointCount(); i++) {
+            if (context.getPolygonRasterizer().isPointInsidePolygon(polygon, new Point(path.getX(i), path.getY(i)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // subtract every capsule the eraser swept from polygon area, null when nothing is left
+    // holes make several contours, they are joined into one ring filled with the same even-odd rule
+    private Polygon cutFill(Polygon polygon) {
+        List<Polygon> remaining = List.of(polygon);
+        for (Polygon capsule : path.getCapsules()) {
+            remaining = polygonBoolean.compute(remaining, List.of(capsule), PolygonBoolean.Operation.DIFFERENCE);
+            if (remaining.isEmpty()) return null;
+        }
+        return polygonBoolean.join(remaining);
+    }
+
+    // copy polygon with fresh points
+    private static Polygon copyOf(Polygon polygon) {
+        Polygon copy = new Polygon();
+        for (Point p : polygon.getPoints()) {
+            copy.addPoint(new Point(p.getX(), p.getY()));
+        }
+        return copy;
+    }
+
+    // turn pieces of the last clip into strokes, widths are kept only for variable width sources
+    private List<DrawOp> strokePieces(int[] coords, int count, int[] widths, int color,
+                                      LineStyle style, int width) {
+        List<DrawOp> pieces = new ArrayList<>();
+        for (int i = 0; i < path.getPieceCount(); i++) {
+            int[] piece = path.getPiece(i, coords, count, widths, width);
+            StrokeOp stroke = new StrokeOp(color, style, width);
+            for (int p = 0; p < piece.length; p += 3) {
+                if (widths != null) {
+                    stroke.addPoint(piece[p], piece[p + 1], piece[p + 2]);
+                } else {
+                    stroke.addPoint(piece[p], piece[p + 1]);
+                }
+            }
+            pieces.add(stroke);
+        }
+        return pieces;
+    }
+
+    // pack line end points as x,y pairs
+    private static int[] lineCoords(Line line) {
+        return new int[]{line.getPoint1().getX(), line.getPoint1().getY(),
+                line.getPoint2().getX(), line.getPoint2().getY()};
+    }
+
+    // pack polygon points as x,y pairs
+    private static int[] polygonCoords(PolygonOp op) {
+        List<Point> points = op.getPolygon().getPoints();
+        int[] coords = new int[points.size() * 2];
+        for (int i = 0; i < points.size(); i++) {
+            coords[i * 2] = points.get(i).getX();
+            coords[i * 2 + 1] = points.get(i).getY();
+        }
+        return coords;
+    }
+
+    // get per point widths of a variable width stroke, null for fixed width strokes
+    private static int[] strokeWidths(StrokeOp stroke) {
+        if (!stroke.isVariableWidth()) return null;
+        int[] widths = new int[stroke.getPointCount()];
+        for (int i = 0; i < widths.length; i++) widths[i] = stroke.getWidth(i);
+        return widths;
+    }
+}
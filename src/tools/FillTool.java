@@ -0,0 +1,90 @@
+package tools;
+
+import models.FillOp;
+import models.FillPaint;
+import rasterizers.Shader;
+import rasterizers.Shaders;
+
+public class FillTool implements Tool {
+    // gradient axis used until the drag gives a direction
+    private static final int DEFAULT_AXIS = 100;
+
+    private final ToolContext context;
+
+    // paint of the fill being dragged, null when the fill was done on press
+    private FillPaint paint;
+    // shader of the dragged fill, moved to the new axis on every drag event
+    private Shader shader;
+    private int startX;
+    private int startY;
+
+    // create fill tool drawing through context
+    public FillTool(ToolContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public String getName() {
+        return "FILL";
+    }
+
+    @Override
+    public void deactivate() {
+        paint = null;
+    }
+
+    @Override
+    public void pressed(int x, int y) {
+        FillPaint chosen = context.getFillPaint();
+        // an unreadable pattern tile falls back to the flat color
+        shader = chosen.getKind() != FillPaint.Kind.SOLID
+                ? Shaders.update(shader, chosen, x, y, x + DEFAULT_AXIS, y) : null;
+        if (shader == null) {
+            context.getDisplayList().add(new FillOp(x, y, context.getColor()));
+            context.getRaster().startPreview();
+            context.getFloodFiller().floodFill(x, y, context.getColor());
+            context.getRaster().endPreview();
+            context.repaint();
+            return;
+        }
+
+        // the region is found once, dragging only shades it again along the new axis
+        context.getRaster().startPreview();
+        if (!context.getFloodFiller().findRegion(x, y)) {
+            context.getRaster().endPreview();
+            return;
+        }
+        paint = chosen;
+        startX = x;
+        startY = y;
+        context.getFloodFiller().shadeRegion(shader);
+        context.repaint();
+    }
+
+    @Override
+    public void dragged(int x, int y) {
+        if (paint == null) return;
+        shade(x, y);
+    }
+
+    @Override
+    public void released(int x, int y) {
+        if (paint == null) return;
+        if (x == startX && y == startY) x += DEFAULT_AXIS;
+        context.getDisplayList().add(new FillOp(startX, startY, context.getColor(),
+                paint.withAxis(startX, startY, x, y)));
+        shade(x, y);
+        context.getRaster().endPreview();
+        context.repaint();
+        paint = null;
+    }
+
+    // shade found region with the paint along axis from the press point
+    private void shade(int x, int y) {
+        if (x == startX && y == startY) x += DEFAULT_AXIS;
+        shader = Shaders.update(shader, paint, startX, startY, x, y);
+        if (shader == null) return;
+        context.getFloodFiller().shadeRegion(shader);
+        context.repaint();
+    }
+}
@@ -0,0 +1,37 @@
+package tools;
+
+import models.Line;
+import models.LineOp;
+import models.LineStyle;
+import models.Point;
+import rasterizers.LineCanvasRasterizer;
+
+public class LineTool extends StretchTool {
+    // create line tool drawing through context
+    public LineTool(ToolContext context) {
+        super(context);
+    }
+
+    @Override
+    public String getName() {
+        return "LINE";
+    }
+
+    @Override
+    protected void drawPreview() {
+        int width = context.getLineWidth();
+        LineStyle style = context.getLineStyle();
+        LineCanvasRasterizer rasterizer = context.getLineRasterizer();
+        rasterizer.setLineWidth(width);
+        rasterizer.rasterizeSegment(startX, startY, endX, endY, context.getColor(),
+                style != null ? style.getPattern() : null, 0);
+        setDrawn(Math.min(startX, endX), Math.min(startY, endY), Math.max(startX, endX), Math.max(startY, endY), width);
+    }
+
+    @Override
+    protected void commit() {
+        Line line = new Line(new Point(startX, startY), new Point(endX, endY), context.getColor(), context.getLineStyle());
+        context.getCanvas().add(line);
+        context.getDisplayList().add(new LineOp(line, context.getLineWidth()));
+    }
+}
@@ -0,0 +1,78 @@
+package tools;
+
+import models.DisplayList;
+import models.FillPaint;
+import models.Point;
+import models.Polygon;
+import models.PolygonOp;
+
+public class PolygonTool implements Tool {
+    private final ToolContext context;
+
+    // polygon extended by each click until another tool is chosen
+    private Polygon polygon = new Polygon();
+
+    // interior paint chosen when the polygon was recorded, null for an outline only
+    private FillPaint fill;
+
+    // create polygon tool drawing through context
+    public PolygonTool(ToolContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public String getName() {
+        return "POLYGON";
+    }
+
+    @Override
+    public void activate() {
+        reset();
+    }
+
+    @Override
+    public void pressed(int x, int y) {
+        polygon.addPoint(new Point(x, y));
+        int size = polygon.getPoints().size();
+        DisplayList displayList = context.getDisplayList();
+        if (size == 3) {
+            // record polygon once it is drawable, later clicks extend the same shape
+            context.getPolygons().add(polygon);
+            fill = context.isFillingShapes() ? context.getFillPaint() : null;
+            displayList.add(new PolygonOp(polygon, context.getColor(), context.getLineStyle(), context.getLineWidth(),
+                    fill));
+        }
+        if (size > 3) {
+            displayList.markChanged(displayList.findPolygonOp(polygon));
+        }
+        if (size >= 3) {
+            context.getRaster().startPreview();
+            if (fill != null) {
+                context.getPolygonRasterizer().fill(polygon, fill);
+            }
+            context.getPolygonRasterizer().rasterize(polygon, context.getColor(), context.getLineStyle(),
+                    context.getLineWidth());
+            context.repaint();
+        }
+    }
+
+    @Override
+    public void dragged(int x, int y) {
+    }
+
+    @Override
+    public void released(int x, int y) {
+    }
+
+    // start a new polygon with the next click
+    public void reset() {
+        polygon = new Polygon();
+    }
+
+    // start over when the polygon being drawn was removed from the document
+    public void discard(Polygon removed) {
+        if (removed == polygon) {
+            reset();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package tools;
+
+import models.DrawOp;
+import models.LineOp;
+import models.PolygonOp;
+import models.SelectionTracker;
+import rasterizers.DisplayListRenderer;
+import rasters.Raster;
+import rasters.RasterBufferedImage;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+public class SelectTool implements Tool {
+    private final ToolContext context;
+    private final DisplayListRenderer spriteRenderer = new DisplayListRenderer();
+
+    // selection drag composites a cached sprite over the scene without the selected shapes
+    private RasterBufferedImage dragSprite;
+    private Raster dragBackground;
+    private final Rectangle dragSpriteBounds = new Rectangle();
+    private int dragOriginX;
+    private int dragOriginY;
+    private int dragOffsetX;
+    private int dragOffsetY;
+
+    // rubber band rectangle while selecting by area, reused between drags
+    private final Rectangle rubberBand = new Rectangle();
+    private boolean rubberBanding;
+    private int rubberBandX;
+    private int rubberBandY;
+
+    // create selection tool working through context
+    public SelectTool(ToolContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public String getName() {
+        return "SELECT";
+    }
+
+    @Override
+    public void deactivate() {
+        context.getSelectionTracker().clearSelection();
+        rubberBanding = false;
+        dragSprite = null;
+    }
+
+    @Override
+    public void pressed(int x, int y) {
+        SelectionTracker selectionTracker = context.getSelectionTracker();
+
+        // grabbing a handle or an already selected shape keeps the whole selection
+        boolean keep = selectionTracker.findResizePoint(x, y) != null;
+        DrawOp hit = keep ? null : context.findShapeAt(x, y);
+        if (hit != null && isSelected(hit)) {
+            keep = true;
+        }
+        if (!keep) {
+            if (!context.isShiftDown()) {
+                selectionTracker.clearSelection();
+            }
+            if (hit == null) {
+                startRubberBand(x, y);
+                return;
+            }
+            select(hit);
+        }
+
+        context.getRaster().startPreview();
+        selectionTracker.startDrag(x, y);
+        if (!selectionTracker.isResizing()) {
+            beginSpriteDrag(x, y);
+        }
+    }
+
+    @Override
+    public void dragged(int x, int y) {
+        if (rubberBanding) {
+            stretchRubberBand(x, y);
+        } else if (dragSprite != null) {
+            moveSprite(x, y);
+        } else if (context.getSelectionTracker().hasSelection()) {
+            context.getSelectionTracker().updateDrag(x, y);
+            markSelectionChanged();
+            context.commitAllChanges();
+        }
+    }
+
+    @Override
+    public void released(int x, int y) {
+        if (rubberBanding) {
+            for (DrawOp op : context.findShapesInside(rubberBand)) {
+                select(op);
+            }
+            rubberBanding = false;
+            context.repaint();
+            return;
+        }
+        if (!context.getSelectionTracker().hasSelection()) return;
+
+        if (dragSprite != null) {
+            // apply the whole move to the model once
+            context.getSelectionTracker().updateDrag(x, y);
+            markSelectionChanged();
+            dragSprite = null;
+        }
+        context.getRaster().endPreview();
+        context.commitAllChanges();
+    }
+
+    @Override
+    public void paintOverlay(Graphics graphics) {
+        graphics.setColor(Color.RED);
+        graphics.drawString("Selection Tool Active", 10, 20);
+
+        SelectionTracker selectionTracker = context.getSelectionTracker();
+        if (selectionTracker.hasSelection() && dragSprite == null) {
+            Rectangle screen = context.toScreen(selectionTracker.getSelectionBounds());
+            graphics.setColor(Color.BLUE);
+            graphics.drawRect(screen.x - 2, screen.y - 2, screen.width + 3, screen.height + 3);
+            graphics.drawString(selectionTracker.getSelectionSize() + " selected", 10, 36);
+        }
+        if (rubberBanding) {
+            Rectangle screen = context.toScreen(rubberBand);
+            graphics.setColor(Color.BLUE);
+            graphics.drawRect(screen.x, screen.y, screen.width, screen.height);
+        }
+    }
+
+    // tell the display list which recorded shapes the selection edited
+    public void markSelectionChanged() {
+        context.getDisplayList().markChanged(getSelectedOps());
+    }
+
+    // begin selecting by area
+    private void startRubberBand(int x, int y) {
+        rubberBandX = x;
+        rubberBandY = y;
+        rubberBand.setBounds(x, y, 0, 0);
+        rubberBanding = true;
+        context.repaint();
+    }
+
+    // stretch rubber band to the cursor and repaint old and new outline
+    private void stretchRubberBand(int x, int y) {
+        int oldX = rubberBand.x, oldY = rubberBand.y;
+        int oldMaxX = oldX + rubberBand.width, oldMaxY = oldY + rubberBand.height;
+        rubberBand.setBounds(Math.min(rubberBandX, x), Math.min(rubberBandY, y),
+                Math.abs(x - rubberBandX), Math.abs(y - rubberBandY));
+
+        int minX = Math.min(oldX, rubberBand.x);
+        int minY = Math.min(oldY, rubberBand.y);
+        int maxX = Math.max(oldMaxX, rubberBand.x + rubberBand.width);
+        int maxY = Math.max(oldMaxY, rubberBand.y + rubberBand.height);
+        context.repaint(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+
+    // add shape of recorded operation to selection
+    private void select(DrawOp op) {
+        if (op instanceof PolygonOp) {
+            context.getSelectionTracker().addPolygon(((PolygonOp) op).getPolygon());
+        } else if (op instanceof LineOp) {
+            context.getSelectionTracker().addLine(((LineOp) op).getLine());
+        }
+    }
+
+    // check if shape of recorded operation is selected
+    private boolean isSelected(DrawOp op) {
+        if (op instanceof PolygonOp) {
+            return context.getSelectionTracker().isSelected(((PolygonOp) op).getPolygon());
+        }
+        return op instanceof LineOp && context.getSelectionTracker().isSelected(((LineOp) op).getLine());
+    }
+
+    // render selected shapes once into a sprite and the rest of the scene into a background
+    private void beginSpriteDrag(int x, int y) {
+        List<DrawOp> selected = getSelectedOps();
+        Rectangle bounds = null;
+        for (DrawOp op : selected) {
+            bounds = bounds == null ? op.getBounds() : bounds.union(op.getBounds());
+        }
+        if (bounds == null) return;
+
+        // parts further than one canvas away can never be dragged into view
+        Raster base = context.getBaseRaster();
+        int width = base.getWidth();
+        int height = base.getHeight();
+        bounds = bounds.intersection(new Rectangle(-width, -height, 3 * width, 3 * height));
+        if (bounds.isEmpty()) return;
+
+        dragSprite = new RasterBufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB);
+        spriteRenderer.renderTranslated(selected, dragSprite, -bounds.x, -bounds.y);
+
+        if (dragBackground == null || dragBackground.getWidth() != width || dragBackground.getHeight() != height) {
+            dragBackground = context.createRaster(width, height);
+        }
+        dragBackground.setClearColor(context.getBackgroundColor());
+        context.renderExcluding(dragBackground, selected);
+
+        dragSpriteBounds.setBounds(bounds);
+        dragOriginX = x;
+        dragOriginY = y;
+        dragOffsetX = 0;
+        dragOffsetY = 0;
+        Raster preview = context.getPreviewRaster();
+        preview.copyFrom(dragBackground);
+        preview.drawSprite(dragSprite, bounds.x, bounds.y);
+        context.repaint();
+    }
+
+    // restore background under the old sprite position and draw it at the new one
+    private void moveSprite(int x, int y) {
+        int width = dragSpriteBounds.width;
+        int height = dragSpriteBounds.height;
+        int previousX = dragSpriteBounds.x + dragOffsetX;
+        int previousY = dragSpriteBounds.y + dragOffsetY;
+        dragOffsetX = x - dragOriginX;
+        dragOffsetY = y - dragOriginY;
+        int currentX = dragSpriteBounds.x + dragOffsetX;
+        int currentY = dragSpriteBounds.y + dragOffsetY;
+
+        Raster preview = context.getPreviewRaster();
+        preview.copyRect(dragBackground, previousX, previousY, width, height);
+        preview.drawSprite(dragSprite, currentX, currentY);
+        context.repaint(Math.min(previousX, currentX), Math.min(previousY, currentY),
+                width + Math.abs(currentX - previousX), height + Math.abs(currentY - previousY));
+    }
+
+    // get recorded operations of the current selection
+    private List<DrawOp> getSelectedOps() {
+        SelectionTracker selectionTracker = context.getSelectionTracker();
+        return context.getDisplayList().findOps(selectionTracker.getSelectedLines(),
+                selectionTracker.getSelectedPolygons());
+    }
+}
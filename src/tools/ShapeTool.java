@@ -0,0 +1,127 @@
+package tools;
+
+import models.FillPaint;
+import models.Point;
+import models.Polygon;
+import models.PolygonOp;
+
+import java.util.List;
+
+public class ShapeTool extends StretchTool {
+    // shapes stretched from the press point, with their vertex count
+    public enum Shape {
+        RECTANGLE(4), TRIANGLE(3), CIRCLE(36);
+
+        private final int vertices;
+
+        Shape(int vertices) {
+            this.vertices = vertices;
+        }
+    }
+
+    // unit circle sampled at the circle vertices
+    private static final double[] COS = new double[Shape.CIRCLE.vertices];
+    private static final double[] SIN = new double[Shape.CIRCLE.vertices];
+
+    static {
+        for (int i = 0; i < COS.length; i++) {
+            double angle = 2 * Math.PI * i / COS.length;
+            COS[i] = Math.cos(angle);
+            SIN[i] = Math.sin(angle);
+        }
+    }
+
+    private final Shape shape;
+
+    // outline reused by every preview, only its point coordinates change while dragging
+    private final Polygon scratch = new Polygon();
+
+    // interior paint read once per shape, null for an outline only
+    private FillPaint fill;
+
+    // create tool for given shape drawing through context
+    public ShapeTool(ToolContext context, Shape shape) {
+        super(context);
+        this.shape = shape;
+        for (int i = 0; i < shape.vertices; i++) {
+            scratch.addPoint(new Point(0, 0));
+        }
+    }
+
+    @Override
+    public String getName() {
+        return shape.name();
+    }
+
+    @Override
+    public void pressed(int x, int y) {
+        fill = context.isFillingShapes() ? context.getFillPaint() : null;
+        super.pressed(x, y);
+    }
+
+    @Override
+    protected void drawPreview() {
+        updateOutline();
+        int width = context.getLineWidth();
+        if (fill != null) {
+            context.getPolygonRasterizer().fill(scratch, fill);
+        }
+        context.getPolygonRasterizer().rasterize(scratch, context.getColor(), context.getLineStyle(), width);
+
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        List<Point> points = scratch.getPoints();
+        for (int i = 0; i < points.size(); i++) {
+            Point p = points.get(i);
+            minX = Math.min(minX, p.getX());
+            minY = Math.min(minY, p.getY());
+            maxX = Math.max(maxX, p.getX());
+            maxY = Math.max(maxY, p.getY());
+        }
+        setDrawn(minX, minY, maxX, maxY, width);
+    }
+
+    @Override
+    protected void commit() {
+        Polygon polygon = new Polygon();
+        for (Point p : scratch.getPoints()) {
+            polygon.addPoint(new Point(p.getX(), p.getY()));
+        }
+        context.getPolygons().add(polygon);
+        context.getDisplayList().add(new PolygonOp(polygon, context.getColor(), context.getLineStyle(),
+                context.getLineWidth(), fill));
+    }
+
+    // move scratch outline points to the shape between start and end
+    private void updateOutline() {
+        List<Point> points = scratch.getPoints();
+        switch (shape) {
+            case RECTANGLE -> {
+                set(points.get(0), startX, startY);
+                set(points.get(1), endX, startY);
+                set(points.get(2), endX, endY);
+                set(points.get(3), startX, endY);
+            }
+            case TRIANGLE -> {
+                set(points.get(0), startX + (endX - startX) / 2, startY);
+                set(points.get(1), endX, endY);
+                set(points.get(2), startX, endY);
+            }
+            case CIRCLE -> {
+                int dx = endX - startX;
+                int dy = endY - startY;
+                int radius = (int) Math.sqrt((double) dx * dx + (double) dy * dy);
+                for (int i = 0; i < COS.length; i++) {
+                    set(points.get(i), (int) (startX + radius * COS[i]), (int) (startY + radius * SIN[i]));
+                }
+            }
+        }
+        scratch.markChanged();
+    }
+
+    // move point to given coordinates
+    private static void set(Point point, int x, int y) {
+        point.setX(x);
+        point.setY(y);
+    }
+}
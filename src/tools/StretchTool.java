@@ -0,0 +1,120 @@
+package tools;
+
+abstract class StretchTool implements Tool {
+    protected final ToolContext context;
+
+    // press point and current end point, aligned when shift is held
+    protected int startX;
+    protected int startY;
+    protected int endX;
+    protected int endY;
+    private boolean stretching;
+
+    // area covered by the last preview, restored from the base raster before drawing the next one
+    private int drawnX;
+    private int drawnY;
+    private int drawnWidth;
+    private int drawnHeight;
+
+    // create tool drawing through context
+    StretchTool(ToolContext context) {
+        this.context = context;
+    }
+
+    // draw shape between start and end into the preview and report its bounds with setDrawn
+    protected abstract void drawPreview();
+
+    // add finished shape to the document
+    protected abstract void commit();
+
+    @Override
+    public void deactivate() {
+        stretching = false;
+    }
+
+    @Override
+    public void pressed(int x, int y) {
+        startX = x;
+        startY = y;
+        endX = x;
+        endY = y;
+        stretching = true;
+        drawnWidth = 0;
+        context.getRaster().startPreview();
+    }
+
+    @Override
+    public void dragged(int x, int y) {
+        if (!stretching) return;
+        int oldX = drawnX, oldY = drawnY, oldWidth = drawnWidth, oldHeight = drawnHeight;
+        align(x, y);
+        erasePreview();
+        drawPreview();
+        repaintUnion(oldX, oldY, oldWidth, oldHeight);
+    }
+
+    @Override
+    public void released(int x, int y) {
+        if (!stretching) return;
+        stretching = false;
+        align(x, y);
+        erasePreview();
+        drawPreview();
+        commit();
+        context.getRaster().endPreview();
+        context.repaint();
+    }
+
+    // remember bounds of the preview just drawn, padded for line width
+    protected void setDrawn(int minX, int minY, int maxX, int maxY, int lineWidth) {
+        int pad = lineWidth / 2 + 1;
+        drawnX = minX - pad;
+        drawnY = minY - pad;
+        drawnWidth = maxX - minX + 2 * pad + 1;
+        drawnHeight = maxY - minY + 2 * pad + 1;
+    }
+
+    // copy base pixels back over the last preview only
+    private void erasePreview() {
+        if (drawnWidth > 0) {
+            context.getPreviewRaster().copyRect(context.getBaseRaster(), drawnX, drawnY, drawnWidth, drawnHeight);
+        }
+        drawnWidth = 0;
+    }
+
+    // repaint area of old and new preview
+    private void repaintUnion(int oldX, int oldY, int oldWidth, int oldHeight) {
+        if (oldWidth <= 0) {
+            context.repaint(drawnX, drawnY, drawnWidth, drawnHeight);
+            return;
+        }
+        if (drawnWidth <= 0) {
+            context.repaint(oldX, oldY, oldWidth, oldHeight);
+            return;
+        }
+        int minX = Math.min(oldX, drawnX);
+        int minY = Math.min(oldY, drawnY);
+        int maxX = Math.max(oldX + oldWidth, drawnX + drawnWidth);
+        int maxY = Math.max(oldY + oldHeight, drawnY + drawnHeight);
+        context.repaint(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    // set end point, with shift it snaps to horizontal, vertical or diagonal from the start
+    private void align(int x, int y) {
+        endX = x;
+        endY = y;
+        if (!context.isShiftDown()) return;
+
+        int dx = x - startX;
+        int dy = y - startY;
+        if (Math.abs(dx) > Math.abs(dy)) {
+            endY = startY;
+        } else if (Math.abs(dy) > Math.abs(dx)) {
+            endX = startX;
+        } else {
+            int d = Math.min(Math.abs(dx), Math.abs(dy));
+            endX = startX + (dx < 0 ? -d : d);
+            endY = startY + (dy < 0 ? -d : d);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package tools;
+
+import java.awt.Graphics;
+
+public interface Tool {
+    // get tool name as used by the toolbar
+    String getName();
+
+    // prepare tool when it becomes active
+    default void activate() {
+    }
+
+    // drop work in progress when another tool is chosen
+    default void deactivate() {
+    }
+
+    // handle button press at raster coordinates
+    void pressed(int x, int y);
+
+    // handle drag at raster coordinates, runs for every motion event so it keeps to scratch state
+    void dragged(int x, int y);
+
+    // handle button release at raster coordinates
+    void released(int x, int y);
+
+    // draw tool feedback over the canvas in screen space
+    default void paintOverlay(Graphics graphics) {
+    }
+}
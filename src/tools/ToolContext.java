@@ -0,0 +1,104 @@
+package tools;
+
+import models.DisplayList;
+import models.DrawOp;
+import models.FillPaint;
+import models.LineCanvas;
+import models.LineStyle;
+import models.Polygon;
+import models.SelectionTracker;
+import rasterizers.FloodFiller;
+import rasterizers.LineCanvasRasterizer;
+import rasterizers.PolygonRasterizer;
+import rasters.DoubleBufferedRaster;
+import rasters.Raster;
+
+import java.awt.Rectangle;
+import java.util.Collection;
+import java.util.List;
+
+public interface ToolContext {
+    // get visible raster with preview support
+    DoubleBufferedRaster getRaster();
+
+    // get committed layer
+    Raster getBaseRaster();
+
+    // get layer shown while previewing
+    Raster getPreviewRaster();
+
+    // create offscreen raster laid out like the canvas layers
+    Raster createRaster(int width, int height);
+
+    // get line rasterizer drawing into the visible raster
+    LineCanvasRasterizer getLineRasterizer();
+
+    // get polygon rasterizer drawing into the visible raster
+    PolygonRasterizer getPolygonRasterizer();
+
+    // get flood filler working on the visible raster
+    FloodFiller getFloodFiller();
+
+    // render document without given operations into target, e.g. the background of a dragged selection
+    void renderExcluding(Raster target, Collection<? extends DrawOp> excluded);
+
+    // get recorded document operations
+    DisplayList getDisplayList();
+
+    // get selectable lines
+    LineCanvas getCanvas();
+
+    // get selectable polygons
+    List<Polygon> getPolygons();
+
+    // get current selection
+    SelectionTracker getSelectionTracker();
+
+    // get drawing color chosen in the toolbar as argb, alpha from the opacity slider
+    int getColor();
+
+    // get canvas background color as argb
+    int getBackgroundColor();
+
+    // get fill paint chosen in the toolbar, its geometry is set by the tool using it
+    FillPaint getFillPaint();
+
+    // check if closed shapes are drawn with an interior fill
+    boolean isFillingShapes();
+
+    // get line width chosen in the toolbar
+    int getLineWidth();
+
+    // get line style selected by held keys
+    LineStyle getLineStyle();
+
+    // get time in milliseconds of the mouse event being handled, recorded times are kept on replay
+    long getEventTime();
+
+    // check if shift is held for precise drawing
+    boolean isShiftDown();
+
+    // find topmost selectable shape at given point, null when there is none
+    DrawOp findShapeAt(int x, int y);
+
+    // find selectable shapes lying fully inside region
+    List<DrawOp> findShapesInside(Rectangle region);
+
+    // find recorded shapes, strokes and images whose bounds intersect region, oldest first
+    List<DrawOp> findShapesTouching(Rectangle region);
+
+    // replace recorded shape with pieces drawn at its place, no pieces delete it
+    void replaceShape(DrawOp op, List<DrawOp> pieces);
+
+    // map raster rectangle to screen
+    Rectangle toScreen(Rectangle region);
+
+    // repaint whole view
+    void repaint();
+
+    // repaint view over raster region, including overlay drawn around it
+    void repaint(int x, int y, int width, int height);
+
+    // render document into base raster and show it
+    void commitAllChanges();
+}
@@ -0,0 +1,41 @@
+package tools;
+
+class VelocityWidth {
+    // speed in pixels per millisecond at which the stroke reaches its thinnest
+    private static final double THIN_SPEED = 2.5;
+    // thinnest width as a fraction of the chosen width
+    private static final double MIN_FRACTION = 0.25;
+    // weight of the newest speed sample, lower values make the width change more gradually
+    private static final double SMOOTHING = 0.35;
+
+    private double speed;
+    private int lastX;
+    private int lastY;
+    private long lastTime;
+
+    // start stroke at rest
+    void start(int x, int y, long time) {
+        speed = 0;
+        lastX = x;
+        lastY = y;
+        lastTime = time;
+    }
+
+    // get width for the next point, fast movement thins the stroke like an ink pen
+    int next(int x, int y, long time, int baseWidth) {
+        // coalesced events can share a millisecond
+        long elapsed = Math.max(1, time - lastTime);
+        double sample = Math.hypot(x - lastX, y - lastY) / elapsed;
+        speed += (sample - speed) * SMOOTHING;
+        lastX = x;
+        lastY = y;
+        lastTime = time;
+        return widthAt(baseWidth);
+    }
+
+    // width for the current smoothed speed
+    int widthAt(int baseWidth) {
+        double thinning = Math.min(1, speed / THIN_SPEED);
+        return Math.max(1, (int) Math.round(baseWidth * (1 - (1 - MIN_FRACTION) * thinning)));
+    }
+}